@@ -0,0 +1,100 @@
+package ab.task.banking_system.benchmarks;
+
+import ab.task.banking_system.BankingSystemApplication;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.service.AccountService;
+import ab.task.banking_system.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пополнение и списание через {@link AccountService} на реальной PostgreSQL.
+ * <p>
+ * Подключение берётся из тех же переменных, что и у приложения ({@code DB_URL}, {@code DB_USER},
+ * {@code DB_PASS}; по умолчанию локальная база {@code bank}). Бенчмарк создаёт собственных пользователя
+ * и счета, поэтому базу лучше выделить отдельную. Журналирование уровня INFO отключено, чтобы
+ * измерялся путь до базы, а не вывод логов.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccountServiceBenchmark {
+    static final BigDecimal AMOUNT = new BigDecimal("0.01");
+    static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        ConfigurableApplicationContext context;
+        AccountService accountService;
+        Long userId;
+        Long sharedAccountId;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(BankingSystemApplication.class)
+                    .web(WebApplicationType.NONE)
+                    // Аргументы командной строки, а не default properties: они должны перекрыть application.properties.
+                    .run(
+                            "--logging.level.root=WARN",
+                            "--logging.level.ab.task.banking_system=WARN",
+                            "--logging.level.org.hibernate.SQL=WARN",
+                            "--logging.level.org.hibernate.orm.jdbc.bind=WARN",
+                            "--spring.main.banner-mode=off");
+            accountService = context.getBean(AccountService.class);
+            userId = context.getBean(UserService.class)
+                    .create("benchmark", "benchmark-" + UUID.randomUUID() + "@example.com").getId();
+            sharedAccountId = newFundedAccount();
+        }
+
+        Long newFundedAccount() {
+            Long id = accountService.create(userId, null).getId();
+            accountService.deposit(id, INITIAL_BALANCE);
+            return id;
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    /**
+     * Отдельный счёт на поток: операции не ждут блокировок друг друга.
+     */
+    @State(Scope.Thread)
+    public static class OwnAccount {
+        Long accountId;
+
+        @Setup(Level.Trial)
+        public void create(Application app) {
+            accountId = app.newFundedAccount();
+        }
+    }
+
+    @Benchmark
+    public AccountBalance deposit(Application app, OwnAccount account) {
+        return app.accountService.deposit(account.accountId, AMOUNT);
+    }
+
+    @Benchmark
+    public AccountBalance withdraw(Application app, OwnAccount account) {
+        return app.accountService.withdraw(account.accountId, AMOUNT);
+    }
+
+    /**
+     * Все потоки пополняют один счёт: показывает стоимость ожидания блокировки строки.
+     */
+    @Benchmark
+    @Threads(8)
+    public AccountBalance depositSharedAccount(Application app) {
+        return app.accountService.deposit(app.sharedAccountId, AMOUNT);
+    }
+}
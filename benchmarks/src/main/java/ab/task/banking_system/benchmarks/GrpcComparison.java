@@ -0,0 +1,236 @@
+package ab.task.banking_system.benchmarks;
+
+import ab.task.banking_system.grpc.v1.AccountOperationsGrpc;
+import ab.task.banking_system.grpc.v1.AmountRequest;
+import ab.task.banking_system.grpc.v1.CreateAccountRequest;
+import ab.task.banking_system.grpc.v1.OperationReply;
+import ab.task.banking_system.grpc.v1.OperationRequest;
+import ab.task.banking_system.grpc.v1.OperationStatus;
+import ab.task.banking_system.grpc.v1.OperationType;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сравнение пополнений через HTTP/JSON, унарный gRPC и канал операций gRPC на запущенном приложении
+ * с {@code banking.grpc.enabled=true}. Режимы выполняются по очереди с одинаковым числом клиентов;
+ * каждый клиент ждёт ответа перед следующей операцией. Выводятся запросы в секунду, p50/p99 задержки
+ * и процессорное время приложения на операцию (по {@code process.cpu.time} из actuator),
+ * в котором и видна разница в разборе JSON и десятичных строк.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ab.task.banking_system.benchmarks.GrpcComparison \
+ *     --url=http://localhost:8080 --grpc=localhost:9090 --clients=32 --duration=30s
+ * </pre>
+ */
+public class GrpcComparison {
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern CPU_TIME = Pattern.compile("\"value\"\\s*:\\s*([0-9.E+-]+)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        String target = options.getOrDefault("grpc", "localhost:9090");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "32"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "256"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "10s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s"));
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ManagedChannel channel = Grpc.newChannelBuilder(target, InsecureChannelCredentials.create()).build();
+        try {
+            long[] accountIds = createAccounts(http, url, channel, accounts);
+            System.out.printf("clients=%d, accounts=%d, warmup=%s, duration=%s%n", clients, accounts, warmup, duration);
+            for (Mode mode : Mode.values()) {
+                run(mode, http, url, channel, accountIds, clients, warmup, duration);
+            }
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            http.close();
+        }
+    }
+
+    private enum Mode { HTTP_JSON, GRPC_UNARY, GRPC_STREAM }
+
+    private static void run(Mode mode, HttpClient http, String url, ManagedChannel channel, long[] accountIds,
+                            int clients, Duration warmup, Duration duration) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        long[][] latencies = new long[clients][];
+        AtomicLong errors = new AtomicLong();
+        double[] cpu = new double[2];
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            threads[i] = Thread.ofPlatform().name(mode + "-" + i).start(() -> {
+                try {
+                    Operation operation = switch (mode) {
+                        case HTTP_JSON -> httpDeposit(http, url);
+                        case GRPC_UNARY -> unaryDeposit(channel);
+                        case GRPC_STREAM -> new StreamDeposit(channel);
+                    };
+                    latencies[client] = loop(operation, accountIds, measureFrom, stopAt, errors);
+                    if (operation instanceof StreamDeposit stream) {
+                        stream.close();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        Thread.sleep(Math.max(0, (measureFrom - System.nanoTime()) / 1_000_000));
+        cpu[0] = processCpuNanos(http, url);
+        Thread.sleep(Math.max(0, (stopAt - System.nanoTime()) / 1_000_000));
+        cpu[1] = processCpuNanos(http, url);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-11s ok=%d (%.0f req/s), errors=%d, p50=%.2f ms, p99=%.2f ms, app cpu=%.0f us/op%n",
+                mode, all.length, all.length / (double) duration.toSeconds(), errors.get(),
+                percentile(all, 0.50), percentile(all, 0.99),
+                all.length == 0 ? 0 : (cpu[1] - cpu[0]) / 1e3 / all.length);
+    }
+
+    private static long[] loop(Operation operation, long[] accountIds, long measureFrom, long stopAt, AtomicLong errors)
+            throws Exception {
+        long[] latencies = new long[4096];
+        int count = 0;
+        while (true) {
+            long begin = System.nanoTime();
+            if (begin >= stopAt) {
+                break;
+            }
+            boolean ok = operation.deposit(accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)], 1);
+            long end = System.nanoTime();
+            if (begin < measureFrom) {
+                continue;
+            }
+            if (!ok) {
+                errors.incrementAndGet();
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = end - begin;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        boolean deposit(long accountId, long amountMinor) throws Exception;
+    }
+
+    private static Operation httpDeposit(HttpClient http, String url) {
+        return (accountId, amountMinor) -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/accounts/" + accountId + "/deposit"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":" + amountMinor / 100.0 + "}"))
+                    .build();
+            return http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200;
+        };
+    }
+
+    private static Operation unaryDeposit(ManagedChannel channel) {
+        AccountOperationsGrpc.AccountOperationsBlockingStub stub = AccountOperationsGrpc.newBlockingStub(channel);
+        return (accountId, amountMinor) -> {
+            try {
+                stub.deposit(AmountRequest.newBuilder().setAccountId(accountId).setAmountMinor(amountMinor).build());
+                return true;
+            } catch (StatusRuntimeException e) {
+                return false;
+            }
+        };
+    }
+
+    // Один канал операций на клиента; следующая операция отправляется после ответа на предыдущую.
+    private static final class StreamDeposit implements Operation {
+        private final BlockingQueue<OperationReply> replies = new ArrayBlockingQueue<>(1);
+        private final StreamObserver<OperationRequest> requests;
+        private long requestId;
+
+        private StreamDeposit(ManagedChannel channel) {
+            requests = AccountOperationsGrpc.newStub(channel).operations(new StreamObserver<>() {
+                @Override
+                public void onNext(OperationReply reply) {
+                    replies.add(reply);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    replies.add(OperationReply.newBuilder().setStatus(OperationStatus.FAILED).build());
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            });
+        }
+
+        @Override
+        public boolean deposit(long accountId, long amountMinor) throws InterruptedException {
+            requests.onNext(OperationRequest.newBuilder()
+                    .setRequestId(++requestId).setType(OperationType.DEPOSIT)
+                    .setAccountId(accountId).setAmountMinor(amountMinor).build());
+            return replies.take().getStatus() == OperationStatus.APPLIED;
+        }
+
+        private void close() {
+            requests.onCompleted();
+        }
+    }
+
+    private static long[] createAccounts(HttpClient http, String url, ManagedChannel channel, int accounts) throws Exception {
+        AccountOperationsGrpc.AccountOperationsBlockingStub stub = AccountOperationsGrpc.newBlockingStub(channel);
+        long[] ids = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            HttpResponse<String> user = http.send(HttpRequest.newBuilder(URI.create(url + "/api/users"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"name\":\"grpc\",\"email\":\"grpc-" + UUID.randomUUID() + "@example.com\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher id = ID.matcher(user.body());
+            if (user.statusCode() != 201 || !id.find()) {
+                throw new IllegalStateException("Failed to create user: " + user.statusCode() + " " + user.body());
+            }
+            ids[i] = stub.createAccount(CreateAccountRequest.newBuilder().setUserId(Long.parseLong(id.group(1))).build()).getId();
+        }
+        return ids;
+    }
+
+    private static double processCpuNanos(HttpClient http, String url) throws Exception {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url + "/actuator/metrics/process.cpu.time"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher value = CPU_TIME.matcher(response.body());
+        // Счётчик process.cpu.time отдаётся в наносекундах (baseUnit ns).
+        return response.statusCode() == 200 && value.find() ? Double.parseDouble(value.group(1)) : Double.NaN;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
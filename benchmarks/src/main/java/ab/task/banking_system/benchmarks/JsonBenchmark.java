@@ -0,0 +1,56 @@
+package ab.task.banking_system.benchmarks;
+
+import ab.task.banking_system.web.dto.AccountResponse;
+import ab.task.banking_system.web.dto.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-сериализация ответов API тем же {@link ObjectMapper}, что настраивает Spring Boot
+ * (модуль java.time, даты строками ISO-8601).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    AccountResponse account = new AccountResponse(42L, "5f8d5a7f5d6c8d0a9b1c2d3e4f5a6b7c", new BigDecimal("1234.56"), 7L);
+    UserResponse user = new UserResponse(7L, "Adilet", "adilet@example.com", Instant.parse("2025-01-01T10:15:30Z"));
+    List<AccountResponse> accounts = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 1000; i++) {
+            accounts.add(new AccountResponse((long) i, "ACC" + i, BigDecimal.valueOf(i, 2), 7L));
+        }
+    }
+
+    @Benchmark
+    public byte[] accountResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] userResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] accountResponseList1000() throws Exception {
+        return objectMapper.writeValueAsBytes(accounts);
+    }
+}
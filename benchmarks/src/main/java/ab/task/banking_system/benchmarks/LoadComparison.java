@@ -0,0 +1,302 @@
+package ab.task.banking_system.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Нагрузочное сравнение основного приложения (Spring MVC + JDBC) и модуля {@code reactive} (WebFlux + R2DBC)
+ * на одном и том же сценарии: {@code clients} одновременных клиентов пополняют случайные счета
+ * из {@code accounts} заранее созданных, каждый клиент ждёт ответа перед следующим запросом.
+ * Счета принадлежат {@code owners} пользователям (по умолчанию у каждого счёта свой владелец);
+ * {@code --owners=1} - все счета у одного клиента, как у корпоративного клиента с тысячами счетов.
+ * <p>
+ * Во время замера раз в 200 мс читается {@code pg_stat_activity}: сколько соединений приложение держит
+ * с базой и сколько из них выполняют запрос. В конце выводятся число запросов, ошибки по видам,
+ * p50/p99/max задержки и максимумы соединений. Приложение должно быть запущено заранее;
+ * сравниваемые приложения запускаются по очереди, иначе соединения в {@code pg_stat_activity} смешаются.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ab.task.banking_system.benchmarks.LoadComparison \
+ *     --url=http://localhost:8081 --clients=10000 --duration=60s
+ * </pre>
+ */
+public class LoadComparison {
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "10000"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "1000"));
+        int owners = Integer.parseInt(options.getOrDefault("owners", String.valueOf(accounts)));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "15s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+        String jdbcUrl = options.getOrDefault("jdbc-url", "jdbc:postgresql://localhost:5432/bank");
+        String dbUser = options.getOrDefault("db-user", "bank");
+        String dbPass = options.getOrDefault("db-pass", "bank");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long[] accountIds = createAccounts(client, url, accounts, owners);
+        System.out.printf("url=%s, clients=%d, accounts=%d, owners=%d, warmup=%s, duration=%s%n",
+                url, clients, accounts, owners, warmup, duration);
+
+        Load load = new Load(clients);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            int clientIndex = i;
+            Thread.ofVirtual().name("client-" + i).start(() -> {
+                try {
+                    runClient(client, url, accountIds, load, clientIndex, measureFrom, stopAt);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        ConnectionSample connections;
+        try (Connection db = DriverManager.getConnection(jdbcUrl, dbUser, dbPass)) {
+            connections = sampleConnections(db, measureFrom, stopAt);
+        }
+        done.await();
+        client.close();
+        load.report(duration, connections);
+    }
+
+    private static void runClient(HttpClient client, String url, long[] accountIds, Load load, int clientIndex,
+                                  long measureFrom, long stopAt) {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofString("{\"amount\":1.00}");
+        long[] latencies = new long[1024];
+        int count = 0;
+        // Клиенты стартуют не одновременно, чтобы 10k соединений не открывались одной пачкой.
+        sleep(ThreadLocalRandom.current().nextLong(Math.max(1, (measureFrom - System.nanoTime()) / 2_000_000)));
+        while (true) {
+            long begin = System.nanoTime();
+            if (begin >= stopAt) {
+                break;
+            }
+            long accountId = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/accounts/" + accountId + "/deposit"))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(body)
+                    .build();
+            String outcome;
+            long pause = 100;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                outcome = response.statusCode() == 200 ? null : "http " + response.statusCode();
+                pause = response.headers().firstValueAsLong("Retry-After").stream()
+                        .map(TimeUnit.SECONDS::toMillis)
+                        .findFirst()
+                        .orElse(pause);
+            } catch (IOException e) {
+                outcome = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long end = System.nanoTime();
+            if (outcome != null) {
+                if (begin >= measureFrom) {
+                    load.error(outcome);
+                }
+                // Отказ соединения возвращается сразу; пауза не даёт клиенту превратиться в цикл ошибок.
+                // Ответ с Retry-After (503 ограничителя) клиент повторяет не раньше указанного срока.
+                sleep(pause);
+                continue;
+            }
+            if (begin < measureFrom) {
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = end - begin;
+        }
+        load.add(clientIndex, Arrays.copyOf(latencies, count));
+    }
+
+    private static ConnectionSample sampleConnections(Connection db, long measureFrom, long stopAt)
+            throws SQLException, InterruptedException {
+        String sql = """
+                SELECT count(*), count(*) FILTER (WHERE state <> 'idle')
+                FROM pg_stat_activity
+                WHERE datname = current_database() AND backend_type = 'client backend' AND pid <> pg_backend_pid()""";
+        ConnectionSample sample = new ConnectionSample();
+        try (Statement statement = db.createStatement()) {
+            while (System.nanoTime() < stopAt) {
+                Thread.sleep(200);
+                if (System.nanoTime() < measureFrom) {
+                    continue;
+                }
+                try (ResultSet rs = statement.executeQuery(sql)) {
+                    rs.next();
+                    sample.add(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return sample;
+    }
+
+    private static long[] createAccounts(HttpClient client, String url, int accounts, int owners)
+            throws IOException, InterruptedException {
+        long[] ids = new long[accounts];
+        if (owners >= accounts) {
+            for (int i = 0; i < accounts; i++) {
+                ids[i] = post(client, url + "/api/accounts", "{\"userId\":" + createUser(client, url) + "}");
+            }
+            return ids;
+        }
+        // Счета владельца создаются одним запросом (POST /api/users/{id}/accounts); модуль reactive его не поддерживает.
+        int created = 0;
+        for (int i = 0; i < owners; i++) {
+            int count = accounts / owners + (i < accounts % owners ? 1 : 0);
+            long userId = createUser(client, url);
+            Matcher id = ID.matcher(send(client, url + "/api/users/" + userId + "/accounts", "{\"count\":" + count + "}"));
+            while (id.find()) {
+                ids[created++] = Long.parseLong(id.group(1));
+            }
+        }
+        return ids;
+    }
+
+    private static long createUser(HttpClient client, String url) throws IOException, InterruptedException {
+        return post(client, url + "/api/users",
+                "{\"name\":\"load\",\"email\":\"load-" + UUID.randomUUID() + "@example.com\"}");
+    }
+
+    private static long post(HttpClient client, String url, String json) throws IOException, InterruptedException {
+        Matcher id = ID.matcher(send(client, url, json));
+        if (!id.find()) {
+            throw new IllegalStateException("POST " + url + " returned no id");
+        }
+        return Long.parseLong(id.group(1));
+    }
+
+    private static String send(HttpClient client, String url, String json) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("POST " + url + " failed: " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Load {
+        private final long[][] latencies;
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private Load(int clients) {
+            this.latencies = new long[clients][];
+        }
+
+        private void add(int client, long[] values) {
+            latencies[client] = values;
+        }
+
+        private void error(String outcome) {
+            errors.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        }
+
+        private void report(Duration duration, ConnectionSample connections) {
+            List<long[]> parts = new ArrayList<>();
+            int total = 0;
+            for (long[] part : latencies) {
+                if (part != null) {
+                    parts.add(part);
+                    total += part.length;
+                }
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, all, offset, part.length);
+                offset += part.length;
+            }
+            Arrays.sort(all);
+            System.out.printf("ok=%d (%.0f req/s), errors=%s%n", total, total / (double) duration.toSeconds(), errors);
+            if (total > 0) {
+                System.out.printf("latency ms: p50=%.1f p99=%.1f max=%.1f%n",
+                        percentile(all, 0.50), percentile(all, 0.99), all[total - 1] / 1e6);
+            }
+            System.out.printf("db connections: max=%d, avg=%.1f, max busy=%d, avg busy=%.1f (%d samples)%n",
+                    connections.maxTotal, connections.avgTotal(), connections.maxBusy, connections.avgBusy(), connections.samples);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    private static final class ConnectionSample {
+        private int samples;
+        private long sumTotal;
+        private long sumBusy;
+        private int maxTotal;
+        private int maxBusy;
+
+        private void add(int total, int busy) {
+            samples++;
+            sumTotal += total;
+            sumBusy += busy;
+            maxTotal = Math.max(maxTotal, total);
+            maxBusy = Math.max(maxBusy, busy);
+        }
+
+        private double avgTotal() {
+            return samples == 0 ? 0 : sumTotal / (double) samples;
+        }
+
+        private double avgBusy() {
+            return samples == 0 ? 0 : sumBusy / (double) samples;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ab.task.banking_system.benchmarks;
+
+import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.User;
+import ab.task.banking_system.web.dto.AccountResponse;
+import ab.task.banking_system.web.dto.UserResponse;
+import ab.task.banking_system.web.mapper.AccountMapper;
+import ab.task.banking_system.web.mapper.AccountMapperImpl;
+import ab.task.banking_system.web.mapper.UserMapper;
+import ab.task.banking_system.web.mapper.UserMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списочные преобразования MapStruct: сущности в ответы API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    AccountMapper accountMapper = new AccountMapperImpl();
+    UserMapper userMapper = new UserMapperImpl();
+    List<Account> accounts;
+    List<User> users;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        users = new ArrayList<>(size);
+        accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("user-" + i);
+            user.setEmail("user-" + i + "@example.com");
+            user.setRegisteredAt(now);
+            users.add(user);
+
+            Account account = new Account();
+            account.setId((long) i);
+            account.setNumber("ACC" + i);
+            account.setBalance(BigDecimal.valueOf(i, 2));
+            account.setUser(user);
+            accounts.add(account);
+        }
+    }
+
+    @Benchmark
+    public List<AccountResponse> accountsToResponse() {
+        return accountMapper.toResponse(accounts);
+    }
+
+    @Benchmark
+    public List<UserResponse> usersToResponse() {
+        return userMapper.toResponse(users);
+    }
+}
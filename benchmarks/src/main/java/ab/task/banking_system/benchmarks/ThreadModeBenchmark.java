@@ -0,0 +1,97 @@
+package ab.task.banking_system.benchmarks;
+
+import ab.task.banking_system.BankingSystemApplication;
+import ab.task.banking_system.service.AccountService;
+import ab.task.banking_system.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускная способность и p99 {@code POST /api/accounts/{id}/deposit} по HTTP при потоках Tomcat
+ * из пула платформенных потоков и при виртуальных потоках (с ограничением одновременных запросов
+ * по размеру пула соединений).
+ * <p>
+ * Приложение поднимается на случайном порту в каждом режиме заново; число клиентских потоков
+ * (по умолчанию 64) заведомо больше пула соединений, чтобы запросы вставали в очередь.
+ * Ответы, отличные от 200 (например, 503 от ограничителя), подсчитываются и выводятся в конце прогона.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(64)
+public class ThreadModeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"platform", "virtual"})
+        String mode;
+
+        ConfigurableApplicationContext context;
+        AccountService accountService;
+        HttpClient client;
+        String baseUrl;
+        Long userId;
+        final AtomicLong failures = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(BankingSystemApplication.class)
+                    // Аргументы командной строки, а не default properties: они должны перекрыть application.properties.
+                    .run(
+                            "--server.port=0",
+                            "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                            "--logging.level.root=WARN",
+                            "--logging.level.ab.task.banking_system=WARN",
+                            "--logging.level.org.hibernate.SQL=WARN",
+                            "--logging.level.org.hibernate.orm.jdbc.bind=WARN",
+                            "--spring.main.banner-mode=off");
+            accountService = context.getBean(AccountService.class);
+            userId = context.getBean(UserService.class)
+                    .create("benchmark", "benchmark-" + UUID.randomUUID() + "@example.com").getId();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            System.out.println("mode=" + mode + ", non-200 responses=" + failures.get());
+            client.close();
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        HttpRequest deposit;
+
+        @Setup(Level.Trial)
+        public void create(Server server) {
+            Long accountId = server.accountService.create(server.userId, null).getId();
+            deposit = HttpRequest.newBuilder(URI.create(server.baseUrl + "/api/accounts/" + accountId + "/deposit"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"amount\": " + new BigDecimal("0.01") + "}"))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public int deposit(Server server, Client client) throws Exception {
+        int status = server.client.send(client.deposit, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            server.failures.incrementAndGet();
+        }
+        return status;
+    }
+}
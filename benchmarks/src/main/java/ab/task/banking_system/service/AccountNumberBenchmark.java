@@ -0,0 +1,56 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountNumberProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.AccountNumberRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генерация номера счёта из блоков. Блоки выдаются из памяти, без базы, поэтому измеряется
+ * только выдача номера и расчёт контрольных цифр. Лежит в пакете сервиса ради package-private методов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountNumberBenchmark {
+    private static final long BLOCK_SIZE = 1000;
+
+    private AccountNumberGenerator generator;
+
+    @Setup
+    public void setUp() {
+        AtomicLong sequence = new AtomicLong(1);
+        AccountNumberRepository blocks = new AccountNumberRepository(null) {
+            @Override
+            public NumberBlock reserveBlock() {
+                return new NumberBlock(sequence.getAndAdd(BLOCK_SIZE), BLOCK_SIZE);
+            }
+        };
+        generator = new AccountNumberGenerator(blocks, new AccountNumberProperties("BS", 12),
+                new ShardRouter(new ShardingProperties(false, List.of()), null));
+    }
+
+    @TearDown
+    public void tearDown() {
+        generator.shutdown();
+    }
+
+    @Benchmark
+    public String generateAccountNumber() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateAccountNumberContended() {
+        return generator.next();
+    }
+}
@@ -0,0 +1,15 @@
+package ab.task.banking_system.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+
+@SpringBootApplication
+@ConfigurationPropertiesScan
+public class ReactiveBankingApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveBankingApplication.class, args);
+    }
+
+}
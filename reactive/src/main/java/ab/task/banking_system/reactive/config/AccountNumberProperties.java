@@ -0,0 +1,17 @@
+package ab.task.banking_system.reactive.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Формат генерируемых номеров счетов - тот же, что в основном приложении: {@code prefix},
+ * две контрольные цифры (mod 97, как в IBAN) и порядковый номер, дополненный нулями до {@code digits} цифр.
+ *
+ * @param prefix заглавные латинские буквы и цифры, например код страны
+ * @param digits число цифр порядкового номера
+ */
+@ConfigurationProperties(prefix = "banking.account-number")
+public record AccountNumberProperties(
+        @DefaultValue("BS") String prefix,
+        @DefaultValue("12") int digits
+) {}
@@ -0,0 +1,14 @@
+package ab.task.banking_system.reactive.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки работы с секционированной {@code accounts} - те же, что в основном приложении.
+ *
+ * @param ownerCacheSize сколько владельцев счетов хранится в памяти (см. {@code ReactiveAccountOwners})
+ */
+@ConfigurationProperties(prefix = "banking.account-partitions")
+public record AccountPartitionProperties(
+        @DefaultValue("200000") long ownerCacheSize
+) {}
@@ -0,0 +1,17 @@
+package ab.task.banking_system.reactive.config;
+
+import io.swagger.v3.oas.annotations.OpenAPIDefinition;
+import io.swagger.v3.oas.annotations.info.Info;
+import io.swagger.v3.oas.annotations.servers.Server;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@OpenAPIDefinition(
+        info = @Info(
+                title = "Banking System API (reactive)",
+                version = "v1",
+                description = "REST API для пользователей и счетов на WebFlux и R2DBC"
+        ),
+        servers = { @Server(url = "/", description = "Default") }
+)
+public class OpenApiConfig { }
@@ -0,0 +1,5 @@
+package ab.task.banking_system.reactive.model;
+
+import java.math.BigDecimal;
+
+public record Account(Long id, String number, BigDecimal balance, Long userId, long version) {}
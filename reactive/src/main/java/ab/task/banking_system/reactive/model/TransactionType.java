@@ -0,0 +1,11 @@
+package ab.task.banking_system.reactive.model;
+
+/**
+ * Типы записей журнала операций ({@code account_transactions.type}).
+ */
+public enum TransactionType {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER_IN,
+    TRANSFER_OUT
+}
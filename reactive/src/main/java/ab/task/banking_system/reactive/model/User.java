@@ -0,0 +1,5 @@
+package ab.task.banking_system.reactive.model;
+
+import java.time.Instant;
+
+public record User(Long id, String name, String email, Instant registeredAt) {}
@@ -0,0 +1,8 @@
+package ab.task.banking_system.reactive.model;
+
+import java.util.List;
+
+/**
+ * Страница пользователей и id для запроса следующей страницы ({@code null}, если страница последняя).
+ */
+public record UserPage(List<User> users, Long nextAfter) {}
@@ -0,0 +1,9 @@
+package ab.task.banking_system.reactive.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Итог изменения баланса одним оператором: найден ли счёт, применено ли изменение,
+ * и баланс с версией после него (или текущие, если изменение не применено).
+ */
+public record BalanceMutation(boolean found, boolean applied, BigDecimal balance, Long version) {}
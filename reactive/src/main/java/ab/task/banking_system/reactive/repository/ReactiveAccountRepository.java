@@ -0,0 +1,163 @@
+package ab.task.banking_system.reactive.repository;
+
+import ab.task.banking_system.reactive.model.Account;
+import ab.task.banking_system.reactive.model.TransactionType;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Счета через R2DBC. Операторы изменения баланса совпадают с операторами основного приложения,
+ * поэтому журнал операций, агрегаты балансов и порядок блокировок одинаковы для обоих API.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAccountRepository {
+    /**
+     * Тот же оператор, что {@code AccountRepository.APPLY_DELTA_SQL} основного приложения: блокирует агрегаты
+     * баланса, затем строку счёта, изменяет баланс с увеличением версии и пишет запись журнала.
+     * При изменении одного из операторов нужно изменить и другой. {@code userId} - владелец счёта
+     * (см. {@code ReactiveAccountOwners}), условие по ключу секционирования оставляет одну секцию.
+     */
+    static final String APPLY_DELTA_SQL = """
+            WITH locked AS (
+                SELECT lock_balance_aggregates(ARRAY[CAST(:id AS BIGINT)], ARRAY[CAST(:userId AS BIGINT)])
+            ), target AS (
+                SELECT balance, version FROM accounts WHERE id = :id AND user_id = :userId AND EXISTS (SELECT 1 FROM locked)
+                FOR UPDATE
+            ), updated AS (
+                UPDATE accounts SET balance = balance + :delta, version = version + 1
+                WHERE id = :id AND user_id = :userId AND balance + :delta >= 0 AND EXISTS (SELECT 1 FROM target)
+                  AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = CAST(:expectedVersion AS BIGINT))
+                RETURNING id, balance, version
+            ), logged AS (
+                INSERT INTO account_transactions (account_id, type, amount, balance_after, counterparty_account_id)
+                SELECT id, :type, abs(:delta), balance, :counterparty FROM updated
+            )
+            SELECT EXISTS (SELECT 1 FROM target) AS found,
+                   EXISTS (SELECT 1 FROM updated) AS applied,
+                   coalesce((SELECT balance FROM updated), (SELECT balance FROM target)) AS balance,
+                   coalesce((SELECT version FROM updated), (SELECT version FROM target)) AS version
+            """;
+
+    // Счёт создаётся, только если пользователь существует; id выдаёт DEFAULT nextval столбца.
+    private static final String INSERT_SQL = """
+            INSERT INTO accounts (number, user_id)
+            SELECT :number, id FROM users WHERE id = :userId
+            RETURNING id, number, balance, user_id, version
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<BalanceMutation> deposit(Long id, Long userId, BigDecimal amount, TransactionType type,
+                                         Long counterpartyAccountId, Long expectedVersion) {
+        return applyDelta(id, userId, amount, type, counterpartyAccountId, expectedVersion);
+    }
+
+    public Mono<BalanceMutation> withdrawIfEnough(Long id, Long userId, BigDecimal amount, TransactionType type,
+                                                  Long counterpartyAccountId, Long expectedVersion) {
+        return applyDelta(id, userId, amount.negate(), type, counterpartyAccountId, expectedVersion);
+    }
+
+    private Mono<BalanceMutation> applyDelta(Long id, Long userId, BigDecimal delta, TransactionType type,
+                                             Long counterpartyAccountId, Long expectedVersion) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(APPLY_DELTA_SQL)
+                .bind("id", id)
+                .bind("userId", userId)
+                .bind("delta", delta)
+                .bind("type", type.name());
+        spec = counterpartyAccountId == null
+                ? spec.bindNull("counterparty", Long.class)
+                : spec.bind("counterparty", counterpartyAccountId);
+        spec = expectedVersion == null
+                ? spec.bindNull("expectedVersion", Long.class)
+                : spec.bind("expectedVersion", expectedVersion);
+        return spec.map(row -> new BalanceMutation(
+                        Boolean.TRUE.equals(row.get("found", Boolean.class)),
+                        Boolean.TRUE.equals(row.get("applied", Boolean.class)),
+                        row.get("balance", BigDecimal.class),
+                        row.get("version", Long.class)))
+                .one();
+    }
+
+    /**
+     * Блокирует агрегаты балансов счетов (см. {@code lock_balance_aggregates}); вызывается в начале
+     * транзакции, меняющей несколько счетов разными операторами.
+     *
+     * @param userIds владельцы счетов
+     */
+    public Mono<Void> lockBalanceAggregates(Collection<Long> accountIds, Collection<Long> userIds) {
+        return databaseClient.sql("SELECT lock_balance_aggregates(:ids, :userIds)")
+                .bind("ids", accountIds.toArray(Long[]::new))
+                .bind("userIds", userIds.toArray(Long[]::new))
+                .then();
+    }
+
+    /**
+     * @return владелец счёта или пустой результат, если счёт не найден
+     */
+    public Mono<Long> findOwnerId(Long id) {
+        return databaseClient.sql("SELECT user_id FROM accounts WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get("user_id", Long.class))
+                .one();
+    }
+
+    /**
+     * @return созданный счёт или пустой результат, если пользователь не найден
+     */
+    public Mono<Account> insert(Long userId, String number) {
+        return databaseClient.sql(INSERT_SQL)
+                .bind("number", number)
+                .bind("userId", userId)
+                .map(ReactiveAccountRepository::account)
+                .one();
+    }
+
+    public Mono<Account> findById(Long id) {
+        return databaseClient.sql("SELECT id, number, balance, user_id, version FROM accounts WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveAccountRepository::account)
+                .one();
+    }
+
+    public Flux<Account> findByUserId(Long userId) {
+        return databaseClient.sql("SELECT id, number, balance, user_id, version FROM accounts WHERE user_id = :userId ORDER BY id")
+                .bind("userId", userId)
+                .map(ReactiveAccountRepository::account)
+                .all();
+    }
+
+    /**
+     * Резервирует следующий блок номеров счетов - тот же запрос, что {@code AccountNumberRepository.reserveBlock}.
+     */
+    public Mono<NumberBlock> reserveNumberBlock() {
+        return databaseClient.sql("""
+                        SELECT nextval('account_number_blocks') AS first,
+                               (SELECT increment_by FROM pg_sequences
+                                WHERE schemaname = current_schema() AND sequencename = 'account_number_blocks') AS size
+                        """)
+                .map(row -> new NumberBlock(row.get("first", Long.class), row.get("size", Long.class)))
+                .one();
+    }
+
+    private static Account account(Readable row) {
+        return new Account(
+                row.get("id", Long.class),
+                row.get("number", String.class),
+                row.get("balance", BigDecimal.class),
+                row.get("user_id", Long.class),
+                row.get("version", Long.class));
+    }
+
+    /**
+     * Диапазон порядковых номеров [{@code first}, {@code first + size}).
+     */
+    public record NumberBlock(long first, long size) {}
+}
@@ -0,0 +1,70 @@
+package ab.task.banking_system.reactive.repository;
+
+import ab.task.banking_system.reactive.model.User;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Пользователи через R2DBC. {@code registered_at} хранится как UTC без часового пояса - так же,
+ * как его пишет основное приложение ({@code hibernate.jdbc.time_zone=UTC}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+    private static final String COLUMNS = "id, name, email, registered_at";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Вставляет пользователя; id выдаёт DEFAULT nextval столбца.
+     */
+    public Mono<User> insert(String name, String email) {
+        return databaseClient.sql("INSERT INTO users (name, email, registered_at) VALUES (:name, :email, :registeredAt) RETURNING " + COLUMNS)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("registeredAt", LocalDateTime.now(ZoneOffset.UTC))
+                .map(ReactiveUserRepository::user)
+                .one();
+    }
+
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::user)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id) AS found")
+                .bind("id", id)
+                .map(row -> Boolean.TRUE.equals(row.get("found", Boolean.class)))
+                .one();
+    }
+
+    /**
+     * Страница по индексу первичного ключа ({@code id > after}).
+     */
+    public Flux<User> findPage(long after, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id > :after ORDER BY id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::user)
+                .all();
+    }
+
+    private static User user(Readable row) {
+        LocalDateTime registeredAt = row.get("registered_at", LocalDateTime.class);
+        return new User(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                registeredAt == null ? null : registeredAt.toInstant(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,145 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.config.AccountNumberProperties;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository.NumberBlock;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Выдаёт номера счетов из блоков последовательности {@code account_number_blocks} - в том же формате
+ * и из той же последовательности, что генератор основного приложения, поэтому номера обоих API не пересекаются.
+ * <p>
+ * Номер внутри блока выдаётся из памяти; при исчерпании блока все ожидающие подписываются на одно
+ * резервирование следующего блока. Номера неизрасходованного блока при остановке теряются.
+ */
+@Component
+public class ReactiveAccountNumberGenerator {
+    private final ReactiveAccountRepository accountRepository;
+    private final String prefix;
+    private final int digits;
+    private final long maxSequence;
+    private final int suffixMod;
+    private final int suffixShift;
+    private final Pattern reserved;
+    private volatile Block current = new Block(new NumberBlock(0, 0));
+    private Mono<Block> pending;
+
+    public ReactiveAccountNumberGenerator(ReactiveAccountRepository accountRepository, AccountNumberProperties properties) {
+        if (!properties.prefix().matches("[A-Z0-9]+") || properties.digits() < 1 || properties.digits() > 18
+                || properties.prefix().length() + 2 + properties.digits() > 34) {
+            throw new IllegalStateException("Invalid account number format: prefix=" + properties.prefix()
+                    + ", digits=" + properties.digits());
+        }
+        this.accountRepository = accountRepository;
+        this.prefix = properties.prefix();
+        this.digits = properties.digits();
+        this.maxSequence = (long) Math.pow(10, digits) - 1;
+        this.suffixMod = mod97(prefix + "00");
+        this.suffixShift = pow10mod97(numericLength(prefix + "00"));
+        this.reserved = Pattern.compile(Pattern.quote(prefix) + "\\d{" + (digits + 2) + "}");
+    }
+
+    /**
+     * @return новый номер счёта; ошибка {@link IllegalStateException}, если порядковые номера формата исчерпаны
+     */
+    public Mono<String> next() {
+        return Mono.defer(() -> {
+            Block block = current;
+            long sequence = block.next.getAndIncrement();
+            if (sequence < block.end) {
+                return Mono.just(format(sequence));
+            }
+            return refill(block).then(next());
+        });
+    }
+
+    /**
+     * @return {@code true}, если номер имеет формат генерируемых номеров; такие номера нельзя задавать вручную
+     */
+    public boolean isReserved(String number) {
+        return reserved.matcher(number).matches();
+    }
+
+    // Секция synchronized только выбирает или создаёт резервирование и не ждёт базу.
+    private synchronized Mono<Block> refill(Block exhausted) {
+        if (current != exhausted) {
+            return Mono.empty();
+        }
+        if (pending == null) {
+            pending = accountRepository.reserveNumberBlock()
+                    .map(reserved -> {
+                        if (reserved.first() + reserved.size() - 1 > maxSequence) {
+                            throw new IllegalStateException("Account number space exhausted for " + digits + " digits");
+                        }
+                        return new Block(reserved);
+                    })
+                    .doOnNext(this::install)
+                    // Неудачное резервирование повторяется при следующем вызове.
+                    .doOnError(e -> clearPending())
+                    .cache();
+        }
+        return pending;
+    }
+
+    private synchronized void install(Block fresh) {
+        current = fresh;
+        pending = null;
+    }
+
+    private synchronized void clearPending() {
+        pending = null;
+    }
+
+    String format(long sequence) {
+        int check = 98 - (int) (((sequence % 97) * suffixShift + suffixMod) % 97);
+        char[] number = new char[prefix.length() + 2 + digits];
+        prefix.getChars(0, prefix.length(), number, 0);
+        number[prefix.length()] = (char) ('0' + check / 10);
+        number[prefix.length() + 1] = (char) ('0' + check % 10);
+        long rest = sequence;
+        for (int i = number.length - 1; i >= prefix.length() + 2; i--) {
+            number[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(number);
+    }
+
+    private static int mod97(String value) {
+        int mod = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int d = Character.digit(value.charAt(i), 36);
+            mod = (d < 10 ? mod * 10 + d : mod * 100 + d) % 97;
+        }
+        return mod;
+    }
+
+    private static int numericLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            length += Character.isDigit(value.charAt(i)) ? 1 : 2;
+        }
+        return length;
+    }
+
+    private static int pow10mod97(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = result * 10 % 97;
+        }
+        return result;
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(NumberBlock block) {
+            this.next = new AtomicLong(block.first());
+            this.end = block.first() + block.size();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.config.AccountPartitionProperties;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Владельцы счетов в памяти - как {@code AccountOwners} основного приложения: операторы изменения баланса
+ * получают владельца счёта, чтобы читать одну секцию {@code accounts}. Владелец счёта не меняется, поэтому
+ * записи не устаревают; несуществующий счёт не запоминается.
+ */
+@Component
+public class ReactiveAccountOwners {
+    private final ReactiveAccountRepository accountRepository;
+    private final AsyncCache<Long, Long> cache;
+
+    public ReactiveAccountOwners(ReactiveAccountRepository accountRepository, AccountPartitionProperties properties) {
+        this.accountRepository = accountRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.ownerCacheSize())
+                .buildAsync();
+    }
+
+    /**
+     * @return владелец счёта или пустой результат, если счёт не найден
+     */
+    Mono<Long> find(Long accountId) {
+        // Пустой результат завершает future значением null, и Caffeine не сохраняет запись.
+        return Mono.fromFuture(() -> cache.get(accountId, (id, executor) -> accountRepository.findOwnerId(id).toFuture()));
+    }
+
+    void remember(Long accountId, Long userId) {
+        cache.synchronous().put(accountId, userId);
+    }
+}
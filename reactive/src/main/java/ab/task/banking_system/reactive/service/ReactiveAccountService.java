@@ -0,0 +1,218 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.model.Account;
+import ab.task.banking_system.reactive.model.AccountBalance;
+import ab.task.banking_system.reactive.model.TransactionType;
+import ab.task.banking_system.reactive.model.TransferResult;
+import ab.task.banking_system.reactive.repository.BalanceMutation;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository;
+import ab.task.banking_system.reactive.repository.ReactiveUserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Операции со счетами с той же семантикой, что {@code AccountService} основного приложения:
+ * изменение баланса - один оператор ({@link ReactiveAccountRepository#deposit}, {@link ReactiveAccountRepository#withdrawIfEnough}),
+ * те же коды ошибок и тот же порядок блокировок в переводах. Соединение занимается только на время
+ * выполнения операторов, поток на время ожидания базы не блокируется.
+ * <p>
+ * Не поддерживаются: ключи идемпотентности, объединение пополнений и пакетные операции.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveAccountService {
+    private final ReactiveAccountRepository accountRepository;
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveAccountNumberGenerator accountNumberGenerator;
+    private final ReactiveAccountOwners accountOwners;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Создаёт счёт для пользователя.
+     *
+     * @param providedNumber номер счёта, если задан; если пустой - будет сгенерирован
+     * @return сохранённый счёт; ошибка 400, если заданный номер имеет формат генерируемых номеров,
+     *         404, если пользователь не найден, 409, если номер уже существует
+     */
+    public Mono<Account> create(Long userId, String providedNumber) {
+        boolean provided = providedNumber != null && !providedNumber.isBlank();
+        if (provided && accountNumberGenerator.isReserved(providedNumber)) {
+            log.warn("Создание счёта: заданный номер имеет формат генерируемых number={}", providedNumber);
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account number format is reserved for generated numbers"));
+        }
+        Mono<String> number = provided ? Mono.just(providedNumber) : accountNumberGenerator.next();
+        return number
+                .flatMap(n -> accountRepository.insert(userId, n)
+                        .onErrorMap(DataIntegrityViolationException.class, e -> {
+                            log.warn("Создание счёта: номер уже существует number={}", n);
+                            return new ResponseStatusException(HttpStatus.CONFLICT, "Account number already exists");
+                        }))
+                .switchIfEmpty(Mono.error(() -> {
+                    log.warn("Создание счёта: пользователь не найден userId={}", userId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+                }))
+                .doOnNext(account -> accountOwners.remember(account.id(), account.userId()));
+    }
+
+    /**
+     * @return счёт; ошибка 404, если не найден
+     */
+    public Mono<Account> getById(Long accountId) {
+        return accountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.warn("Счёт не найден: accountId={}", accountId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+                }));
+    }
+
+    /**
+     * @return счета пользователя по возрастанию id; ошибка 404, если пользователь не найден
+     */
+    public Flux<Account> listByUser(Long userId) {
+        return userRepository.existsById(userId)
+                .flatMapMany(exists -> {
+                    if (!exists) {
+                        log.warn("Счета пользователя: пользователь не найден userId={}", userId);
+                        return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+                    }
+                    return accountRepository.findByUserId(userId);
+                });
+    }
+
+    /**
+     * Пополняет счёт; при {@code expectedVersion != null} - только если версия счёта совпадает.
+     *
+     * @return баланс и версия после пополнения; ошибка 400, 404, 409 или 412 - как в основном приложении
+     */
+    public Mono<AccountBalance> deposit(Long accountId, BigDecimal amount, Long expectedVersion) {
+        return requirePositive(amount)
+                .then(credit(accountId, amount, TransactionType.DEPOSIT, null, expectedVersion));
+    }
+
+    /**
+     * Списывает со счёта при достаточном балансе; при {@code expectedVersion != null} - только если версия совпадает.
+     *
+     * @return баланс и версия после списания; ошибка 400, 404, 409 или 412 - как в основном приложении
+     */
+    public Mono<AccountBalance> withdraw(Long accountId, BigDecimal amount, Long expectedVersion) {
+        return requirePositive(amount)
+                .then(debit(accountId, amount, TransactionType.WITHDRAW, null, expectedVersion));
+    }
+
+    /**
+     * Переводит средства между счетами в одной транзакции. Сначала блокируются агрегаты балансов,
+     * затем строки счетов по возрастанию id, поэтому встречные переводы не могут взаимно заблокироваться.
+     *
+     * @return балансы обоих счетов; ошибка 400, если сумма некорректна или счета совпадают, 404 или 409
+     */
+    public Mono<TransferResult> transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (fromAccountId.equals(toAccountId)) {
+            log.warn("Перевод отклонён: счёт списания совпадает со счётом зачисления accountId={}", fromAccountId);
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Source and target accounts must differ"));
+        }
+        Mono<TransferResult> transfer = ownerOf(fromAccountId).flatMap(fromUserId -> ownerOf(toAccountId).flatMap(toUserId -> {
+            Mono<TransferResult> updates;
+            if (fromAccountId < toAccountId) {
+                updates = debit(fromAccountId, fromUserId, amount, TransactionType.TRANSFER_OUT, toAccountId, null)
+                        .flatMap(from -> credit(toAccountId, toUserId, amount, TransactionType.TRANSFER_IN, fromAccountId, null)
+                                .map(to -> new TransferResult(from, to)));
+            } else {
+                updates = credit(toAccountId, toUserId, amount, TransactionType.TRANSFER_IN, fromAccountId, null)
+                        .flatMap(to -> debit(fromAccountId, fromUserId, amount, TransactionType.TRANSFER_OUT, toAccountId, null)
+                                .map(from -> new TransferResult(from, to)));
+            }
+            return accountRepository.lockBalanceAggregates(List.of(fromAccountId, toAccountId), List.of(fromUserId, toUserId))
+                    .then(updates);
+        }));
+        return requirePositive(amount)
+                .then(transfer)
+                .as(transactionalOperator::transactional);
+    }
+
+    // Владелец счёта нужен операторам изменения баланса (см. ReactiveAccountOwners); неизвестный счёт - 404 без них.
+    private Mono<Long> ownerOf(Long accountId) {
+        return Mono.defer(() -> accountOwners.find(accountId))
+                .switchIfEmpty(Mono.error(() -> {
+                    log.warn("Счёт не найден: accountId={}", accountId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+                }));
+    }
+
+    private Mono<AccountBalance> credit(Long accountId, BigDecimal amount, TransactionType type, Long counterpartyAccountId,
+                                        Long expectedVersion) {
+        return ownerOf(accountId).flatMap(userId -> credit(accountId, userId, amount, type, counterpartyAccountId, expectedVersion));
+    }
+
+    private Mono<AccountBalance> debit(Long accountId, BigDecimal amount, TransactionType type, Long counterpartyAccountId,
+                                       Long expectedVersion) {
+        return ownerOf(accountId).flatMap(userId -> debit(accountId, userId, amount, type, counterpartyAccountId, expectedVersion));
+    }
+
+    private Mono<AccountBalance> credit(Long accountId, Long userId, BigDecimal amount, TransactionType type,
+                                        Long counterpartyAccountId, Long expectedVersion) {
+        // Оператор строится при подписке: до неё не должно быть обращений к базе, например при некорректной сумме.
+        return Mono.defer(() -> accountRepository.deposit(accountId, userId, amount, type, counterpartyAccountId, expectedVersion))
+                .handle((m, sink) -> {
+                    if (!m.found()) {
+                        log.warn("Зачисление: счёт не найден accountId={}", accountId);
+                        sink.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+                    } else if (versionChanged(m, expectedVersion)) {
+                        sink.error(versionMismatch(accountId, expectedVersion, m));
+                    } else if (!m.applied()) {
+                        log.warn("Зачисление не выполнено (неизвестная причина): accountId={}, amount={}", accountId, amount);
+                        sink.error(new ResponseStatusException(HttpStatus.CONFLICT, "Deposit failed"));
+                    } else {
+                        sink.next(new AccountBalance(accountId, m.balance(), m.version()));
+                    }
+                });
+    }
+
+    private Mono<AccountBalance> debit(Long accountId, Long userId, BigDecimal amount, TransactionType type,
+                                       Long counterpartyAccountId, Long expectedVersion) {
+        return Mono.defer(() -> accountRepository.withdrawIfEnough(accountId, userId, amount, type, counterpartyAccountId,
+                        expectedVersion))
+                .handle((m, sink) -> {
+                    if (!m.found()) {
+                        log.warn("Списание: счёт не найден accountId={}", accountId);
+                        sink.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+                    } else if (versionChanged(m, expectedVersion)) {
+                        sink.error(versionMismatch(accountId, expectedVersion, m));
+                    } else if (!m.applied()) {
+                        log.warn("Списание отклонено: недостаточно средств accountId={}, amount={}", accountId, amount);
+                        sink.error(new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient funds"));
+                    } else {
+                        sink.next(new AccountBalance(accountId, m.balance(), m.version()));
+                    }
+                });
+    }
+
+    // Неприменённое изменение возвращает текущую версию счёта, прочитанную под блокировкой строки.
+    private static boolean versionChanged(BalanceMutation m, Long expectedVersion) {
+        return !m.applied() && expectedVersion != null && !expectedVersion.equals(m.version());
+    }
+
+    private static ResponseStatusException versionMismatch(Long accountId, Long expectedVersion, BalanceMutation m) {
+        log.warn("Изменение баланса отклонено: версия счёта изменилась accountId={}, expected={}, actual={}",
+                accountId, expectedVersion, m.version());
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Account version does not match");
+    }
+
+    private static Mono<Void> requirePositive(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            log.warn("Некорректная сумма операции: {}", amount);
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be > 0"));
+        }
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,62 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.model.User;
+import ab.task.banking_system.reactive.model.UserPage;
+import ab.task.banking_system.reactive.repository.ReactiveUserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveUserService {
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final ReactiveUserRepository userRepository;
+
+    /**
+     * Создаёт нового пользователя. Уникальность e-mail проверяет уникальный индекс, без предварительного запроса.
+     *
+     * @return сохранённый пользователь; ошибка 409, если e-mail уже занят
+     */
+    public Mono<User> create(String name, String email) {
+        return userRepository.insert(name, email)
+                .doOnNext(user -> log.debug("Пользователь создан: id={}", user.id()))
+                .onErrorMap(DataIntegrityViolationException.class, e -> {
+                    log.warn("Конфликт при сохранении - email уже существует: {}", email);
+                    return new ResponseStatusException(HttpStatus.CONFLICT, "Email already exists");
+                });
+    }
+
+    /**
+     * @return пользователь; ошибка 404, если не найден
+     */
+    public Mono<User> getById(Long id) {
+        return userRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.warn("Пользователь не найден: id={}", id);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+                }));
+    }
+
+    /**
+     * Возвращает страницу пользователей по возрастанию id.
+     *
+     * @param after id последнего пользователя предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы (1..500)
+     * @return пользователи и id для запроса следующей страницы; ошибка 400, если размер страницы некорректен
+     */
+    public Mono<UserPage> listPage(Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return userRepository.findPage(after == null ? 0L : after, limit)
+                .collectList()
+                .map(users -> new UserPage(users, users.size() == limit ? users.get(users.size() - 1).id() : null));
+    }
+}
@@ -0,0 +1,215 @@
+package ab.task.banking_system.reactive.web.controller;
+
+import ab.task.banking_system.reactive.service.ReactiveAccountService;
+import ab.task.banking_system.reactive.web.dto.AccountCreateRequest;
+import ab.task.banking_system.reactive.web.dto.AccountResponse;
+import ab.task.banking_system.reactive.web.dto.AmountRequest;
+import ab.task.banking_system.reactive.web.dto.BalanceResponse;
+import ab.task.banking_system.reactive.web.dto.TransferRequest;
+import ab.task.banking_system.reactive.web.dto.TransferResponse;
+import ab.task.banking_system.reactive.web.mapper.AccountMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/accounts")
+@Tag(name = "Accounts", description = "Операции со счетами")
+public class ReactiveAccountController {
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,18})\"");
+
+    private final ReactiveAccountService accountService;
+    private final AccountMapper accountMapper;
+
+    @Operation(
+            summary = "Создать счёт",
+            description = "Создаёт счёт для пользователя. Если номер не передан, генерируется автоматически.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AccountCreateRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Счёт создан",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AccountResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации или номер в формате генерируемых номеров"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+            @ApiResponse(responseCode = "409", description = "Номер счёта уже существует")
+    })
+    @PostMapping(consumes = "application/json", produces = "application/json")
+    public Mono<ResponseEntity<AccountResponse>> create(@Valid @RequestBody AccountCreateRequest req) {
+        return accountService.create(req.userId(), req.number())
+                .map(account -> ResponseEntity.status(HttpStatus.CREATED).body(accountMapper.toResponse(account)));
+    }
+
+    @Operation(
+            summary = "Получить счёт по ID",
+            description = "Возвращает номер, баланс и владельца счёта. "
+                    + "ETag ответа - версия счёта; запрос с If-None-Match с той же версией получает 304 без тела."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AccountResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "304", description = "Счёт не изменился с версии из If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден")
+    })
+    @GetMapping(value = "/{id}", produces = "application/json")
+    public Mono<ResponseEntity<AccountResponse>> get(
+            @Parameter(description = "ID счёта", required = true) @PathVariable Long id
+    ) {
+        // Для GET с совпавшим If-None-Match WebFlux сам отвечает 304 без тела.
+        return accountService.getById(id)
+                .map(account -> ResponseEntity.ok().eTag(eTag(account.version())).body(accountMapper.toResponse(account)));
+    }
+
+    @Operation(
+            summary = "Пополнить счёт",
+            description = "Увеличивает баланс счёта на положительную сумму. С заголовком If-Match пополнение "
+                    + "выполняется, только если версия счёта равна версии из ETag.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AmountRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Баланс пополнен, в ответе новый баланс и версия счёта",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BalanceResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден"),
+            @ApiResponse(responseCode = "409", description = "Операция отклонена"),
+            @ApiResponse(responseCode = "412", description = "Версия счёта не совпадает с If-Match")
+    })
+    @PostMapping(value = "/{id}/deposit", consumes = "application/json", produces = "application/json")
+    public Mono<ResponseEntity<BalanceResponse>> deposit(
+            @Parameter(description = "ID счёта", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag счёта из GET /api/accounts/{id}: операция выполнится, только если версия не изменилась")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody AmountRequest req
+    ) {
+        return accountService.deposit(id, req.amount(), expectedVersion(ifMatch))
+                .map(result -> ResponseEntity.ok().eTag(eTag(result.version())).body(accountMapper.toResponse(result)));
+    }
+
+    @Operation(
+            summary = "Списать со счёта",
+            description = "Уменьшает баланс счёта на положительную сумму при наличии достаточных средств. "
+                    + "С заголовком If-Match списание выполняется, только если версия счёта равна версии из ETag.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AmountRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Списание выполнено, в ответе новый баланс и версия счёта",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BalanceResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден"),
+            @ApiResponse(responseCode = "409", description = "Недостаточно средств"),
+            @ApiResponse(responseCode = "412", description = "Версия счёта не совпадает с If-Match")
+    })
+    @PostMapping(value = "/{id}/withdraw", consumes = "application/json", produces = "application/json")
+    public Mono<ResponseEntity<BalanceResponse>> withdraw(
+            @Parameter(description = "ID счёта", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag счёта из GET /api/accounts/{id}: операция выполнится, только если версия не изменилась")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody AmountRequest req
+    ) {
+        return accountService.withdraw(id, req.amount(), expectedVersion(ifMatch))
+                .map(result -> ResponseEntity.ok().eTag(eTag(result.version())).body(accountMapper.toResponse(result)));
+    }
+
+    @Operation(
+            summary = "Перевести между счетами",
+            description = "Атомарно списывает сумму с одного счёта и зачисляет её на другой в одной транзакции.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TransferRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Перевод выполнен, в ответе новые балансы обоих счетов",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TransferResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0 или счета совпадают"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден"),
+            @ApiResponse(responseCode = "409", description = "Недостаточно средств")
+    })
+    @PostMapping(value = "/transfers", consumes = "application/json", produces = "application/json")
+    public Mono<TransferResponse> transfer(@Valid @RequestBody TransferRequest req) {
+        return accountService.transfer(req.fromAccountId(), req.toAccountId(), req.amount())
+                .map(accountMapper::toResponse);
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-Match: "<версия>" или *. Слабый или чужой ETag не может совпасть с версией счёта (строгое сравнение) - 412.
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Matcher tag = VERSION_ETAG.matcher(ifMatch.trim());
+        if (!tag.matches()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Account version does not match");
+        }
+        return Long.parseLong(tag.group(1));
+    }
+}
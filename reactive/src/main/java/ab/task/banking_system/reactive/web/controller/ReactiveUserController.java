@@ -0,0 +1,134 @@
+package ab.task.banking_system.reactive.web.controller;
+
+import ab.task.banking_system.reactive.service.ReactiveAccountService;
+import ab.task.banking_system.reactive.service.ReactiveUserService;
+import ab.task.banking_system.reactive.web.dto.AccountResponse;
+import ab.task.banking_system.reactive.web.dto.UserCreateRequest;
+import ab.task.banking_system.reactive.web.dto.UserPageResponse;
+import ab.task.banking_system.reactive.web.dto.UserResponse;
+import ab.task.banking_system.reactive.web.mapper.AccountMapper;
+import ab.task.banking_system.reactive.web.mapper.UserMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/users")
+@Tag(name = "Users", description = "Операции с пользователями")
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final UserMapper userMapper;
+    private final ReactiveAccountService accountService;
+    private final AccountMapper accountMapper;
+
+    @Operation(
+            summary = "Создать пользователя",
+            description = "Создаёт нового пользователя. Email должен быть уникальным.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserCreateRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Пользователь создан",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации"),
+            @ApiResponse(responseCode = "409", description = "Email уже существует")
+    })
+    @PostMapping(consumes = "application/json", produces = "application/json")
+    public Mono<ResponseEntity<UserResponse>> create(@Valid @RequestBody UserCreateRequest req) {
+        return userService.create(req.name(), req.email())
+                .map(user -> ResponseEntity.status(HttpStatus.CREATED).body(userMapper.toResponse(user)));
+    }
+
+    @Operation(
+            summary = "Получить пользователя по ID",
+            description = "Возвращает данные пользователя по его идентификатору."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @GetMapping(value = "/{id}", produces = "application/json")
+    public Mono<UserResponse> get(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id
+    ) {
+        return userService.getById(id).map(userMapper::toResponse);
+    }
+
+    @Operation(
+            summary = "Список пользователей",
+            description = "Возвращает страницу пользователей по возрастанию id. "
+                    + "Для следующей страницы передайте nextAfter из ответа в параметре after."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserPageResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Некорректный размер страницы")
+    })
+    @GetMapping(produces = "application/json")
+    public Mono<UserPageResponse> list(
+            @Parameter(description = "ID последнего пользователя предыдущей страницы") @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы (1..500)") @RequestParam(defaultValue = "50") int limit
+    ) {
+        return userService.listPage(after, limit).map(userMapper::toResponse);
+    }
+
+    @Operation(
+            summary = "Счета пользователя",
+            description = "Возвращает список счетов для указанного пользователя."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = AccountResponse.class))
+                    )
+            ),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @GetMapping(value = "/{id}/accounts", produces = "application/json")
+    public Mono<List<AccountResponse>> accounts(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id
+    ) {
+        return accountService.listByUser(id).map(accountMapper::toResponse).collectList();
+    }
+}
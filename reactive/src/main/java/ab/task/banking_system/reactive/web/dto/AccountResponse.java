@@ -0,0 +1,5 @@
+package ab.task.banking_system.reactive.web.dto;
+
+import java.math.BigDecimal;
+
+public record AccountResponse(Long id, String number, BigDecimal balance, Long userId) {}
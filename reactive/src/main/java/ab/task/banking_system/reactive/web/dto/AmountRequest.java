@@ -0,0 +1,10 @@
+package ab.task.banking_system.reactive.web.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record AmountRequest(
+        @NotNull @DecimalMin(value = "0.01") BigDecimal amount
+) {}
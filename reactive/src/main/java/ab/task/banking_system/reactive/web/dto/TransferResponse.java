@@ -0,0 +1,3 @@
+package ab.task.banking_system.reactive.web.dto;
+
+public record TransferResponse(BalanceResponse from, BalanceResponse to) {}
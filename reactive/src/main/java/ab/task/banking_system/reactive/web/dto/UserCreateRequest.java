@@ -0,0 +1,9 @@
+package ab.task.banking_system.reactive.web.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+
+public record UserCreateRequest(
+        @NotBlank String name,
+        @Email @NotBlank String email
+) {}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package ab.task.banking_system.reactive.web.dto;
+
+import java.time.Instant;
+
+public record UserResponse(Long id, String name, String email, Instant registeredAt) {}
@@ -0,0 +1,16 @@
+package ab.task.banking_system.reactive.web.mapper;
+
+import ab.task.banking_system.reactive.model.Account;
+import ab.task.banking_system.reactive.model.AccountBalance;
+import ab.task.banking_system.reactive.model.TransferResult;
+import ab.task.banking_system.reactive.web.dto.AccountResponse;
+import ab.task.banking_system.reactive.web.dto.BalanceResponse;
+import ab.task.banking_system.reactive.web.dto.TransferResponse;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface AccountMapper {
+    AccountResponse toResponse(Account account);
+    BalanceResponse toResponse(AccountBalance balance);
+    TransferResponse toResponse(TransferResult result);
+}
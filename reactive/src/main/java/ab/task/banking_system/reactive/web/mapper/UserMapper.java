@@ -0,0 +1,16 @@
+package ab.task.banking_system.reactive.web.mapper;
+
+import ab.task.banking_system.reactive.model.User;
+import ab.task.banking_system.reactive.model.UserPage;
+import ab.task.banking_system.reactive.web.dto.UserPageResponse;
+import ab.task.banking_system.reactive.web.dto.UserResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface UserMapper {
+    UserResponse toResponse(User user);
+
+    @Mapping(source = "users", target = "items")
+    UserPageResponse toResponse(UserPage page);
+}
@@ -0,0 +1,83 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.config.AccountNumberProperties;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository.NumberBlock;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveAccountNumberGeneratorTest {
+
+    ReactiveAccountRepository accountRepository = mock(ReactiveAccountRepository.class);
+    AtomicLong sequence = new AtomicLong(1);
+
+    private ReactiveAccountNumberGenerator generator(long blockSize) {
+        // Резервирование завершается асинхронно, чтобы ожидающие вызовы успели подписаться на одно и то же.
+        when(accountRepository.reserveNumberBlock())
+                .thenAnswer(inv -> Mono.fromSupplier(() -> new NumberBlock(sequence.getAndAdd(blockSize), blockSize))
+                        .delayElement(Duration.ofMillis(5)));
+        return new ReactiveAccountNumberGenerator(accountRepository, new AccountNumberProperties("BS", 12));
+    }
+
+    @Test
+    void next_formatsSequenceLikeIban() {
+        ReactiveAccountNumberGenerator generator = generator(10);
+
+        String first = generator.next().block();
+
+        assertEquals(16, first.length());
+        assertTrue(first.endsWith("000000000001"));
+        assertTrue(generator.isReserved(first));
+        for (long s : new long[]{1, 96, 97, 123_456_789, 999_999_999_999L}) {
+            assertTrue(isValidIban(generator.format(s)));
+        }
+        assertFalse(generator.isReserved("ACC-0001"));
+    }
+
+    @Test
+    void next_uniqueAcrossBlocks_withOneReservationPerBlock() {
+        ReactiveAccountNumberGenerator generator = generator(100);
+
+        List<String> numbers = Flux.range(0, 1_000)
+                .flatMap(i -> generator.next().subscribeOn(Schedulers.parallel()), 64)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        Set<String> unique = new HashSet<>(numbers);
+        assertEquals(1_000, unique.size());
+        verify(accountRepository, times(10)).reserveNumberBlock();
+    }
+
+    @Test
+    void next_retriesReservationAfterError() {
+        when(accountRepository.reserveNumberBlock())
+                .thenReturn(Mono.error(new IllegalStateException("db down")))
+                .thenReturn(Mono.just(new NumberBlock(1, 10)));
+        ReactiveAccountNumberGenerator generator =
+                new ReactiveAccountNumberGenerator(accountRepository, new AccountNumberProperties("BS", 12));
+
+        assertThrows(IllegalStateException.class, () -> generator.next().block());
+        assertTrue(generator.next().block().endsWith("000000000001"));
+    }
+
+    private static boolean isValidIban(String number) {
+        String rearranged = number.substring(4) + number.substring(0, 4);
+        StringBuilder digits = new StringBuilder();
+        for (char c : rearranged.toCharArray()) {
+            digits.append(Character.digit(c, 36));
+        }
+        return new BigInteger(digits.toString()).mod(BigInteger.valueOf(97)).intValue() == 1;
+    }
+}
@@ -0,0 +1,155 @@
+package ab.task.banking_system.reactive.service;
+
+import ab.task.banking_system.reactive.model.Account;
+import ab.task.banking_system.reactive.model.AccountBalance;
+import ab.task.banking_system.reactive.model.TransactionType;
+import ab.task.banking_system.reactive.repository.BalanceMutation;
+import ab.task.banking_system.reactive.repository.ReactiveAccountRepository;
+import ab.task.banking_system.reactive.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveAccountServiceTest {
+
+    ReactiveAccountRepository accountRepository = mock(ReactiveAccountRepository.class);
+    ReactiveUserRepository userRepository = mock(ReactiveUserRepository.class);
+    ReactiveAccountNumberGenerator accountNumberGenerator = mock(ReactiveAccountNumberGenerator.class);
+    ReactiveAccountOwners accountOwners = mock(ReactiveAccountOwners.class);
+    TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+    ReactiveAccountService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(inv -> inv.getArgument(0));
+        // Владелец счёта N - пользователь 10 * N.
+        when(accountOwners.find(anyLong())).thenAnswer(inv -> Mono.just(inv.<Long>getArgument(0) * 10));
+        service = new ReactiveAccountService(accountRepository, userRepository, accountNumberGenerator, accountOwners,
+                transactionalOperator);
+    }
+
+    private static BalanceMutation applied(String balance, long version) {
+        return new BalanceMutation(true, true, new BigDecimal(balance), version);
+    }
+
+    private static void expectStatus(Mono<?> mono, HttpStatus status) {
+        StepVerifier.create(mono)
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse && rse.getStatusCode() == status)
+                .verify();
+    }
+
+    @Test
+    void create_generatesNumber_whenBlank() {
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("BS00000000000001"));
+        Account saved = new Account(1L, "BS00000000000001", BigDecimal.ZERO, 5L, 0);
+        when(accountRepository.insert(5L, "BS00000000000001")).thenReturn(Mono.just(saved));
+
+        StepVerifier.create(service.create(5L, " ")).expectNext(saved).verifyComplete();
+        verify(accountOwners).remember(1L, 5L);
+    }
+
+    @Test
+    void create_rejectsReservedFormat_andMapsMissingUserAndDuplicate() {
+        when(accountNumberGenerator.isReserved("BS12000000000001")).thenReturn(true);
+        expectStatus(service.create(5L, "BS12000000000001"), HttpStatus.BAD_REQUEST);
+
+        when(accountRepository.insert(5L, "ACC-0001")).thenReturn(Mono.empty());
+        expectStatus(service.create(5L, "ACC-0001"), HttpStatus.NOT_FOUND);
+
+        when(accountRepository.insert(6L, "ACC-0001")).thenReturn(Mono.error(new DataIntegrityViolationException("dup")));
+        expectStatus(service.create(6L, "ACC-0001"), HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void deposit_returnsBalanceAndVersion() {
+        when(accountRepository.deposit(1L, 10L, new BigDecimal("10"), TransactionType.DEPOSIT, null, null))
+                .thenReturn(Mono.just(applied("110.00", 4)));
+
+        StepVerifier.create(service.deposit(1L, new BigDecimal("10"), null))
+                .expectNext(new AccountBalance(1L, new BigDecimal("110.00"), 4))
+                .verifyComplete();
+    }
+
+    @Test
+    void deposit_rejectsNonPositiveAmount_withoutQuery() {
+        expectStatus(service.deposit(1L, BigDecimal.ZERO, null), HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void withdraw_mapsNotFound_insufficientFunds_andVersionMismatch() {
+        BigDecimal amount = new BigDecimal("50");
+        when(accountRepository.withdrawIfEnough(1L, 10L, amount, TransactionType.WITHDRAW, null, null))
+                .thenReturn(Mono.just(new BalanceMutation(false, false, null, null)));
+        expectStatus(service.withdraw(1L, amount, null), HttpStatus.NOT_FOUND);
+
+        when(accountRepository.withdrawIfEnough(2L, 20L, amount, TransactionType.WITHDRAW, null, null))
+                .thenReturn(Mono.just(new BalanceMutation(true, false, new BigDecimal("10.00"), 3L)));
+        expectStatus(service.withdraw(2L, amount, null), HttpStatus.CONFLICT);
+
+        when(accountRepository.withdrawIfEnough(3L, 30L, amount, TransactionType.WITHDRAW, null, 2L))
+                .thenReturn(Mono.just(new BalanceMutation(true, false, new BigDecimal("100.00"), 3L)));
+        expectStatus(service.withdraw(3L, amount, 2L), HttpStatus.PRECONDITION_FAILED);
+
+        // Версия совпала, но средств не хватило - это 409, а не 412.
+        when(accountRepository.withdrawIfEnough(4L, 40L, amount, TransactionType.WITHDRAW, null, 3L))
+                .thenReturn(Mono.just(new BalanceMutation(true, false, new BigDecimal("10.00"), 3L)));
+        expectStatus(service.withdraw(4L, amount, 3L), HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void transfer_locksAggregates_thenUpdatesAccountsInIdOrder() {
+        BigDecimal amount = new BigDecimal("5");
+        when(accountRepository.lockBalanceAggregates(anyCollection(), anyCollection())).thenReturn(Mono.empty());
+        when(accountRepository.deposit(2L, 20L, amount, TransactionType.TRANSFER_IN, 7L, null))
+                .thenReturn(Mono.just(applied("15.00", 2)));
+        when(accountRepository.withdrawIfEnough(7L, 70L, amount, TransactionType.TRANSFER_OUT, 2L, null))
+                .thenReturn(Mono.just(applied("95.00", 9)));
+
+        StepVerifier.create(service.transfer(7L, 2L, amount))
+                .expectNextMatches(r -> r.from().version() == 9 && r.to().version() == 2)
+                .verifyComplete();
+
+        InOrder order = inOrder(accountRepository);
+        order.verify(accountRepository).lockBalanceAggregates(List.of(7L, 2L), List.of(70L, 20L));
+        order.verify(accountRepository).deposit(2L, 20L, amount, TransactionType.TRANSFER_IN, 7L, null);
+        order.verify(accountRepository).withdrawIfEnough(7L, 70L, amount, TransactionType.TRANSFER_OUT, 2L, null);
+        verify(transactionalOperator).transactional(any(Mono.class));
+    }
+
+    @Test
+    void deposit_unknownAccount_404WithoutStatement() {
+        when(accountOwners.find(3L)).thenReturn(Mono.empty());
+
+        expectStatus(service.deposit(3L, BigDecimal.ONE, null), HttpStatus.NOT_FOUND);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void transfer_rejectsSameAccount() {
+        expectStatus(service.transfer(1L, 1L, BigDecimal.ONE), HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void listByUser_returns404_whenUserMissing() {
+        when(userRepository.existsById(9L)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.listByUser(9L))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse && rse.getStatusCode() == HttpStatus.NOT_FOUND)
+                .verify();
+        verify(accountRepository, never()).findByUserId(anyLong());
+    }
+}
@@ -0,0 +1,95 @@
+package ab.task.banking_system.reactive.web.controller;
+
+import ab.task.banking_system.reactive.model.Account;
+import ab.task.banking_system.reactive.model.AccountBalance;
+import ab.task.banking_system.reactive.service.ReactiveAccountService;
+import ab.task.banking_system.reactive.web.dto.AccountResponse;
+import ab.task.banking_system.reactive.web.dto.AmountRequest;
+import ab.task.banking_system.reactive.web.dto.BalanceResponse;
+import ab.task.banking_system.reactive.web.mapper.AccountMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@WebFluxTest(ReactiveAccountController.class)
+class ReactiveAccountControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockitoBean
+    ReactiveAccountService accountService;
+
+    @MockitoBean
+    AccountMapper accountMapper;
+
+    @Test
+    void get_returnsETag_and304_whenVersionMatches() {
+        Account account = new Account(1L, "ACC-0001", new BigDecimal("10.00"), 5L, 7);
+        given(accountService.getById(1L)).willReturn(Mono.just(account));
+        given(accountMapper.toResponse(account)).willReturn(new AccountResponse(1L, "ACC-0001", new BigDecimal("10.00"), 5L));
+
+        webTestClient.get().uri("/api/accounts/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"7\"")
+                .expectBody().jsonPath("$.number").isEqualTo("ACC-0001");
+
+        webTestClient.get().uri("/api/accounts/1").header("If-None-Match", "\"7\"").exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void get_returns404_whenMissing() {
+        given(accountService.getById(2L))
+                .willReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found")));
+
+        webTestClient.get().uri("/api/accounts/2").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void deposit_passesIfMatchVersion_andReturnsNewETag() {
+        AccountBalance result = new AccountBalance(1L, new BigDecimal("20.00"), 8);
+        given(accountService.deposit(1L, new BigDecimal("10.00"), 7L)).willReturn(Mono.just(result));
+        given(accountMapper.toResponse(result)).willReturn(new BalanceResponse(1L, new BigDecimal("20.00"), 8));
+
+        webTestClient.post().uri("/api/accounts/1/deposit")
+                .header("If-Match", "\"7\"")
+                .bodyValue(new AmountRequest(new BigDecimal("10.00")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"8\"")
+                .expectBody().jsonPath("$.balance").isEqualTo(20.00);
+    }
+
+    @Test
+    void withdraw_returns412_forWeakETag_withoutCallingService() {
+        webTestClient.post().uri("/api/accounts/1/withdraw")
+                .header("If-Match", "W/\"7\"")
+                .bodyValue(new AmountRequest(new BigDecimal("10.00")))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        verify(accountService, never()).withdraw(anyLong(), any(), any());
+    }
+
+    @Test
+    void deposit_returns400_forInvalidAmount() {
+        webTestClient.post().uri("/api/accounts/1/deposit")
+                .bodyValue(new AmountRequest(BigDecimal.ZERO))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
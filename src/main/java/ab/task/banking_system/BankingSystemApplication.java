@@ -1,12 +1,27 @@
 package ab.task.banking_system;
 
+import ab.task.banking_system.cli.BankingCli;
+import org.springframework.boot.Banner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+
+import java.util.Map;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class BankingSystemApplication {
 
     public static void main(String[] args) {
+        if (BankingCli.isCommand(args)) {
+            SpringApplication app = new SpringApplication(BankingSystemApplication.class);
+            app.setWebApplicationType(WebApplicationType.NONE);
+            // В stdout команды печатается только отчёт.
+            app.setBannerMode(Banner.Mode.OFF);
+            app.setDefaultProperties(Map.of("logging.threshold.console", "WARN"));
+            System.exit(SpringApplication.exit(app.run(args)));
+        }
         SpringApplication.run(BankingSystemApplication.class, args);
     }
 
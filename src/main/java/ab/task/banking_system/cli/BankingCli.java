@@ -0,0 +1,159 @@
+package ab.task.banking_system.cli;
+
+import ab.task.banking_system.service.ExportService;
+import ab.task.banking_system.service.FileFormat;
+import ab.task.banking_system.service.ImportReport;
+import ab.task.banking_system.service.ImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnNotWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Команды для запуска приложения из командной строки, без веб-сервера:
+ * <pre>
+ * java -jar banking_system-exec.jar import users|accounts &lt;файл&gt; [--format=csv|ndjson]
+ * java -jar banking_system-exec.jar export accounts &lt;файл&gt; [--format=csv|ndjson]
+ * java -jar banking_system-exec.jar migrate [--spring.flyway.target=&lt;версия&gt;]
+ * </pre>
+ * Формат по умолчанию определяется по расширению файла ({@code .csv}, {@code .ndjson}, {@code .jsonl},
+ * в том числе с {@code .gz}; файл {@code .gz} читается и пишется сжатым). Отчёт загрузки печатается
+ * в stdout в формате JSON.
+ * <p>
+ * Миграции выполняются при запуске, как и у сервера; {@code migrate} только печатает версию схемы и завершается.
+ * С {@code --spring.flyway.target} схема доводится до промежуточной версии, пока работает предыдущий выпуск
+ * (переход по шагам, см. README).
+ */
+@Component
+@ConditionalOnNotWebApplication
+@RequiredArgsConstructor
+public class BankingCli implements ApplicationRunner, ExitCodeGenerator {
+    static final Set<String> COMMANDS = Set.of("import", "export", "migrate");
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_REJECTED_ROWS = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = """
+            usage: import users|accounts <file> [--format=csv|ndjson]
+                   export accounts <file> [--format=csv|ndjson]
+                   migrate [--spring.flyway.target=<version>]""";
+
+    private final ImportService importService;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final Flyway flyway;
+
+    private int exitCode = EXIT_OK;
+
+    /**
+     * @return {@code true}, если аргументы запуска - команда, а не запуск сервера
+     */
+    public static boolean isCommand(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                return COMMANDS.contains(arg);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> command = args.getNonOptionArgs();
+        if (command.equals(List.of("migrate"))) {
+            MigrationInfo current = flyway.info().current();
+            System.out.println("schema version " + (current == null ? "none" : current.getVersion()));
+            return;
+        }
+        boolean isImport = command.size() == 3 && command.get(0).equals("import") && Set.of("users", "accounts").contains(command.get(1));
+        boolean isExport = command.size() == 3 && command.get(0).equals("export") && command.get(1).equals("accounts");
+        if (!isImport && !isExport) {
+            fail(USAGE);
+            return;
+        }
+        Path file = Path.of(command.get(2));
+        FileFormat format = format(args, file);
+        if (format == null) {
+            fail("cannot determine format of " + file + "; pass --format=csv|ndjson");
+            return;
+        }
+        if (isExport) {
+            export(file, format);
+            return;
+        }
+
+        ImportReport report;
+        try (InputStream in = open(file)) {
+            report = command.get(1).equals("users")
+                    ? importService.importUsers(in, format)
+                    : importService.importAccounts(in, format);
+        } catch (ResponseStatusException e) {
+            fail(e.getReason());
+            return;
+        }
+        System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        exitCode = report.rejected() > 0 ? EXIT_REJECTED_ROWS : EXIT_OK;
+    }
+
+    private void export(Path file, FileFormat format) throws IOException {
+        long count;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            count = exportService.exportAccounts(out, format, isGzip(file));
+        } catch (UncheckedIOException e) {
+            fail("cannot write " + file + ": " + e.getCause().getMessage());
+            return;
+        }
+        System.out.println("exported " + count + " accounts to " + file);
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private void fail(String message) {
+        System.err.println(message);
+        exitCode = EXIT_USAGE;
+    }
+
+    private static FileFormat format(ApplicationArguments args, Path file) {
+        List<String> option = args.getOptionValues("format");
+        if (option != null && !option.isEmpty()) {
+            try {
+                return FileFormat.valueOf(option.get(0).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return FileFormat.ofFileName(file.getFileName().toString()).orElse(null);
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        return isGzip(file) ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    private static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+}
@@ -0,0 +1,18 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэша счетов для {@code GET /api/accounts/{id}}.
+ *
+ * @param maxSize максимальное число счетов в кэше
+ * @param ttl     время жизни записи; ограничивает устаревание из-за записей на других узлах
+ */
+@ConfigurationProperties(prefix = "banking.account-cache")
+public record AccountCacheProperties(
+        @DefaultValue("100000") long maxSize,
+        @DefaultValue("5m") Duration ttl
+) {}
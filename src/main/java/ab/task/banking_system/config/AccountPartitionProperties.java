@@ -0,0 +1,17 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки агрегатов по секциям {@code accounts}.
+ *
+ * @param parallelism сколько секций читается одновременно; каждая читающая секции транзакция занимает
+ *                    соединение пула сверх соединения вызывающей транзакции
+ * @param ownerCacheSize  сколько владельцев счетов хранится в памяти узла (см. {@code AccountOwners})
+ */
+@ConfigurationProperties(prefix = "banking.account-partitions")
+public record AccountPartitionProperties(
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("200000") long ownerCacheSize
+) {}
@@ -0,0 +1,28 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки журнала аудита операций.
+ *
+ * @param enabled     включает журнал; выключенный журнал не занимает памяти и потока записи
+ * @param file        файл журнала; архивы получают суффиксы {@code .1}, {@code .2}, ...
+ * @param bufferSize  число ячеек кольцевого буфера, округляется вверх до степени двойки
+ * @param maxWait     сколько операция ждёт свободную ячейку при заполненном буфере, прежде чем событие будет отброшено
+ * @param maxFileSize размер файла, после которого он переименовывается в архив
+ * @param maxHistory  число хранимых архивов
+ */
+@ConfigurationProperties(prefix = "banking.audit")
+public record AuditProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("logs/audit.log") Path file,
+        @DefaultValue("65536") int bufferSize,
+        @DefaultValue("1ms") Duration maxWait,
+        @DefaultValue("100MB") DataSize maxFileSize,
+        @DefaultValue("10") int maxHistory
+) {}
@@ -0,0 +1,16 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки сверки общей суммы балансов.
+ *
+ * @param reconcileInterval пауза между сверками суммы по полосам с суммой по счетам
+ */
+@ConfigurationProperties(prefix = "banking.balance-total")
+public record BalanceTotalProperties(
+        @DefaultValue("1h") Duration reconcileInterval
+) {}
@@ -0,0 +1,18 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки пакетной обработки операций со счетами.
+ *
+ * @param chunkSize     сколько операций отправляется в БД одним JDBC-батчем и одной транзакцией
+ * @param maxOperations максимальное число операций в одном запросе
+ * @param maxCreates    максимальное число пользователей или счетов, создаваемых одним запросом
+ */
+@ConfigurationProperties(prefix = "banking.batch")
+public record BatchProperties(
+        @DefaultValue("1000") int chunkSize,
+        @DefaultValue("500000") int maxOperations,
+        @DefaultValue("100000") int maxCreates
+) {}
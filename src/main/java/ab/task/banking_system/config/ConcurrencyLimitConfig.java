@@ -0,0 +1,45 @@
+package ab.task.banking_system.config;
+
+import ab.task.banking_system.sharding.ShardRoutingDataSource;
+import ab.task.banking_system.web.filter.ConcurrencyLimitFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Подключает {@link ConcurrencyLimitFilter} к {@code /api/*}. Число мест равно размеру пула
+ * соединений (при шардировании - сумме пулов шардов), умноженному на {@code banking.concurrency.permits-per-connection};
+ * длина очереди - числу мест, умноженному на {@code banking.concurrency.queue-per-permit}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "banking.concurrency", name = "enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(DataSource dataSource,
+                                                                                 ConcurrencyProperties properties,
+                                                                                 MeterRegistry meterRegistry) {
+        int poolSize;
+        if (dataSource instanceof ShardRoutingDataSource shards) {
+            poolSize = shards.totalPoolSize();
+        } else {
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+            if (hikari == null) {
+                throw new IllegalStateException("banking.concurrency.enabled requires a Hikari connection pool");
+            }
+            poolSize = hikari.getMaximumPoolSize();
+        }
+        int permits = Math.max(1, poolSize * properties.permitsPerConnection());
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(permits, permits * properties.queuePerPermit(), properties.maxWait(),
+                        meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,22 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Ограничение числа одновременно обрабатываемых запросов к API.
+ *
+ * @param enabled              включено ли ограничение; по умолчанию следует {@code spring.threads.virtual.enabled}
+ * @param permitsPerConnection сколько запросов одновременно допускается на одно соединение пула
+ * @param queuePerPermit       сколько запросов на одно место может ждать в очереди; следующие сразу получают 503
+ * @param maxWait              сколько запрос ждёт свободного места, прежде чем получить 503
+ */
+@ConfigurationProperties(prefix = "banking.concurrency")
+public record ConcurrencyProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1") int permitsPerConnection,
+        @DefaultValue("4") int queuePerPermit,
+        @DefaultValue("500ms") Duration maxWait
+) {}
@@ -0,0 +1,22 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки объединения параллельных пополнений одного счёта в одну транзакцию (group commit).
+ *
+ * @param enabled      включает режим объединения; по умолчанию каждое пополнение - отдельная транзакция
+ * @param window       сколько первое пополнение пачки ждёт попутчиков перед записью
+ * @param maxBatchSize размер пачки, при котором она записывается, не дожидаясь окончания окна
+ * @param flushThreads число потоков записи; каждый занимает соединение из пула на время транзакции
+ */
+@ConfigurationProperties(prefix = "banking.deposit.coalescing")
+public record DepositCoalescingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("256") int maxBatchSize,
+        @DefaultValue("2") int flushThreads
+) {}
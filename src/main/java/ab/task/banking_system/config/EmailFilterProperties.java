@@ -0,0 +1,24 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки фильтра Блума занятых e-mail.
+ *
+ * @param enabled            включает фильтр; выключенный фильтр не строится, и каждое создание
+ *                           пользователя проверяет e-mail запросом к базе
+ * @param expectedInsertions минимальное число e-mail, на которое рассчитывается фильтр; при перестроении
+ *                           фильтр рассчитывается на удвоенное число пользователей, если оно больше
+ * @param fpp                целевая доля ложноположительных ответов при расчётном заполнении
+ * @param rebuildInterval    период перестроения фильтра по таблице пользователей
+ */
+@ConfigurationProperties(prefix = "banking.email-filter")
+public record EmailFilterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000000") long expectedInsertions,
+        @DefaultValue("0.01") double fpp,
+        @DefaultValue("6h") Duration rebuildInterval
+) {}
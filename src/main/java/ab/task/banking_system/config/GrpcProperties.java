@@ -0,0 +1,25 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки gRPC-сервера операций со счетами.
+ *
+ * @param enabled               включает сервер; выключенный сервер не открывает порт и не создаёт потоков
+ * @param port                  порт сервера
+ * @param executorThreads       число потоков, выполняющих вызовы; вызов занимает поток на время операции в базе
+ * @param maxInboundMessageSize максимальный размер входящего сообщения
+ * @param shutdownTimeout       сколько при остановке ждать завершения начатых вызовов
+ */
+@ConfigurationProperties(prefix = "banking.grpc")
+public record GrpcProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("9090") int port,
+        @DefaultValue("16") int executorThreads,
+        @DefaultValue("64KB") DataSize maxInboundMessageSize,
+        @DefaultValue("10s") Duration shutdownTimeout
+) {}
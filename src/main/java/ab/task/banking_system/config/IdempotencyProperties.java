@@ -0,0 +1,20 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки ключей идемпотентности ({@code Idempotency-Key}).
+ *
+ * @param cacheMaxSize максимальное число результатов в памяти
+ * @param cacheTtl     сколько результат хранится в памяти после записи
+ * @param retention    сколько ключ хранится в базе; повтор с более старым ключом выполняется заново
+ */
+@ConfigurationProperties(prefix = "banking.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("100000") long cacheMaxSize,
+        @DefaultValue("10m") Duration cacheTtl,
+        @DefaultValue("24h") Duration retention
+) {}
@@ -0,0 +1,15 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки загрузки пользователей и счетов из файлов.
+ *
+ * @param maxReportedRejects сколько отклонённых строк перечисляется в отчёте; общее число отклонённых строк
+ *                           сообщается всегда
+ */
+@ConfigurationProperties(prefix = "banking.import")
+public record ImportProperties(
+        @DefaultValue("1000") int maxReportedRejects
+) {}
@@ -0,0 +1,14 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки журнала операций.
+ *
+ * @param partitionsAhead на сколько месяцев вперёд заранее создаются секции журнала
+ */
+@ConfigurationProperties(prefix = "banking.ledger")
+public record LedgerProperties(
+        @DefaultValue("2") int partitionsAhead
+) {}
@@ -0,0 +1,32 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Чтение из реплик PostgreSQL: транзакции только для чтения получают соединение из пула реплики,
+ * остальные - из пула основной базы ({@code spring.datasource}).
+ *
+ * @param enabled        включает маршрутизацию; не поддерживается вместе с {@code banking.sharding}
+ * @param pools          реплики; соединения для чтения выдаются по очереди, недоступная реплика пропускается,
+ *                       а если недоступны все - читается основная база
+ * @param readYourWrites после записи клиент на {@code pinDuration} читает из основной базы и видит свои изменения,
+ *                       даже если реплика отстаёт. Клиента узнаём по cookie, которую ставит ответ на запрос с записью
+ * @param pinDuration    сколько читать из основной базы после записи; больше обычного отставания реплик
+ */
+@ConfigurationProperties(prefix = "banking.replicas")
+public record ReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Pool> pools,
+        @DefaultValue("true") boolean readYourWrites,
+        @DefaultValue("2s") Duration pinDuration
+) {
+    /**
+     * Подключение к реплике. Пул настраивается как основной ({@code spring.datasource.hikari.*}), а свойства
+     * {@code banking.replicas.pools[i].hikari.*} переопределяют их для этой реплики.
+     */
+    public record Pool(String url, String username, String password) {}
+}
@@ -0,0 +1,13 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Фоновые задачи работают только в сервере; при запуске команды из командной строки они не нужны.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnWebApplication
+public class SchedulingConfig { }
@@ -0,0 +1,82 @@
+package ab.task.banking_system.config;
+
+import ab.task.banking_system.service.InsufficientFundsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Время выполнения и итог каждого публичного метода сервисов счетов и пользователей.
+ * <p>
+ * {@code banking.service.operation} - таймер с гистограммой (теги {@code service}, {@code method}),
+ * {@code banking.service.outcome} - счётчик итогов (дополнительно тег {@code outcome}): {@code success},
+ * {@code not_found}, {@code insufficient_funds}, {@code conflict}, {@code invalid}, {@code error}.
+ * Итог определяется по {@link ResponseStatusException}, которым сервисы сообщают об отказе; нехватку средств
+ * сервис сообщает подтипом {@link InsufficientFundsException}.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+    static final String TIMER = "banking.service.operation";
+    static final String OUTCOMES = "banking.service.outcome";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * ab.task.banking_system.service.AccountService.*(..))"
+            + " || execution(public * ab.task.banking_system.service.UserService.*(..))"
+            + " || execution(public * ab.task.banking_system.service.BatchOperationService.*(..))"
+            + " || execution(public * ab.task.banking_system.service.LedgerService.*(..))")
+    public Object measure(ProceedingJoinPoint pjp) throws Throwable {
+        String service = pjp.getSignature().getDeclaringType().getSimpleName();
+        String method = pjp.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return pjp.proceed();
+        } catch (Throwable e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER)
+                    .description("Время выполнения операций сервисов")
+                    .tag("service", service)
+                    .tag("method", method)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            Counter.builder(OUTCOMES)
+                    .description("Итоги операций сервисов")
+                    .tag("service", service)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    static String outcomeOf(Throwable e) {
+        if (e instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (!(e instanceof ResponseStatusException rse)) {
+            return "error";
+        }
+        HttpStatus status = HttpStatus.resolve(rse.getStatusCode().value());
+        if (status == null) {
+            return "error";
+        }
+        return switch (status) {
+            case NOT_FOUND -> "not_found";
+            case CONFLICT, UNPROCESSABLE_ENTITY -> "conflict";
+            case BAD_REQUEST -> "invalid";
+            default -> "error";
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Горизонтальное шардирование пользователей и счетов по нескольким базам PostgreSQL.
+ *
+ * @param enabled включает шардирование; выключенное приложение работает с {@code spring.datasource}
+ *                и не создаёт пулов шардов
+ * @param shards  базы шардов; номер шарда - индекс в списке. Шард 0 хранит также общие данные
+ *                (блоки номеров счетов). Номер шарда записан в id, поэтому порядок шардов менять нельзя;
+ *                новый шард добавляется в конец списка
+ */
+@ConfigurationProperties(prefix = "banking.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Shard> shards
+) {
+    /**
+     * Подключение к базе шарда. Настройки пула ({@code spring.datasource.hikari.*}) общие для всех шардов.
+     */
+    public record Shard(String url, String username, String password) {}
+}
@@ -0,0 +1,17 @@
+package ab.task.banking_system.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки потоковых выгрузок ({@code /api/users/stream}, {@code /api/export/*}).
+ *
+ * @param timeout сколько может писаться ответ выгрузки; остальным асинхронным запросам остаётся
+ *                общий {@code spring.mvc.async.request-timeout}
+ */
+@ConfigurationProperties(prefix = "banking.streaming")
+public record StreamingProperties(
+        @DefaultValue("30m") Duration timeout
+) {}
@@ -0,0 +1,185 @@
+package ab.task.banking_system.grpc;
+
+import ab.task.banking_system.grpc.v1.AccountOperationsGrpc;
+import ab.task.banking_system.grpc.v1.AccountReply;
+import ab.task.banking_system.grpc.v1.AmountRequest;
+import ab.task.banking_system.grpc.v1.BalanceReply;
+import ab.task.banking_system.grpc.v1.CreateAccountRequest;
+import ab.task.banking_system.grpc.v1.GetBalanceRequest;
+import ab.task.banking_system.grpc.v1.OperationReply;
+import ab.task.banking_system.grpc.v1.OperationRequest;
+import ab.task.banking_system.grpc.v1.OperationStatus;
+import ab.task.banking_system.grpc.v1.OperationType;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.service.AccountService;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * gRPC-вариант операций {@code AccountController}: те же вызовы {@link AccountService},
+ * но сообщения Protobuf и суммы в минимальных единицах вместо JSON и десятичных строк.
+ * <p>
+ * Ошибки унарных вызовов возвращаются статусами gRPC: 400 - {@code INVALID_ARGUMENT}, 404 - {@code NOT_FOUND},
+ * 409 - {@code FAILED_PRECONDITION}, 412 - {@code ABORTED}, 422 - {@code ALREADY_EXISTS}. В канале операций
+ * отказ возвращается статусом в ответе на операцию, и канал остаётся открытым.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountGrpcService extends AccountOperationsGrpc.AccountOperationsImplBase {
+    private final AccountService accountService;
+
+    @Override
+    public void createAccount(CreateAccountRequest request, StreamObserver<AccountReply> responses) {
+        // То же ограничение, что @Size в AccountCreateRequest.
+        int length = request.getNumber().length();
+        if (length != 0 && (length < 6 || length > 34)) {
+            responses.onError(Status.INVALID_ARGUMENT.withDescription("Account number length must be between 6 and 34")
+                    .asRuntimeException());
+            return;
+        }
+        call(responses, () -> {
+            AccountSnapshot account = AccountSnapshot.of(accountService.create(request.getUserId(), request.getNumber()));
+            return AccountReply.newBuilder()
+                    .setId(account.id())
+                    .setNumber(account.number())
+                    .setBalanceMinor(MinorUnits.toMinor(account.balance()))
+                    .setUserId(account.userId())
+                    .setVersion(account.version())
+                    .build();
+        });
+    }
+
+    @Override
+    public void getBalance(GetBalanceRequest request, StreamObserver<BalanceReply> responses) {
+        call(responses, () -> {
+            AccountSnapshot account = accountService.getById(request.getAccountId());
+            return toReply(new AccountBalance(account.id(), account.balance(), account.version()));
+        });
+    }
+
+    @Override
+    public void deposit(AmountRequest request, StreamObserver<BalanceReply> responses) {
+        call(responses, () -> toReply(accountService.deposit(request.getAccountId(),
+                MinorUnits.toAmount(request.getAmountMinor()), idempotencyKey(request.getIdempotencyKey()),
+                request.hasExpectedVersion() ? request.getExpectedVersion() : null)));
+    }
+
+    @Override
+    public void withdraw(AmountRequest request, StreamObserver<BalanceReply> responses) {
+        call(responses, () -> toReply(accountService.withdraw(request.getAccountId(),
+                MinorUnits.toAmount(request.getAmountMinor()), idempotencyKey(request.getIdempotencyKey()),
+                request.hasExpectedVersion() ? request.getExpectedVersion() : null)));
+    }
+
+    /**
+     * Операции канала выполняются по одной в порядке получения: следующая читается из канала только после ответа
+     * на предыдущую, поэтому медленная база сама ограничивает скорость клиента. Для параллельности клиент
+     * открывает несколько каналов.
+     */
+    @Override
+    public StreamObserver<OperationRequest> operations(StreamObserver<OperationReply> responses) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(OperationRequest request) {
+                responses.onNext(execute(request));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.debug("Канал операций закрыт клиентом: {}", Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                responses.onCompleted();
+            }
+        };
+    }
+
+    OperationReply execute(OperationRequest request) {
+        OperationReply.Builder reply = OperationReply.newBuilder().setRequestId(request.getRequestId());
+        BigDecimal amount = MinorUnits.toAmount(request.getAmountMinor());
+        String key = idempotencyKey(request.getIdempotencyKey());
+        Long expectedVersion = request.hasExpectedVersion() ? request.getExpectedVersion() : null;
+        try {
+            AccountBalance balance = switch (request.getType()) {
+                case DEPOSIT -> accountService.deposit(request.getAccountId(), amount, key, expectedVersion);
+                case WITHDRAW -> accountService.withdraw(request.getAccountId(), amount, key, expectedVersion);
+                default -> null;
+            };
+            if (balance == null) {
+                return reply.setStatus(OperationStatus.FAILED).setMessage("Unknown operation type").build();
+            }
+            return reply.setStatus(OperationStatus.APPLIED)
+                    .setBalanceMinor(MinorUnits.toMinor(balance.balance()))
+                    .setVersion(balance.version())
+                    .build();
+        } catch (ResponseStatusException e) {
+            return reply.setStatus(operationStatus(e, request)).setMessage(e.getReason()).build();
+        } catch (RuntimeException e) {
+            log.error("Ошибка операции канала: requestId={}, accountId={}", request.getRequestId(), request.getAccountId(), e);
+            return reply.setStatus(OperationStatus.FAILED).setMessage("Internal error").build();
+        }
+    }
+
+    private static OperationStatus operationStatus(ResponseStatusException e, OperationRequest request) {
+        return switch (e.getStatusCode().value()) {
+            case 400 -> OperationStatus.INVALID_AMOUNT;
+            case 404 -> OperationStatus.NOT_FOUND;
+            case 409 -> request.getType() == OperationType.WITHDRAW
+                    ? OperationStatus.INSUFFICIENT_FUNDS : OperationStatus.FAILED;
+            case 412 -> OperationStatus.VERSION_MISMATCH;
+            case 422 -> OperationStatus.IDEMPOTENCY_KEY_REUSED;
+            default -> OperationStatus.FAILED;
+        };
+    }
+
+    private static <T> void call(StreamObserver<T> responses, Supplier<T> action) {
+        T reply;
+        try {
+            reply = action.get();
+        } catch (ResponseStatusException e) {
+            responses.onError(status(e).withDescription(e.getReason()).asRuntimeException());
+            return;
+        } catch (RuntimeException e) {
+            log.error("Ошибка gRPC-вызова", e);
+            responses.onError(Status.INTERNAL.withDescription("Internal error").asRuntimeException());
+            return;
+        }
+        responses.onNext(reply);
+        responses.onCompleted();
+    }
+
+    private static Status status(ResponseStatusException e) {
+        return switch (e.getStatusCode().value()) {
+            case 400 -> Status.INVALID_ARGUMENT;
+            case 404 -> Status.NOT_FOUND;
+            case 409 -> Status.FAILED_PRECONDITION;
+            case 412 -> Status.ABORTED;
+            case 422 -> Status.ALREADY_EXISTS;
+            case 503 -> Status.UNAVAILABLE;
+            default -> Status.UNKNOWN;
+        };
+    }
+
+    private static BalanceReply toReply(AccountBalance balance) {
+        return BalanceReply.newBuilder()
+                .setAccountId(balance.accountId())
+                .setBalanceMinor(MinorUnits.toMinor(balance.balance()))
+                .setVersion(balance.version())
+                .build();
+    }
+
+    private static String idempotencyKey(String key) {
+        return key.isEmpty() ? null : key;
+    }
+}
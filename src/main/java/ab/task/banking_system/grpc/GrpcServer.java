@@ -0,0 +1,72 @@
+package ab.task.banking_system.grpc;
+
+import ab.task.banking_system.config.GrpcProperties;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC-сервер рядом с HTTP API ({@code banking.grpc.*}). Вызовы выполняются на собственном пуле
+ * из {@code executorThreads} потоков: вызов держит поток, пока операция ждёт базу, а неограниченный
+ * пул gRPC по умолчанию под нагрузкой создавал бы поток на каждый ждущий соединения вызов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GrpcServer {
+    private final GrpcProperties properties;
+    private final AccountGrpcService accountGrpcService;
+    private ExecutorService executor;
+    private Server server;
+
+    @PostConstruct
+    void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(properties.executorThreads(), Thread.ofPlatform().name("grpc-worker-", 0).factory());
+        try {
+            server = Grpc.newServerBuilderForPort(properties.port(), InsecureServerCredentials.create())
+                    .executor(executor)
+                    .maxInboundMessageSize((int) properties.maxInboundMessageSize().toBytes())
+                    .addService(accountGrpcService)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw new UncheckedIOException("Failed to start gRPC server on port " + properties.port(), e);
+        }
+        log.info("gRPC-сервер запущен: port={}, executorThreads={}", server.getPort(), properties.executorThreads());
+    }
+
+    /**
+     * @return порт сервера или {@code -1}, если сервер выключен
+     */
+    public int port() {
+        return server == null ? -1 : server.getPort();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (server == null) {
+            return;
+        }
+        server.shutdown();
+        if (!server.awaitTermination(properties.shutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("gRPC-сервер не завершил вызовы за {}, оставшиеся прерываются", properties.shutdownTimeout());
+            server.shutdownNow();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package ab.task.banking_system.grpc;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Перевод сумм между {@link BigDecimal} с двумя знаками (как {@code NUMERIC(19,2)} в базе)
+ * и целыми минимальными единицами gRPC API.
+ */
+final class MinorUnits {
+    static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    static BigDecimal toAmount(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /**
+     * @throws ArithmeticException если у суммы больше двух знаков после запятой или она не помещается в {@code long}
+     */
+    static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,8 @@
+package ab.task.banking_system.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Баланс и версия счёта сразу после изменения.
+ */
+public record AccountBalance(Long accountId, BigDecimal balance, long version) {}
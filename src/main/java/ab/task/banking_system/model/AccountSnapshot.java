@@ -0,0 +1,18 @@
+package ab.task.banking_system.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Неизменяемый снимок счёта для чтения и кэширования.
+ */
+public record AccountSnapshot(Long id, String number, BigDecimal balance, Long userId, long version) {
+
+    public static AccountSnapshot of(Account account) {
+        return new AccountSnapshot(account.getId(), account.getNumber(), account.getBalance(),
+                account.getUser().getId(), account.getVersion());
+    }
+
+    public AccountSnapshot with(AccountBalance balance) {
+        return new AccountSnapshot(id, number, balance.balance(), userId, balance.version());
+    }
+}
@@ -0,0 +1,17 @@
+package ab.task.banking_system.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Запись журнала операций по счёту. Записи только добавляются и никогда не изменяются.
+ */
+public record LedgerEntry(
+        Long id,
+        Long accountId,
+        TransactionType type,
+        BigDecimal amount,
+        BigDecimal balanceAfter,
+        Long counterpartyAccountId,
+        Instant createdAt
+) {}
@@ -0,0 +1,6 @@
+package ab.task.banking_system.model;
+
+public enum OperationType {
+    DEPOSIT,
+    WITHDRAW
+}
@@ -0,0 +1,8 @@
+package ab.task.banking_system.model;
+
+public enum TransactionType {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER_IN,
+    TRANSFER_OUT
+}
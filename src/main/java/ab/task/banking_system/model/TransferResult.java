@@ -0,0 +1,6 @@
+package ab.task.banking_system.model;
+
+/**
+ * Балансы обоих счетов после перевода.
+ */
+public record TransferResult(AccountBalance from, AccountBalance to) {}
@@ -0,0 +1,16 @@
+package ab.task.banking_system.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Пользователь и агрегаты балансов по его счетам.
+ */
+public record UserBalanceSummary(
+        Long userId,
+        String name,
+        String email,
+        int accountCount,
+        BigDecimal totalBalance,
+        BigDecimal minBalance,
+        BigDecimal maxBalance
+) {}
@@ -0,0 +1,87 @@
+package ab.task.banking_system.replica;
+
+import ab.task.banking_system.config.ReplicaProperties;
+import ab.task.banking_system.web.filter.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пулы основной базы и реплик и маршрутизация транзакций только для чтения в реплики.
+ * <p>
+ * Пул основной базы настраивается из {@code spring.datasource.*}, пул реплики - из тех же
+ * {@code spring.datasource.hikari.*}, поверх которых применяются {@code banking.replicas.pools[i].hikari.*}.
+ * При включённом шардировании не подключается: {@code ShardingConfig} отклоняет такую конфигурацию.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("${banking.replicas.enabled:false} and !${banking.sharding.enabled:false}")
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaProperties properties,
+                                               Environment environment, MeterRegistry meterRegistry) {
+        if (properties.pools().isEmpty()) {
+            throw new IllegalStateException("banking.replicas.enabled requires at least one banking.replicas.pools entry");
+        }
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> pools = new ArrayList<>();
+        try {
+            HikariConfig primaryConfig = hikariConfig(binder, "primary", dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(), meterRegistry);
+            HikariDataSource primary = new HikariDataSource(primaryConfig);
+            pools.add(primary);
+            List<HikariDataSource> replicas = new ArrayList<>();
+            for (int i = 0; i < properties.pools().size(); i++) {
+                ReplicaProperties.Pool replica = properties.pools().get(i);
+                HikariConfig config = hikariConfig(binder, "replica-" + i, replica.url(), replica.username(),
+                        replica.password(), meterRegistry);
+                binder.bind("banking.replicas.pools[" + i + "].hikari", Bindable.ofInstance(config));
+                HikariDataSource pool = new HikariDataSource(config);
+                pools.add(pool);
+                replicas.add(pool);
+            }
+            pools.forEach(pool -> log.info("Пул создан: pool={}, url={}, maxPoolSize={}",
+                    pool.getPoolName(), pool.getJdbcUrl(), pool.getMaximumPoolSize()));
+            return new ReplicaRoutingDataSource(primary, replicas, properties.readYourWrites(), meterRegistry);
+        } catch (RuntimeException e) {
+            pools.forEach(HikariDataSource::close);
+            throw e;
+        }
+    }
+
+    private static HikariConfig hikariConfig(Binder binder, String name, String url, String username, String password,
+                                             MeterRegistry meterRegistry) {
+        HikariConfig config = binder.bind("spring.datasource.hikari", HikariConfig.class).orElseGet(HikariConfig::new);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setPoolName(name);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return config;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "banking.replicas", name = "read-your-writes", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+                new ReadYourWritesFilter(properties.pinDuration(), Clock.systemUTC()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
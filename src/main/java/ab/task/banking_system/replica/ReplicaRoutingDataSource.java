@@ -0,0 +1,153 @@
+package ab.task.banking_system.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений, отправляющий транзакции только для чтения в реплики, а остальные - в основную базу.
+ * <p>
+ * Соединение берётся из пула не при открытии транзакции, а при первом запросе к базе
+ * ({@link LazyConnectionDataSourceProxy}): к этому моменту транзакция уже отметила соединение как
+ * read-only, и по этой отметке выбирается пул. Реплики выдают соединения по очереди; если реплика
+ * не выдала соединение, пробуется следующая, а если не выдала ни одна - основная база.
+ * <p>
+ * Для чтения своих записей транзакция с записью, завершившись, закрепляет {@link ReplicaSession}
+ * за основной базой. Каждое выданное соединение считается в {@value #ROUTES} с тегом маршрута:
+ * {@code primary}, {@code replica} (и имя пула), {@code primary_pinned}, {@code primary_fallback}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    public static final String ROUTES = "banking.datasource.connections";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final boolean readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter pinned;
+    private final Counter fallback;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, boolean readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        this.replicas = replicas.stream()
+                .map(pool -> new Replica(pool, route(meterRegistry, "replica", pool)))
+                .toList();
+        this.pinned = route(meterRegistry, "primary_pinned", primary);
+        this.fallback = route(meterRegistry, "primary_fallback", primary);
+        setTargetDataSource(new PrimaryRoute(primary, route(meterRegistry, "primary", primary)));
+        setReadOnlyDataSource(new ReadRoute(primary));
+        afterPropertiesSet();
+    }
+
+    private static Counter route(MeterRegistry meterRegistry, String route, HikariDataSource pool) {
+        return Counter.builder(ROUTES)
+                .description("Соединения, выданные по маршруту")
+                .tag("route", route)
+                .tag("pool", pool.getPoolName())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return пул основной базы
+     */
+    public HikariDataSource primary() {
+        return primary;
+    }
+
+    /**
+     * @return пулы реплик
+     */
+    public List<HikariDataSource> replicas() {
+        return replicas.stream().map(Replica::pool).toList();
+    }
+
+    Connection readConnection() throws SQLException {
+        if (readYourWrites && ReplicaSession.pinned()) {
+            Connection connection = primary.getConnection();
+            pinned.increment();
+            return connection;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            try {
+                Connection connection = replica.pool().getConnection();
+                replica.connections().increment();
+                return connection;
+            } catch (SQLException e) {
+                log.warn("Реплика не выдала соединение: pool={}, error={}", replica.pool().getPoolName(), e.getMessage());
+            }
+        }
+        Connection connection = primary.getConnection();
+        fallback.increment();
+        return connection;
+    }
+
+    /**
+     * Отмечает запись в сессии: для транзакции - после её фиксации (откат не меняет данных), вне транзакции - сразу.
+     */
+    static void recordWrite() {
+        if (!ReplicaSession.active()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ReplicaSession.written();
+        } else if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReplicaSession.written();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool().close());
+        primary.close();
+    }
+
+    private record Replica(HikariDataSource pool, Counter connections) {}
+
+    private static class PrimaryRoute extends DelegatingDataSource {
+        private final Counter connections;
+
+        PrimaryRoute(HikariDataSource primary, Counter connections) {
+            super(primary);
+            this.connections = connections;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            connections.increment();
+            recordWrite();
+            return connection;
+        }
+    }
+
+    private class ReadRoute extends DelegatingDataSource {
+        ReadRoute(HikariDataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readConnection();
+        }
+    }
+}
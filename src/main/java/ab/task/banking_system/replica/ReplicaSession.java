@@ -0,0 +1,63 @@
+package ab.task.banking_system.replica;
+
+/**
+ * Состояние клиента в текущем запросе для чтения своих записей: читать ли из основной базы
+ * и что сделать после первой записи (продлить закрепление за основной базой).
+ * <p>
+ * Открывается фильтром запроса; вне запроса (задачи по расписанию, gRPC) сессии нет,
+ * и чтения идут в реплики.
+ */
+public final class ReplicaSession {
+    private static final ThreadLocal<ReplicaSession> CURRENT = new ThreadLocal<>();
+
+    private final Runnable onWrite;
+    private boolean pinned;
+    private boolean written;
+
+    private ReplicaSession(boolean pinned, Runnable onWrite) {
+        this.pinned = pinned;
+        this.onWrite = onWrite;
+    }
+
+    /**
+     * Открывает сессию текущего потока.
+     *
+     * @param pinned  клиент недавно писал и должен читать из основной базы
+     * @param onWrite вызывается один раз после первой записи в этой сессии
+     */
+    public static void open(boolean pinned, Runnable onWrite) {
+        CURRENT.set(new ReplicaSession(pinned, onWrite));
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return {@code true}, если чтения текущего потока должны идти в основную базу
+     */
+    public static boolean pinned() {
+        ReplicaSession session = CURRENT.get();
+        return session != null && session.pinned;
+    }
+
+    /**
+     * @return {@code true}, если у текущего потока есть сессия
+     */
+    static boolean active() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Отмечает запись: дальнейшие чтения сессии идут в основную базу.
+     */
+    public static void written() {
+        ReplicaSession session = CURRENT.get();
+        if (session == null || session.written) {
+            return;
+        }
+        session.written = true;
+        session.pinned = true;
+        session.onWrite.run();
+    }
+}
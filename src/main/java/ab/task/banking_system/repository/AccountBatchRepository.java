@@ -0,0 +1,132 @@
+package ab.task.banking_system.repository;
+
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Пакетные изменения балансов через JDBC-батчи, в обход persistence context.
+ * Каждое изменение сопровождается записью в журнал операций.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountBatchRepository {
+    /**
+     * Один оператор и для пополнения, и для списания: условие {@code balance + delta >= 0}
+     * для положительной дельты всегда истинно, а для отрицательной совпадает с {@code withdrawIfEnough}.
+     * Запись журнала добавляется тем же оператором, поэтому число строк равно 1 только для применённой операции.
+     * Условие по владельцу счёта оставляет оператору одну секцию {@code accounts}.
+     */
+    private static final String APPLY_DELTA_SQL = """
+            WITH updated AS (
+                UPDATE accounts SET balance = balance + ?, version = version + 1
+                WHERE id = ? AND user_id = ? AND balance + ? >= 0
+                RETURNING id, balance
+            )
+            INSERT INTO account_transactions (account_id, type, amount, balance_after)
+            SELECT id, ?, ?, balance FROM updated
+            """;
+
+    /**
+     * Пачка пополнений одного счёта: один UPDATE на сумму пачки и отдельная запись журнала
+     * на каждое пополнение, с балансом после него нарастающим итогом в порядке поступления.
+     * Агрегаты баланса блокируются до строки счёта, как в {@link AccountRepository#APPLY_DELTA_SQL}.
+     */
+    private static final String DEPOSIT_ALL_SQL = """
+            WITH d AS (
+                SELECT amount, ord FROM unnest(?::numeric[]) WITH ORDINALITY AS t(amount, ord)
+            ), locked AS (
+                SELECT lock_balance_aggregates(ARRAY[?::bigint], ARRAY[?::bigint])
+            ), updated AS (
+                UPDATE accounts SET balance = balance + (SELECT sum(amount) FROM d), version = version + (SELECT count(*) FROM d)
+                WHERE id = ? AND user_id = ? AND EXISTS (SELECT 1 FROM locked)
+                RETURNING id, balance, version
+            ), logged AS (
+                INSERT INTO account_transactions (account_id, type, amount, balance_after)
+                SELECT u.id, 'DEPOSIT', d.amount,
+                       u.balance - sum(d.amount) OVER () + sum(d.amount) OVER (ORDER BY d.ord)
+                FROM updated u CROSS JOIN d
+            )
+            SELECT id, balance, version FROM updated
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Применяет изменения балансов одним JDBC-батчем в текущей транзакции.
+     *
+     * @param accountIds идентификаторы счетов
+     * @param userIds    владельцы счетов, в том же порядке
+     * @param deltas     знаковые изменения балансов, в том же порядке
+     * @return число изменённых строк для каждой операции (0 - операция не применена)
+     */
+    public int[] applyDeltas(List<Long> accountIds, List<Long> userIds, List<BigDecimal> deltas) {
+        return jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setBigDecimal(1, deltas.get(i));
+                ps.setLong(2, accountIds.get(i));
+                ps.setLong(3, userIds.get(i));
+                ps.setBigDecimal(4, deltas.get(i));
+                ps.setString(5, (deltas.get(i).signum() > 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAW).name());
+                ps.setBigDecimal(6, deltas.get(i).abs());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accountIds.size();
+            }
+        });
+    }
+
+    /**
+     * Зачисляет пачку пополнений одного счёта одним оператором в текущей транзакции.
+     *
+     * @param accountId идентификатор счёта
+     * @param userId    владелец счёта
+     * @param amounts   суммы пополнений в порядке поступления
+     * @return баланс и версия после всей пачки (версия растёт на число пополнений, как при зачислении по одному);
+     *         пусто, если счёт не найден
+     */
+    public Optional<AccountBalance> depositAll(Long accountId, Long userId, List<BigDecimal> amounts) {
+        List<AccountBalance> rows = jdbcTemplate.query(con -> {
+            Array array = con.createArrayOf("numeric", amounts.toArray());
+            PreparedStatement ps = con.prepareStatement(DEPOSIT_ALL_SQL);
+            ps.setArray(1, array);
+            ps.setLong(2, accountId);
+            ps.setLong(3, userId);
+            ps.setLong(4, accountId);
+            ps.setLong(5, userId);
+            return ps;
+        }, (rs, rowNum) -> new AccountBalance(rs.getLong("id"), rs.getBigDecimal("balance"), rs.getLong("version")));
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Возвращает идентификаторы из переданных, для которых счёт существует.
+     */
+    public Set<Long> findExistingIds(Collection<Long> accountIds) {
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            Array ids = con.createArrayOf("bigint", accountIds.toArray());
+            PreparedStatement ps = con.prepareStatement("SELECT id FROM accounts WHERE id = ANY(?)");
+            ps.setArray(1, ids);
+            return ps;
+        }, (RowCallbackHandler) rs -> existing.add(rs.getLong(1)));
+        return existing;
+    }
+}
@@ -0,0 +1,32 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Резервирование блоков номеров счетов из последовательности {@code account_number_blocks}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountNumberRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Резервирует следующий блок. Шаг последовательности читается вместе со значением, поэтому
+     * размер блока задаётся только в базе и одинаков для всех узлов.
+     */
+    public NumberBlock reserveBlock() {
+        return jdbcTemplate.queryForObject("""
+                        SELECT nextval('account_number_blocks') AS first,
+                               (SELECT increment_by FROM pg_sequences
+                                WHERE schemaname = current_schema() AND sequencename = 'account_number_blocks') AS size
+                        """,
+                (rs, rowNum) -> new NumberBlock(rs.getLong("first"), rs.getLong("size")));
+    }
+
+    /**
+     * Диапазон порядковых номеров [{@code first}, {@code first + size}).
+     */
+    public record NumberBlock(long first, long size) {}
+}
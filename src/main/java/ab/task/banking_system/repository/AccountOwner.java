@@ -0,0 +1,9 @@
+package ab.task.banking_system.repository;
+
+/**
+ * Счёт и его владелец.
+ */
+public interface AccountOwner {
+    Long getId();
+    Long getUserId();
+}
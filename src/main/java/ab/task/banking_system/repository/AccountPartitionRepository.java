@@ -0,0 +1,58 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Секции таблицы {@code accounts} (хеш по {@code user_id}, миграции V9-V10) и агрегаты по одной секции.
+ * <p>
+ * Все счета пользователя лежат в одной секции, поэтому агрегаты по пользователям, посчитанные по секциям,
+ * не пересекаются, а общие суммы складываются из сумм секций.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountPartitionRepository {
+    static final String UNPARTITIONED = "accounts";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return имена секций, готовые для подстановки в SQL; сама {@code accounts}, если она не секционирована
+     */
+    public List<String> partitions() {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT i.inhrelid::regclass::text
+                FROM pg_inherits i
+                WHERE i.inhparent = 'accounts'::regclass
+                ORDER BY i.inhrelid::regclass::text
+                """, String.class);
+        return partitions.isEmpty() ? List.of(UNPARTITIONED) : partitions;
+    }
+
+    /**
+     * @return идентификатор снимка текущей транзакции для {@link #importSnapshot}
+     */
+    public String exportSnapshot() {
+        return jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+    }
+
+    /**
+     * Переводит текущую транзакцию на снимок другой, ещё открытой транзакции. Должен быть первым запросом транзакции.
+     */
+    public void importSnapshot(String snapshot) {
+        jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'");
+    }
+
+    /**
+     * @param partition имя из {@link #partitions()}
+     * @return сумма балансов счетов секции
+     */
+    public BigDecimal balanceTotal(String partition) {
+        BigDecimal total = jdbcTemplate.queryForObject("SELECT coalesce(sum(balance), 0) FROM " + partition, BigDecimal.class);
+        return total == null ? BigDecimal.ZERO : total;
+    }
+}
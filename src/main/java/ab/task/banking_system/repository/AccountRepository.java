@@ -1,22 +1,70 @@
 package ab.task.banking_system.repository;
 
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.TransactionType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findByUserId(Long userId);
 
-    @Modifying(clearAutomatically = true)
-    @Query("update Account a set a.balance = a.balance + :amount where a.id = :id")
-    int deposit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+    /**
+     * Владельцы счетов из переданных; несуществующих счетов в результате нет.
+     */
+    @Query("SELECT a.id AS id, a.user.id AS userId FROM Account a WHERE a.id IN :ids")
+    List<AccountOwner> findOwners(@Param("ids") Collection<Long> ids);
 
-    @Modifying(clearAutomatically = true)
-    @Query("update Account a set a.balance = a.balance - :amount " + "where a.id = :id and a.balance >= :amount")
-    int withdrawIfEnough(@Param("id") Long id, @Param("amount") BigDecimal amount);
+    /**
+     * Изменяет баланс, увеличивает версию и пишет запись журнала одним оператором.
+     * {@code locked} блокирует агрегаты баланса до строки счёта - в том же порядке, что и переводы
+     * (см. {@link UserBalanceSummaryRepository}). {@code target} затем блокирует и читает последнюю
+     * зафиксированную версию строки, чтобы без второго запроса отличить "счёт не найден"
+     * от "условие не выполнено", а по возвращённой версии - несовпадение {@code expectedVersion}
+     * от нехватки средств. Если {@code expectedVersion} равен {@code null}, версия не проверяется.
+     * {@code userId} - владелец счёта: accounts секционирована по user_id, и условие по нему оставляет
+     * оператору одну секцию вместо проверки индекса каждой. Счёт с другим владельцем считается ненайденным.
+     */
+    String APPLY_DELTA_SQL = """
+            WITH locked AS (
+                SELECT lock_balance_aggregates(ARRAY[CAST(:id AS BIGINT)], ARRAY[CAST(:userId AS BIGINT)])
+            ), target AS (
+                SELECT balance, version FROM accounts WHERE id = :id AND user_id = :userId AND EXISTS (SELECT 1 FROM locked)
+                FOR UPDATE
+            ), updated AS (
+                UPDATE accounts SET balance = balance + :delta, version = version + 1
+                WHERE id = :id AND user_id = :userId AND balance + :delta >= 0 AND EXISTS (SELECT 1 FROM target)
+                  AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = CAST(:expectedVersion AS BIGINT))
+                RETURNING id, balance, version
+            ), logged AS (
+                INSERT INTO account_transactions (account_id, type, amount, balance_after, counterparty_account_id)
+                SELECT id, :type, abs(:delta), balance, :counterparty FROM updated
+            )
+            SELECT EXISTS (SELECT 1 FROM target) AS found,
+                   EXISTS (SELECT 1 FROM updated) AS applied,
+                   coalesce((SELECT balance FROM updated), (SELECT balance FROM target)) AS balance,
+                   coalesce((SELECT version FROM updated), (SELECT version FROM target)) AS version
+            """;
+
+    default BalanceMutation deposit(Long id, Long userId, BigDecimal amount, TransactionType type,
+                                    Long counterpartyAccountId, Long expectedVersion) {
+        return applyDelta(id, userId, amount, type.name(), counterpartyAccountId, expectedVersion);
+    }
+
+    default BalanceMutation withdrawIfEnough(Long id, Long userId, BigDecimal amount, TransactionType type,
+                                             Long counterpartyAccountId, Long expectedVersion) {
+        return applyDelta(id, userId, amount.negate(), type.name(), counterpartyAccountId, expectedVersion);
+    }
+
+    @Query(value = APPLY_DELTA_SQL, nativeQuery = true)
+    BalanceMutation applyDelta(@Param("id") Long id,
+                               @Param("userId") Long userId,
+                               @Param("delta") BigDecimal delta,
+                               @Param("type") String type,
+                               @Param("counterparty") Long counterpartyAccountId,
+                               @Param("expectedVersion") Long expectedVersion);
 }
@@ -0,0 +1,14 @@
+package ab.task.banking_system.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Итог изменения баланса одним оператором: найден ли счёт, применено ли изменение,
+ * и баланс с версией после него (или текущие, если изменение не применено).
+ */
+public interface BalanceMutation {
+    Boolean getFound();
+    Boolean getApplied();
+    BigDecimal getBalance();
+    Long getVersion();
+}
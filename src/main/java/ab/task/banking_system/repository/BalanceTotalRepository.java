@@ -0,0 +1,29 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Общая сумма балансов по полосам ({@code balance_total_stripes}).
+ * <p>
+ * Триггеры на {@code accounts} прибавляют изменение баланса к полосе счёта ({@code balance_stripe(id)})
+ * в той же транзакции. Сумма полос равна сумме балансов всех счетов, а чтение стоит столько строк,
+ * сколько полос, независимо от числа счетов.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceTotalRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return сумма балансов всех счетов по полосам
+     */
+    public BigDecimal stripesTotal() {
+        BigDecimal total = jdbcTemplate.queryForObject("SELECT coalesce(sum(total), 0) FROM balance_total_stripes",
+                BigDecimal.class);
+        return total == null ? BigDecimal.ZERO : total;
+    }
+}
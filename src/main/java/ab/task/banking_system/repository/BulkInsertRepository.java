@@ -0,0 +1,38 @@
+package ab.task.banking_system.repository;
+
+import ab.task.banking_system.config.BatchProperties;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Сохранение большого числа новых сущностей в текущей транзакции.
+ * <p>
+ * Сущности сбрасываются в базу частями по {@code banking.batch.chunk-size}: Hibernate отправляет
+ * каждую часть JDBC-батчами не больше {@code hibernate.jdbc.batch_size} (задан отдельно), после чего контекст очищается,
+ * чтобы проверка изменений и память не росли с размером запроса. После вызова сущности отсоединены.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulkInsertRepository {
+    private final BatchProperties batchProperties;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> void persistAll(List<T> entities) {
+        int chunkSize = Math.max(1, batchProperties.chunkSize());
+        for (int i = 0; i < entities.size(); i++) {
+            entityManager.persist(entities.get(i));
+            if ((i + 1) % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,98 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка счетов вместе с владельцами, без создания сущностей.
+ * <p>
+ * Столбцы выгрузки совпадают по именам со столбцами загрузки ({@code number}, {@code email}, {@code balance},
+ * {@code name}, {@code registered_at}), поэтому выгруженный файл можно загрузить обратно.
+ * {@code registered_at} выгружается в ISO-8601 UTC.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportRepository {
+    static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_ACCOUNTS_SQL = """
+            SELECT a.id AS account_id, a.number, a.balance, u.id AS user_id, u.name, u.email,
+                   to_char(u.registered_at, 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"') AS registered_at
+            FROM accounts a
+            JOIN users u ON u.id = a.user_id
+            ORDER BY a.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Пишет CSV через {@code COPY ... TO STDOUT}: строки формирует PostgreSQL,
+     * байты копируются в {@code out} без разбора.
+     *
+     * @param header писать ли строку заголовка
+     * @return число выгруженных строк
+     * @throws UncheckedIOException если не удалось записать в {@code out}
+     */
+    public long copyAccountsCsv(OutputStream out, boolean header) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut("COPY (" + SELECT_ACCOUNTS_SQL + ") TO STDOUT (FORMAT csv, HEADER " + header + ")", out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Читает строки серверным курсором порциями по {@link #FETCH_SIZE}; вызывается внутри транзакции.
+     *
+     * @return число прочитанных строк
+     */
+    public long forEachAccount(Consumer<AccountExportRow> consumer) {
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_ACCOUNTS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            consumer.accept(new AccountExportRow(
+                    rs.getLong("account_id"),
+                    rs.getString("number"),
+                    rs.getBigDecimal("balance"),
+                    rs.getLong("user_id"),
+                    rs.getString("name"),
+                    rs.getString("email"),
+                    rs.getString("registered_at")
+            ));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Строка выгрузки: счёт и его владелец.
+     */
+    public record AccountExportRow(
+            long accountId,
+            String number,
+            BigDecimal balance,
+            long userId,
+            String name,
+            String email,
+            String registeredAt
+    ) {}
+}
@@ -0,0 +1,50 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ключи идемпотентности ({@code idempotency_keys}).
+ * <p>
+ * Все методы выполняются в транзакции операции. Вставка ключа, уже вставленного незафиксированной
+ * транзакцией, ждёт её завершения, поэтому параллельные повторы одного запроса выполняются по очереди.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return {@code true}, если ключ новый; {@code false}, если операция с этим ключом уже выполнена
+     */
+    public boolean tryInsert(String key, String fingerprint) {
+        return jdbcTemplate.update("""
+                INSERT INTO idempotency_keys (idempotency_key, fingerprint) VALUES (?, ?)
+                ON CONFLICT (idempotency_key) DO NOTHING
+                """, key, fingerprint) == 1;
+    }
+
+    public void complete(String key, String response) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET response = ? WHERE idempotency_key = ?", response, key);
+    }
+
+    public Optional<StoredResponse> find(String key) {
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT fingerprint, response FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, rowNum) -> new StoredResponse(rs.getString("fingerprint"), rs.getString("response")),
+                key);
+        return rows.stream().findFirst();
+    }
+
+    public int deleteOlderThan(Instant threshold) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", threshold.atOffset(ZoneOffset.UTC));
+    }
+
+    public record StoredResponse(String fingerprint, String response) {}
+}
@@ -0,0 +1,314 @@
+package ab.task.banking_system.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Загрузка пользователей и счетов через промежуточные таблицы и {@code COPY FROM STDIN}.
+ * <p>
+ * Промежуточные таблицы временные ({@code ON COMMIT DROP}) и видны только соединению текущей транзакции,
+ * поэтому все методы вызываются в одной транзакции. Строки, отклонённые при проверке, остаются
+ * в промежуточной таблице с текстом ошибки в столбце {@code error}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportRepository {
+    static final String USERS = "import_users";
+    static final String ACCOUNTS = "import_accounts";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createUserStaging() {
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE import_users (
+                    line_no       BIGINT NOT NULL,
+                    name          TEXT,
+                    email         TEXT,
+                    registered_at TIMESTAMP,
+                    error         TEXT
+                ) ON COMMIT DROP
+                """);
+    }
+
+    public void createAccountStaging() {
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE import_accounts (
+                    line_no BIGINT NOT NULL,
+                    number  TEXT,
+                    email   TEXT,
+                    balance NUMERIC(19,2),
+                    error   TEXT
+                ) ON COMMIT DROP
+                """);
+    }
+
+    /**
+     * Загружает строки в {@code import_users (line_no, name, email, registered_at, error)}.
+     *
+     * @return число загруженных строк
+     */
+    public long copyUsers(Consumer<StagingWriter> producer) {
+        return copy("COPY import_users (line_no, name, email, registered_at, error) FROM STDIN (FORMAT csv)", producer, USERS);
+    }
+
+    /**
+     * Загружает строки в {@code import_accounts (line_no, number, email, balance, error)}.
+     *
+     * @return число загруженных строк
+     */
+    public long copyAccounts(Consumer<StagingWriter> producer) {
+        return copy("COPY import_accounts (line_no, number, email, balance, error) FROM STDIN (FORMAT csv)", producer, ACCOUNTS);
+    }
+
+    /**
+     * Отклоняет повторы e-mail внутри файла (кроме первого вхождения) и переносит остальные строки
+     * в {@code users} одним оператором. Строки, e-mail которых уже занят, отклоняются.
+     */
+    public void mergeUsers() {
+        rejectDuplicates(USERS, "email", "duplicate email in file");
+        jdbcTemplate.update("""
+                WITH numbered AS (
+                    SELECT line_no, name, email, coalesce(registered_at, now() AT TIME ZONE 'UTC') AS registered_at,
+                           row_number() OVER (ORDER BY line_no) - 1 AS rn
+                    FROM import_users
+                    WHERE error IS NULL
+                ), %s,
+                inserted AS (
+                    INSERT INTO users (id, name, email, registered_at)
+                    SELECT b.lo + n.rn %% s.size, n.name, n.email, n.registered_at
+                    FROM numbered n
+                    CROSS JOIN step s
+                    JOIN blocks b ON b.b = n.rn / s.size
+                    ON CONFLICT (email) DO NOTHING
+                    RETURNING email
+                )
+                UPDATE import_users s SET error = 'email already exists'
+                WHERE s.error IS NULL AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.email = s.email)
+                """.formatted(idBlocks("users_id_seq")));
+    }
+
+    /**
+     * Отклоняет повторы номера внутри файла и строки с неизвестным владельцем, затем переносит
+     * остальные строки в {@code accounts} одним оператором. Ненулевой начальный баланс записывается
+     * в журнал пополнением. Строки, номер которых уже занят, отклоняются.
+     * <p>
+     * Занятые номера ищутся в {@code account_numbers}: у секционированной {@code accounts} нет уникального
+     * индекса по номеру для {@code ON CONFLICT}. Если тот же номер одновременно создаётся через API,
+     * вставка нарушает уникальность и загрузка отклоняется целиком.
+     */
+    public void mergeAccounts() {
+        rejectDuplicates(ACCOUNTS, "number", "duplicate account number in file");
+        jdbcTemplate.update("""
+                UPDATE import_accounts s SET error = 'user not found'
+                WHERE s.error IS NULL AND NOT EXISTS (SELECT 1 FROM users u WHERE u.email = s.email)
+                """);
+        jdbcTemplate.update("""
+                WITH numbered AS (
+                    SELECT s.number, s.balance, u.id AS user_id,
+                           row_number() OVER (ORDER BY s.line_no) - 1 AS rn
+                    FROM import_accounts s
+                    JOIN users u ON u.email = s.email
+                    WHERE s.error IS NULL
+                      AND NOT EXISTS (SELECT 1 FROM account_numbers an WHERE an.number = s.number)
+                ), %s,
+                inserted AS (
+                    INSERT INTO accounts (id, number, balance, user_id)
+                    SELECT b.lo + n.rn %% s.size, n.number, n.balance, n.user_id
+                    FROM numbered n
+                    CROSS JOIN step s
+                    JOIN blocks b ON b.b = n.rn / s.size
+                    RETURNING id, number, balance
+                ),
+                logged AS (
+                    INSERT INTO account_transactions (account_id, type, amount, balance_after)
+                    SELECT id, 'DEPOSIT', balance, balance FROM inserted WHERE balance > 0
+                )
+                UPDATE import_accounts s SET error = 'account number already exists'
+                WHERE s.error IS NULL AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.number = s.number)
+                """.formatted(idBlocks("accounts_id_seq")));
+    }
+
+    /**
+     * @return {@code true}, пока {@code accounts} переносится в секционированную таблицу (между миграциями V9 и V10):
+     * в это время {@code account_numbers} заполнена не полностью
+     */
+    public boolean accountsRepartitioning() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('accounts_partitioned') IS NOT NULL", Boolean.class));
+    }
+
+    /**
+     * Передаёт e-mail пользователей, перенесённых из {@code import_users}.
+     */
+    public void forEachImportedEmail(Consumer<String> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT email FROM import_users WHERE error IS NULL",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
+    public long countUserRejects() {
+        return countRejects(USERS);
+    }
+
+    public long countAccountRejects() {
+        return countRejects(ACCOUNTS);
+    }
+
+    public List<RejectedRow> findUserRejects(int limit) {
+        return findRejects(USERS, limit);
+    }
+
+    public List<RejectedRow> findAccountRejects(int limit) {
+        return findRejects(ACCOUNTS, limit);
+    }
+
+    /**
+     * Строка файла, не попавшая в базу.
+     *
+     * @param line  номер строки файла, с которой начинается запись
+     * @param error причина
+     */
+    public record RejectedRow(long line, String error) {}
+
+    /**
+     * Пишет строки промежуточной таблицы в поток {@code COPY} в формате CSV.
+     */
+    public static final class StagingWriter {
+        private final Writer out;
+
+        private StagingWriter(Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Писатель строк в {@code out} - например, во временный файл, который позже передаётся в {@link #append(Path)}.
+         */
+        public static StagingWriter of(Writer out) {
+            return new StagingWriter(out);
+        }
+
+        /**
+         * Дописывает строки, записанные ранее в файл {@code rows} писателем из {@link #of(Writer)}.
+         */
+        public void append(Path rows) {
+            try (Reader in = Files.newBufferedReader(rows, StandardCharsets.UTF_8)) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * @param values значения столбцов в порядке {@code COPY}; {@code null} записывается как NULL
+         */
+        public void row(Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    if (values[i] != null) {
+                        writeQuoted(values[i].toString());
+                    }
+                }
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    private long copy(String sql, Consumer<StagingWriter> producer, String table) {
+        long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            PGCopyOutputStream copy = new PGCopyOutputStream(con.unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+                producer.accept(new StagingWriter(writer));
+                writer.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new SQLException("COPY into " + table + " failed", e);
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+        // Временные таблицы не анализируются автоматически, а от статистики зависит план слияния.
+        jdbcTemplate.execute("ANALYZE " + table);
+        return rows;
+    }
+
+    private void rejectDuplicates(String table, String column, String error) {
+        jdbcTemplate.update("""
+                UPDATE %1$s s SET error = '%3$s'
+                FROM (SELECT line_no, row_number() OVER (PARTITION BY %2$s ORDER BY line_no) AS rn
+                      FROM %1$s WHERE error IS NULL) d
+                WHERE d.line_no = s.line_no AND d.rn > 1
+                """.formatted(table, column, error));
+    }
+
+    /**
+     * CTE {@code step} и {@code blocks}: id выдаются блоками по шагу последовательности, как у Hibernate
+     * (pooled-lo), - один {@code nextval} на блок, id строки с номером {@code rn} = начало блока + {@code rn % size}.
+     */
+    private static String idBlocks(String sequence) {
+        return """
+                step AS (
+                    SELECT increment_by AS size FROM pg_sequences
+                    WHERE schemaname = current_schema() AND sequencename = '%1$s'
+                ),
+                blocks AS (
+                    SELECT b, nextval('%1$s') AS lo
+                    FROM step, generate_series(0, ((SELECT count(*) FROM numbered) + step.size - 1) / step.size - 1) AS b
+                )""".formatted(sequence);
+    }
+
+    private long countRejects(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE error IS NOT NULL", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private List<RejectedRow> findRejects(String table, int limit) {
+        return jdbcTemplate.query("SELECT line_no, error FROM " + table + " WHERE error IS NOT NULL ORDER BY line_no LIMIT ?",
+                (rs, rowNum) -> new RejectedRow(rs.getLong("line_no"), rs.getString("error")), limit);
+    }
+}
@@ -0,0 +1,80 @@
+package ab.task.banking_system.repository;
+
+import ab.task.banking_system.model.LedgerEntry;
+import ab.task.banking_system.model.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Журнал операций по счетам ({@code account_transactions}).
+ * <p>
+ * Записи добавляются тем же оператором, что и изменение баланса (см. {@link AccountRepository}
+ * и {@link AccountBatchRepository}), а здесь только читаются.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerRepository {
+    private static final String SELECT_COLUMNS =
+            "SELECT id, account_id, type, amount, balance_after, counterparty_account_id, created_at FROM account_transactions ";
+
+    private static final RowMapper<LedgerEntry> ENTRY_MAPPER = (rs, rowNum) -> new LedgerEntry(
+            rs.getLong("id"),
+            rs.getLong("account_id"),
+            TransactionType.valueOf(rs.getString("type")),
+            rs.getBigDecimal("amount"),
+            rs.getBigDecimal("balance_after"),
+            rs.getObject("counterparty_account_id", Long.class),
+            rs.getObject("created_at", OffsetDateTime.class).toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Последние записи счёта начиная с {@code from}, от новых к старым.
+     */
+    public List<LedgerEntry> findLatest(Long accountId, Instant from, int limit) {
+        return jdbcTemplate.query(SELECT_COLUMNS
+                        + "WHERE account_id = ? AND created_at >= ? "
+                        + "ORDER BY created_at DESC, id DESC LIMIT ?",
+                ENTRY_MAPPER, accountId, utc(from), limit);
+    }
+
+    /**
+     * Записи счёта в интервале [{@code from}, позиция курсора), от новых к старым.
+     */
+    public List<LedgerEntry> findBefore(Long accountId, Instant from, Instant beforeCreatedAt, long beforeId, int limit) {
+        return jdbcTemplate.query(SELECT_COLUMNS
+                        + "WHERE account_id = ? AND created_at >= ? AND created_at <= ? "
+                        + "AND (created_at, id) < (?, ?) "
+                        + "ORDER BY created_at DESC, id DESC LIMIT ?",
+                ENTRY_MAPPER, accountId, utc(from), utc(beforeCreatedAt), utc(beforeCreatedAt), beforeId, limit);
+    }
+
+    public void createPartition(LocalDate month) {
+        jdbcTemplate.queryForObject("SELECT create_account_transactions_partition(?)::text", String.class, month);
+    }
+
+    /**
+     * Время последней записи счёта раньше {@code before}: по индексу {@code (account_id, created_at)} каждой
+     * более старой секции читается не больше одной строки.
+     */
+    public Optional<Instant> findLatestTimeBefore(Long accountId, Instant before) {
+        return jdbcTemplate.query("SELECT created_at FROM account_transactions "
+                        + "WHERE account_id = ? AND created_at < ? "
+                        + "ORDER BY created_at DESC LIMIT 1",
+                (rs, rowNum) -> rs.getObject("created_at", OffsetDateTime.class).toInstant(),
+                accountId, utc(before)).stream().findFirst();
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
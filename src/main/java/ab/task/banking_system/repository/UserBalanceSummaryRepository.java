@@ -0,0 +1,119 @@
+package ab.task.banking_system.repository;
+
+import ab.task.banking_system.model.UserBalanceSummary;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGStatement;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Агрегаты балансов по пользователю, которые поддерживают триггеры на {@code accounts}: число счетов, сумма и нижний
+ * непустой диапазон баланса ({@code user_balance_stripes}) и число счетов по диапазонам баланса
+ * ({@code user_balance_buckets}), с разбивкой по полосам счетов (миграции V12-V14).
+ * <p>
+ * Порядок блокировок: агрегаты баланса (агрегат полосы владельца, затем полоса общей суммы, см. {@link BalanceTotalRepository})
+ * блокируются раньше строки счёта. Одиночные изменения баланса делают это в том же операторе, а транзакции,
+ * меняющие несколько счетов отдельными операторами (переводы, пакеты), заранее блокируют все агрегаты
+ * по возрастанию ключа через {@link #lockBalanceAggregates(Collection, Collection)}. Иначе два встречных перевода
+ * держали бы по одному агрегату и ждали друг друга.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBalanceSummaryRepository {
+    /**
+     * Кандидаты - пользователи с полосами, у которых нижний непустой диапазон не ниже диапазона порога (диапазон
+     * индекса {@code idx_user_balance_stripes_min_bucket}, при низком пороге - первичный ключ по возрастанию id);
+     * полоса ниже диапазона порога исключает пользователя. Если нижний диапазон пользователя выше диапазона порога,
+     * он подходит без чтения счетов; счета читаются только у пользователей, чей нижний диапазон содержит порог
+     * (LATERAL с LIMIT 1, а не NOT EXISTS, который планировщик заменял полным чтением счетов с балансом не больше
+     * порога), и у попавших на страницу - для минимума и максимума.
+     */
+    private static final String FIND_MIN_BALANCE_ABOVE_SQL = """
+            WITH matched AS (
+                SELECT c.user_id
+                FROM (
+                    SELECT s.user_id, min(s.min_bucket) AS bucket
+                    FROM user_balance_stripes s
+                    WHERE s.min_bucket >= balance_bucket(?) AND s.user_id > ?
+                    GROUP BY s.user_id
+                    HAVING NOT EXISTS (SELECT 1 FROM user_balance_stripes t
+                                       WHERE t.user_id = s.user_id AND t.min_bucket < balance_bucket(?))
+                ) c
+                LEFT JOIN LATERAL (
+                    SELECT 1 AS found
+                    FROM accounts a
+                    WHERE a.user_id = c.user_id AND a.balance <= ? AND c.bucket = balance_bucket(?)
+                    LIMIT 1
+                ) low ON true
+                WHERE low.found IS NULL
+                ORDER BY c.user_id
+                LIMIT ?
+            )
+            SELECT u.id, u.name, u.email, s.account_count, s.total_balance, a.min_balance, a.max_balance
+            FROM matched m
+            JOIN users u ON u.id = m.user_id
+            CROSS JOIN LATERAL (
+                SELECT sum(account_count)::INT AS account_count, sum(total_balance) AS total_balance
+                FROM user_balance_stripes
+                WHERE user_id = m.user_id
+            ) s
+            CROSS JOIN LATERAL (
+                SELECT min(balance) AS min_balance, max(balance) AS max_balance
+                FROM accounts
+                WHERE user_id = m.user_id
+            ) a
+            ORDER BY m.user_id
+            """;
+
+    private static final RowMapper<UserBalanceSummary> ROW_MAPPER = (rs, rowNum) -> new UserBalanceSummary(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getInt("account_count"),
+            rs.getBigDecimal("total_balance"),
+            rs.getBigDecimal("min_balance"),
+            rs.getBigDecimal("max_balance")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Блокирует до конца транзакции агрегаты полос владельцев счетов и полосы общей суммы, в порядке возрастания ключа.
+     *
+     * @param accountIds идентификаторы счетов
+     * @param userIds    их владельцы (см. {@code AccountOwners})
+     */
+    public void lockBalanceAggregates(Collection<Long> accountIds, Collection<Long> userIds) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT lock_balance_aggregates(?, ?)");
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            ps.setArray(2, con.createArrayOf("bigint", userIds.toArray()));
+            return ps;
+        }, rs -> {});
+    }
+
+    /**
+     * Пользователи, у которых есть счета и баланс каждого счёта больше {@code threshold}, по возрастанию id.
+     */
+    public List<UserBalanceSummary> findMinBalanceAbove(BigDecimal threshold, long after, int limit) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_MIN_BALANCE_ABOVE_SQL);
+            // План зависит от порога (диапазон индекса или первичный ключ): без серверного подготовленного оператора
+            // база не переходит на общий план, который после нескольких выполнений читал бы все полосы.
+            ps.unwrap(PGStatement.class).setPrepareThreshold(0);
+            ps.setBigDecimal(1, threshold);
+            ps.setLong(2, after);
+            ps.setBigDecimal(3, threshold);
+            ps.setBigDecimal(4, threshold);
+            ps.setBigDecimal(5, threshold);
+            ps.setInt(6, limit);
+            return ps;
+        }, ROW_MAPPER);
+    }
+}
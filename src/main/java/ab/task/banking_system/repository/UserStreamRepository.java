@@ -0,0 +1,75 @@
+package ab.task.banking_system.repository;
+
+import ab.task.banking_system.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение пользователей через JDBC, в обход persistence context.
+ * <p>
+ * PostgreSQL читает результат серверным курсором порциями по {@link #FETCH_SIZE} строк, только если
+ * запрос выполняется внутри транзакции (autocommit выключен) и курсор однонаправленный.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserStreamRepository {
+    static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_AFTER_SQL =
+            "SELECT id, name, email, registered_at FROM users WHERE id > ? ORDER BY id";
+
+    private static final String SELECT_EMAILS_SQL = "SELECT email FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return число прочитанных строк
+     */
+    public long forEachAfter(long after, Consumer<User> consumer) {
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_AFTER_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, after);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            User user = new User();
+            user.setId(rs.getLong("id"));
+            user.setName(rs.getString("name"));
+            user.setEmail(rs.getString("email"));
+            // registered_at хранится без зоны, в UTC (hibernate.jdbc.time_zone=UTC).
+            user.setRegisteredAt(rs.getObject("registered_at", LocalDateTime.class).toInstant(ZoneOffset.UTC));
+            consumer.accept(user);
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Передаёт e-mail всех пользователей в порядке чтения таблицы.
+     *
+     * @return число прочитанных строк
+     */
+    public long forEachEmail(Consumer<String> consumer) {
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_EMAILS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            consumer.accept(rs.getString(1));
+            count[0]++;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,69 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountCacheProperties;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Кэш снимков счетов в памяти узла.
+ * <p>
+ * Изменения баланса применяются к кэшу только после фиксации транзакции. Загрузка записи
+ * и её изменение выполняются атомарно по ключу, а новая версия заменяет только более старую,
+ * поэтому после фиксации записи на этом узле чтение не вернёт баланс старше неё.
+ * Записи других узлов становятся видны не позже чем через {@code banking.account-cache.ttl}.
+ */
+@Component
+public class AccountCache {
+    private final Cache<Long, AccountSnapshot> cache;
+
+    public AccountCache(AccountCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accounts");
+    }
+
+    AccountSnapshot get(Long accountId, Function<Long, AccountSnapshot> loader) {
+        return cache.get(accountId, loader);
+    }
+
+    /**
+     * После фиксации текущей транзакции обновляет баланс счёта, если счёт уже в кэше.
+     */
+    void updateAfterCommit(AccountBalance balance) {
+        afterCommit(() -> cache.asMap().computeIfPresent(balance.accountId(),
+                (id, cached) -> cached.version() < balance.version() ? cached.with(balance) : cached));
+    }
+
+    /**
+     * После фиксации текущей транзакции удаляет счета из кэша.
+     */
+    void invalidateAfterCommit(Collection<Long> accountIds) {
+        afterCommit(() -> cache.invalidateAll(accountIds));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
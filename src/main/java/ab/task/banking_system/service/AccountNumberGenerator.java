@@ -0,0 +1,199 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountNumberProperties;
+import ab.task.banking_system.repository.AccountNumberRepository;
+import ab.task.banking_system.repository.AccountNumberRepository.NumberBlock;
+import ab.task.banking_system.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Выдаёт номера счетов из блоков, зарезервированных в последовательности базы.
+ * <p>
+ * Номер внутри блока выдаётся из памяти одним {@code getAndIncrement} без блокировок. Следующий блок
+ * резервируется заранее в фоне, как только начат текущий, поэтому создание счёта обращается к базе
+ * за номером только если блок израсходован быстрее, чем зарезервирован следующий. Блоки разных узлов
+ * не пересекаются, поэтому сгенерированные номера уникальны; номера неизрасходованных блоков
+ * при остановке теряются. При шардировании блоки резервируются на шарде 0, и номера уникальны
+ * на всех шардах.
+ */
+@Slf4j
+@Component
+public class AccountNumberGenerator {
+    private static final NumberBlock EMPTY = new NumberBlock(0, 0);
+
+    private final AccountNumberRepository accountNumberRepository;
+    private final ShardRouter shardRouter;
+    private final String prefix;
+    private final int digits;
+    private final long maxSequence;
+    private final int suffixMod;
+    private final int suffixShift;
+    private final Pattern reserved;
+    private final ExecutorService executor;
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(EMPTY));
+    private final AtomicReference<CompletableFuture<Block>> next = new AtomicReference<>();
+
+    public AccountNumberGenerator(AccountNumberRepository accountNumberRepository, AccountNumberProperties properties,
+                                  ShardRouter shardRouter) {
+        if (!properties.prefix().matches("[A-Z0-9]+") || properties.digits() < 1 || properties.digits() > 18
+                || properties.prefix().length() + 2 + properties.digits() > 34) {
+            throw new IllegalStateException("Invalid account number format: prefix=" + properties.prefix()
+                    + ", digits=" + properties.digits());
+        }
+        this.accountNumberRepository = accountNumberRepository;
+        this.shardRouter = shardRouter;
+        this.prefix = properties.prefix();
+        this.digits = properties.digits();
+        this.maxSequence = (long) Math.pow(10, digits) - 1;
+        // (bban + prefix + "00") mod 97 = (bban mod 97 * 10^len(prefix + "00") + (prefix + "00") mod 97) mod 97.
+        this.suffixMod = mod97(prefix + "00");
+        this.suffixShift = pow10mod97(numericLength(prefix + "00"));
+        this.reserved = Pattern.compile(Pattern.quote(prefix) + "\\d{" + (digits + 2) + "}");
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "account-number-allocator");
+            t.setDaemon(true);
+            return t;
+        });
+        this.next.set(reserveAsync());
+    }
+
+    /**
+     * @return новый номер счёта
+     * @throws IllegalStateException если порядковые номера формата исчерпаны
+     */
+    public String next() {
+        while (true) {
+            Block block = current.get();
+            long sequence = block.next.getAndIncrement();
+            if (sequence < block.end) {
+                return format(sequence);
+            }
+            advance(block);
+        }
+    }
+
+    /**
+     * @return {@code true}, если номер имеет формат генерируемых номеров; такие номера нельзя задавать вручную
+     */
+    public boolean isReserved(String number) {
+        return reserved.matcher(number).matches();
+    }
+
+    private void advance(Block exhausted) {
+        CompletableFuture<Block> pending = next.get();
+        if (current.get() != exhausted) {
+            return;
+        }
+        // Все потоки, заставшие исчерпанный блок, ждут один и тот же следующий блок; ставит его один из них.
+        Block fresh = join(pending);
+        if (current.compareAndSet(exhausted, fresh)) {
+            next.set(reserveAsync());
+        }
+    }
+
+    private CompletableFuture<Block> reserveAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            NumberBlock reserved = shardRouter.call(0, accountNumberRepository::reserveBlock);
+            if (reserved.first() + reserved.size() - 1 > maxSequence) {
+                throw new IllegalStateException("Account number space exhausted for " + digits + " digits");
+            }
+            log.debug("Зарезервирован блок номеров счетов: first={}, size={}", reserved.first(), reserved.size());
+            return new Block(reserved);
+        }, executor);
+    }
+
+    private Block join(CompletableFuture<Block> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            // Неудачное резервирование повторяется при следующем вызове.
+            next.compareAndSet(pending, reserveAsync());
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    String format(long sequence) {
+        int check = 98 - (int) (((sequence % 97) * suffixShift + suffixMod) % 97);
+        char[] number = new char[prefix.length() + 2 + digits];
+        prefix.getChars(0, prefix.length(), number, 0);
+        number[prefix.length()] = (char) ('0' + check / 10);
+        number[prefix.length() + 1] = (char) ('0' + check % 10);
+        long rest = sequence;
+        for (int i = number.length - 1; i >= prefix.length() + 2; i--) {
+            number[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(number);
+    }
+
+    /**
+     * Контрольные цифры ISO 7064 mod 97-10, как в IBAN: {@code 98 - (bban + prefix + "00") mod 97},
+     * где буквы заменены числами A=10 … Z=35.
+     */
+    static String checkDigits(String prefix, String bban) {
+        int check = 98 - mod97(bban + prefix + "00");
+        return check < 10 ? "0" + check : Integer.toString(check);
+    }
+
+    /**
+     * @return {@code true}, если контрольные цифры номера верны
+     */
+    static boolean isValid(String number, int prefixLength) {
+        String rearranged = number.substring(prefixLength + 2) + number.substring(0, prefixLength + 2);
+        return mod97(rearranged) == 1;
+    }
+
+    private static int mod97(String value) {
+        int mod = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int d = Character.digit(value.charAt(i), 36);
+            mod = (d < 10 ? mod * 10 + d : mod * 100 + d) % 97;
+        }
+        return mod;
+    }
+
+    // Длина строки после замены букв двузначными числами.
+    private static int numericLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            length += Character.isDigit(value.charAt(i)) ? 1 : 2;
+        }
+        return length;
+    }
+
+    private static int pow10mod97(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = result * 10 % 97;
+        }
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(NumberBlock block) {
+            this.next = new AtomicLong(block.first());
+            this.end = block.first() + block.size();
+        }
+    }
+}
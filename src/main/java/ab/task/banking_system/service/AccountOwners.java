@@ -0,0 +1,65 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountPartitionProperties;
+import ab.task.banking_system.repository.AccountOwner;
+import ab.task.banking_system.repository.AccountRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Владельцы счетов в памяти узла.
+ * <p>
+ * {@code accounts} секционирована по user_id, и оператор, которому известен только id счёта, проверяет индекс
+ * каждой секции. Изменения балансов передают в операторы и владельца счёта, чтобы читалась одна секция.
+ * Владелец счёта не меняется, а id счетов не переиспользуются, поэтому записи не устаревают и срока жизни у них нет.
+ * Промах читает владельца из базы тем же поиском по всем секциям; несуществующий счёт не запоминается.
+ */
+@Component
+public class AccountOwners {
+    private final AccountRepository accountRepository;
+    private final Cache<Long, Long> cache;
+
+    public AccountOwners(AccountRepository accountRepository, AccountPartitionProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.ownerCacheSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "account_owners");
+    }
+
+    /**
+     * @return id владельца счёта или {@code null}, если счёт не найден
+     */
+    Long find(Long accountId) {
+        return cache.get(accountId, id -> accountRepository.findOwners(List.of(id)).stream()
+                .map(AccountOwner::getUserId)
+                .findFirst()
+                .orElse(null));
+    }
+
+    /**
+     * @return владельцы найденных счетов из переданных, по id счёта
+     */
+    Map<Long, Long> findAll(Collection<Long> accountIds) {
+        return cache.getAll(accountIds, missing -> accountRepository.findOwners(Set.copyOf(missing)).stream()
+                .collect(Collectors.toMap(AccountOwner::getId, AccountOwner::getUserId)));
+    }
+
+    /**
+     * Запоминает владельца созданного счёта.
+     */
+    void remember(Long accountId, Long userId) {
+        cache.put(accountId, userId);
+    }
+}
@@ -0,0 +1,116 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountPartitionProperties;
+import ab.task.banking_system.repository.AccountPartitionRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Считает агрегат по каждой секции {@code accounts} параллельно, не больше
+ * {@code banking.account-partitions.parallelism} секций одновременно.
+ * <p>
+ * Вызывающая транзакция экспортирует свой снимок ({@code pg_export_snapshot}), и транзакции, читающие секции,
+ * начинают с него: все секции читаются в одном состоянии базы, том же, что видит вызывающая транзакция.
+ * Поэтому и сама вызывающая транзакция, и читающие открываются не только для чтения: снимок импортируется
+ * только на сервере, где он экспортирован, а транзакции только для чтения ушли бы в реплики.
+ */
+@Slf4j
+@Component
+public class AccountPartitionAggregator {
+    private final AccountPartitionRepository accountPartitionRepository;
+    private final ShardRouter shardRouter;
+    private final int parallelism;
+    private final TransactionDefinition snapshotReader;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AccountPartitionAggregator(AccountPartitionRepository accountPartitionRepository, ShardRouter shardRouter,
+                                      AccountPartitionProperties properties) {
+        if (properties.parallelism() < 1) {
+            throw new IllegalStateException("banking.account-partitions.parallelism must be positive");
+        }
+        this.accountPartitionRepository = accountPartitionRepository;
+        this.shardRouter = shardRouter;
+        this.parallelism = properties.parallelism();
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotReader = definition;
+    }
+
+    /**
+     * Вычисляет {@code aggregate} для каждой секции в снимке текущей транзакции. Вызывается в транзакции
+     * REPEATABLE READ, не только для чтения; на время вызова занимает до {@code parallelism} соединений пула.
+     *
+     * @param aggregate запрос к одной секции; получает имя секции, готовое для подстановки в SQL
+     * @return результаты в порядке секций
+     */
+    public <T> List<T> onEachPartition(Function<String, T> aggregate) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Partition aggregates require a transaction to share its snapshot");
+        }
+        List<String> partitions = accountPartitionRepository.partitions();
+        int workers = Math.min(parallelism, partitions.size());
+        if (workers == 1) {
+            return partitions.stream().map(aggregate).toList();
+        }
+
+        String snapshot = accountPartitionRepository.exportSnapshot();
+        int shard = shardRouter.currentShard();
+        ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>(
+                IntStream.range(0, partitions.size()).boxed().toList());
+        Object[] results = new Object[partitions.size()];
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(executor.submit(() -> shardRouter.inTransaction(shard, snapshotReader, () -> {
+                accountPartitionRepository.importSnapshot(snapshot);
+                for (Integer i = pending.poll(); i != null; i = pending.poll()) {
+                    results[i] = aggregate.apply(partitions.get(i));
+                }
+                return null;
+            })));
+        }
+        await(futures);
+        log.debug("Агрегат по секциям посчитан: partitions={}, workers={}", partitions.size(), workers);
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    private static void await(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for partitions", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,20 +1,32 @@
 package ab.task.banking_system.service;
 
+import ab.task.banking_system.config.BatchProperties;
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.model.TransactionType;
+import ab.task.banking_system.model.TransferResult;
 import ab.task.banking_system.model.User;
 import ab.task.banking_system.repository.AccountRepository;
+import ab.task.banking_system.repository.BalanceMutation;
+import ab.task.banking_system.repository.BulkInsertRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
 import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.sharding.ShardKey;
+import ab.task.banking_system.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -22,6 +34,17 @@ import java.util.UUID;
 public class AccountService {
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final DepositCoalescer depositCoalescer;
+    private final IdempotencyService idempotencyService;
+    private final AccountCache accountCache;
+    private final AccountOwners accountOwners;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final UserBalanceSummaryRepository userBalanceSummaryRepository;
+    private final AuditLog auditLog;
+    private final BatchProperties batchProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
 
     /**
      * Создаёт новый счёт для пользователя.
@@ -29,11 +52,18 @@ public class AccountService {
      * @param userId идентификатор пользователя
      * @param providedNumber номер счёта, если задан; если пустой - будет сгенерирован
      * @return сохранённый счёт
-     * @throws ResponseStatusException если пользователь не найден (404) или номер счёта уже существует (409)
+     * @throws ResponseStatusException если заданный номер имеет формат генерируемых номеров (400),
+     *                                 пользователь не найден (404) или номер счёта уже существует (409)
      */
     @Transactional
-    public Account create(Long userId, String providedNumber) {
-        log.info("Создание счёта: userId={}, providedNumber={}", userId, providedNumber != null && !providedNumber.isBlank());
+    public Account create(@ShardKey Long userId, String providedNumber) {
+        boolean provided = providedNumber != null && !providedNumber.isBlank();
+        log.info("Создание счёта: userId={}, providedNumber={}", userId, provided);
+
+        if (provided && accountNumberGenerator.isReserved(providedNumber)) {
+            log.warn("Создание счёта: заданный номер имеет формат генерируемых number={}", providedNumber);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account number format is reserved for generated numbers");
+        }
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> {
@@ -41,16 +71,15 @@ public class AccountService {
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
                 });
 
-        String number = (providedNumber != null && !providedNumber.isBlank())
-                ? providedNumber
-                : generateAccountNumber();
+        String number = provided ? providedNumber : accountNumberGenerator.next();
 
         Account acc = new Account();
         acc.setUser(user);
         acc.setNumber(number);
 
         try {
-            Account saved = accountRepository.save(acc);
+            Account saved = accountRepository.saveAndFlush(acc);
+            accountOwners.remember(saved.getId(), userId);
             log.info("Счёт создан: id={}, number={}, userId={}", saved.getId(), saved.getNumber(), userId);
             return saved;
         } catch (DataIntegrityViolationException e) {
@@ -60,10 +89,58 @@ public class AccountService {
         }
     }
 
-    private String generateAccountNumber() {
-        String n = UUID.randomUUID().toString().replace("-", "");
-        log.debug("Сгенерирован номер счёта: {}", n);
-        return n;
+    /**
+     * Создаёт {@code count} счетов пользователя с генерируемыми номерами одной транзакцией.
+     * Вставки отправляются JDBC-батчами.
+     *
+     * @param userId идентификатор пользователя
+     * @param count  число счетов (1..{@code banking.batch.max-creates})
+     * @return сохранённые счета
+     * @throws ResponseStatusException если число счетов некорректно (400) или пользователь не найден (404)
+     */
+    @Transactional
+    public List<Account> createAll(@ShardKey Long userId, int count) {
+        log.info("Создание счетов пакетом: userId={}, count={}", userId, count);
+        if (count < 1 || count > batchProperties.maxCreates()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Count must be between 1 and " + batchProperties.maxCreates());
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> {
+                    log.warn("Создание счетов пакетом: пользователь не найден userId={}", userId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+                });
+
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account acc = new Account();
+            acc.setUser(user);
+            acc.setNumber(accountNumberGenerator.next());
+            accounts.add(acc);
+        }
+        bulkInsertRepository.persistAll(accounts);
+        accounts.forEach(a -> accountOwners.remember(a.getId(), userId));
+        log.info("Счета созданы пакетом: userId={}, count={}", userId, count);
+        return accounts;
+    }
+
+    /**
+     * Возвращает счёт по идентификатору.
+     * <p>
+     * Ответ берётся из {@link AccountCache}; при промахе счёт читается из базы и кладётся в кэш.
+     *
+     * @param accountId идентификатор счёта
+     * @return снимок счёта
+     * @throws ResponseStatusException если счёт не найден (404)
+     */
+    public AccountSnapshot getById(@ShardKey Long accountId) {
+        log.info("Запрос счёта: accountId={}", accountId);
+        AccountSnapshot snapshot = accountCache.get(accountId, id -> transactionTemplate.execute(tx ->
+                accountRepository.findById(id).map(AccountSnapshot::of).orElse(null)));
+        if (snapshot == null) {
+            log.warn("Счёт не найден: accountId={}", accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+        return snapshot;
     }
 
     /**
@@ -74,7 +151,7 @@ public class AccountService {
      * @throws ResponseStatusException если пользователь не найден (404)
      */
     @Transactional(readOnly = true)
-    public List<Account> listByUser(Long userId) {
+    public List<Account> listByUser(@ShardKey Long userId) {
         log.info("Запрос счетов пользователя: userId={}", userId);
         if (!userRepository.existsById(userId)) {
             log.warn("Счета пользователя: пользователь не найден userId={}", userId);
@@ -90,22 +167,67 @@ public class AccountService {
      *
      * @param accountId идентификатор счёта
      * @param amount сумма пополнения (должна быть > 0)
+     * @return баланс и версия счёта после пополнения
      * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404) или пополнение не применено (409)
      */
-    @Transactional
-    public void deposit(Long accountId, BigDecimal amount) {
-        log.info("Депозит: accountId={}, amount={}", accountId, amount);
+    public AccountBalance deposit(@ShardKey Long accountId, BigDecimal amount) {
+        return deposit(accountId, amount, null);
+    }
+
+    /**
+     * Выполняет пополнение счёта.
+     * <p>
+     * При {@code banking.deposit.coalescing.enabled=true} пополнение объединяется с параллельными
+     * пополнениями того же счёта (см. {@link DepositCoalescer}). Транзакция открывается программно,
+     * чтобы в режиме объединения вызывающий поток не держал соединение, пока ждёт запись пачки.
+     * Пополнение с ключом идемпотентности выполняется отдельной транзакцией, без объединения:
+     * ключ должен фиксироваться вместе со своим пополнением.
+     *
+     * @param accountId идентификатор счёта
+     * @param amount сумма пополнения (должна быть > 0)
+     * @param idempotencyKey ключ идемпотентности или {@code null}
+     * @return баланс и версия счёта после пополнения
+     * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404), пополнение не применено (409)
+     *                                 или ключ использован для другого запроса (422)
+     */
+    public AccountBalance deposit(@ShardKey Long accountId, BigDecimal amount, String idempotencyKey) {
+        return deposit(accountId, amount, idempotencyKey, null);
+    }
+
+    /**
+     * Выполняет пополнение счёта, если версия счёта равна {@code expectedVersion}.
+     * Условное пополнение, как и пополнение с ключом идемпотентности, не объединяется с другими.
+     *
+     * @param accountId идентификатор счёта
+     * @param amount сумма пополнения (должна быть > 0)
+     * @param idempotencyKey ключ идемпотентности или {@code null}
+     * @param expectedVersion ожидаемая версия счёта или {@code null}, если версия не проверяется
+     * @return баланс и версия счёта после пополнения
+     * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404), пополнение не применено (409),
+     *                                 версия счёта не совпала (412) или ключ использован для другого запроса (422)
+     */
+    public AccountBalance deposit(@ShardKey Long accountId, BigDecimal amount, String idempotencyKey, Long expectedVersion) {
+        log.info("Депозит: accountId={}, amount={}, expectedVersion={}", accountId, amount, expectedVersion);
         requirePositive(amount);
-        int rows = accountRepository.deposit(accountId, amount);
-        if (rows == 0) {
-            if (!accountRepository.existsById(accountId)) {
-                log.warn("Депозит: счёт не найден accountId={}", accountId);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
-            }
-            log.warn("Депозит не выполнен (неизвестная причина): accountId={}, amount={}", accountId, amount);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Deposit failed");
+        // Событие аудита регистрируется в транзакции операции и пишется после её фиксации.
+        Supplier<AccountBalance> action = () -> {
+            AccountBalance balance = credit(accountId, ownerOf(accountId), amount, TransactionType.DEPOSIT, null, expectedVersion);
+            auditLog.deposit(accountId, amount, balance.balance());
+            return balance;
+        };
+        AccountBalance result;
+        if (idempotencyKey != null) {
+            result = idempotencyService.execute(idempotencyKey,
+                    fingerprint(TransactionType.DEPOSIT, accountId, amount, expectedVersion), AccountBalance.class, action);
+        } else if (expectedVersion == null && depositCoalescer.isEnabled()) {
+            // Пачка уже зафиксирована, повторов без ключа идемпотентности нет.
+            result = depositCoalescer.deposit(accountId, amount);
+            auditLog.deposit(accountId, amount, result.balance());
+        } else {
+            result = transactionTemplate.execute(tx -> action.get());
         }
-        log.info("Депозит выполнен: accountId={}, amount={}", accountId, amount);
+        log.info("Депозит выполнен: accountId={}, amount={}, balance={}", accountId, amount, result.balance());
+        return result;
     }
 
     /**
@@ -113,22 +235,175 @@ public class AccountService {
      *
      * @param accountId идентификатор счёта
      * @param amount сумма списания (должна быть > 0)
+     * @return баланс и версия счёта после списания
      * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404) или недостаточно средств (409)
      */
-    @Transactional
-    public void withdraw(Long accountId, BigDecimal amount) {
-        log.info("Списание: accountId={}, amount={}", accountId, amount);
+    public AccountBalance withdraw(@ShardKey Long accountId, BigDecimal amount) {
+        return withdraw(accountId, amount, null);
+    }
+
+    /**
+     * Выполняет списание со счёта.
+     *
+     * @param accountId идентификатор счёта
+     * @param amount сумма списания (должна быть > 0)
+     * @param idempotencyKey ключ идемпотентности или {@code null}
+     * @return баланс и версия счёта после списания
+     * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404), недостаточно средств (409)
+     *                                 или ключ использован для другого запроса (422)
+     */
+    public AccountBalance withdraw(@ShardKey Long accountId, BigDecimal amount, String idempotencyKey) {
+        return withdraw(accountId, amount, idempotencyKey, null);
+    }
+
+    /**
+     * Выполняет списание со счёта, если версия счёта равна {@code expectedVersion}.
+     *
+     * @param accountId идентификатор счёта
+     * @param amount сумма списания (должна быть > 0)
+     * @param idempotencyKey ключ идемпотентности или {@code null}
+     * @param expectedVersion ожидаемая версия счёта или {@code null}, если версия не проверяется
+     * @return баланс и версия счёта после списания
+     * @throws ResponseStatusException если сумма некорректна (400), счёт не найден (404), недостаточно средств (409),
+     *                                 версия счёта не совпала (412) или ключ использован для другого запроса (422)
+     */
+    public AccountBalance withdraw(@ShardKey Long accountId, BigDecimal amount, String idempotencyKey, Long expectedVersion) {
+        log.info("Списание: accountId={}, amount={}, expectedVersion={}", accountId, amount, expectedVersion);
+        requirePositive(amount);
+        Supplier<AccountBalance> action = () -> {
+            AccountBalance balance = debit(accountId, ownerOf(accountId), amount, TransactionType.WITHDRAW, null, expectedVersion);
+            auditLog.withdraw(accountId, amount, balance.balance());
+            return balance;
+        };
+        AccountBalance result = idempotencyKey != null
+                ? idempotencyService.execute(idempotencyKey,
+                        fingerprint(TransactionType.WITHDRAW, accountId, amount, expectedVersion), AccountBalance.class, action)
+                : transactionTemplate.execute(tx -> action.get());
+        log.info("Списание выполнено: accountId={}, amount={}, balance={}", accountId, amount, result.balance());
+        return result;
+    }
+
+    /**
+     * Переводит средства между счетами в одной транзакции.
+     *
+     * @see #transfer(Long, Long, BigDecimal, String)
+     */
+    public TransferResult transfer(@ShardKey Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return transfer(fromAccountId, toAccountId, amount, null);
+    }
+
+    /**
+     * Переводит средства между счетами в одной транзакции.
+     * <p>
+     * Списание и зачисление выполняются условными UPDATE без предварительного чтения.
+     * Сначала блокируются агрегаты балансов (владельцы по возрастанию id пользователя, полосы общей суммы
+     * по номеру), затем строки счетов по возрастанию id счёта. Поэтому встречные переводы не могут взаимно заблокироваться.
+     * При шардировании оба счёта должны находиться на одном шарде: перевод между шардами потребовал бы
+     * распределённой транзакции.
+     *
+     * @param fromAccountId идентификатор счёта списания
+     * @param toAccountId идентификатор счёта зачисления
+     * @param amount сумма перевода (должна быть > 0)
+     * @param idempotencyKey ключ идемпотентности или {@code null}
+     * @return балансы и версии обоих счетов после перевода
+     * @throws ResponseStatusException если сумма или счета некорректны либо счета на разных шардах (400),
+     *                                 счёт не найден (404), недостаточно средств (409) или ключ использован
+     *                                 для другого запроса (422)
+     */
+    public TransferResult transfer(@ShardKey Long fromAccountId, Long toAccountId, BigDecimal amount, String idempotencyKey) {
+        log.info("Перевод: fromAccountId={}, toAccountId={}, amount={}", fromAccountId, toAccountId, amount);
         requirePositive(amount);
-        int rows = accountRepository.withdrawIfEnough(accountId, amount);
-        if (rows == 0) {
-            if (!accountRepository.existsById(accountId)) {
-                log.warn("Списание: счёт не найден accountId={}", accountId);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        if (fromAccountId.equals(toAccountId)) {
+            log.warn("Перевод отклонён: счёт списания совпадает со счётом зачисления accountId={}", fromAccountId);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Source and target accounts must differ");
+        }
+        if (shardRouter.shardOfId(fromAccountId) != shardRouter.shardOfId(toAccountId)) {
+            log.warn("Перевод отклонён: счета на разных шардах fromAccountId={}, toAccountId={}", fromAccountId, toAccountId);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Transfers between shards are not supported");
+        }
+        Supplier<TransferResult> action = () -> {
+            Long fromUserId = ownerOf(fromAccountId);
+            Long toUserId = ownerOf(toAccountId);
+            userBalanceSummaryRepository.lockBalanceAggregates(List.of(fromAccountId, toAccountId), List.of(fromUserId, toUserId));
+            AccountBalance from;
+            AccountBalance to;
+            if (fromAccountId < toAccountId) {
+                from = debit(fromAccountId, fromUserId, amount, TransactionType.TRANSFER_OUT, toAccountId, null);
+                to = credit(toAccountId, toUserId, amount, TransactionType.TRANSFER_IN, fromAccountId, null);
+            } else {
+                to = credit(toAccountId, toUserId, amount, TransactionType.TRANSFER_IN, fromAccountId, null);
+                from = debit(fromAccountId, fromUserId, amount, TransactionType.TRANSFER_OUT, toAccountId, null);
             }
+            auditLog.transfer(fromAccountId, toAccountId, amount, from.balance(), to.balance());
+            return new TransferResult(from, to);
+        };
+        TransferResult result = idempotencyKey != null
+                ? idempotencyService.execute(idempotencyKey,
+                        fingerprint(TransactionType.TRANSFER_OUT, fromAccountId, amount, null) + "|" + toAccountId,
+                        TransferResult.class, action)
+                : transactionTemplate.execute(tx -> action.get());
+        log.info("Перевод выполнен: fromAccountId={}, toAccountId={}, amount={}", fromAccountId, toAccountId, amount);
+        return result;
+    }
+
+    private static String fingerprint(TransactionType type, Long accountId, BigDecimal amount, Long expectedVersion) {
+        String fingerprint = type + "|" + accountId + "|" + amount.stripTrailingZeros().toPlainString();
+        return expectedVersion == null ? fingerprint : fingerprint + "|v" + expectedVersion;
+    }
+
+    // Владелец счёта нужен операторам изменения баланса (см. AccountOwners); неизвестный счёт - 404 без них.
+    private Long ownerOf(Long accountId) {
+        Long userId = accountOwners.find(accountId);
+        if (userId == null) {
+            log.warn("Счёт не найден: accountId={}", accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+        return userId;
+    }
+
+    // Изменение баланса, запись журнала и признак "счёт найден" - один оператор и один round-trip.
+    private AccountBalance credit(Long accountId, Long userId, BigDecimal amount, TransactionType type,
+                                  Long counterpartyAccountId, Long expectedVersion) {
+        BalanceMutation m = accountRepository.deposit(accountId, userId, amount, type, counterpartyAccountId, expectedVersion);
+        if (!m.getFound()) {
+            log.warn("Зачисление: счёт не найден accountId={}", accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+        requireVersion(m, accountId, expectedVersion);
+        if (!m.getApplied()) {
+            log.warn("Зачисление не выполнено (неизвестная причина): accountId={}, amount={}", accountId, amount);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Deposit failed");
+        }
+        AccountBalance result = new AccountBalance(accountId, m.getBalance(), m.getVersion());
+        accountCache.updateAfterCommit(result);
+        return result;
+    }
+
+    private AccountBalance debit(Long accountId, Long userId, BigDecimal amount, TransactionType type,
+                                 Long counterpartyAccountId, Long expectedVersion) {
+        BalanceMutation m = accountRepository.withdrawIfEnough(accountId, userId, amount, type, counterpartyAccountId,
+                expectedVersion);
+        if (!m.getFound()) {
+            log.warn("Списание: счёт не найден accountId={}", accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+        requireVersion(m, accountId, expectedVersion);
+        if (!m.getApplied()) {
             log.warn("Списание отклонено: недостаточно средств accountId={}, amount={}", accountId, amount);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient funds");
+            throw new InsufficientFundsException();
+        }
+        AccountBalance result = new AccountBalance(accountId, m.getBalance(), m.getVersion());
+        accountCache.updateAfterCommit(result);
+        return result;
+    }
+
+    // Неприменённое изменение возвращает текущую версию счёта, прочитанную под блокировкой строки.
+    private void requireVersion(BalanceMutation m, Long accountId, Long expectedVersion) {
+        if (!m.getApplied() && expectedVersion != null && !expectedVersion.equals(m.getVersion())) {
+            log.warn("Изменение баланса отклонено: версия счёта изменилась accountId={}, expected={}, actual={}",
+                    accountId, expectedVersion, m.getVersion());
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Account version does not match");
         }
-        log.info("Списание выполнено: accountId={}, amount={}", accountId, amount);
     }
 
     private void requirePositive(BigDecimal amount) {
@@ -0,0 +1,119 @@
+package ab.task.banking_system.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись строк журнала аудита в файл с ротацией по размеру. Используется одним потоком.
+ * <p>
+ * Строка - поля через табуляцию: время (epoch ms), операция, id, связанный id, сумма, баланс,
+ * баланс связанного счёта; отсутствующее поле записывается как {@code -}.
+ * Все поля - ASCII, поэтому символы копируются в буфер без кодировщика.
+ */
+final class AuditFileWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 512;
+
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxHistory;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder(MAX_LINE_LENGTH);
+    private int position;
+    private OutputStream out;
+    private long size;
+
+    AuditFileWriter(Path file, long maxFileSize, int maxHistory) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = Math.max(1, maxHistory);
+        Files.createDirectories(this.file.getParent());
+        open();
+    }
+
+    void write(long timestamp, AuditLog.Operation operation, long id, long relatedId,
+               BigDecimal amount, BigDecimal balance, BigDecimal relatedBalance) throws IOException {
+        line.setLength(0);
+        line.append(timestamp).append('\t').append(operation.name()).append('\t').append(id).append('\t');
+        if (relatedId != 0) {
+            line.append(relatedId);
+        } else {
+            line.append('-');
+        }
+        appendField(amount);
+        appendField(balance);
+        appendField(relatedBalance);
+        line.append('\n');
+
+        if (position + line.length() > buffer.length) {
+            flushBuffer();
+        }
+        for (int i = 0; i < line.length(); i++) {
+            buffer[position++] = (byte) line.charAt(i);
+        }
+        if (size + position >= maxFileSize) {
+            flush();
+            roll();
+        }
+    }
+
+    /**
+     * Передаёт накопленные строки в файл.
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    private void appendField(BigDecimal value) {
+        line.append('\t');
+        if (value != null) {
+            line.append(value.toPlainString());
+        } else {
+            line.append('-');
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            size += position;
+            position = 0;
+        }
+    }
+
+    // audit.log -> audit.log.1 -> ... -> audit.log.<maxHistory>; самый старый архив удаляется.
+    private void roll() throws IOException {
+        out.close();
+        Files.deleteIfExists(archive(maxHistory));
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            Path from = archive(i);
+            if (Files.exists(from)) {
+                Files.move(from, archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, archive(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path archive(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+}
@@ -0,0 +1,273 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AuditProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал аудита выполненных операций: кольцевой буфер заранее созданных ячеек и поток записи в файл.
+ * <p>
+ * Операция занимает ячейку (CAS по счётчику), копирует в неё поля и публикует номер ячейки -
+ * без форматирования строк, блокировок и создания объектов. Поток записи читает ячейки по порядку,
+ * форматирует их в компактные строки ({@link AuditFileWriter}) и сбрасывает файл, когда буфер опустел.
+ * Если буфер заполнен, операция ждёт свободную ячейку не дольше {@code maxWait}, затем событие отбрасывается;
+ * ожидания и отброшенные события считаются в метриках.
+ * <p>
+ * События публикуются после фиксации транзакции операции, если она есть: откаченная операция и повтор запроса
+ * по ключу идемпотентности, который не выполняет операцию заново, в журнал не попадают.
+ */
+@Slf4j
+@Component
+public class AuditLog {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    public enum Operation {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        USER_CREATED
+    }
+
+    private final AuditProperties properties;
+    private final Slot[] slots;
+    private final int mask;
+    // Номер события, последним записанного в ячейку; ячейка готова к чтению, когда номер совпал с ожидаемым.
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final long maxWaitNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter backpressure;
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLog(AuditProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int capacity = properties.enabled() ? capacity(properties.bufferSize()) : 0;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.maxWaitNanos = properties.maxWait().toNanos();
+        this.written = events(meterRegistry, "written");
+        this.dropped = events(meterRegistry, "dropped");
+        this.failed = events(meterRegistry, "failed");
+        this.backpressure = Counter.builder("banking.audit.backpressure")
+                .description("Операции, заставшие буфер аудита заполненным")
+                .register(meterRegistry);
+        Gauge.builder("banking.audit.buffer.used", this, log -> log.claimed.get() - log.consumed.get())
+                .description("Занятые ячейки буфера аудита")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return slots.length > 0;
+    }
+
+    /**
+     * Записывает пополнение после фиксации текущей транзакции, если она есть.
+     */
+    public void deposit(long accountId, BigDecimal amount, BigDecimal balance) {
+        afterCommit(() -> publish(Operation.DEPOSIT, accountId, 0, amount, balance, null));
+    }
+
+    /**
+     * Записывает списание после фиксации текущей транзакции, если она есть.
+     */
+    public void withdraw(long accountId, BigDecimal amount, BigDecimal balance) {
+        afterCommit(() -> publish(Operation.WITHDRAW, accountId, 0, amount, balance, null));
+    }
+
+    /**
+     * Записывает перевод после фиксации текущей транзакции, если она есть.
+     */
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount, BigDecimal fromBalance, BigDecimal toBalance) {
+        afterCommit(() -> publish(Operation.TRANSFER, fromAccountId, toAccountId, amount, fromBalance, toBalance));
+    }
+
+    /**
+     * Записывает создание пользователя после фиксации текущей транзакции, если она есть.
+     */
+    public void userCreated(long userId) {
+        afterCommit(() -> publish(Operation.USER_CREATED, userId, 0, null, null, null));
+    }
+
+    private void afterCommit(Runnable event) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            event.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                event.run();
+            }
+        });
+    }
+
+    private void publish(Operation operation, long id, long relatedId,
+                         BigDecimal amount, BigDecimal balance, BigDecimal relatedBalance) {
+        if (!isEnabled()) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+        slot.timestamp = System.currentTimeMillis();
+        slot.operation = operation;
+        slot.id = id;
+        slot.relatedId = relatedId;
+        slot.amount = amount;
+        slot.balance = balance;
+        slot.relatedBalance = relatedBalance;
+        published.lazySet(index, sequence);
+    }
+
+    // Номер свободной ячейки или -1, если она не освободилась за maxWait.
+    private long claim() {
+        long deadline = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() < slots.length) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+            } else if (deadline == 0) {
+                backpressure.increment();
+                if (maxWaitNanos <= 0) {
+                    return -1;
+                }
+                deadline = System.nanoTime() + maxWaitNanos;
+            } else if (System.nanoTime() - deadline >= 0) {
+                return -1;
+            } else {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        AuditFileWriter out;
+        try {
+            out = new AuditFileWriter(properties.file(), properties.maxFileSize().toBytes(), properties.maxHistory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log " + properties.file(), e);
+        }
+        running = true;
+        writer = new Thread(() -> drain(out), "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Журнал аудита: file={}, bufferSize={}", properties.file().toAbsolutePath(), slots.length);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            log.warn("Журнал аудита: не все события записаны до остановки, pending={}", claimed.get() - consumed.get());
+        }
+    }
+
+    private void drain(AuditFileWriter out) {
+        long next = consumed.get();
+        long pending = 0;
+        // После остановки дописываются события, ячейки которых уже заняты.
+        while (running || next < claimed.get()) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                if (pending > 0) {
+                    flush(out, pending);
+                    pending = 0;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            Slot slot = slots[index];
+            try {
+                out.write(slot.timestamp, slot.operation, slot.id, slot.relatedId,
+                        slot.amount, slot.balance, slot.relatedBalance);
+                pending++;
+            } catch (IOException e) {
+                failed.increment();
+                log.error("Журнал аудита: ошибка записи", e);
+            }
+            consumed.lazySet(++next);
+        }
+        flush(out, pending);
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("Журнал аудита: ошибка закрытия файла", e);
+        }
+    }
+
+    private void flush(AuditFileWriter out, long pending) {
+        try {
+            out.flush();
+            written.increment(pending);
+        } catch (IOException e) {
+            failed.increment(pending);
+            log.error("Журнал аудита: ошибка записи", e);
+        }
+    }
+
+    private static int capacity(int bufferSize) {
+        return bufferSize <= 1 ? 2 : Integer.highestOneBit(bufferSize - 1) << 1;
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("banking.audit.events")
+                .description("События журнала аудита")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Slot {
+        private long timestamp;
+        private Operation operation;
+        private long id;
+        private long relatedId;
+        private BigDecimal amount;
+        private BigDecimal balance;
+        private BigDecimal relatedBalance;
+    }
+}
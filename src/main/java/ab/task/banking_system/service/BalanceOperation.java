@@ -0,0 +1,18 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.OperationType;
+
+import java.math.BigDecimal;
+
+/**
+ * Одна операция пакета: пополнение или списание суммы со счёта.
+ */
+public record BalanceOperation(Long accountId, OperationType type, BigDecimal amount) {
+
+    /**
+     * Знаковое изменение баланса: положительное для пополнения, отрицательное для списания.
+     */
+    BigDecimal delta() {
+        return type == OperationType.DEPOSIT ? amount : amount.negate();
+    }
+}
@@ -0,0 +1,10 @@
+package ab.task.banking_system.service;
+
+/**
+ * Результат операции пакета.
+ *
+ * @param index     позиция операции во входном списке
+ * @param accountId идентификатор счёта
+ * @param status    итог выполнения
+ */
+public record BalanceOperationResult(int index, Long accountId, OperationStatus status) {}
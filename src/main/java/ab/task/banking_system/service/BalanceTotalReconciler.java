@@ -0,0 +1,107 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.repository.AccountPartitionRepository;
+import ab.task.banking_system.repository.BalanceTotalRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Сверяет сумму по полосам ({@code balance_total_stripes}) с суммой балансов по таблице {@code accounts}.
+ * <p>
+ * Оба запроса выполняются в одной транзакции REPEATABLE READ и видят один снимок, поэтому операции,
+ * идущие во время сверки, расхождения не дают. Сумма по счетам считается по секциям {@code accounts} параллельно
+ * ({@link AccountPartitionAggregator}) в снимке той же транзакции; поэтому транзакция не только для чтения
+ * и идёт в основную базу, а не в реплику. Расхождение означает изменение баланса в обход триггеров
+ * (например, отключёнными триггерами при ручной правке) и требует пересчёта полос.
+ * При шардировании полосы и счета у каждого шарда свои: шарды сверяются параллельно, каждый своим снимком,
+ * а расхождение - сумма расхождений шардов.
+ */
+@Slf4j
+@Component
+public class BalanceTotalReconciler {
+    private final BalanceTotalRepository balanceTotalRepository;
+    private final AccountPartitionRepository accountPartitionRepository;
+    private final AccountPartitionAggregator accountPartitionAggregator;
+    private final ShardRouter shardRouter;
+    private final TransactionDefinition snapshot;
+    private final Counter matched;
+    private final Counter mismatched;
+    private final AtomicReference<BigDecimal> drift = new AtomicReference<>(BigDecimal.ZERO);
+
+    public BalanceTotalReconciler(BalanceTotalRepository balanceTotalRepository,
+                                  AccountPartitionRepository accountPartitionRepository,
+                                  AccountPartitionAggregator accountPartitionAggregator, ShardRouter shardRouter,
+                                  MeterRegistry meterRegistry) {
+        this.balanceTotalRepository = balanceTotalRepository;
+        this.accountPartitionRepository = accountPartitionRepository;
+        this.accountPartitionAggregator = accountPartitionAggregator;
+        this.shardRouter = shardRouter;
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot = definition;
+        this.matched = Counter.builder("banking.balance-total.reconciliations")
+                .description("Сверки суммы по полосам с суммой по счетам")
+                .tag("result", "match")
+                .register(meterRegistry);
+        this.mismatched = Counter.builder("banking.balance-total.reconciliations")
+                .description("Сверки суммы по полосам с суммой по счетам")
+                .tag("result", "mismatch")
+                .register(meterRegistry);
+        Gauge.builder("banking.balance-total.drift", drift, d -> d.get().doubleValue())
+                .description("Сумма по полосам минус сумма по счетам при последней сверке")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return сумма по полосам минус сумма по счетам; {@code 0}, если суммы совпали
+     * (при шардировании {@code 0} возможен и при расхождениях разных знаков - они видны в журнале и счётчике)
+     */
+    @Scheduled(initialDelayString = "PT5M", fixedDelayString = "${banking.balance-total.reconcile-interval:1h}")
+    public BigDecimal reconcile() {
+        long started = System.nanoTime();
+        List<BigDecimal[]> totals = shardRouter.scatter(shard -> shardRouter.inTransaction(shard, snapshot,
+                () -> new BigDecimal[]{balanceTotalRepository.stripesTotal(), accountsTotal()}));
+        BigDecimal stripes = BigDecimal.ZERO;
+        BigDecimal accounts = BigDecimal.ZERO;
+        boolean mismatch = false;
+        for (int shard = 0; shard < totals.size(); shard++) {
+            BigDecimal[] total = totals.get(shard);
+            stripes = stripes.add(total[0]);
+            accounts = accounts.add(total[1]);
+            // Расхождения разных шардов с разными знаками не должны погашать друг друга.
+            if (total[0].compareTo(total[1]) != 0) {
+                mismatch = true;
+                log.error("Сверка общей суммы: расхождение на шарде shard={}, stripes={}, accounts={}",
+                        shard, total[0], total[1]);
+            }
+        }
+        BigDecimal difference = stripes.subtract(accounts);
+        drift.set(difference);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        if (!mismatch) {
+            matched.increment();
+            log.info("Сверка общей суммы: совпадает total={}, time={}ms", accounts, millis);
+        } else {
+            mismatched.increment();
+            log.error("Сверка общей суммы: расхождение stripes={}, accounts={}, drift={}, time={}ms",
+                    stripes, accounts, difference, millis);
+        }
+        return difference;
+    }
+
+    private BigDecimal accountsTotal() {
+        return accountPartitionAggregator.onEachPartition(accountPartitionRepository::balanceTotal).stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
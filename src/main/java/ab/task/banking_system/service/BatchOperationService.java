@@ -0,0 +1,170 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.model.OperationType;
+import ab.task.banking_system.repository.AccountBatchRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchOperationService {
+    private final AccountBatchRepository accountBatchRepository;
+    private final UserBalanceSummaryRepository userBalanceSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchProperties batchProperties;
+    private final AccountCache accountCache;
+    private final AccountOwners accountOwners;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Выполняет пакет пополнений и списаний.
+     * <p>
+     * Операции делятся на части по {@code banking.batch.chunk-size}; каждая часть отправляется
+     * одним JDBC-батчем и фиксируется своей транзакцией. Отклонённая операция не прерывает пакет:
+     * её итог возвращается в результате с тем же индексом. При шардировании операции сначала
+     * группируются по шарду счёта, и части собираются внутри шарда.
+     *
+     * @param operations операции в порядке применения
+     * @return результат для каждой операции, в порядке входного списка
+     * @throws ResponseStatusException если пакет пуст или превышает {@code banking.batch.max-operations} (400)
+     */
+    public List<BalanceOperationResult> execute(List<BalanceOperation> operations) {
+        log.info("Пакет операций: size={}", operations.size());
+        if (operations.isEmpty() || operations.size() > batchProperties.maxOperations()) {
+            log.warn("Пакет отклонён: size={}, max={}", operations.size(), batchProperties.maxOperations());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch size must be between 1 and " + batchProperties.maxOperations());
+        }
+
+        OperationStatus[] statuses = new OperationStatus[operations.size()];
+        List<List<Integer>> byShard = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.count(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            Long accountId = operations.get(i).accountId();
+            byShard.get(accountId == null ? 0 : shardRouter.shardOfId(accountId)).add(i);
+        }
+        int chunkSize = Math.max(1, batchProperties.chunkSize());
+        for (int shard = 0; shard < byShard.size(); shard++) {
+            List<Integer> indexes = byShard.get(shard);
+            for (int from = 0; from < indexes.size(); from += chunkSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + chunkSize, indexes.size()));
+                shardRouter.call(shard, () -> {
+                    executeChunk(operations, chunk, statuses);
+                    return null;
+                });
+            }
+        }
+
+        List<BalanceOperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(new BalanceOperationResult(i, operations.get(i).accountId(), statuses[i]));
+        }
+        Map<OperationStatus, Long> summary = results.stream()
+                .collect(Collectors.groupingBy(BalanceOperationResult::status,
+                        () -> new EnumMap<>(OperationStatus.class), Collectors.counting()));
+        log.info("Пакет операций выполнен: size={}, summary={}", operations.size(), summary);
+        return results;
+    }
+
+    private void executeChunk(List<BalanceOperation> operations, List<Integer> chunk, OperationStatus[] statuses) {
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            if (isValidAmount(operations.get(i).amount())) {
+                valid.add(i);
+            } else {
+                statuses[i] = OperationStatus.INVALID_AMOUNT;
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        // Операторам нужен владелец счёта (см. AccountOwners); счёт без владельца не существует.
+        Map<Long, Long> owners = accountOwners.findAll(valid.stream().map(i -> operations.get(i).accountId()).toList());
+        List<Integer> order = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            if (owners.containsKey(operations.get(i).accountId())) {
+                order.add(i);
+            } else {
+                statuses[i] = OperationStatus.NOT_FOUND;
+            }
+        }
+        if (order.isEmpty()) {
+            return;
+        }
+        // Стабильная сортировка по id счёта: строки блокируются в одном порядке во всех
+        // параллельных пакетах и переводах, а операции над одним счётом сохраняют исходный порядок.
+        // Агрегаты балансов (владельцы и полосы общей суммы) блокируются раньше счетов.
+        order.sort(Comparator.comparing(i -> operations.get(i).accountId()));
+
+        List<Long> accountIds = new ArrayList<>(order.size());
+        List<Long> userIds = new ArrayList<>(order.size());
+        List<BigDecimal> deltas = new ArrayList<>(order.size());
+        for (int i : order) {
+            accountIds.add(operations.get(i).accountId());
+            userIds.add(owners.get(operations.get(i).accountId()));
+            deltas.add(operations.get(i).delta());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                userBalanceSummaryRepository.lockBalanceAggregates(accountIds, userIds);
+                int[] rows = accountBatchRepository.applyDeltas(accountIds, userIds, deltas);
+                List<Long> rejected = new ArrayList<>();
+                for (int k = 0; k < rows.length; k++) {
+                    if (rows[k] == 0) {
+                        rejected.add(accountIds.get(k));
+                    }
+                }
+                Set<Long> existing = rejected.isEmpty() ? Set.of() : accountBatchRepository.findExistingIds(rejected);
+                Set<Long> changed = new HashSet<>();
+                for (int k = 0; k < rows.length; k++) {
+                    int i = order.get(k);
+                    statuses[i] = rows[k] > 0 ? OperationStatus.APPLIED : rejectionStatus(operations.get(i), existing);
+                    if (rows[k] > 0) {
+                        changed.add(accountIds.get(k));
+                    }
+                }
+                accountCache.invalidateAfterCommit(changed);
+            });
+        } catch (DataAccessException e) {
+            log.warn("Часть пакета отклонена: from={}, to={}, cause={}",
+                    chunk.get(0), chunk.get(chunk.size() - 1), e.getMostSpecificCause().getMessage());
+            for (int i : order) {
+                statuses[i] = OperationStatus.FAILED;
+            }
+        }
+        log.debug("Часть пакета выполнена: from={}, to={}", chunk.get(0), chunk.get(chunk.size() - 1));
+    }
+
+    private OperationStatus rejectionStatus(BalanceOperation operation, Set<Long> existing) {
+        if (!existing.contains(operation.accountId())) {
+            return OperationStatus.NOT_FOUND;
+        }
+        return operation.type() == OperationType.WITHDRAW ? OperationStatus.INSUFFICIENT_FUNDS : OperationStatus.FAILED;
+    }
+
+    private boolean isValidAmount(BigDecimal amount) {
+        return amount != null && amount.signum() > 0;
+    }
+}
@@ -0,0 +1,98 @@
+package ab.task.banking_system.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума для строк.
+ * <p>
+ * Ответ {@code false} от {@link #mightContain} точный: строка не добавлялась. Ответ {@code true}
+ * может быть ложноположительным с вероятностью {@link #expectedFpp()}. Позиции битов получаются
+ * двойным хешированием из одного 64-битного хеша строки.
+ */
+final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashes;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    private BloomFilter(long bitSize, int hashes) {
+        this.words = new AtomicLongArray(Math.toIntExact((bitSize + 63) / 64));
+        this.bitSize = bitSize;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @param expectedInsertions расчётное число строк
+     * @param fpp                доля ложноположительных ответов при расчётном заполнении (0..1)
+     */
+    static BloomFilter create(long expectedInsertions, double fpp) {
+        if (expectedInsertions < 1 || !(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing: n=" + expectedInsertions + ", fpp=" + fpp);
+        }
+        double ln2 = Math.log(2);
+        long bits = Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (ln2 * ln2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * ln2));
+        return new BloomFilter(bits, hashes);
+    }
+
+    void put(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long old = words.getAndUpdate(word, w -> w | mask);
+            if ((old & mask) == 0) {
+                bitCount.incrementAndGet();
+            }
+        }
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Вероятность ложноположительного ответа при текущем заполнении: (доля установленных битов)^k.
+     */
+    double expectedFpp() {
+        return Math.pow((double) bitCount.get() / bitSize, hashes);
+    }
+
+    long bitSize() {
+        return bitSize;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    // FNV-1a по символам строки с финальным перемешиванием MurmurHash3.
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,214 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.DepositCoalescingProperties;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.repository.AccountBatchRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Объединяет параллельные пополнения одного счёта в один UPDATE и одну транзакцию.
+ * <p>
+ * Первое пополнение открывает пачку для счёта и планирует её запись через {@code window};
+ * последующие пополнения того же счёта присоединяются к ней. Пачка записывается раньше,
+ * если набрала {@code maxBatchSize} пополнений. Каждый вызывающий получает ответ только
+ * после фиксации транзакции, в которую попало его пополнение, вместе с балансом сразу после
+ * своего пополнения и версией этого состояния счёта. В журнал операций каждое пополнение пачки
+ * попадает отдельной записью. Пачка записывается на шарде своего счёта.
+ */
+@Slf4j
+@Component
+public class DepositCoalescer {
+    private final AccountBatchRepository accountBatchRepository;
+    private final AccountCache accountCache;
+    private final AccountOwners accountOwners;
+    private final TransactionTemplate transactionTemplate;
+    private final DepositCoalescingProperties properties;
+    private final ShardRouter shardRouter;
+    private final ConcurrentHashMap<Long, Batch> open = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private final DistributionSummary batchSize;
+    private final Timer addedLatency;
+    private final Timer commitLatency;
+
+    public DepositCoalescer(AccountBatchRepository accountBatchRepository,
+                            AccountCache accountCache,
+                            AccountOwners accountOwners,
+                            TransactionTemplate transactionTemplate,
+                            DepositCoalescingProperties properties,
+                            ShardRouter shardRouter,
+                            MeterRegistry meterRegistry) {
+        this.accountBatchRepository = accountBatchRepository;
+        this.accountCache = accountCache;
+        this.accountOwners = accountOwners;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.executor = properties.enabled() ? newExecutor(properties.flushThreads()) : null;
+        this.batchSize = DistributionSummary.builder("banking.deposit.coalescing.batch.size")
+                .description("Число пополнений, записанных одной транзакцией")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.addedLatency = Timer.builder("banking.deposit.coalescing.wait")
+                .description("Время ожидания пополнения в пачке до начала записи")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("banking.deposit.coalescing.commit")
+                .description("Время записи и фиксации пачки пополнений")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Пополняет счёт в составе пачки и блокирует поток до фиксации транзакции пачки.
+     *
+     * @param accountId идентификатор счёта
+     * @param amount сумма пополнения (уже проверенная, > 0)
+     * @return баланс счёта после этого пополнения и версия счёта после всей пачки
+     * @throws ResponseStatusException если счёт не найден (404)
+     */
+    public AccountBalance deposit(Long accountId, BigDecimal amount) {
+        Pending pending = new Pending(amount, System.nanoTime(), new CompletableFuture<>());
+        Batch[] full = new Batch[1];
+        open.compute(accountId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch(id);
+                Batch scheduled = batch;
+                batch.timer = executor.schedule(() -> flushIfOpen(scheduled),
+                        properties.window().toNanos(), TimeUnit.NANOSECONDS);
+            }
+            batch.add(pending);
+            if (batch.items.size() >= properties.maxBatchSize()) {
+                batch.timer.cancel(false);
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            Batch batch = full[0];
+            executor.execute(() -> flush(batch));
+        }
+
+        try {
+            return pending.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flushIfOpen(Batch batch) {
+        // Пачка, уже закрытая по размеру, удалена из open и записывается другой задачей.
+        if (open.remove(batch.accountId, batch)) {
+            flush(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        long started = System.nanoTime();
+        for (Pending p : batch.items) {
+            addedLatency.record(started - p.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.items.size());
+        try {
+            AccountBalance last = shardRouter.call(shardRouter.shardOfId(batch.accountId),
+                    () -> transactionTemplate.execute(tx -> credit(batch)));
+            log.debug("Пачка пополнений записана: accountId={}, size={}, total={}",
+                    batch.accountId, batch.items.size(), batch.total);
+            // Баланс после каждого пополнения - тот же нарастающий итог, что и в журнале; версия пачки выросла
+            // на число пополнений, и каждое получает свою, как если бы они зачислялись по одному.
+            BigDecimal balance = last.balance().subtract(batch.total);
+            long version = last.version() - batch.items.size();
+            for (Pending p : batch.items) {
+                balance = balance.add(p.amount);
+                version++;
+                p.done.complete(new AccountBalance(batch.accountId, balance, version));
+            }
+        } catch (RuntimeException e) {
+            batch.items.forEach(p -> p.done.completeExceptionally(e));
+        } finally {
+            commitLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private AccountBalance credit(Batch batch) {
+        Long userId = accountOwners.find(batch.accountId);
+        AccountBalance last = Optional.ofNullable(userId)
+                .flatMap(owner -> accountBatchRepository.depositAll(batch.accountId, owner,
+                        batch.items.stream().map(Pending::amount).toList()))
+                .orElseThrow(() -> {
+                    log.warn("Пачка пополнений: счёт не найден accountId={}", batch.accountId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+                });
+        accountCache.updateAfterCommit(last);
+        return last;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        // Отложенные задачи записи выполняются и после shutdown(), поэтому открытые пачки не теряются.
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Не все пачки пополнений записаны до остановки: open={}", open.size());
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "deposit-coalescer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private record Pending(BigDecimal amount, long enqueuedAt, CompletableFuture<AccountBalance> done) {}
+
+    private static final class Batch {
+        private final Long accountId;
+        private final List<Pending> items = new ArrayList<>();
+        private BigDecimal total = BigDecimal.ZERO;
+        private ScheduledFuture<?> timer;
+
+        private Batch(Long accountId) {
+            this.accountId = accountId;
+        }
+
+        private void add(Pending pending) {
+            items.add(pending);
+            total = total.add(pending.amount);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.EmailFilterProperties;
+import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр Блума занятых e-mail: отвечает «точно свободен» без запроса к базе.
+ * <p>
+ * Фильтр строится при старте и периодически перестраивается потоковым чтением таблицы пользователей;
+ * новые e-mail добавляются при создании пользователя. Пока фильтр не построен, любой e-mail считается
+ * возможно занятым. Фильтр не заменяет уникальный индекс: e-mail, пропущенный фильтром (например,
+ * добавленный другим узлом), всё равно отклоняется базой при вставке.
+ */
+@Slf4j
+@Component
+public class EmailFilter {
+    private final UserRepository userRepository;
+    private final UserStreamRepository userStreamRepository;
+    private final EmailFilterProperties properties;
+    private final ShardRouter shardRouter;
+    private final Counter definitelyNew;
+    private final Counter maybePresent;
+    private final Counter falsePositives;
+    private final Timer rebuildTime;
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+
+    public EmailFilter(UserRepository userRepository,
+                       UserStreamRepository userStreamRepository,
+                       EmailFilterProperties properties,
+                       ShardRouter shardRouter,
+                       MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userStreamRepository = userStreamRepository;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.definitelyNew = Counter.builder("banking.email-filter.checks")
+                .description("Проверки e-mail по фильтру при создании пользователя")
+                .tag("result", "definitely_new")
+                .register(meterRegistry);
+        this.maybePresent = Counter.builder("banking.email-filter.checks")
+                .description("Проверки e-mail по фильтру при создании пользователя")
+                .tag("result", "maybe_present")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("banking.email-filter.false-positives")
+                .description("Ответы «возможно занят», не подтверждённые запросом к базе")
+                .register(meterRegistry);
+        this.rebuildTime = Timer.builder("banking.email-filter.rebuild")
+                .description("Время построения фильтра по таблице пользователей")
+                .register(meterRegistry);
+        Gauge.builder("banking.email-filter.expected-fpp", this, EmailFilter::expectedFpp)
+                .description("Расчётная доля ложноположительных ответов при текущем заполнении фильтра")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code false}, если e-mail точно не занят; {@code true}, если занят или фильтр ещё не построен
+     */
+    public boolean mightContain(String email) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return true;
+        }
+        if (filter.mightContain(email)) {
+            maybePresent.increment();
+            return true;
+        }
+        definitelyNew.increment();
+        return false;
+    }
+
+    /**
+     * Учитывает, что ответ «возможно занят» оказался ложным.
+     */
+    public void recordFalsePositive() {
+        recordFalsePositives(1);
+    }
+
+    /**
+     * Учитывает {@code count} ложных ответов «возможно занят».
+     */
+    public void recordFalsePositives(int count) {
+        // Пока фильтр не построен, «возможно занят» отвечается без фильтра и ложным срабатыванием не считается.
+        if (current != null) {
+            falsePositives.increment(count);
+        }
+    }
+
+    /**
+     * Добавляет e-mail в фильтр и в строящийся фильтр, если идёт перестроение.
+     */
+    public void add(String email) {
+        // building читается первым: если перестроение уже закончилось, current - новый фильтр.
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(email);
+        }
+    }
+
+    /**
+     * Строит фильтр заново по таблице пользователей и заменяет им текущий.
+     * Размер рассчитывается на удвоенное число пользователей, чтобы фильтр не переполнился до следующего перестроения.
+     * При шардировании в фильтр попадают пользователи всех шардов: шарды читаются по очереди.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${banking.email-filter.rebuild-interval:6h}")
+    public void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        long users = shardRouter.scatter(shard -> userRepository.count()).stream().mapToLong(Long::longValue).sum();
+        long expected = Math.max(properties.expectedInsertions(), 2 * users);
+        BloomFilter next = BloomFilter.create(expected, properties.fpp());
+        building = next;
+        try {
+            long count = 0;
+            for (int shard = 0; shard < shardRouter.count(); shard++) {
+                count += shardRouter.inReadOnlyTransaction(shard, () -> userStreamRepository.forEachEmail(next::put));
+            }
+            current = next;
+            log.info("Фильтр e-mail построен: count={}, bits={}, hashes={}, expectedFpp={}, time={}ms",
+                    count, next.bitSize(), next.hashes(), String.format("%.6f", next.expectedFpp()),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            building = null;
+            rebuildTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private double expectedFpp() {
+        BloomFilter filter = current;
+        return filter == null ? Double.NaN : filter.expectedFpp();
+    }
+}
@@ -0,0 +1,104 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.repository.ExportRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка всех счетов с владельцами в CSV или NDJSON.
+ * <p>
+ * CSV формирует сама база через {@code COPY TO STDOUT}, NDJSON пишется построчно из серверного курсора;
+ * в обоих случаях строки передаются в поток по мере чтения, сущности не создаются
+ * и память не зависит от размера таблицы. При шардировании шарды выгружаются по очереди, каждый своей
+ * транзакцией, поэтому строки по-прежнему идут по возрастанию id счёта.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final ExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Пишет выгрузку в {@code out}. Поток не закрывается.
+     *
+     * @param gzip сжимать ли выгрузку
+     * @return число выгруженных счетов
+     * @throws UncheckedIOException если не удалось записать в {@code out}, например клиент закрыл соединение
+     */
+    public long exportAccounts(OutputStream out, FileFormat format, boolean gzip) {
+        log.info("Выгрузка счетов: format={}, gzip={}", format, gzip);
+        long count;
+        try {
+            OutputStream target = gzip ? new GZIPOutputStream(nonClosing(out), GZIP_BUFFER_SIZE) : nonClosing(out);
+            count = 0;
+            for (int shard = 0; shard < shardRouter.count(); shard++) {
+                boolean first = shard == 0;
+                count += shardRouter.inReadOnlyTransaction(shard, () -> switch (format) {
+                    case CSV -> exportRepository.copyAccountsCsv(target, first);
+                    case NDJSON -> writeNdjson(target);
+                });
+            }
+            target.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Выгрузка счетов завершена: count={}", count);
+        return count;
+    }
+
+    private long writeNdjson(OutputStream out) {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            long count = exportRepository.forEachAccount(row -> {
+                try {
+                    json.writeStartObject();
+                    json.writeNumberField("account_id", row.accountId());
+                    json.writeStringField("number", row.number());
+                    json.writeNumberField("balance", row.balance());
+                    json.writeNumberField("user_id", row.userId());
+                    json.writeStringField("name", row.name());
+                    json.writeStringField("email", row.email());
+                    json.writeStringField("registered_at", row.registeredAt());
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.flush();
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Закрытие gzip-потока и генератора JSON дописывает их буферы, но поток ответа или файла закрывает вызывающий.
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
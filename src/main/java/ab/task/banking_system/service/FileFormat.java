@@ -0,0 +1,59 @@
+package ab.task.banking_system.service;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Формат файла загрузки и выгрузки.
+ */
+public enum FileFormat {
+    /**
+     * CSV (RFC 4180) с обязательной строкой заголовка; порядок столбцов произвольный.
+     */
+    CSV("text/csv", ".csv"),
+    /**
+     * Один JSON-объект на строку.
+     */
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    FileFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static Optional<FileFormat> ofMediaType(String mediaType) {
+        for (FileFormat format : values()) {
+            if (mediaType != null && mediaType.toLowerCase(Locale.ROOT).startsWith(format.mediaType)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static Optional<FileFormat> ofFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".jsonl")) {
+            return Optional.of(NDJSON);
+        }
+        for (FileFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
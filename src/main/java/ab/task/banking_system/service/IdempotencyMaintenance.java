@@ -0,0 +1,33 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.IdempotencyProperties;
+import ab.task.banking_system.repository.IdempotencyKeyRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Удаляет ключи идемпотентности старше {@code banking.idempotency.retention}, на каждом шарде.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyMaintenance {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties properties;
+    private final ShardRouter shardRouter;
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "PT15M")
+    public void purgeExpired() {
+        Instant threshold = Instant.now().minus(properties.retention());
+        int deleted = 0;
+        for (int shard = 0; shard < shardRouter.count(); shard++) {
+            deleted += shardRouter.inTransaction(shard, () -> idempotencyKeyRepository.deleteOlderThan(threshold));
+        }
+        log.info("Устаревшие ключи идемпотентности удалены: count={}", deleted);
+    }
+}
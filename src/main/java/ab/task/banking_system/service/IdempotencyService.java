@@ -0,0 +1,131 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.IdempotencyProperties;
+import ab.task.banking_system.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Supplier;
+
+/**
+ * Выполняет операцию не более одного раза для одного {@code Idempotency-Key}.
+ * <p>
+ * Ключ и результат операции записываются в базу в транзакции самой операции. Повтор с тем же ключом
+ * возвращает сохранённый результат: сначала из ограниченного кэша в памяти (без обращения к базе),
+ * затем из базы. Ключ, повторно использованный для другого запроса, отклоняется.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Completed> cache;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              IdempotencyProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.cacheMaxSize())
+                .expireAfterWrite(properties.cacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+        this.cacheReplays = Counter.builder("banking.idempotency.replays")
+                .description("Повторы запросов, на которые ответ взят из сохранённого результата")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.databaseReplays = Counter.builder("banking.idempotency.replays")
+                .description("Повторы запросов, на которые ответ взят из сохранённого результата")
+                .tag("source", "database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет {@code action} в новой транзакции, если ключ ещё не использовался, иначе возвращает
+     * результат первого выполнения.
+     *
+     * @param key         значение заголовка {@code Idempotency-Key}
+     * @param fingerprint описание запроса; повтор ключа с другим описанием отклоняется
+     * @param type        тип результата
+     * @param action      операция; выполняется внутри транзакции
+     * @return результат операции
+     * @throws ResponseStatusException если ключ слишком длинный (400) или использован для другого запроса (422),
+     *                                 а также любые исключения {@code action}
+     */
+    public <T> T execute(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1.." + MAX_KEY_LENGTH + " characters");
+        }
+        Completed cached = cache.getIfPresent(key);
+        if (cached != null) {
+            requireSameRequest(key, cached.fingerprint, fingerprint);
+            cacheReplays.increment();
+            log.info("Повтор запроса, ответ из кэша: key={}", key);
+            return type.cast(cached.result);
+        }
+
+        T result = transactionTemplate.execute(tx -> {
+            if (idempotencyKeyRepository.tryInsert(key, fingerprint)) {
+                T value = action.get();
+                idempotencyKeyRepository.complete(key, write(value));
+                return value;
+            }
+            IdempotencyKeyRepository.StoredResponse stored = idempotencyKeyRepository.find(key)
+                    .orElseThrow(() -> new IllegalStateException("Idempotency key disappeared: " + key));
+            requireSameRequest(key, stored.fingerprint(), fingerprint);
+            databaseReplays.increment();
+            log.info("Повтор запроса, ответ из базы: key={}", key);
+            return read(stored.response(), type);
+        });
+        // В кэш попадает только зафиксированный результат.
+        cache.put(key, new Completed(fingerprint, result));
+        return result;
+    }
+
+    private void requireSameRequest(String key, String stored, String actual) {
+        if (!stored.equals(actual)) {
+            log.warn("Ключ идемпотентности использован для другого запроса: key={}", key);
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize idempotent response", e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot deserialize idempotent response", e);
+        }
+    }
+
+    private record Completed(String fingerprint, Object result) {}
+}
@@ -0,0 +1,244 @@
+package ab.task.banking_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Читает записи загружаемого файла по одной, не накапливая их в памяти.
+ * <p>
+ * Значения записи раскладываются по ожидаемым столбцам: в CSV - по заголовку, в NDJSON - по именам полей.
+ * Отсутствующее или пустое значение - {@code null}. Запись, которую не удалось разобрать, возвращается
+ * с текстом ошибки, чтобы попасть в отчёт, а не прервать загрузку.
+ */
+abstract class ImportRecordReader {
+    /**
+     * @param line   номер строки файла, с которой начинается запись
+     * @param values значения в порядке ожидаемых столбцов
+     * @param error  ошибка разбора или {@code null}
+     */
+    record ImportRecord(long line, String[] values, String error) {}
+
+    protected final List<String> columns;
+    protected final BufferedReader reader;
+
+    private ImportRecordReader(InputStream in, List<String> columns) {
+        this.columns = columns;
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * @param columns  ожидаемые столбцы
+     * @param required столбцы, без которых CSV-файл не принимается
+     * @throws ResponseStatusException если в заголовке CSV нет обязательного столбца (400)
+     */
+    static ImportRecordReader open(InputStream in, FileFormat format, List<String> columns, List<String> required,
+                                   ObjectMapper objectMapper) {
+        return switch (format) {
+            case CSV -> new Csv(in, columns, required);
+            case NDJSON -> new Ndjson(in, columns, objectMapper);
+        };
+    }
+
+    /**
+     * @return следующая запись или {@code null}, если файл прочитан
+     */
+    abstract ImportRecord next();
+
+    private static final class Csv extends ImportRecordReader {
+        private final int[] positions;
+        private final int width;
+        private final char[] buffer = new char[64 * 1024];
+        private int position;
+        private int limit;
+        private long line = 1;
+        private int pending = -2;
+
+        private Csv(InputStream in, List<String> columns, List<String> required) {
+            super(in, columns);
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header is missing");
+            }
+            if (!header.isEmpty() && header.get(0) != null && header.get(0).startsWith("\uFEFF")) {
+                header.set(0, header.get(0).substring(1));
+            }
+            this.width = header.size();
+            this.positions = new int[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                positions[i] = indexOf(header, columns.get(i));
+                if (positions[i] < 0 && required.contains(columns.get(i))) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing column: " + columns.get(i));
+                }
+            }
+        }
+
+        @Override
+        ImportRecord next() {
+            List<String> fields;
+            long start;
+            do {
+                start = line;
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0) == null);
+
+            if (fields.size() != width) {
+                return new ImportRecord(start, new String[columns.size()],
+                        "malformed row: expected " + width + " fields, got " + fields.size());
+            }
+            String[] values = new String[columns.size()];
+            for (int i = 0; i < positions.length; i++) {
+                values[i] = positions[i] < 0 ? null : fields.get(positions[i]);
+            }
+            return new ImportRecord(start, values, null);
+        }
+
+        private static int indexOf(List<String> header, String column) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i) != null && header.get(i).trim().toLowerCase(Locale.ROOT).equals(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Читает одну запись RFC 4180: поля в кавычках могут содержать запятые, переводы строк и {@code ""}.
+         * Пустое поле без кавычек - {@code null}.
+         */
+        private List<String> readRecord() {
+            try {
+                int c = read();
+                if (c < 0) {
+                    return null;
+                }
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                boolean wasQuoted = false;
+                while (true) {
+                    if (quoted) {
+                        if (c < 0) {
+                            fields.add(field.toString());
+                            return fields;
+                        }
+                        if (c == '"') {
+                            int n = read();
+                            if (n == '"') {
+                                field.append('"');
+                            } else {
+                                quoted = false;
+                                c = n;
+                                continue;
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append((char) c);
+                        }
+                    } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                        quoted = true;
+                        wasQuoted = true;
+                    } else if (c == ',' || c == '\n' || c == '\r' || c < 0) {
+                        fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+                        field.setLength(0);
+                        wasQuoted = false;
+                        if (c != ',') {
+                            if (c == '\r') {
+                                int n = read();
+                                if (n != '\n') {
+                                    pending = n;
+                                }
+                            }
+                            if (c >= 0) {
+                                line++;
+                            }
+                            return fields;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                    c = read();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            // Свой буфер вместо посимвольного BufferedReader.read(), который берёт блокировку на каждый символ.
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+
+    private static final class Ndjson extends ImportRecordReader {
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        private Ndjson(InputStream in, List<String> columns, ObjectMapper objectMapper) {
+            super(in, columns);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        ImportRecord next() {
+            String text;
+            try {
+                do {
+                    text = reader.readLine();
+                    line++;
+                    if (text == null) {
+                        return null;
+                    }
+                } while (text.isBlank());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            String[] values = new String[columns.size()];
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new ImportRecord(line, values, "malformed JSON");
+            }
+            if (!node.isObject()) {
+                return new ImportRecord(line, values, "not a JSON object");
+            }
+            for (int i = 0; i < values.length; i++) {
+                JsonNode value = node.get(columns.get(i));
+                values[i] = value == null || value.isNull() ? null : value.asText();
+            }
+            return new ImportRecord(line, values, null);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.repository.ImportRepository.RejectedRow;
+
+import java.util.List;
+
+/**
+ * Итог загрузки файла.
+ *
+ * @param total        число записей в файле
+ * @param imported     число записей, перенесённых в базу
+ * @param rejected     число отклонённых записей
+ * @param rejectedRows первые отклонённые записи, по возрастанию номера строки
+ */
+public record ImportReport(long total, long imported, long rejected, List<RejectedRow> rejectedRows) {}
@@ -0,0 +1,314 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ImportProperties;
+import ab.task.banking_system.repository.ImportRepository;
+import ab.task.banking_system.repository.ImportRepository.RejectedRow;
+import ab.task.banking_system.repository.ImportRepository.StagingWriter;
+import ab.task.banking_system.sharding.ShardRouter;
+import ab.task.banking_system.service.ImportRecordReader.ImportRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Загрузка пользователей и счетов из CSV или NDJSON.
+ * <p>
+ * Файл читается потоком и по мере чтения передаётся в промежуточную таблицу через {@code COPY FROM STDIN},
+ * поэтому расход памяти не зависит от размера файла. Проверки отдельных строк выполняются при чтении,
+ * проверки по всему файлу и по базе (повторы, занятые e-mail и номера, владельцы счетов) - в базе,
+ * после чего прошедшие проверку строки переносятся в основные таблицы одним оператором.
+ * Загрузка выполняется одной транзакцией: при сбое не загружается ничего.
+ * <p>
+ * При нескольких шардах строки сначала раскладываются по временным файлам шардов (пользователи - по хешу e-mail,
+ * счета - по e-mail владельца, отклонённые при чтении строки - на шард 0), затем каждый шард загружает свою часть
+ * своей транзакцией, по возрастанию номера, как пакетное создание пользователей. При сбое на шарде предыдущие шарды
+ * остаются загруженными; повторная загрузка того же файла отклонит их строки как занятые.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportService {
+    static final List<String> USER_COLUMNS = List.of("name", "email", "registered_at");
+    static final List<String> ACCOUNT_COLUMNS = List.of("number", "email", "balance");
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final int MAX_NUMBER_LENGTH = 34;
+
+    private final ImportRepository importRepository;
+    private final EmailFilter emailFilter;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final ImportProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Загружает пользователей. Столбцы: {@code name}, {@code email} и необязательный {@code registered_at}
+     * (ISO-8601; без смещения - UTC).
+     *
+     * @return итог загрузки
+     * @throws ResponseStatusException если в заголовке CSV нет обязательного столбца или файл не прочитан (400)
+     */
+    public ImportReport importUsers(InputStream in, FileFormat format) {
+        log.info("Загрузка пользователей: format={}", format);
+        ImportRecordReader reader = ImportRecordReader.open(in, format, USER_COLUMNS, List.of("name", "email"), objectMapper);
+        ImportReport report = load(reader, ImportService::userRow, rows -> {
+            importRepository.createUserStaging();
+            long total = copy(() -> importRepository.copyUsers(rows));
+            importRepository.mergeUsers();
+            importRepository.forEachImportedEmail(emailFilter::add);
+
+            long rejected = importRepository.countUserRejects();
+            return new ImportReport(total, total - rejected, rejected,
+                    importRepository.findUserRejects(properties.maxReportedRejects()));
+        });
+        log.info("Загрузка пользователей завершена: total={}, imported={}, rejected={}",
+                report.total(), report.imported(), report.rejected());
+        return report;
+    }
+
+    /**
+     * Загружает счета. Столбцы: {@code number}, {@code email} владельца и необязательный {@code balance}
+     * (по умолчанию 0). Ненулевой начальный баланс записывается в журнал пополнением.
+     *
+     * @return итог загрузки
+     * @throws ResponseStatusException если в заголовке CSV нет обязательного столбца или файл не прочитан (400)
+     *                                 или таблица счетов переносится в секционированную (503)
+     */
+    public ImportReport importAccounts(InputStream in, FileFormat format) {
+        log.info("Загрузка счетов: format={}", format);
+        for (int shard = 0; shard < shardRouter.count(); shard++) {
+            if (shardRouter.inReadOnlyTransaction(shard, importRepository::accountsRepartitioning)) {
+                log.warn("Загрузка счетов отклонена: идёт перенос accounts в секционированную таблицу shard={}", shard);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Account import is unavailable while accounts are being repartitioned");
+            }
+        }
+        ImportRecordReader reader = ImportRecordReader.open(in, format, ACCOUNT_COLUMNS, List.of("number", "email"), objectMapper);
+        ImportReport report = load(reader, this::accountRow, rows -> {
+            importRepository.createAccountStaging();
+            long total = copy(() -> importRepository.copyAccounts(rows));
+            importRepository.mergeAccounts();
+
+            long rejected = importRepository.countAccountRejects();
+            return new ImportReport(total, total - rejected, rejected,
+                    importRepository.findAccountRejects(properties.maxReportedRejects()));
+        });
+        log.info("Загрузка счетов завершена: total={}, imported={}, rejected={}",
+                report.total(), report.imported(), report.rejected());
+        return report;
+    }
+
+    // Строки промежуточных таблиц: (line_no, значения, error); e-mail - третий столбец у обеих.
+    private static Object[] userRow(ImportRecord r) {
+        String[] v = r.values();
+        String error = r.error() != null ? r.error() : validateUser(v);
+        if (error != null) {
+            return new Object[]{r.line(), null, null, null, error};
+        }
+        return new Object[]{r.line(), v[0], v[1], v[2] == null ? null : parseTimestamp(v[2]), null};
+    }
+
+    private Object[] accountRow(ImportRecord r) {
+        String[] v = r.values();
+        String error = r.error() != null ? r.error() : validateAccount(v);
+        if (error != null) {
+            return new Object[]{r.line(), null, null, null, error};
+        }
+        return new Object[]{r.line(), v[0], v[1], v[2] == null ? BigDecimal.ZERO : new BigDecimal(v[2].trim()).toPlainString(), null};
+    }
+
+    /**
+     * Загружает строки файла: при одном шарде - потоком в его транзакции, иначе через временные файлы шардов.
+     *
+     * @param toRow     строка промежуточной таблицы для записи файла
+     * @param shardLoad загрузка строк шарда в его транзакции: промежуточная таблица, перенос, итог шарда
+     */
+    private ImportReport load(ImportRecordReader reader, Function<ImportRecord, Object[]> toRow,
+                              Function<Consumer<StagingWriter>, ImportReport> shardLoad) {
+        if (shardRouter.count() == 1) {
+            return shardRouter.inTransaction(0, () -> shardLoad.apply(writer -> {
+                for (ImportRecord r = reader.next(); r != null; r = reader.next()) {
+                    writer.row(toRow.apply(r));
+                }
+            }));
+        }
+        List<Path> spools = new ArrayList<>(shardRouter.count());
+        try {
+            for (int shard = 0; shard < shardRouter.count(); shard++) {
+                spools.add(Files.createTempFile("import-shard" + shard + "-", ".csv"));
+            }
+            long[] rows = spool(reader, toRow, spools);
+            List<ImportReport> reports = new ArrayList<>();
+            for (int shard = 0; shard < spools.size(); shard++) {
+                if (rows[shard] > 0) {
+                    Path spool = spools.get(shard);
+                    reports.add(shardRouter.inTransaction(shard, () -> shardLoad.apply(writer -> writer.append(spool))));
+                    log.info("Загрузка: shard={} загружен, rows={}", shard, rows[shard]);
+                }
+            }
+            return combine(reports);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write import spool file", e);
+        } finally {
+            for (Path spool : spools) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    log.warn("Временный файл загрузки не удалён: {}", spool);
+                }
+            }
+        }
+    }
+
+    /**
+     * Раскладывает строки файла по файлам шардов.
+     *
+     * @return число строк каждого шарда
+     */
+    private long[] spool(ImportRecordReader reader, Function<ImportRecord, Object[]> toRow, List<Path> spools)
+            throws IOException {
+        long[] rows = new long[spools.size()];
+        List<Writer> outs = new ArrayList<>(spools.size());
+        try {
+            List<StagingWriter> writers = new ArrayList<>(spools.size());
+            for (Path spool : spools) {
+                Writer out = Files.newBufferedWriter(spool, StandardCharsets.UTF_8);
+                outs.add(out);
+                writers.add(StagingWriter.of(out));
+            }
+            copy(() -> {
+                for (ImportRecord r = reader.next(); r != null; r = reader.next()) {
+                    Object[] row = toRow.apply(r);
+                    int shard = row[row.length - 1] == null ? shardRouter.shardOfEmail((String) row[2]) : 0;
+                    writers.get(shard).row(row);
+                    rows[shard]++;
+                }
+                return 0;
+            });
+        } finally {
+            for (Writer out : outs) {
+                out.close();
+            }
+        }
+        return rows;
+    }
+
+    // Итог по шардам: отклонённые строки всех шардов по возрастанию номера строки, не больше max-reported-rejects.
+    private ImportReport combine(List<ImportReport> reports) {
+        return new ImportReport(
+                reports.stream().mapToLong(ImportReport::total).sum(),
+                reports.stream().mapToLong(ImportReport::imported).sum(),
+                reports.stream().mapToLong(ImportReport::rejected).sum(),
+                reports.stream()
+                        .flatMap(r -> r.rejectedRows().stream())
+                        .sorted(Comparator.comparingLong(RejectedRow::line))
+                        .limit(properties.maxReportedRejects())
+                        .toList());
+    }
+
+    private long copy(LongSupplier copy) {
+        try {
+            return copy.getAsLong();
+        } catch (UncheckedIOException e) {
+            log.warn("Загрузка прервана - файл не прочитан: {}", e.getCause().getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read import file");
+        }
+    }
+
+    static String validateUser(String[] v) {
+        if (containsNul(v)) {
+            return "value contains NUL character";
+        }
+        if (v[0] == null || v[0].isBlank()) {
+            return "name is blank";
+        }
+        if (v[1] == null || !EMAIL.matcher(v[1]).matches()) {
+            return "invalid email";
+        }
+        if (v[2] != null && parseTimestamp(v[2]) == null) {
+            return "invalid registered_at";
+        }
+        return null;
+    }
+
+    String validateAccount(String[] v) {
+        if (containsNul(v)) {
+            return "value contains NUL character";
+        }
+        if (v[0] == null || v[0].isBlank()) {
+            return "number is blank";
+        }
+        if (v[0].length() > MAX_NUMBER_LENGTH) {
+            return "number is too long";
+        }
+        if (accountNumberGenerator.isReserved(v[0])) {
+            return "number format is reserved for generated numbers";
+        }
+        if (v[1] == null || v[1].isBlank()) {
+            return "owner email is blank";
+        }
+        if (v[2] != null) {
+            BigDecimal balance;
+            try {
+                balance = new BigDecimal(v[2].trim());
+            } catch (NumberFormatException e) {
+                return "invalid balance";
+            }
+            if (balance.signum() < 0) {
+                return "balance is negative";
+            }
+            if (balance.scale() > 2 || balance.precision() - balance.scale() > 17) {
+                return "balance does not fit NUMERIC(19,2)";
+            }
+        }
+        return null;
+    }
+
+    // PostgreSQL не хранит символ NUL в текстовых значениях, и такая строка прервала бы весь COPY.
+    private static boolean containsNul(String[] values) {
+        for (String value : values) {
+            if (value != null && value.indexOf('\u0000') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return время в UTC без зоны, как хранится {@code users.registered_at}, или {@code null}, если значение не разобрано
+     */
+    static LocalDateTime parseTimestamp(String value) {
+        try {
+            return LocalDateTime.ofInstant(Instant.parse(value.trim()), ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value.trim());
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ab.task.banking_system.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Списание отклонено: на счёте недостаточно средств (409). Отдельный тип, чтобы отказ можно было отличить
+ * от других конфликтов без сравнения текста причины.
+ */
+public class InsufficientFundsException extends ResponseStatusException {
+    public InsufficientFundsException() {
+        super(HttpStatus.CONFLICT, "Insufficient funds");
+    }
+}
@@ -0,0 +1,37 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.LedgerProperties;
+import ab.task.banking_system.repository.LedgerRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Фоновое обслуживание журнала: заблаговременное создание месячных секций.
+ * При шардировании выполняется на каждом шарде по очереди.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerMaintenance {
+    private final LedgerRepository ledgerRepository;
+    private final LedgerProperties properties;
+    private final ShardRouter shardRouter;
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "PT6H")
+    public void ensurePartitions() {
+        LocalDate current = LedgerService.monthOf(Instant.now());
+        shardRouter.onEach(shard -> {
+            for (int i = 0; i <= properties.partitionsAhead(); i++) {
+                ledgerRepository.createPartition(current.plusMonths(i));
+            }
+            return null;
+        });
+        log.debug("Секции журнала проверены: from={}, ahead={}", current, properties.partitionsAhead());
+    }
+}
@@ -0,0 +1,93 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.LedgerEntry;
+import ab.task.banking_system.repository.AccountRepository;
+import ab.task.banking_system.repository.LedgerRepository;
+import ab.task.banking_system.sharding.ShardKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final LedgerRepository ledgerRepository;
+    private final AccountRepository accountRepository;
+
+    /**
+     * Возвращает страницу выписки по счёту, от новых операций к старым.
+     * <p>
+     * Каждый запрос читает записи одной месячной секции журнала: той, в которую попадает курсор
+     * (без курсора - текущей). Месяцы без операций по счёту пропускаются: если в секции курсора записей нет,
+     * страница читается из ближайшего более старого месяца, где они есть, а курсор неполной страницы указывает
+     * на последнюю запись раньше её месяца. Страница может быть неполной, но пустая - только в конце истории.
+     *
+     * @param accountId идентификатор счёта
+     * @param cursor курсор из предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы (1..500)
+     * @return записи и курсор следующей страницы
+     * @throws ResponseStatusException если размер страницы или курсор некорректны (400) или счёт не найден (404)
+     */
+    @Transactional(readOnly = true)
+    public StatementPage statement(@ShardKey Long accountId, String cursor, int limit) {
+        log.info("Выписка: accountId={}, cursor={}, limit={}", accountId, cursor != null, limit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StatementCursor position = cursor == null ? null : StatementCursor.decode(cursor);
+        if (!accountRepository.existsById(accountId)) {
+            log.warn("Выписка: счёт не найден accountId={}", accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
+
+        LocalDate month;
+        List<LedgerEntry> entries;
+        if (position == null) {
+            month = monthOf(Instant.now());
+            entries = ledgerRepository.findLatest(accountId, startOf(month), limit);
+        } else {
+            month = monthOf(position.createdAt());
+            entries = ledgerRepository.findBefore(accountId, startOf(month), position.createdAt(), position.id(), limit);
+        }
+
+        if (entries.isEmpty()) {
+            Optional<Instant> latest = ledgerRepository.findLatestTimeBefore(accountId, startOf(month));
+            if (latest.isPresent()) {
+                month = monthOf(latest.get());
+                entries = ledgerRepository.findBefore(accountId, startOf(month), latest.get(), Long.MAX_VALUE, limit);
+            }
+        }
+
+        String next = null;
+        if (entries.size() == limit) {
+            next = StatementCursor.after(entries.get(entries.size() - 1)).encode();
+        } else if (!entries.isEmpty()) {
+            // Всё, что не позже последней записи раньше месяца страницы (все записи с этим временем).
+            next = ledgerRepository.findLatestTimeBefore(accountId, startOf(month))
+                    .map(createdAt -> new StatementCursor(createdAt, Long.MAX_VALUE).encode())
+                    .orElse(null);
+        }
+        log.info("Выписка: accountId={}, count={}, hasNext={}", accountId, entries.size(), next != null);
+        return new StatementPage(entries, next);
+    }
+
+    static LocalDate monthOf(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC).withDayOfMonth(1);
+    }
+
+    static Instant startOf(LocalDate month) {
+        return month.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
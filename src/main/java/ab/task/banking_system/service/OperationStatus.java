@@ -0,0 +1,9 @@
+package ab.task.banking_system.service;
+
+public enum OperationStatus {
+    APPLIED,
+    INVALID_AMOUNT,
+    NOT_FOUND,
+    INSUFFICIENT_FUNDS,
+    FAILED
+}
@@ -0,0 +1,69 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.UserBalanceSummary;
+import ab.task.banking_system.repository.BalanceTotalRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отчёты по балансам. Читают агрегаты по пользователю ({@code user_balance_stripes}, {@code user_balance_buckets})
+ * и полосы общей суммы ({@code balance_total_stripes}), которые база обновляет в той же транзакции, что и счета,
+ * поэтому не сканируют {@code accounts}: счета читаются только у пользователей страницы и у тех, чей нижний
+ * диапазон баланса содержит порог. При шардировании агрегаты каждого шарда читаются на своём шарде.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final UserBalanceSummaryRepository userBalanceSummaryRepository;
+    private final BalanceTotalRepository balanceTotalRepository;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Пользователи, у которых есть счета и баланс каждого счёта больше {@code threshold}.
+     * Шарды читаются по возрастанию номера, пока страница не заполнится: id пользователей шардов не пересекаются.
+     *
+     * @param after id последнего пользователя предыдущей страницы или {@code null}
+     * @throws ResponseStatusException если порог не задан или размер страницы вне 1..500 (400)
+     */
+    public UserBalanceSummaryPage usersWithAllBalancesAbove(BigDecimal threshold, Long after, int limit) {
+        log.info("Отчёт по минимальному балансу: threshold={}, after={}, limit={}", threshold, after, limit);
+        if (threshold == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Threshold is required");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long from = after == null ? 0L : after;
+        List<UserBalanceSummary> users = new ArrayList<>(limit);
+        for (int shard = ShardRouter.shardAfter(from); shard < shardRouter.count() && users.size() < limit; shard++) {
+            int remaining = limit - users.size();
+            users.addAll(shardRouter.call(shard,
+                    () -> userBalanceSummaryRepository.findMinBalanceAbove(threshold, from, remaining)));
+        }
+        Long next = users.size() == limit ? users.get(users.size() - 1).userId() : null;
+        log.info("Отчёт по минимальному балансу: count={}, nextAfter={}", users.size(), next);
+        return new UserBalanceSummaryPage(users, next);
+    }
+
+    /**
+     * @return сумма средств на всех счетах; читает только полосы общей суммы, на шардах - параллельно
+     */
+    public BigDecimal totalBalance() {
+        BigDecimal total = shardRouter.scatter(shard -> balanceTotalRepository.stripesTotal()).stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        log.info("Сумма средств в системе: total={}", total);
+        return total;
+    }
+}
@@ -0,0 +1,35 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.LedgerEntry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Позиция в выписке: следующая страница начинается строго перед записью ({@code createdAt}, {@code id}).
+ * Клиенту передаётся в непрозрачном виде.
+ */
+record StatementCursor(Instant createdAt, long id) {
+
+    static StatementCursor after(LedgerEntry entry) {
+        return new StatementCursor(entry.createdAt(), entry.id());
+    }
+
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static StatementCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new StatementCursor(Instant.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
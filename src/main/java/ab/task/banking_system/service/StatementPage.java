@@ -0,0 +1,13 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.LedgerEntry;
+
+import java.util.List;
+
+/**
+ * Страница выписки.
+ *
+ * @param entries    записи от новых к старым
+ * @param nextCursor курсор следующей страницы или {@code null}, если история закончилась
+ */
+public record StatementPage(List<LedgerEntry> entries, String nextCursor) {}
@@ -0,0 +1,13 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.UserBalanceSummary;
+
+import java.util.List;
+
+/**
+ * Страница отчёта по агрегатам балансов пользователей.
+ *
+ * @param users     пользователи по возрастанию id
+ * @param nextAfter значение {@code after} для следующей страницы или {@code null}, если пользователи закончились
+ */
+public record UserBalanceSummaryPage(List<UserBalanceSummary> users, Long nextAfter) {}
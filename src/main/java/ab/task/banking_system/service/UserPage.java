@@ -0,0 +1,13 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.User;
+
+import java.util.List;
+
+/**
+ * Страница списка пользователей.
+ *
+ * @param users     пользователи по возрастанию id
+ * @param nextAfter значение {@code after} для следующей страницы или {@code null}, если пользователи закончились
+ */
+public record UserPage(List<User> users, Long nextAfter) {}
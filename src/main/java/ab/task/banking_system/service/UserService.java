@@ -1,16 +1,28 @@
 package ab.task.banking_system.service;
 
 import ab.task.banking_system.model.User;
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.repository.BulkInsertRepository;
 import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.sharding.ShardKey;
+import ab.task.banking_system.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import static org.springframework.http.HttpStatus.CONFLICT;
 
@@ -18,10 +30,22 @@ import static org.springframework.http.HttpStatus.CONFLICT;
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
+    private final UserStreamRepository userStreamRepository;
+    private final EmailFilter emailFilter;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final BatchProperties batchProperties;
+    private final AuditLog auditLog;
+    private final ShardRouter shardRouter;
 
     /**
      * Создаёт нового пользователя.
+     * <p>
+     * Если фильтр занятых e-mail отвечает, что e-mail точно свободен, предварительный запрос к базе
+     * не выполняется: от гонки и от e-mail, неизвестных фильтру, защищает уникальный индекс.
+     * Пользователь создаётся на шарде, выбранном по хешу e-mail, поэтому один e-mail всегда проверяется на одном шарде.
      *
      * @param name  имя пользователя
      * @param email e-mail пользователя
@@ -29,12 +53,15 @@ public class UserService {
      * @throws ResponseStatusException при конфликте уникальности e-mail (409)
      */
     @Transactional
-    public User create(String name, String email) {
+    public User create(String name, @ShardKey String email) {
         log.info("Создаю пользователя: name={}, email={}", name, email);
 
-        if (userRepository.existsByEmail(email)) {
-            log.warn("Не создаю - email уже занят: {}", email);
-            throw new ResponseStatusException(CONFLICT, "Email already exists");
+        if (emailFilter.mightContain(email)) {
+            if (userRepository.existsByEmail(email)) {
+                log.warn("Не создаю - email уже занят: {}", email);
+                throw new ResponseStatusException(CONFLICT, "Email already exists");
+            }
+            emailFilter.recordFalsePositive();
         }
 
         User user = new User();
@@ -42,8 +69,10 @@ public class UserService {
         user.setEmail(email);
 
         try {
-            User saved = userRepository.save(user);
+            User saved = userRepository.saveAndFlush(user);
+            emailFilter.add(email);
             log.info("Пользователь создан: id={}, email={}", saved.getId(), saved.getEmail());
+            auditLog.userCreated(saved.getId());
             return saved;
         } catch (DataIntegrityViolationException e) {
             log.warn("Конфликт при сохранении - email уже существует: {}", email);
@@ -51,6 +80,76 @@ public class UserService {
         }
     }
 
+    /**
+     * Создаёт пользователей одной транзакцией: либо все, либо ни одного.
+     * <p>
+     * Занятость e-mail проверяется запросом только для тех адресов, которые фильтр не признал точно
+     * свободными. Вставки отправляются JDBC-батчами.
+     * <p>
+     * При шардировании пользователи распределяются по шардам по хешу e-mail; занятость проверяется на всех
+     * затронутых шардах до первой вставки, затем каждый шард вставляет своих пользователей своей транзакцией.
+     * Атомарность «все или ни одного» при этом гарантируется в пределах шарда: если вставка на одном шарде
+     * отклонена базой (e-mail заняли параллельно), вставки на предыдущих шардах уже зафиксированы.
+     *
+     * @param users новые пользователи (имя и e-mail)
+     * @return сохранённые пользователи в порядке входного списка
+     * @throws ResponseStatusException если список пуст, больше {@code banking.batch.max-creates}
+     *                                 или содержит повторяющиеся e-mail (400), либо e-mail уже занят (409)
+     */
+    public List<User> createAll(List<User> users) {
+        log.info("Создаю пользователей пакетом: size={}", users.size());
+        if (users.isEmpty() || users.size() > batchProperties.maxCreates()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch size must be between 1 and " + batchProperties.maxCreates());
+        }
+        Set<String> emails = new HashSet<>();
+        Map<Integer, List<User>> byShard = new TreeMap<>();
+        for (User user : users) {
+            if (!emails.add(user.getEmail())) {
+                log.warn("Пакет пользователей отклонён - e-mail повторяется: {}", user.getEmail());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate email in request");
+            }
+            byShard.computeIfAbsent(shardRouter.shardOfEmail(user.getEmail()), s -> new ArrayList<>()).add(user);
+        }
+        int candidates = 0;
+        for (Map.Entry<Integer, List<User>> shard : byShard.entrySet()) {
+            candidates += shardRouter.inReadOnlyTransaction(shard.getKey(), () -> requireFreeEmails(shard.getValue()));
+        }
+        emailFilter.recordFalsePositives(candidates);
+
+        byShard.forEach((shard, group) -> shardRouter.inTransaction(shard, () -> {
+            try {
+                bulkInsertRepository.persistAll(group);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Конфликт при сохранении пакета пользователей: {}", e.getMostSpecificCause().getMessage());
+                throw new ResponseStatusException(CONFLICT, "Email already exists");
+            }
+            return null;
+        }));
+        users.forEach(u -> emailFilter.add(u.getEmail()));
+        log.info("Пользователи созданы пакетом: count={}", users.size());
+        return users;
+    }
+
+    // Проверяет запросом e-mail, которые фильтр не признал точно свободными; возвращает их число.
+    private int requireFreeEmails(List<User> users) {
+        List<String> candidates = new ArrayList<>();
+        for (User user : users) {
+            if (emailFilter.mightContain(user.getEmail())) {
+                candidates.add(user.getEmail());
+            }
+        }
+        int chunkSize = Math.max(1, batchProperties.chunkSize());
+        for (int from = 0; from < candidates.size(); from += chunkSize) {
+            List<String> existing = userRepository.findExistingEmails(
+                    candidates.subList(from, Math.min(from + chunkSize, candidates.size())));
+            if (!existing.isEmpty()) {
+                log.warn("Пакет пользователей отклонён - e-mail уже заняты: {}", existing);
+                throw new ResponseStatusException(CONFLICT, "Email already exists");
+            }
+        }
+        return candidates.size();
+    }
+
     /**
      * Возвращает пользователя по идентификатору.
      *
@@ -59,7 +158,7 @@ public class UserService {
      * @throws ResponseStatusException если пользователь не найден (404)
      */
     @Transactional(readOnly = true)
-    public User getById(Long id) {
+    public User getById(@ShardKey Long id) {
         log.info("Читаю пользователя: id={}", id);
         return userRepository.findById(id)
                 .map(u -> {
@@ -73,15 +172,55 @@ public class UserService {
     }
 
     /**
-     * Возвращает всех пользователей.
+     * Возвращает страницу пользователей по возрастанию id.
+     * <p>
+     * Страница выбирается по индексу первичного ключа ({@code id > after}), поэтому стоимость
+     * запроса не зависит от того, насколько далеко от начала таблицы находится страница.
+     * При шардировании id шардов не пересекаются и возрастают с номером шарда, поэтому страница
+     * собирается обходом шардов по порядку, начиная с шарда {@code after}, без слияния и лишних строк.
      *
-     * @return список всех пользователей
+     * @param after id последнего пользователя предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы (1..500)
+     * @return пользователи и id для запроса следующей страницы
+     * @throws ResponseStatusException если размер страницы некорректен (400)
      */
-    @Transactional(readOnly = true)
-    public List<User> listAll() {
-        log.info("Получаю список пользователей");
-        List<User> users = userRepository.findAll();
-        log.info("Всего пользователей: {}", users.size());
-        return users;
+    public UserPage listPage(Long after, int limit) {
+        log.info("Получаю страницу пользователей: after={}, limit={}", after, limit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long from = after == null ? 0L : after;
+        List<User> users = new ArrayList<>(limit);
+        for (int shard = ShardRouter.shardAfter(from); shard < shardRouter.count() && users.size() < limit; shard++) {
+            int remaining = limit - users.size();
+            users.addAll(shardRouter.inReadOnlyTransaction(shard,
+                    () -> userRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(remaining))));
+        }
+        Long next = users.size() == limit ? users.get(users.size() - 1).getId() : null;
+        log.info("Страница пользователей: count={}, nextAfter={}", users.size(), next);
+        return new UserPage(users, next);
+    }
+
+    /**
+     * Передаёт всех пользователей с id больше {@code after} по одному, по возрастанию id.
+     * <p>
+     * Строки читаются серверным курсором порциями фиксированного размера и не накапливаются
+     * в памяти, поэтому расход памяти не зависит от размера таблицы. Курсор живёт до конца
+     * транзакции, то есть пока {@code consumer} не обработает последнюю строку.
+     * При шардировании шарды читаются по очереди, каждый - своей транзакцией.
+     *
+     * @param after    id, после которого начинать, или {@code null} для всей таблицы
+     * @param consumer обработчик строк
+     * @return число переданных пользователей
+     */
+    public long streamAll(Long after, Consumer<User> consumer) {
+        log.info("Выгружаю пользователей потоком: after={}", after);
+        long from = after == null ? 0L : after;
+        long count = 0;
+        for (int shard = ShardRouter.shardAfter(from); shard < shardRouter.count(); shard++) {
+            count += shardRouter.inReadOnlyTransaction(shard, () -> userStreamRepository.forEachAfter(from, consumer));
+        }
+        log.info("Выгрузка пользователей завершена: count={}", count);
+        return count;
     }
 }
@@ -0,0 +1,29 @@
+package ab.task.banking_system.sharding;
+
+/**
+ * Шард текущего потока. Читается при получении соединения ({@link ShardRoutingDataSource})
+ * и при открытии сессии Hibernate ({@link ShardTenantResolver}); без шарда используется шард 0.
+ */
+final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer get() {
+        return CURRENT.get();
+    }
+
+    static int currentOrDefault() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ab.task.banking_system.sharding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Параметр публичного метода сервиса, по которому выбирается шард: id пользователя или счёта
+ * ({@code Long}, шард - старшие биты id) или e-mail нового пользователя ({@code String}, шард - хеш).
+ * Метод выполняется целиком на этом шарде, включая его транзакцию.
+ *
+ * @see ShardRouter
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
@@ -0,0 +1,208 @@
+package ab.task.banking_system.sharding;
+
+import ab.task.banking_system.config.ShardingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Размещение пользователей и счетов по шардам и выполнение кода на нужном шарде.
+ * <p>
+ * Номер шарда записан в старших битах id пользователя и счёта ({@code id >>> 48}): последовательности
+ * каждого шарда начинаются с {@code shard << 48} (миграция V8), поэтому id уникальны во всей системе,
+ * шард находится по id без справочника, а сортировка по id совпадает с обходом шардов по возрастанию.
+ * Новый пользователь размещается по хешу e-mail - до вставки id ещё нет; счета хранятся на шарде
+ * владельца. При 32 шардах id не превышают 2^53 и точно представимы в JSON-числах.
+ * <p>
+ * При выключенном шардировании шард один, код выполняется на единственной базе.
+ */
+@Component
+public class ShardRouter {
+    public static final int SHARD_BITS = 48;
+    public static final int MAX_SHARDS = 32;
+
+    private final int count;
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService executor;
+
+    public ShardRouter(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.count = properties.enabled() ? properties.shards().size() : 1;
+        if (count < 1 || count > MAX_SHARDS) {
+            throw new IllegalStateException("banking.sharding.shards must list 1.." + MAX_SHARDS + " databases, got " + count);
+        }
+        this.transactionManager = transactionManager;
+        this.executor = count > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    /**
+     * @return число шардов; 1, если шардирование выключено
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return шард, на котором выполняется текущий поток; 0 вне {@link #call}
+     */
+    public int currentShard() {
+        return ShardContext.currentOrDefault();
+    }
+
+    /**
+     * @return шард пользователя или счёта с этим id; для id, которых не может быть ни на одном шарде, - шард 0,
+     * где такой id просто не найдётся
+     */
+    public int shardOfId(long id) {
+        long shard = id >>> SHARD_BITS;
+        return shard < count ? (int) shard : 0;
+    }
+
+    /**
+     * @return шард, с которого продолжается обход строк по возрастанию id после {@code after};
+     * для id за пределами шардов - номер не меньше {@link #count()}, то есть пустой обход
+     */
+    public static int shardAfter(long after) {
+        return after <= 0 ? 0 : (int) (after >>> SHARD_BITS);
+    }
+
+    /**
+     * @return шард нового пользователя с этим e-mail
+     */
+    public int shardOfEmail(String email) {
+        // Перемешивание murmur3: String.hashCode соседних строк отличается в младших битах слабо.
+        int h = email.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, count);
+    }
+
+    /**
+     * Выполняет {@code action} на шарде {@code shard}: соединения и сессии Hibernate, открытые внутри,
+     * относятся к этому шарду.
+     *
+     * @throws IllegalStateException если поток уже находится в транзакции другого шарда
+     */
+    public <T> T call(int shard, Supplier<T> action) {
+        return run(shard, action::get);
+    }
+
+    /**
+     * Выполняет {@code action} в транзакции на шарде {@code shard}.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> action) {
+        return inTransaction(shard, TransactionDefinition.withDefaults(), action);
+    }
+
+    /**
+     * Выполняет {@code action} в транзакции только для чтения на шарде {@code shard}.
+     */
+    public <T> T inReadOnlyTransaction(int shard, Supplier<T> action) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        return inTransaction(shard, definition, action);
+    }
+
+    /**
+     * Выполняет {@code action} в транзакции с заданными свойствами на шарде {@code shard}.
+     */
+    public <T> T inTransaction(int shard, TransactionDefinition definition, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager, definition);
+        return call(shard, () -> template.execute(tx -> action.get()));
+    }
+
+    /**
+     * Выполняет {@code action} на каждом шарде по очереди, по возрастанию номера.
+     *
+     * @return результаты в порядке шардов
+     */
+    public <T> List<T> onEach(IntFunction<T> action) {
+        List<T> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int s = shard;
+            results.add(call(s, () -> action.apply(s)));
+        }
+        return results;
+    }
+
+    /**
+     * Выполняет {@code action} на всех шардах параллельно, каждый шард - в своём потоке, и ждёт всех.
+     * Вызывающий поток не должен находиться в транзакции: её соединение не видно потокам шардов.
+     *
+     * @return результаты в порядке шардов
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        if (executor == null) {
+            return onEach(action);
+        }
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int s = shard;
+            futures.add(executor.submit(() -> call(s, () -> action.apply(s))));
+        }
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    <T, E extends Throwable> T run(int shard, ShardAction<T, E> action) throws E {
+        if (shard < 0 || shard >= count) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        Integer previous = ShardContext.get();
+        if (previous != null && previous == shard) {
+            return action.run();
+        }
+        if (ShardContext.currentOrDefault() != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard
+                    + " inside a transaction on shard " + ShardContext.currentOrDefault());
+        }
+        ShardContext.set(shard);
+        try {
+            return action.run();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    @FunctionalInterface
+    interface ShardAction<T, E extends Throwable> {
+        T run() throws E;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
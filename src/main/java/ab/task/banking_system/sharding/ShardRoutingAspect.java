@@ -0,0 +1,55 @@
+package ab.task.banking_system.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Выполняет методы сервисов с параметром {@link ShardKey} на шарде этого параметра.
+ * <p>
+ * Аспект внешний по отношению к {@code @Transactional} и метрикам: транзакция метода открывается
+ * уже на выбранном шарде. Пустой ключ маршрутизации не меняет шард - метод сам отклоняет такой вызов.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private final ShardRouter shardRouter;
+    private final Map<Method, Integer> keyIndexes = new ConcurrentHashMap<>();
+
+    @Around("execution(public * ab.task.banking_system.service..*(.., @ab.task.banking_system.sharding.ShardKey (*), ..))")
+    public Object route(ProceedingJoinPoint pjp) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Object key = pjp.getArgs()[keyIndexes.computeIfAbsent(method, ShardRoutingAspect::keyIndex)];
+        int shard;
+        if (key instanceof Long id) {
+            shard = shardRouter.shardOfId(id);
+        } else if (key instanceof String email) {
+            shard = shardRouter.shardOfEmail(email);
+        } else {
+            return pjp.proceed();
+        }
+        return shardRouter.run(shard, pjp::proceed);
+    }
+
+    private static int keyIndex(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalStateException("No @ShardKey parameter on " + method);
+    }
+}
@@ -0,0 +1,60 @@
+package ab.task.banking_system.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник соединений, выдающий соединение из пула шарда текущего потока. Вне {@link ShardRouter}
+ * (старт приложения, служебные запросы) используется шард 0.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final List<HikariDataSource> shards;
+
+    public ShardRoutingDataSource(List<HikariDataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return пул шарда по номеру
+     */
+    public HikariDataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * @return число шардов
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return суммарный размер пулов всех шардов
+     */
+    public int totalPoolSize() {
+        return shards.stream().mapToInt(HikariDataSource::getMaximumPoolSize).sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.get();
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
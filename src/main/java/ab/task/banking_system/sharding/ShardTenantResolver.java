@@ -0,0 +1,21 @@
+package ab.task.banking_system.sharding;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Сообщает Hibernate шард сессии как идентификатор арендатора. Соединения выдаёт {@link ShardRoutingDataSource};
+ * идентификатор нужен оптимизатору pooled-lo, который хранит выделенные блоки id отдельно для каждого
+ * арендатора. Без этого блок, полученный из последовательности одного шарда, раздавался бы строкам другого.
+ */
+class ShardTenantResolver implements CurrentTenantIdentifierResolver<String> {
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return Integer.toString(ShardContext.currentOrDefault());
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+package ab.task.banking_system.sharding;
+
+import ab.task.banking_system.config.ReplicaProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пулы соединений шардов, маршрутизация соединений и миграции каждого шарда.
+ * <p>
+ * Пул каждого шарда настраивается из {@code spring.datasource.hikari.*}, адрес и учётные данные берутся
+ * из {@code banking.sharding.shards[i]}. Миграции выполняются на всех шардах по очереди; номер шарда
+ * передаётся в них плейсхолдером {@code shard}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "banking.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(ShardingProperties properties, ReplicaProperties replicaProperties,
+                                             Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        if (replicaProperties.enabled()) {
+            throw new IllegalStateException("banking.replicas is not supported together with banking.sharding");
+        }
+        List<HikariDataSource> pools = new ArrayList<>();
+        try {
+            for (int i = 0; i < properties.shards().size(); i++) {
+                ShardingProperties.Shard shard = properties.shards().get(i);
+                HikariConfig config = Binder.get(environment)
+                        .bind("spring.datasource.hikari", HikariConfig.class)
+                        .orElseGet(HikariConfig::new);
+                config.setJdbcUrl(shard.url());
+                config.setUsername(shard.username());
+                config.setPassword(shard.password());
+                config.setPoolName("shard-" + i);
+                meterRegistry.ifAvailable(registry -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+                pools.add(new HikariDataSource(config));
+                log.info("Пул шарда создан: shard={}, url={}, maxPoolSize={}", i, shard.url(), config.getMaximumPoolSize());
+            }
+        } catch (RuntimeException e) {
+            pools.forEach(HikariDataSource::close);
+            throw e;
+        }
+        return new ShardRoutingDataSource(pools);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardFlywayMigrationStrategy(ShardRoutingDataSource dataSource) {
+        return flyway -> {
+            var base = flyway.getConfiguration();
+            for (int i = 0; i < dataSource.shardCount(); i++) {
+                Map<String, String> placeholders = new HashMap<>(base.getPlaceholders());
+                placeholders.put("shard", Integer.toString(i));
+                Flyway.configure(base.getClassLoader())
+                        .configuration(base)
+                        .dataSource(dataSource.shard(i))
+                        .placeholders(placeholders)
+                        .load()
+                        .migrate();
+                log.info("Миграции шарда выполнены: shard={}", i);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardTenantResolverCustomizer() {
+        return properties -> properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new ShardTenantResolver());
+    }
+
+    @Bean
+    public ShardRoutingAspect shardRoutingAspect(ShardRouter shardRouter) {
+        return new ShardRoutingAspect(shardRouter);
+    }
+}
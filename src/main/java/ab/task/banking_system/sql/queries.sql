@@ -6,4 +6,20 @@ SELECT u.* FROM users u WHERE EXISTS (SELECT 1 FROM accounts a0 WHERE a0.user_id
 SELECT * FROM users WHERE email = 'adilet@example.com';
 
 -- Получить сумму всех средств в системе.
-SELECT SUM(balance) AS total_money FROM accounts;
\ No newline at end of file
+SELECT SUM(balance) AS total_money FROM accounts;
+-- accounts секционирована по хешу user_id (миграции V9-V10): счета одного пользователя лежат в одной секции,
+-- и условие user_id = ... читает одну секцию. Сумму можно считать по секциям параллельно и сложить
+-- (так сверяет сумму BalanceTotalReconciler):
+SELECT SUM(balance) FROM accounts_p00; -- ... accounts_p15
+-- Те же отчёты по агрегатам (миграции V6, V12-V14): GET /api/reports/users/min-balance-above?threshold=10000
+-- и GET /api/reports/total-balance. Нижний непустой диапазон баланса полосы пользователя (min_bucket, с индексом)
+-- решает без чтения счетов, если он выше диапазона порога; счета читаются, только если диапазон содержит порог.
+SELECT u.* FROM users u
+JOIN (SELECT user_id, min(min_bucket) AS bucket FROM user_balance_stripes
+      WHERE min_bucket >= balance_bucket(10000) GROUP BY user_id) l
+    ON l.user_id = u.id
+WHERE NOT EXISTS (SELECT 1 FROM user_balance_stripes t WHERE t.user_id = u.id AND t.min_bucket < balance_bucket(10000))
+  AND (l.bucket > balance_bucket(10000)
+       OR NOT EXISTS (SELECT 1 FROM accounts a WHERE a.user_id = u.id AND a.balance <= 10000));
+
+SELECT SUM(total) AS total_money FROM balance_total_stripes;
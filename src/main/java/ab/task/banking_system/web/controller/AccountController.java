@@ -1,11 +1,26 @@
 package ab.task.banking_system.web.controller;
 
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.model.TransferResult;
 import ab.task.banking_system.service.AccountService;
+import ab.task.banking_system.service.BalanceOperationResult;
+import ab.task.banking_system.service.BatchOperationService;
+import ab.task.banking_system.service.LedgerService;
+import ab.task.banking_system.service.OperationStatus;
 import ab.task.banking_system.web.dto.AccountCreateRequest;
 import ab.task.banking_system.web.dto.AccountResponse;
 import ab.task.banking_system.web.dto.AmountRequest;
+import ab.task.banking_system.web.dto.BalanceResponse;
+import ab.task.banking_system.web.dto.BatchOperationRequest;
+import ab.task.banking_system.web.dto.BatchOperationResponse;
+import ab.task.banking_system.web.dto.StatementResponse;
+import ab.task.banking_system.web.dto.TransferRequest;
+import ab.task.banking_system.web.dto.TransferResponse;
 import ab.task.banking_system.web.mapper.AccountMapper;
+import ab.task.banking_system.web.mapper.BatchOperationMapper;
+import ab.task.banking_system.web.mapper.LedgerMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,18 +30,30 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/accounts")
 @Tag(name = "Accounts", description = "Операции со счетами")
 public class AccountController {
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,18})\"");
 
     private final AccountService accountService;
     private final AccountMapper accountMapper;
+    private final BatchOperationService batchOperationService;
+    private final BatchOperationMapper batchOperationMapper;
+    private final LedgerService ledgerService;
+    private final LedgerMapper ledgerMapper;
 
     @Operation(
             summary = "Создать счёт",
@@ -48,7 +75,7 @@ public class AccountController {
                             schema = @Schema(implementation = AccountResponse.class)
                     )
             ),
-            @ApiResponse(responseCode = "400", description = "Ошибка валидации"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации или номер в формате генерируемых номеров"),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
             @ApiResponse(responseCode = "409", description = "Номер счёта уже существует")
     })
@@ -58,9 +85,37 @@ public class AccountController {
         return ResponseEntity.status(HttpStatus.CREATED).body(accountMapper.toResponse(acc));
     }
 
+    @Operation(
+            summary = "Получить счёт по ID",
+            description = "Возвращает номер, баланс и владельца счёта. Ответ может браться из кэша узла, "
+                    + "но не старее последнего изменения баланса, зафиксированного этим узлом. "
+                    + "ETag ответа - версия счёта; запрос с If-None-Match с той же версией получает 304 без тела."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AccountResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "304", description = "Счёт не изменился с версии из If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден")
+    })
+    @GetMapping(value = "/{id}", produces = "application/json")
+    public ResponseEntity<AccountResponse> get(
+            @Parameter(description = "ID счёта", required = true) @PathVariable Long id
+    ) {
+        AccountSnapshot account = accountService.getById(id);
+        // Для GET с совпавшим If-None-Match Spring сам отвечает 304 без тела.
+        return ResponseEntity.ok().eTag(eTag(account.version())).body(accountMapper.toResponse(account));
+    }
+
     @Operation(
             summary = "Пополнить счёт",
-            description = "Увеличивает баланс счёта на положительную сумму.",
+            description = "Увеличивает баланс счёта на положительную сумму. С заголовком If-Match пополнение "
+                    + "выполняется, только если версия счёта равна версии из ETag.",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     required = true,
                     content = @Content(
@@ -70,23 +125,37 @@ public class AccountController {
             )
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "204", description = "Баланс пополнен"),
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Баланс пополнен, в ответе новый баланс и версия счёта",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BalanceResponse.class)
+                    )
+            ),
             @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0"),
             @ApiResponse(responseCode = "404", description = "Счёт не найден"),
-            @ApiResponse(responseCode = "409", description = "Операция отклонена")
+            @ApiResponse(responseCode = "409", description = "Операция отклонена"),
+            @ApiResponse(responseCode = "412", description = "Версия счёта не совпадает с If-Match"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности использован для другого запроса")
     })
-    @PostMapping(value = "/{id}/deposit", consumes = "application/json")
-    public ResponseEntity<Void> deposit(
+    @PostMapping(value = "/{id}/deposit", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<BalanceResponse> deposit(
             @Parameter(description = "ID счёта", required = true) @PathVariable Long id,
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернёт результат первого выполнения")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Parameter(description = "ETag счёта из GET /api/accounts/{id}: операция выполнится, только если версия не изменилась")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody AmountRequest req
     ) {
-        accountService.deposit(id, req.amount());
-        return ResponseEntity.noContent().build();
+        AccountBalance result = accountService.deposit(id, req.amount(), idempotencyKey, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(result.version())).body(accountMapper.toResponse(result));
     }
 
     @Operation(
             summary = "Списать со счёта",
-            description = "Уменьшает баланс счёта на положительную сумму при наличии достаточных средств.",
+            description = "Уменьшает баланс счёта на положительную сумму при наличии достаточных средств. "
+                    + "С заголовком If-Match списание выполняется, только если версия счёта равна версии из ETag.",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     required = true,
                     content = @Content(
@@ -96,17 +165,138 @@ public class AccountController {
             )
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "204", description = "Списание выполнено"),
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Списание выполнено, в ответе новый баланс и версия счёта",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BalanceResponse.class)
+                    )
+            ),
             @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0"),
             @ApiResponse(responseCode = "404", description = "Счёт не найден"),
-            @ApiResponse(responseCode = "409", description = "Недостаточно средств")
+            @ApiResponse(responseCode = "409", description = "Недостаточно средств"),
+            @ApiResponse(responseCode = "412", description = "Версия счёта не совпадает с If-Match"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности использован для другого запроса")
     })
-    @PostMapping(value = "/{id}/withdraw", consumes = "application/json")
-    public ResponseEntity<Void> withdraw(
+    @PostMapping(value = "/{id}/withdraw", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<BalanceResponse> withdraw(
             @Parameter(description = "ID счёта", required = true) @PathVariable Long id,
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернёт результат первого выполнения")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Parameter(description = "ETag счёта из GET /api/accounts/{id}: операция выполнится, только если версия не изменилась")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody AmountRequest req
     ) {
-        accountService.withdraw(id, req.amount());
-        return ResponseEntity.noContent().build();
+        AccountBalance result = accountService.withdraw(id, req.amount(), idempotencyKey, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(result.version())).body(accountMapper.toResponse(result));
+    }
+
+    @Operation(
+            summary = "Перевести между счетами",
+            description = "Атомарно списывает сумму с одного счёта и зачисляет её на другой в одной транзакции.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TransferRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Перевод выполнен, в ответе новые балансы обоих счетов",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TransferResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Сумма должна быть > 0, счета совпадают или находятся на разных шардах"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден"),
+            @ApiResponse(responseCode = "409", description = "Недостаточно средств"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности использован для другого запроса")
+    })
+    @PostMapping(value = "/transfers", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<TransferResponse> transfer(
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернёт результат первого выполнения")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferRequest req
+    ) {
+        TransferResult result = accountService.transfer(req.fromAccountId(), req.toAccountId(), req.amount(), idempotencyKey);
+        return ResponseEntity.ok(accountMapper.toResponse(result));
+    }
+
+    @Operation(
+            summary = "Пакет пополнений и списаний",
+            description = "Выполняет операции JDBC-батчами частями по banking.batch.chunk-size. "
+                    + "Каждая часть фиксируется отдельной транзакцией; отклонённая операция не прерывает пакет.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BatchOperationRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Пакет обработан, результат по каждой операции",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BatchOperationResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Пакет пуст, слишком велик или содержит некорректные элементы")
+    })
+    @PostMapping(value = "/batch", consumes = "application/json", produces = "application/json")
+    public BatchOperationResponse batch(@Valid @RequestBody BatchOperationRequest req) {
+        List<BalanceOperationResult> results = batchOperationService.execute(batchOperationMapper.toOperations(req.operations()));
+        int applied = (int) results.stream().filter(r -> r.status() == OperationStatus.APPLIED).count();
+        return new BatchOperationResponse(applied, results.size() - applied, batchOperationMapper.toResults(results));
+    }
+
+    @Operation(
+            summary = "Выписка по счёту",
+            description = "Возвращает операции по счёту от новых к старым с keyset-пагинацией. "
+                    + "Каждый запрос читает одну месячную секцию журнала, месяцы без операций пропускаются; "
+                    + "страница может быть неполной, история продолжается, пока nextCursor не равен null."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = StatementResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "404", description = "Счёт не найден")
+    })
+    @GetMapping(value = "/{id}/transactions", produces = "application/json")
+    public StatementResponse transactions(
+            @Parameter(description = "ID счёта", required = true) @PathVariable Long id,
+            @Parameter(description = "Курсор из nextCursor предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, 1..500") @RequestParam(defaultValue = "50") int limit
+    ) {
+        return ledgerMapper.toResponse(ledgerService.statement(id, cursor, limit));
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-Match: "<версия>" или *. Слабый или чужой ETag не может совпасть с версией счёта (строгое сравнение) - 412.
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Matcher tag = VERSION_ETAG.matcher(ifMatch.trim());
+        if (!tag.matches()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Account version does not match");
+        }
+        return Long.parseLong(tag.group(1));
     }
 }
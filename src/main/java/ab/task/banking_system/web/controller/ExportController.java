@@ -0,0 +1,82 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.config.StreamingProperties;
+import ab.task.banking_system.service.ExportService;
+import ab.task.banking_system.service.FileFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/export")
+@Tag(name = "Export", description = "Выгрузка данных в файлы")
+public class ExportController {
+    private static final String GZIP = "application/gzip";
+
+    private final ExportService exportService;
+    private final StreamingProperties streamingProperties;
+
+    @Operation(
+            summary = "Выгрузить счета с владельцами",
+            description = "Возвращает все счета вместе с данными владельцев файлом CSV (с заголовком) или NDJSON, "
+                    + "по возрастанию id счёта. Строки пишутся в ответ по мере чтения из базы: CSV формирует "
+                    + "сама база через COPY, NDJSON читается серверным курсором. Столбцы: account_id, number, balance, "
+                    + "user_id, name, email, registered_at - файл можно загрузить обратно через /api/import."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = {
+                            @Content(mediaType = "text/csv"),
+                            @Content(mediaType = "application/x-ndjson"),
+                            @Content(mediaType = GZIP)
+                    }
+            ),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат")
+    })
+    @GetMapping("/accounts")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @Parameter(description = "Формат: csv или ndjson") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Сжать выгрузку gzip") @RequestParam(defaultValue = "false") boolean gzip,
+            NativeWebRequest request
+    ) {
+        FileFormat fileFormat = parse(format);
+        StreamingTimeout.set(request, streamingProperties.timeout());
+        String fileName = "accounts-" + LocalDate.now(ZoneOffset.UTC) + fileFormat.extension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> exportService.exportAccounts(out, fileFormat, gzip);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? GZIP : fileFormat.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    private static FileFormat parse(String format) {
+        try {
+            return FileFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+    }
+}
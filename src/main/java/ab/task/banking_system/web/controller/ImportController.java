@@ -0,0 +1,111 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.service.FileFormat;
+import ab.task.banking_system.service.ImportService;
+import ab.task.banking_system.web.dto.ImportResponse;
+import ab.task.banking_system.web.mapper.ImportMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/import")
+@Tag(name = "Import", description = "Загрузка пользователей и счетов из файлов")
+public class ImportController {
+    private static final String CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ImportService importService;
+    private final ImportMapper importMapper;
+
+    @Operation(
+            summary = "Загрузить пользователей",
+            description = "Тело запроса - CSV с заголовком (столбцы name, email, registered_at) или NDJSON с теми же полями; "
+                    + "допускается Content-Encoding: gzip. Файл передаётся в базу потоком через COPY, "
+                    + "прошедшие проверку строки добавляются одной транзакцией, остальные перечисляются в отчёте."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Загрузка выполнена",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Нет обязательного столбца или файл не читается"),
+            @ApiResponse(responseCode = "501", description = "Загрузка недоступна при нескольких шардах")
+    })
+    @PostMapping(value = "/users", consumes = {CSV, NDJSON}, produces = "application/json")
+    public ImportResponse importUsers(
+            @Parameter(hidden = true) @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body
+    ) {
+        return importMapper.toResponse(importService.importUsers(decode(body, contentEncoding), format(contentType)));
+    }
+
+    @Operation(
+            summary = "Загрузить счета",
+            description = "Тело запроса - CSV с заголовком (столбцы number, email владельца, balance) или NDJSON с теми же полями; "
+                    + "допускается Content-Encoding: gzip. Владелец ищется по e-mail, ненулевой баланс записывается в журнал "
+                    + "пополнением. Прошедшие проверку строки добавляются одной транзакцией, остальные перечисляются в отчёте."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Загрузка выполнена",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Нет обязательного столбца или файл не читается"),
+            @ApiResponse(responseCode = "501", description = "Загрузка недоступна при нескольких шардах"),
+            @ApiResponse(responseCode = "503", description = "Идёт перенос счетов в секционированную таблицу")
+    })
+    @PostMapping(value = "/accounts", consumes = {CSV, NDJSON}, produces = "application/json")
+    public ImportResponse importAccounts(
+            @Parameter(hidden = true) @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body
+    ) {
+        return importMapper.toResponse(importService.importAccounts(decode(body, contentEncoding), format(contentType)));
+    }
+
+    private static FileFormat format(String contentType) {
+        return FileFormat.ofMediaType(contentType)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported import format"));
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank() || "identity".equalsIgnoreCase(contentEncoding)) {
+            return body;
+        }
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            try {
+                return new GZIPInputStream(body, 64 * 1024);
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read import file");
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported Content-Encoding: " + contentEncoding);
+    }
+}
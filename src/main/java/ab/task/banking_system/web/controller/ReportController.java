@@ -0,0 +1,74 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.service.ReportService;
+import ab.task.banking_system.web.dto.TotalBalanceResponse;
+import ab.task.banking_system.web.dto.UserBalanceSummaryPageResponse;
+import ab.task.banking_system.web.mapper.ReportMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reports")
+@Tag(name = "Reports", description = "Отчёты по балансам")
+public class ReportController {
+    private final ReportService reportService;
+    private final ReportMapper reportMapper;
+
+    @Operation(
+            summary = "Пользователи с балансом каждого счёта выше порога",
+            description = "Возвращает пользователей, у которых есть счета и баланс каждого счёта больше threshold, "
+                    + "по возрастанию id, постранично. Отчёт читает агрегаты по пользователям, а не счета."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserBalanceSummaryPageResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Некорректный порог или размер страницы")
+    })
+    @GetMapping(value = "/users/min-balance-above", produces = "application/json")
+    public UserBalanceSummaryPageResponse usersWithAllBalancesAbove(
+            @Parameter(description = "Порог баланса", required = true) @RequestParam BigDecimal threshold,
+            @Parameter(description = "ID последнего пользователя предыдущей страницы") @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы (1..500)") @RequestParam(defaultValue = "50") int limit
+    ) {
+        return reportMapper.toResponse(reportService.usersWithAllBalancesAbove(threshold, after, limit));
+    }
+
+    @Operation(
+            summary = "Сумма средств в системе",
+            description = "Возвращает сумму балансов всех счетов. Читает 64 строки-полосы, которые база обновляет "
+                    + "вместе со счетами, поэтому время ответа не зависит от числа счетов."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = TotalBalanceResponse.class)
+                    )
+            )
+    })
+    @GetMapping(value = "/total-balance", produces = "application/json")
+    public TotalBalanceResponse totalBalance() {
+        return new TotalBalanceResponse(reportService.totalBalance());
+    }
+}
@@ -0,0 +1,27 @@
+package ab.task.banking_system.web.controller;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+
+/**
+ * Тайм-аут ответа {@code StreamingResponseBody} отдельного обработчика.
+ * <p>
+ * Spring MVC пишет такой ответ асинхронно и обрывает его по общему тайм-ауту асинхронных запросов;
+ * поднимать общий тайм-аут ради выгрузок нельзя - зависший асинхронный запрос любого обработчика держал бы
+ * поток и соединение столько же. Тайм-аут, заданный здесь до выхода из обработчика, действует только на его ответ.
+ */
+final class StreamingTimeout {
+
+    private StreamingTimeout() {
+    }
+
+    static void set(NativeWebRequest request, Duration timeout) {
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest != null) {
+            asyncRequest.setTimeout(timeout.toMillis());
+        }
+    }
+}
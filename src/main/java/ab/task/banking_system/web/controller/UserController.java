@@ -1,12 +1,17 @@
 package ab.task.banking_system.web.controller;
 
+import ab.task.banking_system.config.StreamingProperties;
 import ab.task.banking_system.service.AccountService;
 import ab.task.banking_system.service.UserService;
+import ab.task.banking_system.web.dto.AccountBulkCreateRequest;
 import ab.task.banking_system.web.dto.AccountResponse;
+import ab.task.banking_system.web.dto.UserBulkCreateRequest;
 import ab.task.banking_system.web.dto.UserCreateRequest;
+import ab.task.banking_system.web.dto.UserPageResponse;
 import ab.task.banking_system.web.dto.UserResponse;
 import ab.task.banking_system.web.mapper.AccountMapper;
 import ab.task.banking_system.web.mapper.UserMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -18,9 +23,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -28,11 +38,14 @@ import java.util.List;
 @RequestMapping("/api/users")
 @Tag(name = "Users", description = "Операции с пользователями")
 public class UserController {
+    private static final String NDJSON = "application/x-ndjson";
 
     private final UserService userService;
     private final UserMapper userMapper;
     private final AccountService accountService;
     private final AccountMapper accountMapper;
+    private final ObjectMapper objectMapper;
+    private final StreamingProperties streamingProperties;
 
     @Operation(
             summary = "Создать пользователя",
@@ -63,6 +76,36 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(body);
     }
 
+    @Operation(
+            summary = "Создать пользователей пакетом",
+            description = "Создаёт всех пользователей одной транзакцией: либо все, либо ни одного. "
+                    + "Вставки отправляются в базу JDBC-батчами. Не больше banking.batch.max-creates пользователей.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserBulkCreateRequest.class)
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Пользователи созданы",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = UserResponse.class))
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации, повтор e-mail в запросе или слишком большой пакет"),
+            @ApiResponse(responseCode = "409", description = "Email уже существует")
+    })
+    @PostMapping(value = "/bulk", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<List<UserResponse>> createAll(@Valid @RequestBody UserBulkCreateRequest req) {
+        List<UserResponse> body = userMapper.toResponse(userService.createAll(userMapper.toEntities(req.users())));
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
+
     @Operation(
             summary = "Получить пользователя по ID",
             description = "Возвращает данные пользователя по его идентификатору."
@@ -87,7 +130,8 @@ public class UserController {
 
     @Operation(
             summary = "Список пользователей",
-            description = "Возвращает список всех пользователей."
+            description = "Возвращает страницу пользователей по возрастанию id. "
+                    + "Для следующей страницы передайте nextAfter из ответа в параметре after."
     )
     @ApiResponses({
             @ApiResponse(
@@ -95,13 +139,49 @@ public class UserController {
                     description = "ОК",
                     content = @Content(
                             mediaType = "application/json",
-                            array = @ArraySchema(schema = @Schema(implementation = UserResponse.class))
+                            schema = @Schema(implementation = UserPageResponse.class)
                     )
-            )
+            ),
+            @ApiResponse(responseCode = "400", description = "Некорректный размер страницы")
     })
     @GetMapping(produces = "application/json")
-    public List<UserResponse> list() {
-        return userMapper.toResponse(userService.listAll());
+    public UserPageResponse list(
+            @Parameter(description = "ID последнего пользователя предыдущей страницы") @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы (1..500)") @RequestParam(defaultValue = "50") int limit
+    ) {
+        return userMapper.toResponse(userService.listPage(after, limit));
+    }
+
+    @Operation(
+            summary = "Выгрузка пользователей потоком",
+            description = "Возвращает всех пользователей по возрастанию id в формате NDJSON (один JSON-объект на строку). "
+                    + "Строки пишутся в ответ по мере чтения из базы, память сервера не зависит от размера таблицы."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "ОК",
+                    content = @Content(
+                            mediaType = NDJSON,
+                            schema = @Schema(implementation = UserResponse.class)
+                    )
+            )
+    })
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(
+            @Parameter(description = "ID, после которого начинать выгрузку") @RequestParam(required = false) Long after,
+            NativeWebRequest request
+    ) {
+        StreamingTimeout.set(request, streamingProperties.timeout());
+        StreamingResponseBody body = out -> userService.streamAll(after, user -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(userMapper.toResponse(user)));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @Operation(
@@ -125,4 +205,30 @@ public class UserController {
     ) {
         return accountMapper.toResponse(accountService.listByUser(id));
     }
+
+    @Operation(
+            summary = "Открыть счета пользователю пакетом",
+            description = "Создаёт count счетов с генерируемыми номерами одной транзакцией. "
+                    + "Вставки отправляются в базу JDBC-батчами. Не больше banking.batch.max-creates счетов."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Счета созданы",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = AccountResponse.class))
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Некорректное число счетов"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    @PostMapping(value = "/{id}/accounts", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<List<AccountResponse>> createAccounts(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id,
+            @Valid @RequestBody AccountBulkCreateRequest req
+    ) {
+        List<AccountResponse> body = accountMapper.toResponse(accountService.createAll(id, req.count()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
 }
@@ -0,0 +1,7 @@
+package ab.task.banking_system.web.dto;
+
+import jakarta.validation.constraints.Min;
+
+public record AccountBulkCreateRequest(
+        @Min(1) int count
+) {}
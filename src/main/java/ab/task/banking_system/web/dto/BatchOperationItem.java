@@ -0,0 +1,12 @@
+package ab.task.banking_system.web.dto;
+
+import ab.task.banking_system.model.OperationType;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record BatchOperationItem(
+        @NotNull Long accountId,
+        @NotNull OperationType type,
+        BigDecimal amount
+) {}
@@ -0,0 +1,5 @@
+package ab.task.banking_system.web.dto;
+
+import ab.task.banking_system.service.OperationStatus;
+
+public record BatchOperationResult(int index, Long accountId, OperationStatus status) {}
@@ -0,0 +1,3 @@
+package ab.task.banking_system.web.dto;
+
+public record RejectedRowResponse(long line, String error) {}
@@ -0,0 +1,5 @@
+package ab.task.banking_system.web.dto;
+
+import java.math.BigDecimal;
+
+public record TotalBalanceResponse(BigDecimal total) {}
@@ -0,0 +1,15 @@
+package ab.task.banking_system.web.dto;
+
+import ab.task.banking_system.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record TransactionResponse(
+        Long id,
+        TransactionType type,
+        BigDecimal amount,
+        BigDecimal balanceAfter,
+        Long counterpartyAccountId,
+        Instant createdAt
+) {}
@@ -0,0 +1,5 @@
+package ab.task.banking_system.web.dto;
+
+import java.util.List;
+
+public record UserBalanceSummaryPageResponse(List<UserBalanceSummaryResponse> items, Long nextAfter) {}
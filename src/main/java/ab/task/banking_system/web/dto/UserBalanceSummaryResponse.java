@@ -0,0 +1,13 @@
+package ab.task.banking_system.web.dto;
+
+import java.math.BigDecimal;
+
+public record UserBalanceSummaryResponse(
+        Long userId,
+        String name,
+        String email,
+        int accountCount,
+        BigDecimal totalBalance,
+        BigDecimal minBalance,
+        BigDecimal maxBalance
+) {}
@@ -0,0 +1,11 @@
+package ab.task.banking_system.web.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record UserBulkCreateRequest(
+        @NotEmpty List<@Valid @NotNull UserCreateRequest> users
+) {}
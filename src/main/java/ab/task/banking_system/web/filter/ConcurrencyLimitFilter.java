@@ -0,0 +1,163 @@
+package ab.task.banking_system.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пропускает к контроллерам не больше {@code permits} запросов одновременно.
+ * <p>
+ * С виртуальными потоками Tomcat больше не ограничивает число одновременных запросов, и все они
+ * выстраиваются в очередь за соединением Hikari, где ждут до {@code connectionTimeout} и падают с 500.
+ * Фильтр держит очередь перед приложением: запрос ждёт места не дольше {@code maxWait}
+ * и затем получает 503 с {@code Retry-After}. Ожидание на семафоре паркует виртуальный поток,
+ * не занимая поток-носитель.
+ * <p>
+ * Очередь ограничена {@code maxQueue} запросами, следующие сразу получают 503. Без ограничения при перегрузке
+ * в очереди оказываются тысячи запросов: каждый ждёт почти весь {@code maxWait}, клиенты обрывают соединения,
+ * и успешных ответов не остаётся. Короткая очередь разбирается за время ожидания, а лишние запросы отклоняются,
+ * не тратя его.
+ * <p>
+ * Асинхронный запрос держит место до завершения ответа, а не до выхода из фильтра.
+ */
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public ConcurrencyLimitFilter(int permits, int maxQueue, Duration maxWait, MeterRegistry meterRegistry) {
+        this.semaphore = new Semaphore(permits, true);
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        Gauge.builder("banking.concurrency.active", semaphore, s -> permits - s.availablePermits())
+                .description("Запросы, обрабатываемые сейчас")
+                .register(meterRegistry);
+        Gauge.builder("banking.concurrency.waiting", waiting, AtomicInteger::get)
+                .description("Запросы, ожидающие места")
+                .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("banking.concurrency.rejected")
+                .description("Запросы, отклонённые без места")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("banking.concurrency.rejected")
+                .description("Запросы, отклонённые без места")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        log.info("Ограничение одновременных запросов включено: permits={}, maxQueue={}, maxWait={}",
+                permits, maxQueue, maxWait);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // tryAcquire() без времени пропустил бы новый запрос вперёд ожидающих.
+        if (!tryAcquire(0)) {
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                rejectedQueueFull.increment();
+                log.debug("Запрос отклонён: очередь заполнена, uri={}", request.getRequestURI());
+                reject(response);
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = tryAcquire(maxWait.toNanos());
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!acquired) {
+                rejectedTimeout.increment();
+                log.warn("Запрос отклонён: нет свободного места за {}, uri={}", maxWait, request.getRequestURI());
+                reject(response);
+                return;
+            }
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Отпускает место, когда асинхронный запрос завершён: выгрузки и потоки ({@code StreamingResponseBody})
+     * пишут ответ и держат соединение с базой уже после выхода из фильтра. После ошибки или тайм-аута контейнер
+     * вызывает и {@code onComplete}, поэтому место отпускается один раз.
+     */
+    private final class ReleaseOnComplete implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Повторный startAsync сбрасывает слушателей: место держится до конца нового цикла.
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    private boolean tryAcquire(long timeoutNanos) {
+        try {
+            return semaphore.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Ответ пишется сразу: sendError перенаправил бы запрос на /error, и отказ стоил бы почти как обработка.
+    private static void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many concurrent requests");
+    }
+}
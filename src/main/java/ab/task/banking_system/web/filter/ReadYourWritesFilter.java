@@ -0,0 +1,76 @@
+package ab.task.banking_system.web.filter;
+
+import ab.task.banking_system.replica.ReplicaSession;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Закрепляет клиента за основной базой на {@code pinDuration} после его записи, чтобы он читал
+ * свои изменения, пока реплики их не получили.
+ * <p>
+ * Ответ на запрос с записью ставит cookie {@value #COOKIE} с моментом окончания закрепления; пока этот
+ * момент не наступил, чтения запросов с этой cookie идут в основную базу. Чтения после записи в том же
+ * запросе идут туда же сразу.
+ */
+@Slf4j
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "BANKING_PRIMARY_UNTIL";
+
+    private final Duration pinDuration;
+    private final Clock clock;
+
+    public ReadYourWritesFilter(Duration pinDuration, Clock clock) {
+        this.pinDuration = pinDuration;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = clock.millis();
+        ReplicaSession.open(pinnedUntil(request) > now, () -> pin(response, now));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaSession.close();
+        }
+    }
+
+    private void pin(HttpServletResponse response, long now) {
+        if (response.isCommitted()) {
+            log.debug("Ответ уже отправлен, закрепление за основной базой не продлено");
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, Long.toString(now + pinDuration.toMillis()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, pinDuration.toSeconds() + 1));
+        response.addCookie(cookie);
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
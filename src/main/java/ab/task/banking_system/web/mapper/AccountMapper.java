@@ -1,7 +1,12 @@
 package ab.task.banking_system.web.mapper;
 
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.model.TransferResult;
 import ab.task.banking_system.web.dto.AccountResponse;
+import ab.task.banking_system.web.dto.BalanceResponse;
+import ab.task.banking_system.web.dto.TransferResponse;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -12,4 +17,7 @@ public interface AccountMapper {
     @Mapping(source = "user.id", target = "userId")
     AccountResponse toResponse(Account account);
     List<AccountResponse> toResponse(List<Account> accounts);
+    AccountResponse toResponse(AccountSnapshot account);
+    BalanceResponse toResponse(AccountBalance balance);
+    TransferResponse toResponse(TransferResult result);
 }
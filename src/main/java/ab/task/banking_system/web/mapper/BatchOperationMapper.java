@@ -0,0 +1,17 @@
+package ab.task.banking_system.web.mapper;
+
+import ab.task.banking_system.service.BalanceOperation;
+import ab.task.banking_system.service.BalanceOperationResult;
+import ab.task.banking_system.web.dto.BatchOperationItem;
+import ab.task.banking_system.web.dto.BatchOperationResult;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface BatchOperationMapper {
+    BalanceOperation toOperation(BatchOperationItem item);
+    List<BalanceOperation> toOperations(List<BatchOperationItem> items);
+    BatchOperationResult toResult(BalanceOperationResult result);
+    List<BatchOperationResult> toResults(List<BalanceOperationResult> results);
+}
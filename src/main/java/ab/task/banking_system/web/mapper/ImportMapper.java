@@ -0,0 +1,13 @@
+package ab.task.banking_system.web.mapper;
+
+import ab.task.banking_system.repository.ImportRepository.RejectedRow;
+import ab.task.banking_system.service.ImportReport;
+import ab.task.banking_system.web.dto.ImportResponse;
+import ab.task.banking_system.web.dto.RejectedRowResponse;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface ImportMapper {
+    ImportResponse toResponse(ImportReport report);
+    RejectedRowResponse toResponse(RejectedRow row);
+}
@@ -0,0 +1,18 @@
+package ab.task.banking_system.web.mapper;
+
+import ab.task.banking_system.model.LedgerEntry;
+import ab.task.banking_system.service.StatementPage;
+import ab.task.banking_system.web.dto.StatementResponse;
+import ab.task.banking_system.web.dto.TransactionResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface LedgerMapper {
+    TransactionResponse toResponse(LedgerEntry entry);
+    List<TransactionResponse> toResponse(List<LedgerEntry> entries);
+    @Mapping(source = "entries", target = "items")
+    StatementResponse toResponse(StatementPage page);
+}
@@ -0,0 +1,16 @@
+package ab.task.banking_system.web.mapper;
+
+import ab.task.banking_system.model.UserBalanceSummary;
+import ab.task.banking_system.service.UserBalanceSummaryPage;
+import ab.task.banking_system.web.dto.UserBalanceSummaryPageResponse;
+import ab.task.banking_system.web.dto.UserBalanceSummaryResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ReportMapper {
+    UserBalanceSummaryResponse toResponse(UserBalanceSummary summary);
+
+    @Mapping(source = "users", target = "items")
+    UserBalanceSummaryPageResponse toResponse(UserBalanceSummaryPage page);
+}
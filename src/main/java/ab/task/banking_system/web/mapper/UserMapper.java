@@ -1,15 +1,22 @@
 package ab.task.banking_system.web.mapper;
 
 import ab.task.banking_system.model.User;
+import ab.task.banking_system.service.UserPage;
 import ab.task.banking_system.web.dto.UserCreateRequest;
+import ab.task.banking_system.web.dto.UserPageResponse;
 import ab.task.banking_system.web.dto.UserResponse;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
     User toEntity(UserCreateRequest req);
+    List<User> toEntities(List<UserCreateRequest> reqs);
     UserResponse toResponse(User user);
     List<UserResponse> toResponse(List<User> users);
+
+    @Mapping(source = "users", target = "items")
+    UserPageResponse toResponse(UserPage page);
 }
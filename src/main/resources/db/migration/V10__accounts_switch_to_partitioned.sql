@@ -0,0 +1,80 @@
+-- Второй шаг перехода на секционированную accounts (первый - V9): переносит строки, которые не успела перенести
+-- accounts_partitioned_backfill, проверяет, что строк поровну, и заменяет таблицу.
+--
+-- Полные чтения таблиц идут до блокировки и не мешают операциям. После V9 каждое изменение accounts зеркалируется
+-- в той же транзакции, поэтому расходиться таблицы могут только на строках, которые не перенесла процедура.
+-- Под исключительной блокировкой проверяются только счета, созданные после переноса (id > last_id).
+
+-- 1. Остаток переноса, без блокировки таблицы (как в процедуре: FOR KEY SHARE удерживает строки до конца миграции).
+WITH source AS (
+    SELECT id, number, balance, user_id, version
+    FROM accounts
+    WHERE id > (SELECT last_id FROM accounts_backfill_progress)
+    FOR KEY SHARE
+)
+INSERT INTO accounts_partitioned (id, number, balance, user_id, version)
+SELECT id, number, balance, user_id, version FROM source
+ON CONFLICT (id, user_id) DO NOTHING;
+
+UPDATE accounts_backfill_progress SET last_id = greatest(last_id, (SELECT coalesce(max(id), 0) FROM accounts));
+
+-- 2. Полная сверка в одном снимке: оба подсчёта в одном запросе видят одно состояние.
+DO $$
+DECLARE
+    expected BIGINT;
+    actual BIGINT;
+BEGIN
+    SELECT (SELECT count(*) FROM accounts), (SELECT count(*) FROM accounts_partitioned) INTO expected, actual;
+    IF expected <> actual THEN
+        RAISE EXCEPTION 'accounts_partitioned has % rows, accounts has %', actual, expected;
+    END IF;
+END;
+$$;
+
+-- 3. Замена таблицы. Блокировка ждёт завершения текущих транзакций с accounts, а запросы, пришедшие после неё,
+-- ждут её; lock_timeout не даёт долгой транзакции остановить операции - миграция завершится ошибкой, и запуск
+-- можно повторить.
+SET LOCAL lock_timeout = '5s';
+LOCK TABLE accounts, accounts_partitioned IN ACCESS EXCLUSIVE MODE;
+
+-- Между сверкой и блокировкой изменения зеркалировались; перепроверяются только счета новее перенесённых
+-- (диапазон по первичному ключу каждой таблицы).
+DO $$
+DECLARE
+    last BIGINT := (SELECT last_id FROM accounts_backfill_progress);
+    expected BIGINT := (SELECT count(*) FROM accounts WHERE id > last);
+    actual BIGINT := (SELECT count(*) FROM accounts_partitioned WHERE id > last);
+BEGIN
+    IF expected <> actual THEN
+        RAISE EXCEPTION 'accounts_partitioned has % rows with id > %, accounts has %', actual, last, expected;
+    END IF;
+END;
+$$;
+
+-- Последовательность принадлежит столбцу старой таблицы и удалилась бы вместе с ней.
+ALTER SEQUENCE accounts_id_seq OWNED BY accounts_partitioned.id;
+DROP TABLE accounts;
+DROP PROCEDURE accounts_partitioned_backfill(INT);
+DROP FUNCTION accounts_mirror_to_partitioned();
+DROP TABLE accounts_backfill_progress;
+
+ALTER TABLE accounts_partitioned RENAME TO accounts;
+ALTER INDEX accounts_partitioned_pkey RENAME TO accounts_pkey;
+ALTER INDEX idx_accounts_partitioned_user_id RENAME TO idx_accounts_user_id;
+ALTER TABLE accounts RENAME CONSTRAINT accounts_partitioned_user_id_fkey TO accounts_user_id_fkey;
+
+-- Триггеры агрегатов (V6, V7) переходят на новую таблицу; их функции обращаются к accounts по имени.
+CREATE TRIGGER accounts_user_balance_summary_insert
+    AFTER INSERT ON accounts
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_insert();
+
+CREATE TRIGGER accounts_user_balance_summary_update
+    AFTER UPDATE ON accounts
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_change();
+
+CREATE TRIGGER accounts_user_balance_summary_delete
+    AFTER DELETE ON accounts
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_change();
@@ -0,0 +1,16 @@
+-- accounts секционирована по user_id (V9, V10), и поиск владельцев по id счёта в lock_balance_aggregates(BIGINT[])
+-- проверяет индекс каждой секции. Приложение знает владельцев счетов (владелец счёта не меняется) и передаёт их
+-- сами; порядок блокировок тот же, что в V7: агрегаты пользователей, полосы, строки счетов.
+-- Функция с одним аргументом остаётся для узлов, запущенных до этой миграции.
+CREATE OR REPLACE FUNCTION lock_balance_aggregates(account_ids BIGINT[], user_ids BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    PERFORM 1 FROM user_balance_summary
+    WHERE user_id = ANY(user_ids)
+    ORDER BY user_id
+    FOR UPDATE;
+    PERFORM 1 FROM balance_total_stripes
+    WHERE stripe IN (SELECT balance_stripe(id) FROM unnest(account_ids) AS id)
+    ORDER BY stripe
+    FOR UPDATE;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,306 @@
+-- Первый шаг перехода агрегатов пользователя (V6) на полосы счетов (второй шаг - V13, третий - V14).
+-- С одной строкой на пользователя каждое изменение баланса блокировало её до конца транзакции, и операции с разными
+-- счетами одного пользователя шли по одной; в user_balance_stripes строка на пару (user_id, полоса), как общая сумма
+-- в V7, и операции ждут друг друга, только если счета попали в одну полосу.
+--
+-- Минимум и максимум не хранятся точно: когда менялся крайний баланс, V6 пересчитывала его по всем счетам
+-- пользователя. Вместо них хранится число счетов по диапазонам баланса (user_balance_buckets) и нижний непустой
+-- диапазон полосы (min_bucket, с индексом); изменение баланса меняет два счётчика, и только если баланс перешёл
+-- в другой диапазон.
+--
+-- Миграция только создаёт пустые таблицы и начинает вести в них агрегаты уже перенесённых пользователей, поэтому
+-- не блокирует запись. Остальных пользователей переносит процедура user_balance_stripes_backfill (CALL, порциями со
+-- своей фиксацией), оставшихся - V13 перед переключением. Порядок см. README.
+
+-- Границы диапазонов: 0.01, 0.02, 0.05, 0.1, ... 5e16 (NUMERIC(19,2) меньше 1e17). Диапазон b - [bounds[b], bounds[b+1]),
+-- диапазон 0 - балансы меньше 0.01. При изменении границ таблицы нужно пересчитать.
+CREATE OR REPLACE FUNCTION balance_bucket_bounds() RETURNS NUMERIC[] AS $$
+    SELECT '{0.01,0.02,0.05,0.1,0.2,0.5,1,2,5,10,20,50,100,200,500,1000,2000,5000,10000,20000,50000,100000,200000,500000,
+             1e6,2e6,5e6,1e7,2e7,5e7,1e8,2e8,5e8,1e9,2e9,5e9,1e10,2e10,5e10,1e11,2e11,5e11,1e12,2e12,5e12,
+             1e13,2e13,5e13,1e14,2e14,5e14,1e15,2e15,5e15,1e16,2e16,5e16}'::NUMERIC[]
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+CREATE OR REPLACE FUNCTION balance_bucket(balance NUMERIC) RETURNS INT AS $$
+    SELECT width_bucket(balance, balance_bucket_bounds())
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+-- Строка появляется с первым счётом пользователя в полосе и остаётся, когда счетов в ней не стало (min_bucket - NULL).
+CREATE TABLE user_balance_stripes (
+                                      user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+                                      stripe INT NOT NULL,
+                                      account_count INT NOT NULL,
+                                      total_balance NUMERIC NOT NULL,
+                                      min_bucket INT,
+                                      PRIMARY KEY (user_id, stripe)
+);
+
+-- "У всех счетов баланс больше X": ни у одной полосы пользователя min_bucket не меньше диапазона X.
+CREATE INDEX idx_user_balance_stripes_min_bucket ON user_balance_stripes (min_bucket, user_id);
+
+-- Строки диапазонов меняются под блокировкой строки своей полосы и отдельно не блокируются.
+CREATE TABLE user_balance_buckets (
+                                      user_id BIGINT NOT NULL,
+                                      stripe INT NOT NULL,
+                                      bucket INT NOT NULL,
+                                      account_count INT NOT NULL,
+                                      PRIMARY KEY (user_id, stripe, bucket),
+                                      FOREIGN KEY (user_id, stripe) REFERENCES user_balance_stripes ON DELETE CASCADE
+);
+
+-- Прибавляет изменения счетов к полосам и диапазонам. Элемент массивов - счёт: баланс до (NULL для нового счёта)
+-- и после (NULL для удалённого). Строки полос блокируются по возрастанию ключа; строки диапазонов меняются под
+-- блокировкой своей полосы. min_bucket пересчитывается по диапазонам полосы, только если какой-то диапазон
+-- стал пустым или перестал им быть.
+CREATE OR REPLACE FUNCTION add_to_user_balance_stripes(user_ids BIGINT[], account_ids BIGINT[],
+                                                       old_balances NUMERIC[], new_balances NUMERIC[])
+    RETURNS VOID AS $$
+DECLARE
+    crossed_users BIGINT[];
+    crossed_stripes INT[];
+BEGIN
+    IF array_position(old_balances, NULL) IS NOT NULL THEN
+        -- Новые счета: строки полосы может ещё не быть.
+        INSERT INTO user_balance_stripes AS s (user_id, stripe, account_count, total_balance)
+        SELECT user_id, balance_stripe(account_id), count(*), sum(new_balance)
+        FROM unnest(user_ids, account_ids, new_balances) AS c(user_id, account_id, new_balance)
+        GROUP BY 1, 2
+        ORDER BY 1, 2
+        ON CONFLICT (user_id, stripe) DO UPDATE SET
+            account_count = s.account_count + excluded.account_count,
+            total_balance = s.total_balance + excluded.total_balance;
+    ELSE
+        -- Изменения балансов заблокировали свои полосы заранее (lock_balance_aggregates); удаления блокируют здесь.
+        IF (SELECT count(*) FROM (SELECT DISTINCT u, balance_stripe(a) FROM unnest(user_ids, account_ids) AS k(u, a)) k) > 1 THEN
+            PERFORM 1 FROM user_balance_stripes
+            WHERE (user_id, stripe) IN (SELECT u, balance_stripe(a) FROM unnest(user_ids, account_ids) AS k(u, a))
+            ORDER BY user_id, stripe
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_stripes s SET
+            account_count = s.account_count + d.added,
+            total_balance = s.total_balance + d.delta
+        FROM (
+            SELECT user_id, balance_stripe(account_id) AS stripe,
+                   sum((new_balance IS NOT NULL)::INT - 1) AS added,
+                   sum(coalesce(new_balance, 0) - old_balance) AS delta
+            FROM unnest(user_ids, account_ids, old_balances, new_balances) AS c(user_id, account_id, old_balance, new_balance)
+            GROUP BY 1, 2
+        ) d
+        WHERE s.user_id = d.user_id AND s.stripe = d.stripe;
+    END IF;
+
+    WITH delta AS (
+        SELECT c.user_id, balance_stripe(c.account_id) AS stripe, b.bucket, sum(b.delta)::INT AS delta
+        FROM unnest(user_ids, account_ids, old_balances, new_balances) AS c(user_id, account_id, old_balance, new_balance)
+        CROSS JOIN LATERAL (VALUES (balance_bucket(c.old_balance), -1), (balance_bucket(c.new_balance), 1)) AS b(bucket, delta)
+        WHERE b.bucket IS NOT NULL
+        GROUP BY 1, 2, 3
+        HAVING sum(b.delta) <> 0
+    ), increased AS (
+        INSERT INTO user_balance_buckets AS b (user_id, stripe, bucket, account_count)
+        SELECT user_id, stripe, bucket, delta
+        FROM delta
+        WHERE delta > 0
+        ORDER BY 1, 2, 3
+        ON CONFLICT (user_id, stripe, bucket) DO UPDATE SET
+            account_count = b.account_count + excluded.account_count
+        RETURNING b.user_id, b.stripe, b.bucket, b.account_count
+    ), decreased AS (
+        UPDATE user_balance_buckets b SET account_count = b.account_count + d.delta
+        FROM delta d
+        WHERE d.delta < 0 AND b.user_id = d.user_id AND b.stripe = d.stripe AND b.bucket = d.bucket
+        RETURNING b.user_id, b.stripe, b.bucket, b.account_count
+    )
+    SELECT array_agg(k.user_id), array_agg(k.stripe) INTO crossed_users, crossed_stripes
+    FROM (
+        SELECT DISTINCT c.user_id, c.stripe
+        FROM (SELECT * FROM increased UNION ALL SELECT * FROM decreased) c
+        JOIN delta d ON d.user_id = c.user_id AND d.stripe = c.stripe AND d.bucket = c.bucket
+        WHERE c.account_count = 0 OR c.account_count = d.delta
+    ) k;
+
+    -- Отдельный оператор: он видит счётчики, изменённые предыдущим.
+    IF crossed_users IS NOT NULL THEN
+        UPDATE user_balance_stripes s SET min_bucket = m.bucket
+        FROM (
+            SELECT k.user_id, k.stripe,
+                   (SELECT b.bucket FROM user_balance_buckets b
+                    WHERE b.user_id = k.user_id AND b.stripe = k.stripe AND b.account_count > 0
+                    ORDER BY b.bucket
+                    LIMIT 1) AS bucket
+            FROM unnest(crossed_users, crossed_stripes) AS k(user_id, stripe)
+        ) m
+        WHERE s.user_id = m.user_id AND s.stripe = m.stripe AND s.min_bucket IS DISTINCT FROM m.bucket;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Граница перенесённых пользователей: агрегаты всех пользователей с user_id <= last_user_id уже в новых таблицах.
+CREATE TABLE user_balance_stripes_backfill_progress (
+    last_user_id BIGINT NOT NULL
+);
+INSERT INTO user_balance_stripes_backfill_progress (last_user_id) VALUES (0);
+
+-- Пересчитывает по счетам агрегаты пользователей из (from_user_id, to_user_id]. Вызывается под исключительной
+-- рекомендательной блокировкой переноса, пока агрегаты этих пользователей никто не ведёт.
+CREATE OR REPLACE FUNCTION user_balance_stripes_fill(from_user_id BIGINT, to_user_id BIGINT) RETURNS VOID AS $$
+BEGIN
+    INSERT INTO user_balance_stripes (user_id, stripe, account_count, total_balance, min_bucket)
+    SELECT user_id, balance_stripe(id), count(*), sum(balance), min(balance_bucket(balance))
+    FROM accounts
+    WHERE user_id > from_user_id AND user_id <= to_user_id
+    GROUP BY 1, 2;
+
+    INSERT INTO user_balance_buckets (user_id, stripe, bucket, account_count)
+    SELECT user_id, balance_stripe(id), balance_bucket(balance), count(*)
+    FROM accounts
+    WHERE user_id > from_user_id AND user_id <= to_user_id
+    GROUP BY 1, 2, 3;
+END;
+$$ LANGUAGE plpgsql;
+
+-- До какого user_id триггеры ведут новые агрегаты. Оператор, затронувший ещё не перенесённого пользователя, берёт
+-- разделяемую рекомендательную блокировку до конца транзакции: порция переноса (исключительная блокировка) ждёт
+-- такие транзакции и видит их изменения. Граница перечитывается под блокировкой: если порция зафиксировалась раньше,
+-- изменения оператора она не видела, и оператор прибавляет их сам.
+CREATE OR REPLACE FUNCTION user_balance_stripes_backfilled_up_to(max_user_id BIGINT) RETURNS BIGINT AS $$
+DECLARE
+    last BIGINT := (SELECT last_user_id FROM user_balance_stripes_backfill_progress);
+BEGIN
+    IF max_user_id > last THEN
+        PERFORM pg_advisory_xact_lock_shared('user_balance_stripes_backfill_progress'::regclass::oid::BIGINT);
+        last := (SELECT last_user_id FROM user_balance_stripes_backfill_progress);
+    END IF;
+    RETURN last;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Переносит пользователей порциями по возрастанию user_id, фиксируя каждую порцию: операции с ещё не перенесёнными
+-- пользователями ждут только текущую порцию, остальные её не ждут, а прерванный перенос продолжается с места остановки.
+-- Вызывается вне транзакции: CALL user_balance_stripes_backfill(10000);
+CREATE OR REPLACE PROCEDURE user_balance_stripes_backfill(batch_size INT DEFAULT 10000) AS $$
+DECLARE
+    from_id BIGINT;
+    to_id BIGINT;
+    moved BIGINT;
+    users BIGINT := 0;
+BEGIN
+    LOOP
+        PERFORM pg_advisory_xact_lock('user_balance_stripes_backfill_progress'::regclass::oid::BIGINT);
+        SELECT last_user_id INTO from_id FROM user_balance_stripes_backfill_progress;
+        SELECT max(user_id), count(*) INTO to_id, moved
+        FROM (SELECT user_id FROM user_balance_summary WHERE user_id > from_id ORDER BY user_id LIMIT batch_size) b;
+        EXIT WHEN to_id IS NULL;
+        PERFORM user_balance_stripes_fill(from_id, to_id);
+        UPDATE user_balance_stripes_backfill_progress SET last_user_id = to_id;
+        users := users + moved;
+        COMMIT;
+    END LOOP;
+    RAISE NOTICE 'user_balance_stripes_backfill: moved % users', users;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггерные функции V7 дополнены ведением новых агрегатов перенесённых пользователей - после старых агрегатов:
+-- до V13 все изменения пользователя идут под блокировкой его строки user_balance_summary, как раньше.
+CREATE OR REPLACE FUNCTION user_balance_summary_after_insert() RETURNS TRIGGER AS $$
+DECLARE
+    backfilled BIGINT;
+BEGIN
+    INSERT INTO user_balance_summary AS s (user_id, account_count, total_balance, min_balance, max_balance)
+    SELECT user_id, count(*), sum(balance), min(balance), max(balance)
+    FROM new_rows
+    GROUP BY user_id
+    ORDER BY user_id
+    ON CONFLICT (user_id) DO UPDATE SET
+        account_count = s.account_count + excluded.account_count,
+        total_balance = s.total_balance + excluded.total_balance,
+        min_balance = least(s.min_balance, excluded.min_balance),
+        max_balance = greatest(s.max_balance, excluded.max_balance);
+
+    PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(balance))
+    FROM new_rows
+    WHERE balance <> 0
+    HAVING count(*) > 0;
+
+    backfilled := user_balance_stripes_backfilled_up_to((SELECT max(user_id) FROM new_rows));
+    PERFORM add_to_user_balance_stripes(array_agg(user_id), array_agg(id), array_agg(NULL::NUMERIC), array_agg(balance))
+    FROM new_rows
+    WHERE user_id <= backfilled
+    HAVING count(*) > 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION user_balance_summary_after_change() RETURNS TRIGGER AS $$
+DECLARE
+    backfilled BIGINT;
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (SELECT count(DISTINCT user_id) FROM new_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM new_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            total_balance = s.total_balance + d.delta,
+            min_balance = CASE WHEN d.old_min > s.min_balance THEN least(s.min_balance, d.new_min)
+                               ELSE (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END,
+            max_balance = CASE WHEN d.old_max < s.max_balance THEN greatest(s.max_balance, d.new_max)
+                               ELSE (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END
+        FROM (
+            SELECT n.user_id, sum(n.balance - o.balance) AS delta,
+                   min(o.balance) AS old_min, max(o.balance) AS old_max,
+                   min(n.balance) AS new_min, max(n.balance) AS new_max
+            FROM new_rows n
+            JOIN old_rows o ON o.id = n.id
+            WHERE n.balance <> o.balance
+            GROUP BY n.user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(n.id)), array_agg(n.balance - o.balance))
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE n.balance <> o.balance
+        HAVING count(*) > 0;
+
+        backfilled := user_balance_stripes_backfilled_up_to((SELECT max(user_id) FROM new_rows));
+        PERFORM add_to_user_balance_stripes(array_agg(n.user_id), array_agg(n.id), array_agg(o.balance), array_agg(n.balance))
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE n.balance <> o.balance AND n.user_id <= backfilled
+        HAVING count(*) > 0;
+    ELSE
+        IF (SELECT count(DISTINCT user_id) FROM old_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM old_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            account_count = s.account_count - d.removed,
+            total_balance = s.total_balance - d.total,
+            min_balance = (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id),
+            max_balance = (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id)
+        FROM (
+            SELECT user_id, count(*) AS removed, sum(balance) AS total
+            FROM old_rows
+            GROUP BY user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(-balance))
+        FROM old_rows
+        WHERE balance <> 0
+        HAVING count(*) > 0;
+
+        backfilled := user_balance_stripes_backfilled_up_to((SELECT max(user_id) FROM old_rows));
+        PERFORM add_to_user_balance_stripes(array_agg(user_id), array_agg(id), array_agg(balance), array_agg(NULL::NUMERIC))
+        FROM old_rows
+        WHERE user_id <= backfilled
+        HAVING count(*) > 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,103 @@
+-- Второй шаг перехода на полосы агрегатов пользователя (первый - V12): сверяет перенесённых пользователей, переносит
+-- остаток и переключает триггеры и lock_balance_aggregates на новые таблицы.
+--
+-- Таблицы не блокируются: операции с уже перенесёнными пользователями идут, операции с остальными ждут конца
+-- миграции на рекомендательной блокировке переноса (как порцию процедуры). Блокировки таблиц здесь приводили бы
+-- к взаимной блокировке с операциями, которые держат строки и ждут рекомендательную блокировку.
+
+-- 1. Сверка перенесённых пользователей в одном снимке: V12 ведёт старые и новые агрегаты в одной транзакции.
+DO $$
+DECLARE
+    mismatched BIGINT;
+BEGIN
+    SELECT count(*) INTO mismatched
+    FROM user_balance_summary s
+    LEFT JOIN (
+        SELECT user_id, sum(account_count) AS account_count, sum(total_balance) AS total_balance,
+               min(min_bucket) AS min_bucket
+        FROM user_balance_stripes
+        GROUP BY user_id
+    ) n ON n.user_id = s.user_id
+    WHERE s.user_id <= (SELECT last_user_id FROM user_balance_stripes_backfill_progress)
+      AND (coalesce(n.account_count, 0) <> s.account_count
+           OR coalesce(n.total_balance, 0) <> s.total_balance
+           OR n.min_bucket IS DISTINCT FROM balance_bucket(s.min_balance));
+    IF mismatched > 0 THEN
+        RAISE EXCEPTION 'user_balance_stripes differs from user_balance_summary for % users', mismatched;
+    END IF;
+END;
+$$;
+
+-- 2. Остаток переноса: после смены границы триггеры ведут новые агрегаты всех пользователей.
+SELECT pg_advisory_xact_lock('user_balance_stripes_backfill_progress'::regclass::oid::BIGINT);
+
+SELECT user_balance_stripes_fill(last_user_id, 9223372036854775807)
+FROM user_balance_stripes_backfill_progress;
+
+UPDATE user_balance_stripes_backfill_progress SET last_user_id = 9223372036854775807;
+
+-- 3. Порядок блокировок тот же, что в V7: агрегаты пользователей (теперь по (user_id, полоса)), полосы общей
+-- суммы, строки счетов.
+CREATE OR REPLACE FUNCTION lock_balance_aggregates(account_ids BIGINT[], user_ids BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    PERFORM 1 FROM user_balance_stripes
+    WHERE (user_id, stripe) IN (SELECT u, balance_stripe(a) FROM unnest(account_ids, user_ids) AS k(a, u))
+    ORDER BY user_id, stripe
+    FOR UPDATE;
+    PERFORM 1 FROM balance_total_stripes
+    WHERE stripe IN (SELECT balance_stripe(id) FROM unnest(account_ids) AS id)
+    ORDER BY stripe
+    FOR UPDATE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION lock_balance_aggregates(account_ids BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    PERFORM lock_balance_aggregates(array_agg(id), array_agg(user_id))
+    FROM accounts
+    WHERE id = ANY(account_ids);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггерные функции только на новых агрегатах: без чтения счетов пользователя.
+CREATE OR REPLACE FUNCTION user_balance_summary_after_insert() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM add_to_user_balance_stripes(array_agg(user_id), array_agg(id), array_agg(NULL::NUMERIC), array_agg(balance))
+    FROM new_rows
+    HAVING count(*) > 0;
+
+    PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(balance))
+    FROM new_rows
+    WHERE balance <> 0
+    HAVING count(*) > 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION user_balance_summary_after_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        PERFORM add_to_user_balance_stripes(array_agg(n.user_id), array_agg(n.id), array_agg(o.balance), array_agg(n.balance))
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE n.balance <> o.balance
+        HAVING count(*) > 0;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(n.id)), array_agg(n.balance - o.balance))
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE n.balance <> o.balance
+        HAVING count(*) > 0;
+    ELSE
+        PERFORM add_to_user_balance_stripes(array_agg(user_id), array_agg(id), array_agg(balance), array_agg(NULL::NUMERIC))
+        FROM old_rows
+        HAVING count(*) > 0;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(-balance))
+        FROM old_rows
+        WHERE balance <> 0
+        HAVING count(*) > 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,10 @@
+-- Третий шаг перехода на полосы агрегатов пользователя: после V13 старые агрегаты и объекты переноса не используются.
+-- Удаление таблиц ждёт транзакции, начатые до V13, не дольше 5 с: иначе миграция завершается ошибкой, и запуск
+-- можно повторить.
+SET LOCAL lock_timeout = '5s';
+
+DROP PROCEDURE user_balance_stripes_backfill(INT);
+DROP FUNCTION user_balance_stripes_backfilled_up_to(BIGINT);
+DROP FUNCTION user_balance_stripes_fill(BIGINT, BIGINT);
+DROP TABLE user_balance_stripes_backfill_progress;
+DROP TABLE user_balance_summary;
@@ -0,0 +1,32 @@
+-- Журнал операций по счетам: только вставки, секционирован по месяцам (UTC).
+-- Внешний ключ на accounts не объявлен намеренно: история должна переживать удаление счёта.
+CREATE TABLE account_transactions (
+                                      id BIGSERIAL,
+                                      account_id BIGINT NOT NULL,
+                                      type VARCHAR(16) NOT NULL,
+                                      amount NUMERIC(19,2) NOT NULL,
+                                      balance_after NUMERIC(19,2) NOT NULL,
+                                      counterparty_account_id BIGINT,
+                                      created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                      PRIMARY KEY (created_at, id),
+                                      CONSTRAINT amount_positive CHECK (amount > 0)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX IF NOT EXISTS idx_account_transactions_account
+    ON account_transactions (account_id, created_at DESC, id DESC);
+
+-- Создаёт месячную секцию, если её ещё нет. Вызывается миграцией и периодически приложением.
+CREATE OR REPLACE FUNCTION create_account_transactions_partition(month_start DATE) RETURNS VOID AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+BEGIN
+    EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF account_transactions FOR VALUES FROM (%L) TO (%L)',
+            'account_transactions_' || to_char(first_day, 'YYYYMM'),
+            first_day::TIMESTAMP AT TIME ZONE 'UTC',
+            (first_day + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_account_transactions_partition(((now() AT TIME ZONE 'UTC') + make_interval(months => m))::DATE)
+FROM generate_series(0, 2) AS m;
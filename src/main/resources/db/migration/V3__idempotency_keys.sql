@@ -0,0 +1,10 @@
+-- Ключи идемпотентности операций со счетами. Строка вставляется в той же транзакции,
+-- что и изменение баланса, поэтому ключ и результат операции фиксируются или откатываются вместе.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(128) PRIMARY KEY,
+    fingerprint     TEXT NOT NULL,
+    response        TEXT,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,4 @@
+-- Блоки номеров счетов. Каждый nextval резервирует за узлом диапазон
+-- [значение, значение + increment_by); номера внутри диапазона узел выдаёт из памяти.
+-- Шаг можно только увеличивать: при уменьшении новый блок пересечётся с уже выданным.
+CREATE SEQUENCE account_number_blocks START WITH 1 INCREMENT BY 1000;
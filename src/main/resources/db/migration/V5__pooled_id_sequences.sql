@@ -0,0 +1,10 @@
+-- Идентификаторы пользователей и счетов выдаёт Hibernate блоками по 50 из последовательностей
+-- (оптимизатор pooled-lo: значение nextval - первый id блока), что позволяет пакетные INSERT.
+-- Существующие id сохраняются: следующий блок начинается после максимального id.
+-- DEFAULT nextval у столбцов остаётся для вставок в обход Hibernate; каждая такая вставка
+-- расходует целый блок, но не пересекается с блоками приложения.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+SELECT setval('users_id_seq', COALESCE((SELECT max(id) FROM users), 0) + 1, false);
+
+ALTER SEQUENCE accounts_id_seq INCREMENT BY 50;
+SELECT setval('accounts_id_seq', COALESCE((SELECT max(id) FROM accounts), 0) + 1, false);
@@ -0,0 +1,104 @@
+-- Агрегаты балансов по пользователю для отчётов: число счетов, сумма, минимум и максимум.
+-- Поддерживаются триггерами на accounts в той же транзакции, что и изменение счёта.
+-- Строка появляется с первым счётом пользователя; min/max равны NULL, если счетов не осталось.
+CREATE TABLE user_balance_summary (
+                                      user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+                                      account_count INT NOT NULL,
+                                      total_balance NUMERIC NOT NULL,
+                                      min_balance NUMERIC(19,2),
+                                      max_balance NUMERIC(19,2)
+);
+
+-- "У всех счетов баланс больше X" равносильно min_balance > X.
+CREATE INDEX IF NOT EXISTS idx_user_balance_summary_min_balance ON user_balance_summary (min_balance);
+
+INSERT INTO user_balance_summary (user_id, account_count, total_balance, min_balance, max_balance)
+SELECT user_id, count(*), sum(balance), min(balance), max(balance)
+FROM accounts
+GROUP BY user_id;
+
+-- Триггеры срабатывают один раз на оператор и получают все изменённые строки в таблицах переходов,
+-- поэтому пакетная вставка или загрузка обновляет каждого пользователя одним изменением.
+-- Строки агрегатов блокируются по возрастанию user_id: операторы, затрагивающие нескольких
+-- пользователей, не могут взаимно заблокироваться.
+CREATE OR REPLACE FUNCTION user_balance_summary_after_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO user_balance_summary AS s (user_id, account_count, total_balance, min_balance, max_balance)
+    SELECT user_id, count(*), sum(balance), min(balance), max(balance)
+    FROM new_rows
+    GROUP BY user_id
+    ORDER BY user_id
+    ON CONFLICT (user_id) DO UPDATE SET
+        account_count = s.account_count + excluded.account_count,
+        total_balance = s.total_balance + excluded.total_balance,
+        min_balance = least(s.min_balance, excluded.min_balance),
+        max_balance = greatest(s.max_balance, excluded.max_balance);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Сумма и число счетов меняются на разность, минимум и максимум - без чтения счетов, пока старое
+-- значение не было крайним. Иначе крайнее значение пересчитывается по счетам пользователя (idx_accounts_user_id).
+-- Счёт не переходит к другому пользователю, поэтому изменение user_id не отслеживается.
+CREATE OR REPLACE FUNCTION user_balance_summary_after_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (SELECT count(DISTINCT user_id) FROM new_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM new_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            total_balance = s.total_balance + d.delta,
+            min_balance = CASE WHEN d.old_min > s.min_balance THEN least(s.min_balance, d.new_min)
+                               ELSE (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END,
+            max_balance = CASE WHEN d.old_max < s.max_balance THEN greatest(s.max_balance, d.new_max)
+                               ELSE (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END
+        FROM (
+            SELECT n.user_id, sum(n.balance - o.balance) AS delta,
+                   min(o.balance) AS old_min, max(o.balance) AS old_max,
+                   min(n.balance) AS new_min, max(n.balance) AS new_max
+            FROM new_rows n
+            JOIN old_rows o ON o.id = n.id
+            WHERE n.balance <> o.balance
+            GROUP BY n.user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+    ELSE
+        IF (SELECT count(DISTINCT user_id) FROM old_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM old_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            account_count = s.account_count - d.removed,
+            total_balance = s.total_balance - d.total,
+            min_balance = (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id),
+            max_balance = (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id)
+        FROM (
+            SELECT user_id, count(*) AS removed, sum(balance) AS total
+            FROM old_rows
+            GROUP BY user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER accounts_user_balance_summary_insert
+    AFTER INSERT ON accounts
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_insert();
+
+CREATE TRIGGER accounts_user_balance_summary_update
+    AFTER UPDATE ON accounts
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_change();
+
+CREATE TRIGGER accounts_user_balance_summary_delete
+    AFTER DELETE ON accounts
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION user_balance_summary_after_change();
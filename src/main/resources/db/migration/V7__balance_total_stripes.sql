@@ -0,0 +1,135 @@
+-- Сумма всех балансов, разложенная на полосы: изменение баланса прибавляет разность к полосе своего счёта.
+-- Одна строка с общей суммой блокировалась бы каждой операцией до конца транзакции; с полосами
+-- параллельные операции ждут друг друга, только если их счета попали в одну полосу.
+CREATE TABLE balance_total_stripes (
+                                       stripe INT PRIMARY KEY,
+                                       total NUMERIC NOT NULL
+);
+
+-- Полоса счёта. Число полос задано только здесь; при его изменении таблицу нужно пересчитать.
+CREATE OR REPLACE FUNCTION balance_stripe(account_id BIGINT) RETURNS INT AS $$
+    SELECT (account_id % 64)::INT
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+INSERT INTO balance_total_stripes (stripe, total)
+SELECT s.stripe, coalesce(a.total, 0)
+FROM generate_series(0, 63) AS s(stripe)
+LEFT JOIN (SELECT balance_stripe(id) AS stripe, sum(balance) AS total FROM accounts GROUP BY 1) a ON a.stripe = s.stripe;
+
+-- Порядок блокировок при изменении балансов существующих счетов: агрегаты пользователей по возрастанию
+-- user_id, затем полосы по возрастанию номера, затем строки счетов. Функция берёт первые два вида
+-- блокировок; её вызывают до UPDATE счетов - в том же операторе или в начале транзакции, меняющей
+-- несколько счетов разными операторами (переводы, пакеты).
+CREATE OR REPLACE FUNCTION lock_balance_aggregates(account_ids BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    PERFORM 1 FROM user_balance_summary
+    WHERE user_id IN (SELECT user_id FROM accounts WHERE id = ANY(account_ids))
+    ORDER BY user_id
+    FOR UPDATE;
+    PERFORM 1 FROM balance_total_stripes
+    WHERE stripe IN (SELECT balance_stripe(id) FROM unnest(account_ids) AS id)
+    ORDER BY stripe
+    FOR UPDATE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Прибавляет разности к полосам; строки полос блокируются по возрастанию номера.
+CREATE OR REPLACE FUNCTION add_to_balance_stripes(stripes INT[], deltas NUMERIC[]) RETURNS VOID AS $$
+BEGIN
+    IF cardinality(stripes) > 1 THEN
+        PERFORM 1 FROM balance_total_stripes
+        WHERE stripe = ANY(stripes)
+        ORDER BY stripe
+        FOR UPDATE;
+    END IF;
+    UPDATE balance_total_stripes t SET total = t.total + d.delta
+    FROM (
+        SELECT stripe, sum(delta) AS delta
+        FROM unnest(stripes, deltas) AS c(stripe, delta)
+        GROUP BY stripe
+    ) d
+    WHERE t.stripe = d.stripe AND d.delta <> 0;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггерные функции из V6 дополнены обновлением полос - после агрегатов пользователей, в том же порядке
+-- блокировок. Новые счета с нулевым балансом полосы не трогают.
+CREATE OR REPLACE FUNCTION user_balance_summary_after_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO user_balance_summary AS s (user_id, account_count, total_balance, min_balance, max_balance)
+    SELECT user_id, count(*), sum(balance), min(balance), max(balance)
+    FROM new_rows
+    GROUP BY user_id
+    ORDER BY user_id
+    ON CONFLICT (user_id) DO UPDATE SET
+        account_count = s.account_count + excluded.account_count,
+        total_balance = s.total_balance + excluded.total_balance,
+        min_balance = least(s.min_balance, excluded.min_balance),
+        max_balance = greatest(s.max_balance, excluded.max_balance);
+
+    PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(balance))
+    FROM new_rows
+    WHERE balance <> 0
+    HAVING count(*) > 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION user_balance_summary_after_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (SELECT count(DISTINCT user_id) FROM new_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM new_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            total_balance = s.total_balance + d.delta,
+            min_balance = CASE WHEN d.old_min > s.min_balance THEN least(s.min_balance, d.new_min)
+                               ELSE (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END,
+            max_balance = CASE WHEN d.old_max < s.max_balance THEN greatest(s.max_balance, d.new_max)
+                               ELSE (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id) END
+        FROM (
+            SELECT n.user_id, sum(n.balance - o.balance) AS delta,
+                   min(o.balance) AS old_min, max(o.balance) AS old_max,
+                   min(n.balance) AS new_min, max(n.balance) AS new_max
+            FROM new_rows n
+            JOIN old_rows o ON o.id = n.id
+            WHERE n.balance <> o.balance
+            GROUP BY n.user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(n.id)), array_agg(n.balance - o.balance))
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE n.balance <> o.balance
+        HAVING count(*) > 0;
+    ELSE
+        IF (SELECT count(DISTINCT user_id) FROM old_rows) > 1 THEN
+            PERFORM 1 FROM user_balance_summary
+            WHERE user_id IN (SELECT user_id FROM old_rows)
+            ORDER BY user_id
+            FOR UPDATE;
+        END IF;
+        UPDATE user_balance_summary s SET
+            account_count = s.account_count - d.removed,
+            total_balance = s.total_balance - d.total,
+            min_balance = (SELECT min(a.balance) FROM accounts a WHERE a.user_id = s.user_id),
+            max_balance = (SELECT max(a.balance) FROM accounts a WHERE a.user_id = s.user_id)
+        FROM (
+            SELECT user_id, count(*) AS removed, sum(balance) AS total
+            FROM old_rows
+            GROUP BY user_id
+        ) d
+        WHERE s.user_id = d.user_id;
+
+        PERFORM add_to_balance_stripes(array_agg(balance_stripe(id)), array_agg(-balance))
+        FROM old_rows
+        WHERE balance <> 0
+        HAVING count(*) > 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
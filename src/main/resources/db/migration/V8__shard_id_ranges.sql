@@ -0,0 +1,13 @@
+-- Номер шарда в старших битах id пользователей и счетов: id >> 48 = номер шарда. Последовательности шарда N
+-- начинаются с N << 48, поэтому id уникальны во всей системе и шард находится по id.
+-- Номер шарда передаётся плейсхолдером ${shard}; без шардирования он равен 0 и последовательности не меняются.
+SELECT setval('users_id_seq', (${shard}::BIGINT << 48) + 1, false)
+WHERE (SELECT last_value FROM users_id_seq) < ${shard}::BIGINT << 48;
+
+SELECT setval('accounts_id_seq', (${shard}::BIGINT << 48) + 1, false)
+WHERE (SELECT last_value FROM accounts_id_seq) < ${shard}::BIGINT << 48;
+
+-- Строка, записанная не на свой шард (ошибка маршрутизации), отклоняется базой. NOT VALID: существующие строки
+-- не перепроверяются - до этой миграции на базе были только id шарда 0.
+ALTER TABLE users ADD CONSTRAINT users_id_shard CHECK (id >> 48 = ${shard}) NOT VALID;
+ALTER TABLE accounts ADD CONSTRAINT accounts_id_shard CHECK (id >> 48 = ${shard}) NOT VALID;
@@ -0,0 +1,135 @@
+-- Первый шаг перехода accounts на хеш-секционирование по user_id (второй шаг - V10).
+-- Все счета пользователя лежат в одной секции: чтение счетов пользователя обращается к одной секции,
+-- а агрегаты по пользователям можно считать по секциям независимо. Число секций задано только здесь.
+--
+-- Миграция только создаёт пустую секционированную таблицу и начинает зеркалировать в неё изменения accounts,
+-- поэтому не блокирует запись надолго. Существующие строки переносит процедура accounts_partitioned_backfill
+-- (CALL, порциями со своей фиксацией), оставшиеся - V10 перед заменой таблицы. Порядок см. README.
+CREATE TABLE accounts_partitioned (
+                                      id BIGINT NOT NULL DEFAULT nextval('accounts_id_seq'),
+                                      number VARCHAR(34) NOT NULL,
+                                      balance NUMERIC(19,2) NOT NULL DEFAULT 0,
+                                      user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+                                      version BIGINT NOT NULL DEFAULT 0,
+                                      CONSTRAINT balance_non_negative CHECK (balance >= 0),
+                                      CONSTRAINT accounts_id_shard CHECK (id >> 48 = ${shard}),
+                                      -- Первичный и уникальные ключи секционированной таблицы обязаны включать ключ секционирования.
+                                      -- id уникален и без user_id: его выдаёт одна последовательность.
+                                      PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+DO $$
+BEGIN
+    FOR r IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF accounts_partitioned FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       'accounts_p' || lpad(r::TEXT, 2, '0'), r);
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX idx_accounts_partitioned_user_id ON accounts_partitioned (user_id);
+
+-- Уникальность номера во всех секциях: уникальный индекс секционированной таблицы по одному number невозможен,
+-- поэтому номера хранятся в отдельной таблице, которую ведут триггеры accounts_partitioned.
+CREATE TABLE account_numbers (
+    number VARCHAR(34) PRIMARY KEY
+);
+
+CREATE OR REPLACE FUNCTION account_numbers_after_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO account_numbers (number) SELECT number FROM new_rows;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION account_numbers_after_delete() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM account_numbers WHERE number IN (SELECT number FROM old_rows);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION account_numbers_after_renumber() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM account_numbers WHERE number = OLD.number;
+    INSERT INTO account_numbers (number) VALUES (NEW.number);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER accounts_account_numbers_insert
+    AFTER INSERT ON accounts_partitioned
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION account_numbers_after_insert();
+
+CREATE TRIGGER accounts_account_numbers_delete
+    AFTER DELETE ON accounts_partitioned
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION account_numbers_after_delete();
+
+-- Номер счёта не меняется; триггер лишь не даёт таблице номеров разойтись со счетами при ручной правке.
+CREATE TRIGGER accounts_account_numbers_renumber
+    AFTER UPDATE ON accounts_partitioned
+    FOR EACH ROW WHEN (OLD.number IS DISTINCT FROM NEW.number)
+    EXECUTE FUNCTION account_numbers_after_renumber();
+
+-- Зеркало изменений accounts. Вставка и изменение - upsert последней версии строки: строка, ещё не перенесённая
+-- процедурой, появляется сразу, а процедура её потом пропускает (ON CONFLICT DO NOTHING).
+CREATE OR REPLACE FUNCTION accounts_mirror_to_partitioned() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM accounts_partitioned WHERE id = OLD.id AND user_id = OLD.user_id;
+    ELSE
+        INSERT INTO accounts_partitioned (id, number, balance, user_id, version)
+        VALUES (NEW.id, NEW.number, NEW.balance, NEW.user_id, NEW.version)
+        ON CONFLICT (id, user_id) DO UPDATE SET
+            number = excluded.number,
+            balance = excluded.balance,
+            version = excluded.version;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER accounts_mirror
+    AFTER INSERT OR UPDATE OR DELETE ON accounts
+    FOR EACH ROW EXECUTE FUNCTION accounts_mirror_to_partitioned();
+
+-- Граница перенесённых строк: все счета с id <= last_id уже есть в accounts_partitioned.
+CREATE TABLE accounts_backfill_progress (
+    last_id BIGINT NOT NULL
+);
+INSERT INTO accounts_backfill_progress (last_id) VALUES (0);
+
+-- Переносит счета порциями по возрастанию id, фиксируя каждую порцию: блокировки короткие, и прерванный перенос
+-- продолжается с места остановки. Вызывается вне транзакции: CALL accounts_partitioned_backfill(10000);
+-- FOR KEY SHARE не даёт удалить переносимую строку до фиксации порции (иначе зеркало удалило бы ещё не
+-- перенесённую строку, а порция вернула бы её), но не мешает изменять балансы.
+CREATE OR REPLACE PROCEDURE accounts_partitioned_backfill(batch_size INT DEFAULT 10000) AS $$
+DECLARE
+    from_id BIGINT;
+    to_id BIGINT;
+    copied BIGINT := 0;
+    moved BIGINT;
+BEGIN
+    LOOP
+        SELECT last_id INTO from_id FROM accounts_backfill_progress FOR UPDATE;
+        SELECT max(id) INTO to_id FROM (SELECT id FROM accounts WHERE id > from_id ORDER BY id LIMIT batch_size) b;
+        EXIT WHEN to_id IS NULL;
+        WITH source AS (
+            SELECT id, number, balance, user_id, version
+            FROM accounts
+            WHERE id > from_id AND id <= to_id
+            FOR KEY SHARE
+        )
+        INSERT INTO accounts_partitioned (id, number, balance, user_id, version)
+        SELECT id, number, balance, user_id, version FROM source
+        ON CONFLICT (id, user_id) DO NOTHING;
+        GET DIAGNOSTICS moved = ROW_COUNT;
+        copied := copied + moved;
+        UPDATE accounts_backfill_progress SET last_id = to_id;
+        COMMIT;
+    END LOOP;
+    RAISE NOTICE 'accounts_partitioned_backfill: copied % rows', copied;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,76 @@
+package ab.task.banking_system.config;
+
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.model.User;
+import ab.task.banking_system.repository.BulkInsertRepository;
+import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.service.AuditLog;
+import ab.task.banking_system.service.EmailFilter;
+import ab.task.banking_system.service.InsufficientFundsException;
+import ab.task.banking_system.service.UserService;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.*;
+
+class ServiceMetricsAspectTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    UserRepository userRepository = mock(UserRepository.class);
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new UserService(userRepository,
+                mock(UserStreamRepository.class), mock(EmailFilter.class), mock(BulkInsertRepository.class),
+                new BatchProperties(1000, 500000, 100000), mock(AuditLog.class),
+                new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class))));
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        userService = factory.getProxy();
+    }
+
+    @Test
+    void success_recordsTimerAndSuccessOutcome() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User()));
+
+        userService.getById(1L);
+
+        assertEquals(1, meterRegistry.get(ServiceMetricsAspect.TIMER)
+                .tag("service", "UserService").tag("method", "getById").timer().count());
+        assertEquals(1.0, meterRegistry.get(ServiceMetricsAspect.OUTCOMES)
+                .tag("method", "getById").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void rejection_recordsOutcomeFromStatus() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> userService.getById(2L));
+
+        assertEquals(1.0, meterRegistry.get(ServiceMetricsAspect.OUTCOMES)
+                .tag("method", "getById").tag("outcome", "not_found").counter().count());
+        assertEquals(1, meterRegistry.get(ServiceMetricsAspect.TIMER).tag("method", "getById").timer().count());
+    }
+
+    @Test
+    void outcomeOf_mapsStatuses() {
+        assertEquals("insufficient_funds", ServiceMetricsAspect.outcomeOf(new InsufficientFundsException()));
+        // Причина с тем же текстом не делает конфликт нехваткой средств: итог определяется по типу.
+        assertEquals("conflict", ServiceMetricsAspect.outcomeOf(new ResponseStatusException(CONFLICT, "Insufficient funds")));
+        assertEquals("conflict", ServiceMetricsAspect.outcomeOf(new ResponseStatusException(CONFLICT, "Email already exists")));
+        assertEquals("invalid", ServiceMetricsAspect.outcomeOf(new ResponseStatusException(BAD_REQUEST)));
+        assertEquals("error", ServiceMetricsAspect.outcomeOf(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,181 @@
+package ab.task.banking_system.grpc;
+
+import ab.task.banking_system.grpc.v1.AccountOperationsGrpc;
+import ab.task.banking_system.grpc.v1.AmountRequest;
+import ab.task.banking_system.grpc.v1.BalanceReply;
+import ab.task.banking_system.grpc.v1.CreateAccountRequest;
+import ab.task.banking_system.grpc.v1.GetBalanceRequest;
+import ab.task.banking_system.grpc.v1.OperationReply;
+import ab.task.banking_system.grpc.v1.OperationRequest;
+import ab.task.banking_system.grpc.v1.OperationStatus;
+import ab.task.banking_system.grpc.v1.OperationType;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.service.AccountService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.*;
+
+class AccountGrpcServiceTest {
+
+    AccountService accountService = mock(AccountService.class);
+    Server server;
+    ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(new AccountGrpcService(accountService)).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void deposit_convertsMinorUnits_andPassesKeyAndVersion() {
+        when(accountService.deposit(7L, new BigDecimal("12.34"), "k-1", 3L))
+                .thenReturn(new AccountBalance(7L, new BigDecimal("112.34"), 4));
+
+        BalanceReply reply = AccountOperationsGrpc.newBlockingStub(channel).deposit(AmountRequest.newBuilder()
+                .setAccountId(7L).setAmountMinor(1234).setIdempotencyKey("k-1").setExpectedVersion(3L).build());
+
+        assertEquals(11234, reply.getBalanceMinor());
+        assertEquals(4, reply.getVersion());
+    }
+
+    @Test
+    void withdraw_withoutKeyAndVersion_passesNulls() {
+        when(accountService.withdraw(7L, new BigDecimal("0.50"), null, null))
+                .thenReturn(new AccountBalance(7L, new BigDecimal("9.50"), 2));
+
+        BalanceReply reply = AccountOperationsGrpc.newBlockingStub(channel)
+                .withdraw(AmountRequest.newBuilder().setAccountId(7L).setAmountMinor(50).build());
+
+        assertEquals(950, reply.getBalanceMinor());
+    }
+
+    @Test
+    void unaryErrors_mapToGrpcStatuses() {
+        var stub = AccountOperationsGrpc.newBlockingStub(channel);
+        when(accountService.withdraw(eq(1L), any(), any(), any()))
+                .thenThrow(new ResponseStatusException(CONFLICT, "Insufficient funds"));
+        when(accountService.deposit(eq(1L), any(), any(), any()))
+                .thenThrow(new ResponseStatusException(PRECONDITION_FAILED, "Account version does not match"));
+        when(accountService.getById(2L)).thenThrow(new ResponseStatusException(NOT_FOUND, "Account not found"));
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> stub.withdraw(AmountRequest.newBuilder().setAccountId(1L).setAmountMinor(100).build()));
+        assertEquals(Status.Code.FAILED_PRECONDITION, e.getStatus().getCode());
+        assertEquals("Insufficient funds", e.getStatus().getDescription());
+
+        e = assertThrows(StatusRuntimeException.class,
+                () -> stub.deposit(AmountRequest.newBuilder().setAccountId(1L).setAmountMinor(100).build()));
+        assertEquals(Status.Code.ABORTED, e.getStatus().getCode());
+
+        e = assertThrows(StatusRuntimeException.class,
+                () -> stub.getBalance(GetBalanceRequest.newBuilder().setAccountId(2L).build()));
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    }
+
+    @Test
+    void createAccount_rejectsBadNumberLength_withoutCallingService() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> AccountOperationsGrpc
+                .newBlockingStub(channel).createAccount(CreateAccountRequest.newBuilder().setUserId(1L).setNumber("X1").build()));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void getBalance_returnsSnapshotBalanceAndVersion() {
+        when(accountService.getById(5L)).thenReturn(new AccountSnapshot(5L, "ACC-0005", new BigDecimal("1.05"), 9L, 6));
+
+        BalanceReply reply = AccountOperationsGrpc.newBlockingStub(channel)
+                .getBalance(GetBalanceRequest.newBuilder().setAccountId(5L).build());
+
+        assertEquals(105, reply.getBalanceMinor());
+        assertEquals(6, reply.getVersion());
+    }
+
+    @Test
+    void operations_answersEachRequest_inOrder_andKeepsStreamOpenAfterRejection() throws Exception {
+        when(accountService.deposit(1L, new BigDecimal("1.00"), null, null))
+                .thenReturn(new AccountBalance(1L, new BigDecimal("11.00"), 2));
+        when(accountService.withdraw(1L, new BigDecimal("50.00"), null, null))
+                .thenThrow(new ResponseStatusException(CONFLICT, "Insufficient funds"));
+        when(accountService.deposit(eq(2L), any(), any(), any()))
+                .thenThrow(new ResponseStatusException(NOT_FOUND, "Account not found"));
+        when(accountService.deposit(1L, new BigDecimal("0.00"), null, null))
+                .thenThrow(new ResponseStatusException(BAD_REQUEST, "Amount must be > 0"));
+
+        List<OperationReply> replies = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<OperationRequest> requests = AccountOperationsGrpc.newStub(channel).operations(new StreamObserver<>() {
+            @Override
+            public void onNext(OperationReply reply) {
+                replies.add(reply);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                done.complete(null);
+            }
+        });
+        requests.onNext(operation(1, OperationType.DEPOSIT, 1L, 100));
+        requests.onNext(operation(2, OperationType.WITHDRAW, 1L, 5000));
+        requests.onNext(operation(3, OperationType.DEPOSIT, 2L, 100));
+        requests.onNext(operation(4, OperationType.DEPOSIT, 1L, 0));
+        requests.onCompleted();
+        done.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), replies.stream().map(OperationReply::getRequestId).toList());
+        assertEquals(OperationStatus.APPLIED, replies.get(0).getStatus());
+        assertEquals(1100, replies.get(0).getBalanceMinor());
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS, replies.get(1).getStatus());
+        assertEquals(OperationStatus.NOT_FOUND, replies.get(2).getStatus());
+        assertEquals(OperationStatus.INVALID_AMOUNT, replies.get(3).getStatus());
+        assertEquals("Amount must be > 0", replies.get(3).getMessage());
+    }
+
+    @Test
+    void minorUnits_roundTrip() {
+        assertEquals(new BigDecimal("12.34"), MinorUnits.toAmount(1234));
+        assertEquals(1234, MinorUnits.toMinor(new BigDecimal("12.34")));
+        assertEquals(1200, MinorUnits.toMinor(new BigDecimal("12")));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(new BigDecimal("0.001")));
+    }
+
+    private static OperationRequest operation(long id, OperationType type, long accountId, long amountMinor) {
+        return OperationRequest.newBuilder()
+                .setRequestId(id).setType(type).setAccountId(accountId).setAmountMinor(amountMinor).build();
+    }
+}
@@ -0,0 +1,171 @@
+package ab.task.banking_system.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    Connection primaryConnection = mock(Connection.class);
+    Connection replica0Connection = mock(Connection.class);
+    Connection replica1Connection = mock(Connection.class);
+    HikariDataSource primary = pool("primary", primaryConnection);
+    HikariDataSource replica0 = pool("replica-0", replica0Connection);
+    HikariDataSource replica1 = pool("replica-1", replica1Connection);
+    AtomicInteger writes = new AtomicInteger();
+
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica0, replica1), true, meterRegistry);
+
+    static HikariDataSource pool(String name, Connection connection) {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        when(pool.getPoolName()).thenReturn(name);
+        try {
+            when(pool.getConnection()).thenReturn(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return pool;
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Прокси один раз берёт соединение основной базы, чтобы узнать autoCommit и уровень изоляции по умолчанию.
+        dataSource.checkDefaultConnectionProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaSession.close();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    double connections(String route, String pool) {
+        return meterRegistry.get(ReplicaRoutingDataSource.ROUTES).tag("route", route).tag("pool", pool).counter().count();
+    }
+
+    @Test
+    void readOnlyConnection_goesToReplica() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+
+        assertEquals(1.0, connections("replica", "replica-0"));
+        assertEquals(1.0, connections("primary", "primary"));
+    }
+
+    @Test
+    void readWriteConnection_goesToPrimary() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+
+        assertEquals(2.0, connections("primary", "primary"));
+        assertEquals(0.0, connections("replica", "replica-0"));
+    }
+
+    @Test
+    void reads_roundRobinAcrossReplicas() throws Exception {
+        assertSame(replica0Connection, dataSource.readConnection());
+        assertSame(replica1Connection, dataSource.readConnection());
+        assertSame(replica0Connection, dataSource.readConnection());
+    }
+
+    @Test
+    void unavailableReplica_skipped() throws Exception {
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+
+        assertSame(replica1Connection, dataSource.readConnection());
+        assertSame(replica1Connection, dataSource.readConnection());
+    }
+
+    @Test
+    void allReplicasUnavailable_fallsBackToPrimary() throws Exception {
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+
+        assertSame(primaryConnection, dataSource.readConnection());
+        assertEquals(1.0, connections("primary_fallback", "primary"));
+    }
+
+    @Test
+    void pinnedSession_readsFromPrimary() throws Exception {
+        ReplicaSession.open(true, writes::incrementAndGet);
+
+        assertSame(primaryConnection, dataSource.readConnection());
+        assertEquals(1.0, connections("primary_pinned", "primary"));
+    }
+
+    @Test
+    void pinning_disabled_readsFromReplica() throws Exception {
+        ReplicaRoutingDataSource noPinning = new ReplicaRoutingDataSource(primary, List.of(replica0), false,
+                new SimpleMeterRegistry());
+        ReplicaSession.open(true, writes::incrementAndGet);
+
+        assertSame(replica0Connection, noPinning.readConnection());
+    }
+
+    @Test
+    void writeTransaction_pinsSessionAfterCommit() throws Exception {
+        ReplicaSession.open(false, writes::incrementAndGet);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+        assertSame(replica0Connection, dataSource.readConnection());
+        assertEquals(0, writes.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(1, writes.get());
+        assertSame(primaryConnection, dataSource.readConnection());
+    }
+
+    @Test
+    void rolledBackWrite_doesNotPin() throws Exception {
+        ReplicaSession.open(false, writes::incrementAndGet);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(0, writes.get());
+        assertSame(replica0Connection, dataSource.readConnection());
+    }
+
+    @Test
+    void writeOutsideTransaction_pinsImmediately() throws Exception {
+        ReplicaSession.open(false, writes::incrementAndGet);
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+
+        assertEquals(1, writes.get());
+    }
+}
@@ -0,0 +1,81 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountCacheProperties;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AccountCache cache = new AccountCache(new AccountCacheProperties(100, Duration.ofMinutes(5)), meterRegistry);
+    AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private AccountSnapshot load(Long id) {
+        loads.incrementAndGet();
+        return new AccountSnapshot(id, "ACC-" + id, new BigDecimal("10.00"), 1L, 3);
+    }
+
+    @Test
+    void secondRead_servedFromCache() {
+        cache.get(1L, this::load);
+        cache.get(1L, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void update_appliedOnlyAfterCommit() {
+        cache.get(1L, this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.updateAfterCommit(new AccountBalance(1L, new BigDecimal("25.00"), 4));
+        assertEquals(new BigDecimal("10.00"), cache.get(1L, this::load).balance());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        AccountSnapshot updated = cache.get(1L, this::load);
+        assertEquals(new BigDecimal("25.00"), updated.balance());
+        assertEquals(4, updated.version());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void olderVersion_doesNotOverwriteNewer() {
+        cache.get(1L, this::load);
+
+        cache.updateAfterCommit(new AccountBalance(1L, new BigDecimal("30.00"), 5));
+        cache.updateAfterCommit(new AccountBalance(1L, new BigDecimal("20.00"), 4));
+
+        assertEquals(new BigDecimal("30.00"), cache.get(1L, this::load).balance());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        cache.get(1L, this::load);
+
+        cache.invalidateAfterCommit(List.of(1L));
+        cache.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,116 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountNumberProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.AccountNumberRepository;
+import ab.task.banking_system.repository.AccountNumberRepository.NumberBlock;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountNumberGeneratorTest {
+
+    AccountNumberRepository accountNumberRepository = mock(AccountNumberRepository.class);
+    AtomicLong sequence = new AtomicLong(1);
+    AccountNumberGenerator generator;
+
+    private AccountNumberGenerator generator(String prefix, int digits, long blockSize) {
+        when(accountNumberRepository.reserveBlock())
+                .thenAnswer(inv -> new NumberBlock(sequence.getAndAdd(blockSize), blockSize));
+        generator = new AccountNumberGenerator(accountNumberRepository, new AccountNumberProperties(prefix, digits),
+                new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class)));
+        return generator;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (generator != null) {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    void next_formatsSequenceWithCheckDigits() {
+        AccountNumberGenerator generator = generator("BS", 12, 10);
+
+        String first = generator.next();
+
+        assertEquals(16, first.length());
+        assertTrue(first.startsWith("BS"));
+        assertTrue(first.endsWith("000000000001"));
+        assertTrue(AccountNumberGenerator.isValid(first, 2));
+        assertTrue(generator.isReserved(first));
+        for (long sequence : new long[]{96, 97, 123_456_789, 999_999_999_999L}) {
+            String number = generator.format(sequence);
+            assertEquals(AccountNumberGenerator.checkDigits("BS", number.substring(4)), number.substring(2, 4));
+            assertTrue(AccountNumberGenerator.isValid(number, 2));
+        }
+    }
+
+    @Test
+    void checkDigits_matchIban() {
+        // GB82 WEST 1234 5698 7654 32 - пример из ISO 13616.
+        assertEquals("82", AccountNumberGenerator.checkDigits("GB", "WEST12345698765432"));
+        assertFalse(AccountNumberGenerator.isValid("BS72000000000001", 2));
+    }
+
+    @Test
+    void next_uniqueAcrossBlocksAndThreads() throws Exception {
+        AccountNumberGenerator generator = generator("BS", 12, 100);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = IntStream.range(0, 8)
+                    .<Future<?>>mapToObj(t -> pool.submit(() -> {
+                        for (int i = 0; i < 5_000; i++) {
+                            assertTrue(numbers.add(generator.next()));
+                        }
+                    }))
+                    .toList();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(40_000, numbers.size());
+    }
+
+    @Test
+    void next_sequenceBeyondDigits_fails() {
+        sequence.set(995);
+        AccountNumberGenerator generator = generator("BS", 3, 10);
+
+        assertThrows(IllegalStateException.class, generator::next);
+    }
+
+    @Test
+    void invalidFormat_rejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new AccountNumberGenerator(accountNumberRepository, new AccountNumberProperties("bs", 12),
+                        new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class))));
+    }
+
+    @Test
+    void isReserved_onlyGeneratedShape() {
+        AccountNumberGenerator generator = generator("BS", 12, 10);
+
+        assertFalse(generator.isReserved("1a2d3e4"));
+        assertFalse(generator.isReserved("BS7100000000100"));
+        assertTrue(generator.isReserved("BS00123456789012"));
+    }
+}
@@ -0,0 +1,99 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AccountPartitionProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.AccountPartitionRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountPartitionAggregatorTest {
+
+    static final List<String> PARTITIONS = List.of("accounts_p00", "accounts_p01", "accounts_p02", "accounts_p03",
+            "accounts_p04", "accounts_p05");
+
+    AccountPartitionRepository accountPartitionRepository = mock(AccountPartitionRepository.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(false, List.of()), transactionManager);
+    AccountPartitionAggregator aggregator = new AccountPartitionAggregator(accountPartitionRepository, shardRouter,
+            new AccountPartitionProperties(2, 100));
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        aggregator.shutdown();
+    }
+
+    @Test
+    void partitions_readInParallelFromExportedSnapshot() {
+        when(accountPartitionRepository.partitions()).thenReturn(PARTITIONS);
+        when(accountPartitionRepository.exportSnapshot()).thenReturn("00000003-0000001B-1");
+        Set<Long> threads = ConcurrentHashMap.newKeySet();
+
+        List<Integer> sizes = aggregator.onEachPartition(partition -> {
+            threads.add(Thread.currentThread().threadId());
+            return partition.length() + PARTITIONS.indexOf(partition);
+        });
+
+        assertEquals(List.of(12, 13, 14, 15, 16, 17), sizes);
+        verify(accountPartitionRepository, times(1)).exportSnapshot();
+        verify(accountPartitionRepository, times(2)).importSnapshot("00000003-0000001B-1");
+        verify(transactionManager, times(2)).getTransaction(any());
+        assertTrue(threads.size() <= 2);
+    }
+
+    @Test
+    void unpartitioned_runsInCallerTransaction() {
+        when(accountPartitionRepository.partitions()).thenReturn(List.of("accounts"));
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> sameThread = aggregator.onEachPartition(partition -> Thread.currentThread() == caller);
+
+        assertEquals(List.of(true), sameThread);
+        verify(accountPartitionRepository, never()).exportSnapshot();
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void failingPartition_propagates() {
+        when(accountPartitionRepository.partitions()).thenReturn(PARTITIONS);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> aggregator.onEachPartition(partition -> {
+            if (partition.equals("accounts_p01")) {
+                throw new IllegalStateException("canceling statement due to statement timeout");
+            }
+            return partition;
+        }));
+
+        assertEquals("canceling statement due to statement timeout", ex.getMessage());
+    }
+
+    @Test
+    void withoutTransaction_rejected() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        assertThrows(IllegalStateException.class, () -> aggregator.onEachPartition(partition -> partition));
+        verifyNoInteractions(accountPartitionRepository);
+    }
+
+    @Test
+    void nonPositiveParallelism_rejected() {
+        assertThrows(IllegalStateException.class, () -> new AccountPartitionAggregator(accountPartitionRepository,
+                shardRouter, new AccountPartitionProperties(0, 100)));
+    }
+}
@@ -1,20 +1,35 @@
 package ab.task.banking_system.service;
 
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.config.ShardingProperties;
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.model.TransactionType;
+import ab.task.banking_system.model.TransferResult;
 import ab.task.banking_system.model.User;
 import ab.task.banking_system.repository.AccountRepository;
+import ab.task.banking_system.repository.BalanceMutation;
+import ab.task.banking_system.repository.BulkInsertRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
 import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,6 +43,29 @@ class AccountServiceTest {
     AccountRepository accountRepository;
     @Mock
     UserRepository userRepository;
+    @Mock
+    DepositCoalescer depositCoalescer;
+    @Mock
+    IdempotencyService idempotencyService;
+    @Mock
+    AccountCache accountCache;
+    @Mock
+    AccountOwners accountOwners;
+    @Mock
+    AccountNumberGenerator accountNumberGenerator;
+    @Mock
+    BulkInsertRepository bulkInsertRepository;
+    @Mock
+    UserBalanceSummaryRepository userBalanceSummaryRepository;
+    @Mock
+    AuditLog auditLog;
+    @Spy
+    BatchProperties batchProperties = new BatchProperties(2, 5, 3);
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class));
 
     @InjectMocks
     AccountService accountService;
@@ -40,12 +78,14 @@ class AccountServiceTest {
         user.setId(1L);
         user.setName("Adilet");
         user.setEmail("adilet@example.com");
+        // Владелец счёта N - пользователь 10 * N.
+        lenient().when(accountOwners.find(anyLong())).thenAnswer(inv -> inv.<Long>getArgument(0) * 10);
     }
 
     @Test
     void create_withProvidedNumber_success() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(accountRepository.save(any(Account.class))).thenAnswer(inv -> {
+        when(accountRepository.saveAndFlush(any(Account.class))).thenAnswer(inv -> {
             Account a = inv.getArgument(0);
             a.setId(10L);
             return a;
@@ -57,14 +97,16 @@ class AccountServiceTest {
         assertEquals(10L, saved.getId());
         assertEquals("1a2d3e4", saved.getNumber());
         verify(userRepository).findById(1L);
-        verify(accountRepository).save(any(Account.class));
+        verify(accountRepository).saveAndFlush(any(Account.class));
+        verify(accountOwners).remember(10L, 1L);
     }
 
     @Test
     void create_withoutNumber_generatesNumber_success() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(accountNumberGenerator.next()).thenReturn("BS71000000001000");
         ArgumentCaptor<Account> captor = ArgumentCaptor.forClass(Account.class);
-        when(accountRepository.save(any(Account.class))).thenAnswer(inv -> {
+        when(accountRepository.saveAndFlush(any(Account.class))).thenAnswer(inv -> {
             Account a = inv.getArgument(0);
             a.setId(11L);
             return a;
@@ -72,24 +114,66 @@ class AccountServiceTest {
 
         Account saved = accountService.create(1L, null);
 
-        verify(accountRepository).save(captor.capture());
+        verify(accountRepository).saveAndFlush(captor.capture());
         Account toSave = captor.getValue();
-        assertNotNull(toSave.getNumber());
-        assertFalse(toSave.getNumber().isBlank());
+        assertEquals("BS71000000001000", toSave.getNumber());
         assertEquals(saved.getNumber(), toSave.getNumber());
     }
 
+    @Test
+    void create_providedNumberInGeneratedFormat_400() {
+        when(accountNumberGenerator.isReserved("BS71000000001000")).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.create(1L, "BS71000000001000"));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(accountRepository);
+    }
+
     @Test
     void create_conflict_whenNumberDuplicate() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(accountRepository.save(any(Account.class)))
+        when(accountRepository.saveAndFlush(any(Account.class)))
                 .thenThrow(new DataIntegrityViolationException("unique"));
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> accountService.create(1L, "DUP"));
 
         assertEquals(CONFLICT.value(), ex.getStatusCode().value());
-        verify(accountRepository).save(any(Account.class));
+        verify(accountRepository).saveAndFlush(any(Account.class));
+    }
+
+    @Test
+    void createAll_generatesNumbersAndPersistsInOneCall() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(accountNumberGenerator.next()).thenReturn("BS48000000001001", "BS21000000001002", "BS91000000001003");
+
+        List<Account> accounts = accountService.createAll(1L, 3);
+
+        assertEquals(List.of("BS48000000001001", "BS21000000001002", "BS91000000001003"),
+                accounts.stream().map(Account::getNumber).toList());
+        assertTrue(accounts.stream().allMatch(a -> a.getUser() == user));
+        verify(bulkInsertRepository).persistAll(accounts);
+        verify(accountRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createAll_countAboveLimit_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> accountService.createAll(1L, 4));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(userRepository, bulkInsertRepository);
+    }
+
+    @Test
+    void createAll_userNotFound_404() {
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> accountService.createAll(9L, 2));
+
+        assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+        verifyNoInteractions(bulkInsertRepository);
     }
 
     @Test
@@ -114,29 +198,118 @@ class AccountServiceTest {
     }
 
     @Test
-    void deposit_success() {
-        when(accountRepository.deposit(5L, new BigDecimal("10.00"))).thenReturn(1);
+    void getById_missLoadsFromRepository() {
+        Account acc = new Account();
+        acc.setId(5L);
+        acc.setNumber("ACC-5");
+        acc.setUser(user);
+        when(accountRepository.findById(5L)).thenReturn(Optional.of(acc));
+        when(accountCache.get(eq(5L), any())).thenAnswer(inv -> inv.<Function<Long, AccountSnapshot>>getArgument(1).apply(5L));
+
+        AccountSnapshot snapshot = accountService.getById(5L);
+
+        assertEquals(new AccountSnapshot(5L, "ACC-5", BigDecimal.ZERO, 1L, 0), snapshot);
+    }
+
+    @Test
+    void getById_notFound_404() {
+        when(accountRepository.findById(6L)).thenReturn(Optional.empty());
+        when(accountCache.get(eq(6L), any())).thenAnswer(inv -> inv.<Function<Long, AccountSnapshot>>getArgument(1).apply(6L));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> accountService.getById(6L));
+
+        assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+    }
+
+    @Test
+    void deposit_success_returnsNewBalance() {
+        when(accountRepository.deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, null))
+                .thenReturn(applied("110.00", 4));
+
+        AccountBalance result = accountService.deposit(5L, new BigDecimal("10.00"));
+
+        assertEquals(new AccountBalance(5L, new BigDecimal("110.00"), 4), result);
+        verify(accountRepository).deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, null);
+        verify(accountRepository, never()).existsById(any());
+        verify(accountCache).updateAfterCommit(result);
+        verify(auditLog).deposit(5L, new BigDecimal("10.00"), new BigDecimal("110.00"));
+    }
+
+    @Test
+    void deposit_coalescingEnabled_delegatesToCoalescer() {
+        AccountBalance balance = new AccountBalance(5L, new BigDecimal("10.00"), 1);
+        when(depositCoalescer.isEnabled()).thenReturn(true);
+        when(depositCoalescer.deposit(5L, new BigDecimal("10.00"))).thenReturn(balance);
+
+        assertEquals(balance, accountService.deposit(5L, new BigDecimal("10.00")));
+
+        verifyNoInteractions(accountRepository);
+        verify(auditLog).deposit(5L, new BigDecimal("10.00"), new BigDecimal("10.00"));
+    }
+
+    @Test
+    void deposit_withIdempotencyKey_bypassesCoalescer() {
+        AccountBalance balance = new AccountBalance(5L, new BigDecimal("10.00"), 1);
+        when(idempotencyService.execute(eq("key-1"), eq("DEPOSIT|5|10"), eq(AccountBalance.class), any()))
+                .thenReturn(balance);
+
+        assertEquals(balance, accountService.deposit(5L, new BigDecimal("10.00"), "key-1"));
+
+        verifyNoInteractions(depositCoalescer);
+    }
+
+    @Test
+    void withdraw_idempotentReplay_notAudited() {
+        // Повтор: сервис идемпотентности возвращает сохранённый ответ, не выполняя операцию.
+        AccountBalance stored = new AccountBalance(7L, new BigDecimal("5.50"), 2);
+        when(idempotencyService.execute(eq("key-2"), eq("WITHDRAW|7|4.5"), eq(AccountBalance.class), any()))
+                .thenReturn(stored);
+
+        assertEquals(stored, accountService.withdraw(7L, new BigDecimal("4.50"), "key-2"));
+
+        verifyNoInteractions(auditLog, accountRepository);
+    }
+
+    @Test
+    void withdraw_idempotentFirstCall_auditedInsideAction() {
+        when(idempotencyService.execute(eq("key-3"), eq("WITHDRAW|7|4.5"), eq(AccountBalance.class), any()))
+                .thenAnswer(inv -> inv.<Supplier<AccountBalance>>getArgument(3).get());
+        when(accountRepository.withdrawIfEnough(7L, 70L, new BigDecimal("4.50"), TransactionType.WITHDRAW, null, null))
+                .thenReturn(applied("5.50", 2));
 
-        accountService.deposit(5L, new BigDecimal("10.00"));
+        accountService.withdraw(7L, new BigDecimal("4.50"), "key-3");
 
-        verify(accountRepository).deposit(5L, new BigDecimal("10.00"));
+        verify(auditLog).withdraw(7L, new BigDecimal("4.50"), new BigDecimal("5.50"));
     }
 
     @Test
     void deposit_accountNotFound_404() {
-        when(accountRepository.deposit(5L, new BigDecimal("10.00"))).thenReturn(0);
-        when(accountRepository.existsById(5L)).thenReturn(false);
+        when(accountRepository.deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, null))
+                .thenReturn(notFound());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.deposit(5L, new BigDecimal("10.00")));
+
+        assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+        verify(accountRepository, never()).existsById(any());
+        verifyNoInteractions(auditLog);
+    }
+
+    @Test
+    void deposit_unknownAccount_404WithoutStatement() {
+        when(accountOwners.find(5L)).thenReturn(null);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> accountService.deposit(5L, new BigDecimal("10.00")));
 
         assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+        verifyNoInteractions(accountRepository);
     }
 
     @Test
     void deposit_failed_unknownConflict_409() {
-        when(accountRepository.deposit(5L, new BigDecimal("10.00"))).thenReturn(0);
-        when(accountRepository.existsById(5L)).thenReturn(true);
+        when(accountRepository.deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, null))
+                .thenReturn(rejected("0.00", 1));
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> accountService.deposit(5L, new BigDecimal("10.00")));
@@ -145,18 +318,43 @@ class AccountServiceTest {
     }
 
     @Test
-    void withdraw_success() {
-        when(accountRepository.withdrawIfEnough(7L, new BigDecimal("4.50"))).thenReturn(1);
+    void deposit_expectedVersion_bypassesCoalescer() {
+        when(accountRepository.deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, 3L))
+                .thenReturn(applied("110.00", 4));
+
+        AccountBalance result = accountService.deposit(5L, new BigDecimal("10.00"), null, 3L);
+
+        assertEquals(4, result.version());
+        verifyNoInteractions(depositCoalescer);
+    }
+
+    @Test
+    void deposit_versionChanged_412() {
+        when(accountRepository.deposit(5L, 50L, new BigDecimal("10.00"), TransactionType.DEPOSIT, null, 3L))
+                .thenReturn(rejected("100.00", 5));
 
-        accountService.withdraw(7L, new BigDecimal("4.50"));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.deposit(5L, new BigDecimal("10.00"), null, 3L));
 
-        verify(accountRepository).withdrawIfEnough(7L, new BigDecimal("4.50"));
+        assertEquals(PRECONDITION_FAILED.value(), ex.getStatusCode().value());
+        verifyNoInteractions(auditLog);
+    }
+
+    @Test
+    void withdraw_success_returnsNewBalance() {
+        when(accountRepository.withdrawIfEnough(7L, 70L, new BigDecimal("4.50"), TransactionType.WITHDRAW, null, null))
+                .thenReturn(applied("5.50", 2));
+
+        AccountBalance result = accountService.withdraw(7L, new BigDecimal("4.50"));
+
+        assertEquals(new AccountBalance(7L, new BigDecimal("5.50"), 2), result);
+        verify(auditLog).withdraw(7L, new BigDecimal("4.50"), new BigDecimal("5.50"));
     }
 
     @Test
     void withdraw_accountNotFound_404() {
-        when(accountRepository.withdrawIfEnough(7L, new BigDecimal("4.50"))).thenReturn(0);
-        when(accountRepository.existsById(7L)).thenReturn(false);
+        when(accountRepository.withdrawIfEnough(7L, 70L, new BigDecimal("4.50"), TransactionType.WITHDRAW, null, null))
+                .thenReturn(notFound());
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> accountService.withdraw(7L, new BigDecimal("4.50")));
@@ -166,14 +364,96 @@ class AccountServiceTest {
 
     @Test
     void withdraw_insufficientFunds_409() {
-        when(accountRepository.withdrawIfEnough(7L, new BigDecimal("100.00"))).thenReturn(0);
-        when(accountRepository.existsById(7L)).thenReturn(true);
+        when(accountRepository.withdrawIfEnough(7L, 70L, new BigDecimal("100.00"), TransactionType.WITHDRAW, null, null))
+                .thenReturn(rejected("10.00", 3));
 
-        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        ResponseStatusException ex = assertThrows(InsufficientFundsException.class,
                 () -> accountService.withdraw(7L, new BigDecimal("100.00")));
 
         assertEquals(CONFLICT.value(), ex.getStatusCode().value());
         assertTrue(ex.getReason().toLowerCase().contains("insufficient"));
+        verify(accountRepository, never()).existsById(any());
+    }
+
+    @Test
+    void withdraw_expectedVersionMatches_insufficientFunds_409() {
+        when(accountRepository.withdrawIfEnough(7L, 70L, new BigDecimal("100.00"), TransactionType.WITHDRAW, null, 3L))
+                .thenReturn(rejected("10.00", 3));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.withdraw(7L, new BigDecimal("100.00"), null, 3L));
+
+        assertEquals(CONFLICT.value(), ex.getStatusCode().value());
+    }
+
+    @Test
+    void transfer_lowerIdFirst_debitsThenCredits() {
+        when(accountRepository.withdrawIfEnough(3L, 30L, new BigDecimal("25.00"), TransactionType.TRANSFER_OUT, 8L, null))
+                .thenReturn(applied("75.00", 2));
+        when(accountRepository.deposit(8L, 80L, new BigDecimal("25.00"), TransactionType.TRANSFER_IN, 3L, null))
+                .thenReturn(applied("25.00", 1));
+
+        TransferResult result = accountService.transfer(3L, 8L, new BigDecimal("25.00"));
+
+        InOrder inOrder = inOrder(userBalanceSummaryRepository, accountRepository);
+        inOrder.verify(userBalanceSummaryRepository).lockBalanceAggregates(List.of(3L, 8L), List.of(30L, 80L));
+        inOrder.verify(accountRepository).withdrawIfEnough(3L, 30L, new BigDecimal("25.00"), TransactionType.TRANSFER_OUT, 8L, null);
+        inOrder.verify(accountRepository).deposit(8L, 80L, new BigDecimal("25.00"), TransactionType.TRANSFER_IN, 3L, null);
+        assertEquals(new AccountBalance(3L, new BigDecimal("75.00"), 2), result.from());
+        assertEquals(new AccountBalance(8L, new BigDecimal("25.00"), 1), result.to());
+        verify(auditLog).transfer(3L, 8L, new BigDecimal("25.00"), new BigDecimal("75.00"), new BigDecimal("25.00"));
+    }
+
+    @Test
+    void transfer_higherIdFirst_creditsThenDebits() {
+        when(accountRepository.deposit(3L, 30L, new BigDecimal("25.00"), TransactionType.TRANSFER_IN, 8L, null))
+                .thenReturn(applied("25.00", 1));
+        when(accountRepository.withdrawIfEnough(8L, 80L, new BigDecimal("25.00"), TransactionType.TRANSFER_OUT, 3L, null))
+                .thenReturn(applied("75.00", 2));
+
+        TransferResult result = accountService.transfer(8L, 3L, new BigDecimal("25.00"));
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).deposit(3L, 30L, new BigDecimal("25.00"), TransactionType.TRANSFER_IN, 8L, null);
+        inOrder.verify(accountRepository).withdrawIfEnough(8L, 80L, new BigDecimal("25.00"), TransactionType.TRANSFER_OUT, 3L, null);
+        assertEquals(8L, result.from().accountId());
+        assertEquals(3L, result.to().accountId());
+    }
+
+    @Test
+    void transfer_insufficientFunds_409() {
+        when(accountRepository.deposit(3L, 30L, new BigDecimal("500.00"), TransactionType.TRANSFER_IN, 8L, null))
+                .thenReturn(applied("500.00", 1));
+        when(accountRepository.withdrawIfEnough(8L, 80L, new BigDecimal("500.00"), TransactionType.TRANSFER_OUT, 3L, null))
+                .thenReturn(rejected("10.00", 1));
+
+        ResponseStatusException ex = assertThrows(InsufficientFundsException.class,
+                () -> accountService.transfer(8L, 3L, new BigDecimal("500.00")));
+
+        assertEquals(CONFLICT.value(), ex.getStatusCode().value());
+        assertTrue(ex.getReason().toLowerCase().contains("insufficient"));
+    }
+
+    @Test
+    void transfer_targetNotFound_404() {
+        when(accountRepository.withdrawIfEnough(3L, 30L, new BigDecimal("5.00"), TransactionType.TRANSFER_OUT, 8L, null))
+                .thenReturn(applied("95.00", 2));
+        when(accountRepository.deposit(8L, 80L, new BigDecimal("5.00"), TransactionType.TRANSFER_IN, 3L, null))
+                .thenReturn(notFound());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.transfer(3L, 8L, new BigDecimal("5.00")));
+
+        assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+    }
+
+    @Test
+    void transfer_sameAccount_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.transfer(3L, 3L, new BigDecimal("5.00")));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(accountRepository);
     }
 
     @Test
@@ -186,4 +466,25 @@ class AccountServiceTest {
                 () -> accountService.withdraw(1L, new BigDecimal("-1.00")));
         assertEquals(BAD_REQUEST.value(), ex2.getStatusCode().value());
     }
+
+    private static BalanceMutation applied(String balance, long version) {
+        return mutation(true, true, new BigDecimal(balance), version);
+    }
+
+    private static BalanceMutation rejected(String balance, long version) {
+        return mutation(true, false, new BigDecimal(balance), version);
+    }
+
+    private static BalanceMutation notFound() {
+        return mutation(false, false, null, null);
+    }
+
+    private static BalanceMutation mutation(boolean found, boolean applied, BigDecimal balance, Long version) {
+        return new BalanceMutation() {
+            public Boolean getFound() { return found; }
+            public Boolean getApplied() { return applied; }
+            public BigDecimal getBalance() { return balance; }
+            public Long getVersion() { return version; }
+        };
+    }
 }
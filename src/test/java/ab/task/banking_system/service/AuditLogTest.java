@@ -0,0 +1,128 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.AuditProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @TempDir
+    Path dir;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AuditLog auditLog(boolean enabled, int bufferSize, DataSize maxFileSize) {
+        return new AuditLog(new AuditProperties(enabled, dir.resolve("audit.log"), bufferSize, Duration.ZERO, maxFileSize, 2),
+                meterRegistry);
+    }
+
+    private double events(String result) {
+        return meterRegistry.get("banking.audit.events").tag("result", result).counter().count();
+    }
+
+    @Test
+    void writesCompactLinesOnShutdown() throws Exception {
+        AuditLog auditLog = auditLog(true, 16, DataSize.ofMegabytes(1));
+        auditLog.start();
+
+        auditLog.deposit(5L, new BigDecimal("10.00"), new BigDecimal("110.00"));
+        auditLog.transfer(3L, 8L, new BigDecimal("25.00"), new BigDecimal("75.00"), new BigDecimal("25.00"));
+        auditLog.userCreated(1L);
+        auditLog.shutdown();
+
+        List<String> lines = Files.readAllLines(dir.resolve("audit.log"));
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).endsWith("\tDEPOSIT\t5\t-\t10.00\t110.00\t-"));
+        assertTrue(lines.get(1).endsWith("\tTRANSFER\t3\t8\t25.00\t75.00\t25.00"));
+        assertTrue(lines.get(2).endsWith("\tUSER_CREATED\t1\t-\t-\t-\t-"));
+        assertEquals(3, events("written"));
+    }
+
+    @Test
+    void fullBuffer_dropsAndCountsBackpressure() {
+        AuditLog auditLog = auditLog(true, 2, DataSize.ofMegabytes(1));
+
+        // Поток записи не запущен: третье событие не находит свободной ячейки.
+        auditLog.withdraw(7L, BigDecimal.ONE, BigDecimal.TEN);
+        auditLog.withdraw(7L, BigDecimal.ONE, BigDecimal.TEN);
+        auditLog.withdraw(7L, BigDecimal.ONE, BigDecimal.TEN);
+
+        assertEquals(1, events("dropped"));
+        assertEquals(1, meterRegistry.get("banking.audit.backpressure").counter().count());
+        assertEquals(2, meterRegistry.get("banking.audit.buffer.used").gauge().value());
+    }
+
+    @Test
+    void rollsFileBySize() throws Exception {
+        AuditLog auditLog = auditLog(true, 64, DataSize.ofBytes(100));
+        auditLog.start();
+
+        for (int i = 0; i < 10; i++) {
+            auditLog.deposit(i + 1, new BigDecimal("10.00"), new BigDecimal("110.00"));
+        }
+        auditLog.shutdown();
+
+        assertTrue(Files.exists(dir.resolve("audit.log.1")));
+        assertTrue(Files.exists(dir.resolve("audit.log.2")));
+        assertFalse(Files.exists(dir.resolve("audit.log.3")));
+        assertEquals(10, events("written"));
+    }
+
+    @Test
+    void inTransaction_publishedOnlyAfterCommit() {
+        AuditLog auditLog = auditLog(true, 16, DataSize.ofMegabytes(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditLog.deposit(5L, BigDecimal.ONE, BigDecimal.TEN);
+            assertEquals(0, meterRegistry.get("banking.audit.buffer.used").gauge().value());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, meterRegistry.get("banking.audit.buffer.used").gauge().value());
+    }
+
+    @Test
+    void inTransaction_rolledBack_notPublished() {
+        AuditLog auditLog = auditLog(true, 16, DataSize.ofMegabytes(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditLog.withdraw(7L, BigDecimal.ONE, BigDecimal.TEN);
+            auditLog.transfer(3L, 8L, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE);
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, meterRegistry.get("banking.audit.buffer.used").gauge().value());
+    }
+
+    @Test
+    void disabled_doesNothing() {
+        AuditLog auditLog = auditLog(false, 16, DataSize.ofMegabytes(1));
+        auditLog.start();
+
+        auditLog.deposit(5L, BigDecimal.ONE, BigDecimal.TEN);
+
+        assertFalse(auditLog.isEnabled());
+        assertFalse(Files.exists(dir.resolve("audit.log")));
+        assertEquals(0, events("dropped"));
+    }
+}
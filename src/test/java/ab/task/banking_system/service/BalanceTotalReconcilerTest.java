@@ -0,0 +1,53 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.AccountPartitionRepository;
+import ab.task.banking_system.repository.BalanceTotalRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BalanceTotalReconcilerTest {
+
+    BalanceTotalRepository balanceTotalRepository = mock(BalanceTotalRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AccountPartitionAggregator accountPartitionAggregator = mock(AccountPartitionAggregator.class);
+    BalanceTotalReconciler reconciler = new BalanceTotalReconciler(balanceTotalRepository,
+            mock(AccountPartitionRepository.class), accountPartitionAggregator,
+            new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class)), meterRegistry);
+
+    private double reconciliations(String result) {
+        return meterRegistry.get("banking.balance-total.reconciliations").tag("result", result).counter().count();
+    }
+
+    @Test
+    void reconcile_totalsMatch_countsMatch() {
+        when(balanceTotalRepository.stripesTotal()).thenReturn(new BigDecimal("1500.00"));
+        when(accountPartitionAggregator.<BigDecimal>onEachPartition(any()))
+                .thenReturn(List.of(new BigDecimal("1000"), new BigDecimal("500")));
+
+        assertEquals(0, reconciler.reconcile().signum());
+        assertEquals(1, reconciliations("match"));
+        assertEquals(0, reconciliations("mismatch"));
+        assertEquals(0, meterRegistry.get("banking.balance-total.drift").gauge().value());
+    }
+
+    @Test
+    void reconcile_totalsDiffer_reportsDrift() {
+        when(balanceTotalRepository.stripesTotal()).thenReturn(new BigDecimal("1500.00"));
+        when(accountPartitionAggregator.<BigDecimal>onEachPartition(any()))
+                .thenReturn(List.of(new BigDecimal("900.50"), new BigDecimal("500")));
+
+        assertEquals(new BigDecimal("99.50"), reconciler.reconcile());
+        assertEquals(0, reconciliations("match"));
+        assertEquals(1, reconciliations("mismatch"));
+        assertEquals(99.5, meterRegistry.get("banking.balance-total.drift").gauge().value());
+    }
+}
@@ -0,0 +1,155 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.model.OperationType;
+import ab.task.banking_system.repository.AccountBatchRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@ExtendWith(MockitoExtension.class)
+class BatchOperationServiceTest {
+
+    @Mock
+    AccountBatchRepository accountBatchRepository;
+    @Mock
+    UserBalanceSummaryRepository userBalanceSummaryRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    AccountCache accountCache;
+    @Mock
+    AccountOwners accountOwners;
+
+    BatchOperationService batchOperationService;
+
+    @BeforeEach
+    void setUp() {
+        batchOperationService = new BatchOperationService(accountBatchRepository, userBalanceSummaryRepository,
+                new TransactionTemplate(transactionManager), new BatchProperties(2, 5, 10), accountCache, accountOwners,
+                new ShardRouter(new ShardingProperties(false, List.of()), transactionManager));
+        // Владелец счёта N - пользователь 10 * N.
+        lenient().when(accountOwners.findAll(any())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).stream()
+                .collect(Collectors.toMap(id -> id, id -> id * 10)));
+    }
+
+    @Test
+    void execute_invalidatesOnlyChangedAccounts() {
+        when(accountBatchRepository.applyDeltas(List.of(1L, 2L), List.of(10L, 20L), List.of(new BigDecimal("10.00"), new BigDecimal("-5.00"))))
+                .thenReturn(new int[]{1, 0});
+        when(accountBatchRepository.findExistingIds(List.of(2L))).thenReturn(Set.of(2L));
+
+        batchOperationService.execute(List.of(
+                new BalanceOperation(1L, OperationType.DEPOSIT, new BigDecimal("10.00")),
+                new BalanceOperation(2L, OperationType.WITHDRAW, new BigDecimal("5.00"))));
+
+        verify(accountCache).invalidateAfterCommit(Set.of(1L));
+    }
+
+    @Test
+    void execute_sortsChunkByAccountId_andMapsResultsBack() {
+        when(accountBatchRepository.applyDeltas(List.of(1L, 9L), List.of(10L, 90L), List.of(new BigDecimal("-5.00"), new BigDecimal("10.00"))))
+                .thenReturn(new int[]{1, 1});
+
+        List<BalanceOperationResult> results = batchOperationService.execute(List.of(
+                new BalanceOperation(9L, OperationType.DEPOSIT, new BigDecimal("10.00")),
+                new BalanceOperation(1L, OperationType.WITHDRAW, new BigDecimal("5.00"))));
+
+        assertEquals(List.of(
+                new BalanceOperationResult(0, 9L, OperationStatus.APPLIED),
+                new BalanceOperationResult(1, 1L, OperationStatus.APPLIED)), results);
+        InOrder inOrder = inOrder(userBalanceSummaryRepository, accountBatchRepository);
+        inOrder.verify(userBalanceSummaryRepository).lockBalanceAggregates(List.of(1L, 9L), List.of(10L, 90L));
+        inOrder.verify(accountBatchRepository).applyDeltas(any(), any(), any());
+        verify(accountBatchRepository, never()).findExistingIds(any());
+    }
+
+    @Test
+    void execute_rejectedItems_doNotAbortBatch() {
+        when(accountBatchRepository.applyDeltas(List.of(1L, 2L), List.of(10L, 20L), List.of(new BigDecimal("-50.00"), new BigDecimal("5.00"))))
+                .thenReturn(new int[]{0, 1});
+        when(accountBatchRepository.applyDeltas(List.of(3L), List.of(30L), List.of(new BigDecimal("-1.00"))))
+                .thenReturn(new int[]{0});
+        when(accountBatchRepository.findExistingIds(List.of(1L))).thenReturn(Set.of(1L));
+        when(accountBatchRepository.findExistingIds(List.of(3L))).thenReturn(Set.of());
+
+        List<BalanceOperationResult> results = batchOperationService.execute(List.of(
+                new BalanceOperation(1L, OperationType.WITHDRAW, new BigDecimal("50.00")),
+                new BalanceOperation(2L, OperationType.DEPOSIT, new BigDecimal("5.00")),
+                new BalanceOperation(3L, OperationType.WITHDRAW, new BigDecimal("1.00")),
+                new BalanceOperation(4L, OperationType.DEPOSIT, new BigDecimal("0.00"))));
+
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS, results.get(0).status());
+        assertEquals(OperationStatus.APPLIED, results.get(1).status());
+        assertEquals(OperationStatus.NOT_FOUND, results.get(2).status());
+        assertEquals(OperationStatus.INVALID_AMOUNT, results.get(3).status());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void execute_unknownAccount_notFoundWithoutStatement() {
+        when(accountOwners.findAll(List.of(5L, 6L))).thenReturn(Map.of(6L, 60L));
+        when(accountBatchRepository.applyDeltas(List.of(6L), List.of(60L), List.of(new BigDecimal("1.00"))))
+                .thenReturn(new int[]{1});
+
+        List<BalanceOperationResult> results = batchOperationService.execute(List.of(
+                new BalanceOperation(5L, OperationType.DEPOSIT, new BigDecimal("1.00")),
+                new BalanceOperation(6L, OperationType.DEPOSIT, new BigDecimal("1.00"))));
+
+        assertEquals(OperationStatus.NOT_FOUND, results.get(0).status());
+        assertEquals(OperationStatus.APPLIED, results.get(1).status());
+        verify(userBalanceSummaryRepository).lockBalanceAggregates(List.of(6L), List.of(60L));
+    }
+
+    @Test
+    void execute_chunkFailure_marksOnlyThatChunkFailed() {
+        when(accountBatchRepository.applyDeltas(List.of(1L, 2L), List.of(10L, 20L), List.of(new BigDecimal("1.00"), new BigDecimal("1.00"))))
+                .thenThrow(new DataIntegrityViolationException("numeric overflow"));
+        when(accountBatchRepository.applyDeltas(List.of(3L), List.of(30L), List.of(new BigDecimal("1.00"))))
+                .thenReturn(new int[]{1});
+
+        List<BalanceOperationResult> results = batchOperationService.execute(List.of(
+                new BalanceOperation(1L, OperationType.DEPOSIT, new BigDecimal("1.00")),
+                new BalanceOperation(2L, OperationType.DEPOSIT, new BigDecimal("1.00")),
+                new BalanceOperation(3L, OperationType.DEPOSIT, new BigDecimal("1.00"))));
+
+        assertEquals(OperationStatus.FAILED, results.get(0).status());
+        assertEquals(OperationStatus.FAILED, results.get(1).status());
+        assertEquals(OperationStatus.APPLIED, results.get(2).status());
+    }
+
+    @Test
+    void execute_tooManyOperations_400() {
+        List<BalanceOperation> operations = Collections.nCopies(6,
+                new BalanceOperation(1L, OperationType.DEPOSIT, BigDecimal.ONE));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> batchOperationService.execute(operations));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(accountBatchRepository);
+    }
+}
@@ -0,0 +1,116 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.DepositCoalescingProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.repository.AccountBatchRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+@ExtendWith(MockitoExtension.class)
+class DepositCoalescerTest {
+
+    @Mock
+    AccountBatchRepository accountBatchRepository;
+    @Mock
+    AccountCache accountCache;
+    @Mock
+    AccountOwners accountOwners;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DepositCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.shutdown();
+    }
+
+    private DepositCoalescer coalescer(Duration window, int maxBatchSize) {
+        return new DepositCoalescer(accountBatchRepository, accountCache, accountOwners, new TransactionTemplate(transactionManager),
+                new DepositCoalescingProperties(true, window, maxBatchSize, 2),
+                new ShardRouter(new ShardingProperties(false, List.of()), transactionManager), meterRegistry);
+    }
+
+    @Test
+    void concurrentDeposits_sameAccount_mergedIntoOneUpdate() {
+        coalescer = coalescer(Duration.ofMillis(300), 100);
+        when(accountOwners.find(1L)).thenReturn(10L);
+        when(accountBatchRepository.depositAll(eq(1L), eq(10L), any()))
+                .thenReturn(Optional.of(new AccountBalance(1L, new BigDecimal("115.00"), 17)));
+
+        List<CompletableFuture<AccountBalance>> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> coalescer.deposit(1L, new BigDecimal("1.50"))));
+        }
+        List<AccountBalance> results = calls.stream().map(CompletableFuture::join)
+                .sorted(Comparator.comparing(AccountBalance::balance)).toList();
+
+        verify(accountBatchRepository).depositAll(1L, 10L, Collections.nCopies(10, new BigDecimal("1.50")));
+        verify(accountCache).updateAfterCommit(new AccountBalance(1L, new BigDecimal("115.00"), 17));
+        verify(transactionManager).commit(any());
+        // Каждый вызывающий видит баланс сразу после своего пополнения и его версию:
+        // 101.50 и 8, 103.00 и 9, ..., 115.00 и 17.
+        assertEquals(new AccountBalance(1L, new BigDecimal("101.50"), 8), results.get(0));
+        assertEquals(new AccountBalance(1L, new BigDecimal("115.00"), 17), results.get(9));
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(8 + i, results.get(i).version());
+        }
+        assertEquals(10.0, meterRegistry.get("banking.deposit.coalescing.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void fullBatch_flushedWithoutWaitingForWindow() {
+        coalescer = coalescer(Duration.ofMinutes(1), 1);
+        when(accountOwners.find(1L)).thenReturn(10L);
+        when(accountBatchRepository.depositAll(1L, 10L, List.of(new BigDecimal("3.00"))))
+                .thenReturn(Optional.of(new AccountBalance(1L, new BigDecimal("3.00"), 1)));
+
+        AccountBalance result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> coalescer.deposit(1L, new BigDecimal("3.00")));
+
+        assertEquals(new AccountBalance(1L, new BigDecimal("3.00"), 1), result);
+    }
+
+    @Test
+    void accountNotFound_failsEveryCallerInBatch() {
+        coalescer = coalescer(Duration.ofMillis(200), 100);
+        when(accountOwners.find(9L)).thenReturn(null);
+
+        CompletableFuture<AccountBalance> first = CompletableFuture.supplyAsync(() -> coalescer.deposit(9L, BigDecimal.ONE));
+        CompletableFuture<AccountBalance> second = CompletableFuture.supplyAsync(() -> coalescer.deposit(9L, BigDecimal.TEN));
+
+        for (CompletableFuture<AccountBalance> call : List.of(first, second)) {
+            CompletionException ex = assertThrows(CompletionException.class, call::join);
+            ResponseStatusException cause = assertInstanceOf(ResponseStatusException.class, ex.getCause());
+            assertEquals(NOT_FOUND.value(), cause.getStatusCode().value());
+        }
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(accountBatchRepository);
+    }
+}
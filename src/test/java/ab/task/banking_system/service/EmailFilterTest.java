@@ -0,0 +1,104 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.EmailFilterProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailFilterTest {
+
+    UserRepository userRepository = mock(UserRepository.class);
+    UserStreamRepository userStreamRepository = mock(UserStreamRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EmailFilter filter(boolean enabled) {
+        return new EmailFilter(userRepository, userStreamRepository,
+                new EmailFilterProperties(enabled, 1000, 0.01, Duration.ofHours(6)),
+                new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class)), meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void tableContains(String... emails) {
+        when(userStreamRepository.forEachEmail(any())).thenAnswer(inv -> {
+            Consumer<String> consumer = inv.getArgument(0);
+            for (String email : emails) {
+                consumer.accept(email);
+            }
+            return (long) emails.length;
+        });
+    }
+
+    @Test
+    void beforeRebuild_everyEmailMightBePresent() {
+        EmailFilter filter = filter(true);
+
+        assertTrue(filter.mightContain("new@example.com"));
+    }
+
+    @Test
+    void rebuild_loadsExistingEmails() {
+        tableContains("a@example.com", "b@example.com");
+        EmailFilter filter = filter(true);
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("a@example.com"));
+        assertTrue(filter.mightContain("b@example.com"));
+        assertFalse(filter.mightContain("c@example.com"));
+        assertEquals(1.0, meterRegistry.get("banking.email-filter.checks").tag("result", "definitely_new").counter().count());
+        assertEquals(1, meterRegistry.get("banking.email-filter.rebuild").timer().count());
+    }
+
+    @Test
+    void add_visibleImmediately() {
+        tableContains();
+        EmailFilter filter = filter(true);
+        filter.rebuild();
+
+        filter.add("c@example.com");
+
+        assertTrue(filter.mightContain("c@example.com"));
+    }
+
+    @Test
+    void disabled_neverBuilds() {
+        EmailFilter filter = filter(false);
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("new@example.com"));
+        verifyNoInteractions(userStreamRepository);
+    }
+
+    @Test
+    void bloomFilter_noFalseNegatives_andFppNearTarget() {
+        BloomFilter bloom = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloom.mightContain("user" + i + "@example.com"));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloom.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(0.01, bloom.expectedFpp(), 0.005);
+    }
+}
@@ -0,0 +1,93 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.ExportRepository;
+import ab.task.banking_system.repository.ExportRepository.AccountExportRow;
+import ab.task.banking_system.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    ExportRepository exportRepository;
+
+    ExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ExportService(exportRepository, new ObjectMapper(),
+                new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class)));
+    }
+
+    private void tableContains(AccountExportRow... rows) {
+        when(exportRepository.forEachAccount(any())).thenAnswer(inv -> {
+            Consumer<AccountExportRow> consumer = inv.getArgument(0);
+            for (AccountExportRow row : rows) {
+                consumer.accept(row);
+            }
+            return (long) rows.length;
+        });
+    }
+
+    @Test
+    void ndjson_writesOneObjectPerLine() {
+        tableContains(
+                new AccountExportRow(1, "ACC-1", new BigDecimal("10.50"), 7, "Alice", "a@example.com", "2024-01-01T00:00:00.000000Z"),
+                new AccountExportRow(2, "ACC-2", new BigDecimal("0.00"), 7, "Alice \"A\"", "a@example.com", "2024-01-01T00:00:00.000000Z"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = service.exportAccounts(out, FileFormat.NDJSON, false);
+
+        assertEquals(2, count);
+        assertEquals("""
+                {"account_id":1,"number":"ACC-1","balance":10.50,"user_id":7,"name":"Alice","email":"a@example.com","registered_at":"2024-01-01T00:00:00.000000Z"}
+                {"account_id":2,"number":"ACC-2","balance":0.00,"user_id":7,"name":"Alice \\"A\\"","email":"a@example.com","registered_at":"2024-01-01T00:00:00.000000Z"}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void csv_gzip_compressesDatabaseOutput_andLeavesStreamOpen() throws IOException {
+        when(exportRepository.copyAccountsCsv(any(), eq(true))).thenAnswer(inv -> {
+            inv.<OutputStream>getArgument(0).write("account_id,number\n1,ACC-1\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        boolean[] closed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        long count = service.exportAccounts(out, FileFormat.CSV, true);
+
+        assertEquals(1, count);
+        assertFalse(closed[0]);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("account_id,number\n1,ACC-1\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
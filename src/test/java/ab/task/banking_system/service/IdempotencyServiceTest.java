@@ -0,0 +1,120 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.IdempotencyProperties;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    IdempotencyService idempotencyService;
+
+    final AccountBalance balance = new AccountBalance(5L, new BigDecimal("110.00"), 4);
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, new TransactionTemplate(transactionManager),
+                new ObjectMapper(), new IdempotencyProperties(100, Duration.ofMinutes(10), Duration.ofHours(24)),
+                meterRegistry);
+    }
+
+    @Test
+    void newKey_executesActionAndStoresResponse() {
+        when(idempotencyKeyRepository.tryInsert("k1", "DEPOSIT|5|10")).thenReturn(true);
+
+        AccountBalance result = idempotencyService.execute("k1", "DEPOSIT|5|10", AccountBalance.class, () -> balance);
+
+        assertEquals(balance, result);
+        verify(idempotencyKeyRepository).complete("k1", "{\"accountId\":5,\"balance\":110.00,\"version\":4}");
+    }
+
+    @Test
+    void repeatedKey_answeredFromCacheWithoutDatabase() {
+        when(idempotencyKeyRepository.tryInsert("k1", "DEPOSIT|5|10")).thenReturn(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        idempotencyService.execute("k1", "DEPOSIT|5|10", AccountBalance.class, () -> { calls.incrementAndGet(); return balance; });
+        AccountBalance replay = idempotencyService.execute("k1", "DEPOSIT|5|10", AccountBalance.class,
+                () -> { calls.incrementAndGet(); return balance; });
+
+        assertEquals(balance, replay);
+        assertEquals(1, calls.get());
+        verify(idempotencyKeyRepository, times(1)).tryInsert(any(), any());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "idempotency").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("banking.idempotency.replays").tag("source", "cache").counter().count());
+    }
+
+    @Test
+    void keyCommittedElsewhere_answeredFromDatabase() {
+        when(idempotencyKeyRepository.tryInsert("k1", "DEPOSIT|5|10")).thenReturn(false);
+        when(idempotencyKeyRepository.find("k1")).thenReturn(Optional.of(new IdempotencyKeyRepository.StoredResponse(
+                "DEPOSIT|5|10", "{\"accountId\":5,\"balance\":110.00,\"version\":4}")));
+
+        AccountBalance result = idempotencyService.execute("k1", "DEPOSIT|5|10", AccountBalance.class,
+                () -> fail("action must not run"));
+
+        assertEquals(balance, result);
+        assertEquals(1.0, meterRegistry.get("banking.idempotency.replays").tag("source", "database").counter().count());
+    }
+
+    @Test
+    void keyReusedForDifferentRequest_422() {
+        when(idempotencyKeyRepository.tryInsert("k1", "WITHDRAW|5|10")).thenReturn(false);
+        when(idempotencyKeyRepository.find("k1")).thenReturn(Optional.of(new IdempotencyKeyRepository.StoredResponse(
+                "DEPOSIT|5|10", "{}")));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("k1", "WITHDRAW|5|10", AccountBalance.class, () -> balance));
+
+        assertEquals(UNPROCESSABLE_ENTITY.value(), ex.getStatusCode().value());
+    }
+
+    @Test
+    void failedAction_notCached() {
+        when(idempotencyKeyRepository.tryInsert("k1", "WITHDRAW|5|10")).thenReturn(true);
+
+        assertThrows(ResponseStatusException.class, () -> idempotencyService.execute("k1", "WITHDRAW|5|10",
+                AccountBalance.class, () -> { throw new ResponseStatusException(CONFLICT, "Insufficient funds"); }));
+        idempotencyService.execute("k1", "WITHDRAW|5|10", AccountBalance.class, () -> balance);
+
+        verify(idempotencyKeyRepository, times(2)).tryInsert("k1", "WITHDRAW|5|10");
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void tooLongKey_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("x".repeat(129), "f", AccountBalance.class, () -> balance));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+}
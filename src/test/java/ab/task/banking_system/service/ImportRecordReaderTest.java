@@ -0,0 +1,113 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.service.ImportRecordReader.ImportRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+class ImportRecordReaderTest {
+
+    private static final List<String> COLUMNS = List.of("name", "email", "registered_at");
+
+    private static List<ImportRecord> read(FileFormat format, String content) {
+        ImportRecordReader reader = ImportRecordReader.open(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                format, COLUMNS, List.of("name", "email"), new ObjectMapper());
+        List<ImportRecord> records = new ArrayList<>();
+        for (ImportRecord r = reader.next(); r != null; r = reader.next()) {
+            records.add(r);
+        }
+        return records;
+    }
+
+    @Test
+    void csv_mapsColumnsByHeader_inAnyOrder() {
+        List<ImportRecord> records = read(FileFormat.CSV, "\uFEFFemail,Name\r\na@example.com,Alice\r\nb@example.com,Bob\r\n");
+
+        assertEquals(2, records.size());
+        assertArrayEquals(new String[]{"Alice", "a@example.com", null}, records.get(0).values());
+        assertEquals(2, records.get(0).line());
+        assertEquals(3, records.get(1).line());
+        assertNull(records.get(1).error());
+    }
+
+    @Test
+    void csv_quotedFields_withCommasQuotesAndNewlines() {
+        List<ImportRecord> records = read(FileFormat.CSV,
+                "name,email\n\"Smith, \"\"J\"\"\",a@example.com\n\"multi\nline\",b@example.com\nlast,c@example.com");
+
+        assertEquals(3, records.size());
+        assertEquals("Smith, \"J\"", records.get(0).values()[0]);
+        assertEquals("multi\nline", records.get(1).values()[0]);
+        assertEquals(3, records.get(1).line());
+        assertEquals(5, records.get(2).line());
+        assertEquals("c@example.com", records.get(2).values()[1]);
+    }
+
+    @Test
+    void csv_emptyUnquotedField_isNull_emptyQuotedField_isEmpty() {
+        List<ImportRecord> records = read(FileFormat.CSV, "name,email\n,\"\"\n");
+
+        assertNull(records.get(0).values()[0]);
+        assertEquals("", records.get(0).values()[1]);
+    }
+
+    @Test
+    void csv_skipsBlankLines() {
+        List<ImportRecord> records = read(FileFormat.CSV, "name,email\n\nAlice,a@example.com\n\n");
+
+        assertEquals(1, records.size());
+        assertEquals(3, records.get(0).line());
+    }
+
+    @Test
+    void csv_wrongFieldCount_isRejectedRow() {
+        List<ImportRecord> records = read(FileFormat.CSV, "name,email\nAlice\n");
+
+        assertEquals("malformed row: expected 2 fields, got 1", records.get(0).error());
+    }
+
+    @Test
+    void csv_missingRequiredColumn_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> read(FileFormat.CSV, "name,registered_at\nAlice,2024-01-01T00:00:00Z\n"));
+
+        assertEquals(BAD_REQUEST, ex.getStatusCode());
+        assertEquals("Missing column: email", ex.getReason());
+    }
+
+    @Test
+    void csv_emptyFile_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> read(FileFormat.CSV, ""));
+
+        assertEquals(BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void ndjson_readsFieldsByName() {
+        List<ImportRecord> records = read(FileFormat.NDJSON,
+                "{\"email\":\"a@example.com\",\"name\":\"Alice\",\"extra\":1}\n\n{\"name\":\"Bob\",\"email\":null}\n");
+
+        assertEquals(2, records.size());
+        assertArrayEquals(new String[]{"Alice", "a@example.com", null}, records.get(0).values());
+        assertEquals(3, records.get(1).line());
+        assertNull(records.get(1).values()[1]);
+    }
+
+    @Test
+    void ndjson_malformedLines_areRejectedRows() {
+        List<ImportRecord> records = read(FileFormat.NDJSON, "{\"name\":\n[1,2]\n");
+
+        assertEquals("malformed JSON", records.get(0).error());
+        assertEquals("not a JSON object", records.get(1).error());
+        assertEquals(2, records.get(1).line());
+    }
+}
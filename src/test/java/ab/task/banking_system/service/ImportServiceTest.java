@@ -0,0 +1,194 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ImportProperties;
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.repository.ImportRepository;
+import ab.task.banking_system.repository.ImportRepository.RejectedRow;
+import ab.task.banking_system.repository.ImportRepository.StagingWriter;
+import ab.task.banking_system.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceTest {
+
+    @Mock
+    ImportRepository importRepository;
+    @Mock
+    EmailFilter emailFilter;
+    @Mock
+    AccountNumberGenerator accountNumberGenerator;
+
+    ImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ImportService(importRepository, emailFilter, accountNumberGenerator,
+                new ImportProperties(10), new ObjectMapper(),
+                new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class)));
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importUsers_stagesRows_mergesAndReports() {
+        StagingWriter writer = mock(StagingWriter.class);
+        when(importRepository.copyUsers(any())).thenAnswer(inv -> {
+            Consumer<StagingWriter> producer = inv.getArgument(0);
+            producer.accept(writer);
+            return 2L;
+        });
+        doAnswer(inv -> {
+            inv.<Consumer<String>>getArgument(0).accept("a@example.com");
+            return null;
+        }).when(importRepository).forEachImportedEmail(any());
+        when(importRepository.countUserRejects()).thenReturn(1L);
+        when(importRepository.findUserRejects(10)).thenReturn(List.of(new RejectedRow(3, "invalid email")));
+
+        ImportReport report = service.importUsers(
+                csv("name,email,registered_at\nAlice,a@example.com,2024-01-01T10:00:00Z\nBob,not-an-email,\n"),
+                FileFormat.CSV);
+
+        verify(importRepository).createUserStaging();
+        verify(writer).row(2L, "Alice", "a@example.com", LocalDateTime.of(2024, 1, 1, 10, 0), null);
+        verify(writer).row(3L, null, null, null, "invalid email");
+        verify(importRepository).mergeUsers();
+        verify(emailFilter).add("a@example.com");
+        assertEquals(new ImportReport(2, 1, 1, List.of(new RejectedRow(3, "invalid email"))), report);
+    }
+
+    @Test
+    void importUsers_unreadableInput_400() {
+        when(importRepository.copyUsers(any())).thenThrow(new UncheckedIOException(new IOException("Unexpected end of ZLIB input stream")));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.importUsers(csv("name,email\n"), FileFormat.CSV));
+
+        assertEquals(BAD_REQUEST, ex.getStatusCode());
+        verify(importRepository, never()).mergeUsers();
+    }
+
+    @Test
+    void importUsers_severalShards_eachShardLoadsItsRowsInOwnTransaction() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        ShardRouter router = new ShardRouter(new ShardingProperties(true, Collections.nCopies(2,
+                new ShardingProperties.Shard("jdbc:postgresql://localhost/bank", "bank", "bank"))), transactionManager);
+        service = new ImportService(importRepository, emailFilter, accountNumberGenerator,
+                new ImportProperties(10), new ObjectMapper(), router);
+        Map<Integer, String> staged = new HashMap<>();
+        when(importRepository.copyUsers(any())).thenAnswer(inv -> {
+            StringWriter rows = new StringWriter();
+            inv.<Consumer<StagingWriter>>getArgument(0).accept(StagingWriter.of(rows));
+            staged.put(router.currentShard(), rows.toString());
+            return rows.toString().lines().count();
+        });
+        when(importRepository.countUserRejects()).thenReturn(0L, 1L);
+        when(importRepository.findUserRejects(10)).thenReturn(List.of(), List.of(new RejectedRow(2, "email already exists")));
+        String content = "name,email\n" + IntStream.range(0, 8)
+                .mapToObj(i -> "U" + i + ",u" + i + "@example.com\n")
+                .collect(Collectors.joining()) + "Bob,not-an-email\n";
+
+        ImportReport report = service.importUsers(csv(content), FileFormat.CSV);
+
+        assertEquals(Set.of(0, 1), staged.keySet());
+        for (int i = 0; i < 8; i++) {
+            String email = "u" + i + "@example.com";
+            assertTrue(staged.get(router.shardOfEmail(email)).contains(email));
+            assertFalse(staged.get(1 - router.shardOfEmail(email)).contains(email));
+        }
+        assertTrue(staged.get(0).contains("\"invalid email\""));
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(importRepository, times(2)).mergeUsers();
+        assertEquals(new ImportReport(9, 8, 1, List.of(new RejectedRow(2, "email already exists"))), report);
+    }
+
+    @Test
+    void importAccounts_defaultsBalanceToZero() {
+        StagingWriter writer = mock(StagingWriter.class);
+        when(importRepository.copyAccounts(any())).thenAnswer(inv -> {
+            inv.<Consumer<StagingWriter>>getArgument(0).accept(writer);
+            return 2L;
+        });
+        when(accountNumberGenerator.isReserved(any())).thenReturn(false);
+
+        ImportReport report = service.importAccounts(
+                csv("number,email,balance\nACC-1,a@example.com,\nACC-2,a@example.com,10.5\n"), FileFormat.CSV);
+
+        verify(writer).row(2L, "ACC-1", "a@example.com", java.math.BigDecimal.ZERO, null);
+        verify(writer).row(3L, "ACC-2", "a@example.com", "10.5", null);
+        verify(importRepository).mergeAccounts();
+        assertEquals(2, report.imported());
+    }
+
+    @Test
+    void importAccounts_duringRepartitioning_503() {
+        when(importRepository.accountsRepartitioning()).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.importAccounts(csv("number,email\nACC-1,a@example.com\n"), FileFormat.CSV));
+
+        assertEquals(SERVICE_UNAVAILABLE, ex.getStatusCode());
+        verify(importRepository, never()).createAccountStaging();
+    }
+
+    @Test
+    void validateUser_rejectsBadRows() {
+        assertNull(ImportService.validateUser(new String[]{"Alice", "a@example.com", null}));
+        assertEquals("name is blank", ImportService.validateUser(new String[]{" ", "a@example.com", null}));
+        assertEquals("invalid email", ImportService.validateUser(new String[]{"Alice", "a@b", null}));
+        assertEquals("invalid registered_at", ImportService.validateUser(new String[]{"Alice", "a@example.com", "yesterday"}));
+        assertEquals("value contains NUL character", ImportService.validateUser(new String[]{"Al\u0000ice", "a@example.com", null}));
+    }
+
+    @Test
+    void validateAccount_rejectsBadRows() {
+        when(accountNumberGenerator.isReserved(any())).thenAnswer(inv -> inv.<String>getArgument(0).startsWith("BS"));
+
+        assertNull(service.validateAccount(new String[]{"ACC-1", "a@example.com", "100.00"}));
+        assertEquals("number format is reserved for generated numbers",
+                service.validateAccount(new String[]{"BS00000000000100", "a@example.com", null}));
+        assertEquals("number is too long", service.validateAccount(new String[]{"X".repeat(35), "a@example.com", null}));
+        assertEquals("owner email is blank", service.validateAccount(new String[]{"ACC-1", null, null}));
+        assertEquals("invalid balance", service.validateAccount(new String[]{"ACC-1", "a@example.com", "ten"}));
+        assertEquals("balance is negative", service.validateAccount(new String[]{"ACC-1", "a@example.com", "-1"}));
+        assertEquals("balance does not fit NUMERIC(19,2)",
+                service.validateAccount(new String[]{"ACC-1", "a@example.com", "1.001"}));
+    }
+
+    @Test
+    void parseTimestamp_acceptsInstantAndLocal() {
+        assertEquals(LocalDateTime.of(2024, 1, 1, 7, 0), ImportService.parseTimestamp("2024-01-01T10:00:00+03:00"));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), ImportService.parseTimestamp("2024-01-01T10:00"));
+        assertNull(ImportService.parseTimestamp("01.01.2024"));
+    }
+}
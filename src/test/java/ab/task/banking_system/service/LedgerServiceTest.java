@@ -0,0 +1,126 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.model.LedgerEntry;
+import ab.task.banking_system.model.TransactionType;
+import ab.task.banking_system.repository.AccountRepository;
+import ab.task.banking_system.repository.LedgerRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    LedgerRepository ledgerRepository;
+    @Mock
+    AccountRepository accountRepository;
+
+    @Spy
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    LedgerService ledgerService;
+
+    private static LedgerEntry entry(long id, String createdAt) {
+        return new LedgerEntry(id, 1L, TransactionType.DEPOSIT, BigDecimal.TEN, BigDecimal.TEN, null, Instant.parse(createdAt));
+    }
+
+    @Test
+    void statement_fullPage_cursorPointsAfterLastEntry() {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(ledgerRepository.findLatest(eq(1L), any(), eq(2)))
+                .thenReturn(List.of(entry(9, "2026-10-05T10:00:00Z"), entry(7, "2026-10-03T10:00:00Z")));
+
+        StatementPage page = ledgerService.statement(1L, null, 2);
+
+        assertEquals(2, page.entries().size());
+        assertEquals(new StatementCursor(Instant.parse("2026-10-03T10:00:00Z"), 7), StatementCursor.decode(page.nextCursor()));
+        verify(ledgerRepository, never()).findLatestTimeBefore(any(), any());
+    }
+
+    @Test
+    void statement_cursorReadsOnlyItsOwnMonth() {
+        StatementCursor cursor = new StatementCursor(Instant.parse("2026-09-15T08:00:00Z"), 42);
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(ledgerRepository.findBefore(1L, Instant.parse("2026-09-01T00:00:00Z"), cursor.createdAt(), 42, 10))
+                .thenReturn(List.of(entry(40, "2026-09-02T08:00:00Z")));
+        when(ledgerRepository.findLatestTimeBefore(1L, Instant.parse("2026-09-01T00:00:00Z")))
+                .thenReturn(Optional.of(Instant.parse("2026-08-20T12:00:00Z")));
+
+        StatementPage page = ledgerService.statement(1L, cursor.encode(), 10);
+
+        assertEquals(1, page.entries().size());
+        assertEquals(new StatementCursor(Instant.parse("2026-08-20T12:00:00Z"), Long.MAX_VALUE),
+                StatementCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void statement_emptyMonths_skippedToLatestOlderEntry() {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(ledgerRepository.findLatest(eq(1L), any(), eq(10))).thenReturn(List.of());
+        Instant latest = Instant.parse("2026-03-10T09:00:00Z");
+        when(ledgerRepository.findLatestTimeBefore(eq(1L), any())).thenReturn(Optional.of(latest), Optional.empty());
+        when(ledgerRepository.findBefore(1L, Instant.parse("2026-03-01T00:00:00Z"), latest, Long.MAX_VALUE, 10))
+                .thenReturn(List.of(entry(3, "2026-03-10T09:00:00Z"), entry(2, "2026-03-02T09:00:00Z")));
+
+        StatementPage page = ledgerService.statement(1L, null, 10);
+
+        assertEquals(List.of(3L, 2L), page.entries().stream().map(LedgerEntry::id).toList());
+        assertNull(page.nextCursor());
+        verify(ledgerRepository).findLatestTimeBefore(1L, Instant.parse("2026-03-01T00:00:00Z"));
+    }
+
+    @Test
+    void statement_noOlderEntries_emptyPageWithoutNextCursor() {
+        StatementCursor cursor = new StatementCursor(Instant.parse("2026-08-10T00:00:00Z"), 5);
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(ledgerRepository.findBefore(eq(1L), any(), any(), eq(5L), eq(10))).thenReturn(List.of());
+        when(ledgerRepository.findLatestTimeBefore(1L, Instant.parse("2026-08-01T00:00:00Z"))).thenReturn(Optional.empty());
+
+        StatementPage page = ledgerService.statement(1L, cursor.encode(), 10);
+
+        assertTrue(page.entries().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void statement_accountNotFound_404() {
+        when(accountRepository.existsById(1L)).thenReturn(false);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> ledgerService.statement(1L, null, 10));
+
+        assertEquals(NOT_FOUND.value(), ex.getStatusCode().value());
+    }
+
+    @Test
+    void statement_invalidCursorOrLimit_400() {
+        ResponseStatusException badCursor = assertThrows(ResponseStatusException.class,
+                () -> ledgerService.statement(1L, "not-a-cursor", 10));
+        assertEquals(BAD_REQUEST.value(), badCursor.getStatusCode().value());
+
+        ResponseStatusException badLimit = assertThrows(ResponseStatusException.class,
+                () -> ledgerService.statement(1L, null, 501));
+        assertEquals(BAD_REQUEST.value(), badLimit.getStatusCode().value());
+        verifyNoInteractions(ledgerRepository);
+    }
+}
@@ -0,0 +1,81 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.config.ShardingProperties;
+import ab.task.banking_system.model.UserBalanceSummary;
+import ab.task.banking_system.repository.BalanceTotalRepository;
+import ab.task.banking_system.repository.UserBalanceSummaryRepository;
+import ab.task.banking_system.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    @Mock
+    UserBalanceSummaryRepository userBalanceSummaryRepository;
+
+    @Mock
+    BalanceTotalRepository balanceTotalRepository;
+
+    @Spy
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    ReportService reportService;
+
+    private static UserBalanceSummary summary(long userId) {
+        return new UserBalanceSummary(userId, "User " + userId, "u" + userId + "@example.com", 2,
+                new BigDecimal("30000.00"), new BigDecimal("12000.00"), new BigDecimal("18000.00"));
+    }
+
+    @Test
+    void usersWithAllBalancesAbove_fullPage_returnsNextAfter() {
+        BigDecimal threshold = new BigDecimal("10000");
+        when(userBalanceSummaryRepository.findMinBalanceAbove(threshold, 0L, 2)).thenReturn(List.of(summary(3), summary(7)));
+
+        UserBalanceSummaryPage page = reportService.usersWithAllBalancesAbove(threshold, null, 2);
+
+        assertEquals(2, page.users().size());
+        assertEquals(7L, page.nextAfter());
+    }
+
+    @Test
+    void usersWithAllBalancesAbove_lastPage_nextAfterNull() {
+        BigDecimal threshold = new BigDecimal("10000");
+        when(userBalanceSummaryRepository.findMinBalanceAbove(threshold, 7L, 2)).thenReturn(List.of(summary(9)));
+
+        UserBalanceSummaryPage page = reportService.usersWithAllBalancesAbove(threshold, 7L, 2);
+
+        assertNull(page.nextAfter());
+    }
+
+    @Test
+    void usersWithAllBalancesAbove_badLimit_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> reportService.usersWithAllBalancesAbove(BigDecimal.TEN, null, 501));
+
+        assertEquals(BAD_REQUEST, ex.getStatusCode());
+        verify(userBalanceSummaryRepository, never()).findMinBalanceAbove(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void totalBalance_readsStripes() {
+        when(balanceTotalRepository.stripesTotal()).thenReturn(new BigDecimal("123.45"));
+
+        assertEquals(new BigDecimal("123.45"), reportService.totalBalance());
+    }
+}
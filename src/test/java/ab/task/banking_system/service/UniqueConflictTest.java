@@ -0,0 +1,58 @@
+package ab.task.banking_system.service;
+
+import ab.task.banking_system.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Конфликт уникальности, который замечает только база, отвечает 409, а не 500: id выдаются из последовательности
+ * заранее, поэтому INSERT должен уйти в базу внутри {@code create}, а не при фиксации транзакции.
+ * Каждый тест откатывается.
+ */
+@SpringBootTest
+@Transactional
+class UniqueConflictTest {
+
+    @Autowired
+    UserService userService;
+    @Autowired
+    AccountService accountService;
+    @MockitoSpyBean
+    EmailFilter emailFilter;
+
+    @Test
+    void createUser_emailTakenPastFilter_409() {
+        String email = "conflict-" + UUID.randomUUID() + "@example.com";
+        userService.create("Alice", email);
+        // Как при гонке или записи с другого узла: фильтр считает e-mail свободным, проверочного запроса нет.
+        doReturn(false).when(emailFilter).mightContain(anyString());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.create("Bob", email));
+
+        assertEquals(CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void createAccount_numberTaken_409() {
+        User user = userService.create("Alice", "conflict-" + UUID.randomUUID() + "@example.com");
+        String number = "DUP" + UUID.randomUUID().toString().substring(0, 8);
+        accountService.create(user.getId(), number);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> accountService.create(user.getId(), number));
+
+        assertEquals(CONFLICT, ex.getStatusCode());
+    }
+}
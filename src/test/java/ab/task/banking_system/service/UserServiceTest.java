@@ -1,21 +1,31 @@
 package ab.task.banking_system.service;
 
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.config.ShardingProperties;
 import ab.task.banking_system.model.User;
+import ab.task.banking_system.repository.BulkInsertRepository;
 import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
@@ -24,6 +34,19 @@ class UserServiceTest {
 
     @Mock
     UserRepository userRepository;
+    @Mock
+    UserStreamRepository userStreamRepository;
+    @Mock
+    EmailFilter emailFilter;
+    @Mock
+    BulkInsertRepository bulkInsertRepository;
+    @Mock
+    AuditLog auditLog;
+    @Spy
+    BatchProperties batchProperties = new BatchProperties(2, 5, 3);
+
+    @Spy
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class));
 
     @InjectMocks
     UserService userService;
@@ -40,8 +63,9 @@ class UserServiceTest {
 
     @Test
     void create_success() {
+        when(emailFilter.mightContain("adilet@example.com")).thenReturn(true);
         when(userRepository.existsByEmail("adilet@example.com")).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         User saved = userService.create("Adilet", "adilet@example.com");
 
@@ -49,11 +73,27 @@ class UserServiceTest {
         assertEquals(1L, saved.getId());
         assertEquals("adilet@example.com", saved.getEmail());
         verify(userRepository).existsByEmail("adilet@example.com");
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(emailFilter).recordFalsePositive();
+        verify(emailFilter).add("adilet@example.com");
+        verify(auditLog).userCreated(1L);
+    }
+
+    @Test
+    void create_definitelyNewEmail_skipsExistsQuery() {
+        when(emailFilter.mightContain("adilet@example.com")).thenReturn(false);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+
+        userService.create("Adilet", "adilet@example.com");
+
+        verify(userRepository, never()).existsByEmail(any());
+        verify(emailFilter, never()).recordFalsePositive();
+        verify(emailFilter).add("adilet@example.com");
     }
 
     @Test
     void create_conflict_whenEmailAlreadyExists_precheck() {
+        when(emailFilter.mightContain("vincent@example.com")).thenReturn(true);
         when(userRepository.existsByEmail("vincent@example.com")).thenReturn(true);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
@@ -61,13 +101,14 @@ class UserServiceTest {
 
         assertEquals(CONFLICT.value(), ex.getStatusCode().value());
         verify(userRepository).existsByEmail("vincent@example.com");
-        verify(userRepository, never()).save(any());
+        verify(userRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void create_conflict_whenDbUniqueViolation_race() {
+        when(emailFilter.mightContain("peter@example.com")).thenReturn(true);
         when(userRepository.existsByEmail("peter@example.com")).thenReturn(false);
-        when(userRepository.save(any(User.class)))
+        when(userRepository.saveAndFlush(any(User.class)))
                 .thenThrow(new DataIntegrityViolationException("unique_violation"));
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
@@ -75,7 +116,21 @@ class UserServiceTest {
 
         assertEquals(CONFLICT.value(), ex.getStatusCode().value());
         verify(userRepository).existsByEmail("peter@example.com");
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(emailFilter, never()).add(any());
+    }
+
+    @Test
+    void create_conflict_whenFilterMissesExistingEmail() {
+        when(emailFilter.mightContain("peter@example.com")).thenReturn(false);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("unique_violation"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.create("Peter", "peter@example.com"));
+
+        assertEquals(CONFLICT.value(), ex.getStatusCode().value());
+        verify(userRepository, never()).existsByEmail(any());
     }
 
     @Test
@@ -100,12 +155,110 @@ class UserServiceTest {
     }
 
     @Test
-    void listAll_returnsUsers() {
-        when(userRepository.findAll()).thenReturn(List.of(user));
+    void listPage_fullPage_returnsNextAfter() {
+        User second = new User();
+        second.setId(2L);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(user, second));
+
+        UserPage page = userService.listPage(null, 2);
+
+        assertEquals(2, page.users().size());
+        assertEquals(2L, page.nextAfter());
+    }
+
+    @Test
+    void listPage_lastPage_nextAfterNull() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(50))).thenReturn(List.of());
+
+        UserPage page = userService.listPage(1L, 50);
+
+        assertTrue(page.users().isEmpty());
+        assertNull(page.nextAfter());
+    }
+
+    @Test
+    void listPage_twoShards_fillsPageFromNextShard() {
+        ShardingProperties.Shard db = new ShardingProperties.Shard("jdbc:postgresql://localhost/bank", "u", "p");
+        UserService sharded = new UserService(userRepository, userStreamRepository, emailFilter, bulkInsertRepository,
+                batchProperties, auditLog, new ShardRouter(new ShardingProperties(true, List.of(db, db)),
+                mock(PlatformTransactionManager.class)));
+        User onShard1 = new User();
+        onShard1.setId((1L << ShardRouter.SHARD_BITS) + 1);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(user));
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1))).thenReturn(List.of(onShard1));
+
+        UserPage page = sharded.listPage(null, 2);
+
+        assertEquals(List.of(user, onShard1), page.users());
+        assertEquals(onShard1.getId(), page.nextAfter());
+    }
+
+    @Test
+    void listPage_invalidLimit_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> userService.listPage(null, 501));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void streamAll_delegatesToCursor() {
+        Consumer<User> consumer = u -> {};
+        when(userStreamRepository.forEachAfter(0L, consumer)).thenReturn(3L);
+
+        assertEquals(3L, userService.streamAll(null, consumer));
+    }
+
+    private static User newUser(String email) {
+        User u = new User();
+        u.setName("N");
+        u.setEmail(email);
+        return u;
+    }
+
+    @Test
+    void createAll_checksOnlyMaybePresentEmails_inChunks() {
+        List<User> users = List.of(newUser("a@x.io"), newUser("b@x.io"), newUser("c@x.io"));
+        when(emailFilter.mightContain(any())).thenReturn(true);
+        when(emailFilter.mightContain("b@x.io")).thenReturn(false);
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of());
+
+        List<User> saved = userService.createAll(users);
+
+        assertSame(users, saved);
+        verify(userRepository).findExistingEmails(List.of("a@x.io", "c@x.io"));
+        verify(bulkInsertRepository).persistAll(users);
+        verify(emailFilter).recordFalsePositives(2);
+        verify(emailFilter).add("b@x.io");
+    }
+
+    @Test
+    void createAll_existingEmail_409_nothingInserted() {
+        when(emailFilter.mightContain(any())).thenReturn(true);
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("a@x.io"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.createAll(List.of(newUser("a@x.io"))));
+
+        assertEquals(CONFLICT.value(), ex.getStatusCode().value());
+        verifyNoInteractions(bulkInsertRepository);
+    }
+
+    @Test
+    void createAll_duplicateInRequest_400() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.createAll(List.of(newUser("a@x.io"), newUser("a@x.io"))));
+
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
+        verifyNoInteractions(bulkInsertRepository);
+    }
+
+    @Test
+    void createAll_tooMany_400() {
+        List<User> users = List.of(newUser("1@x.io"), newUser("2@x.io"), newUser("3@x.io"), newUser("4@x.io"));
 
-        List<User> list = userService.listAll();
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> userService.createAll(users));
 
-        assertEquals(1, list.size());
-        verify(userRepository).findAll();
+        assertEquals(BAD_REQUEST.value(), ex.getStatusCode().value());
     }
 }
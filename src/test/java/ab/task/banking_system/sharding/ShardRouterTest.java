@@ -0,0 +1,132 @@
+package ab.task.banking_system.sharding;
+
+import ab.task.banking_system.config.ShardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ShardRouterTest {
+
+    static final long SHARD_1 = 1L << ShardRouter.SHARD_BITS;
+
+    ShardRouter router = routerWith(3);
+
+    static ShardRouter routerWith(int shards) {
+        ShardingProperties.Shard shard = new ShardingProperties.Shard("jdbc:postgresql://localhost/bank", "u", "p");
+        return new ShardRouter(new ShardingProperties(true, Collections.nCopies(shards, shard)),
+                mock(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void disabled_singleShard() {
+        ShardRouter single = new ShardRouter(new ShardingProperties(false, List.of()), mock(PlatformTransactionManager.class));
+
+        assertEquals(1, single.count());
+        assertEquals(0, single.shardOfId(SHARD_1 + 5));
+        assertEquals(0, single.shardOfEmail("a@example.com"));
+    }
+
+    @Test
+    void tooManyShards_rejected() {
+        assertThrows(IllegalStateException.class, () -> routerWith(ShardRouter.MAX_SHARDS + 1));
+    }
+
+    @Test
+    void shardOfId_readsHighBits() {
+        assertEquals(0, router.shardOfId(42));
+        assertEquals(1, router.shardOfId(SHARD_1 + 42));
+        assertEquals(2, router.shardOfId(2 * SHARD_1 + 1));
+        assertEquals(0, router.shardOfId(7 * SHARD_1 + 1));
+        assertEquals(0, router.shardOfId(-1));
+    }
+
+    @Test
+    void shardAfter_continuesOnShardOfCursor() {
+        assertEquals(0, ShardRouter.shardAfter(0));
+        assertEquals(0, ShardRouter.shardAfter(SHARD_1 - 1));
+        assertEquals(1, ShardRouter.shardAfter(SHARD_1));
+        assertEquals(2, ShardRouter.shardAfter(2 * SHARD_1 + 9));
+    }
+
+    @Test
+    void shardOfEmail_stableAndSpread() {
+        int[] perShard = new int[router.count()];
+        for (int i = 0; i < 3000; i++) {
+            String email = "user" + i + "@example.com";
+            int shard = router.shardOfEmail(email);
+            assertEquals(shard, router.shardOfEmail(email));
+            perShard[shard]++;
+        }
+        for (int n : perShard) {
+            assertTrue(n > 800, "uneven spread: " + n);
+        }
+    }
+
+    @Test
+    void call_setsShardAndRestores() {
+        assertEquals(2, router.call(2, ShardContext::get));
+        assertNull(ShardContext.get());
+
+        router.call(1, () -> {
+            assertEquals(0, router.call(0, ShardContext::get));
+            assertEquals(1, ShardContext.get());
+            return null;
+        });
+        assertNull(ShardContext.get());
+    }
+
+    @Test
+    void call_unknownShard_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> router.call(3, () -> null));
+    }
+
+    @Test
+    void call_otherShardInsideTransaction_rejected() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertEquals(0, router.call(0, ShardContext::currentOrDefault));
+        assertThrows(IllegalStateException.class, () -> router.call(1, () -> null));
+    }
+
+    @Test
+    void inTransaction_runsOnShard() {
+        assertEquals(1, router.inReadOnlyTransaction(1, ShardContext::get));
+        assertNull(ShardContext.get());
+    }
+
+    @Test
+    void scatter_resultsInShardOrder() {
+        List<Integer> shards = router.scatter(shard -> {
+            assertEquals(shard, ShardContext.get());
+            return shard;
+        });
+
+        assertEquals(IntStream.range(0, 3).boxed().toList(), shards);
+        assertEquals(shards, router.onEach(shard -> ShardContext.get()));
+    }
+
+    @Test
+    void scatter_propagatesFailure() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> router.scatter(shard -> {
+            if (shard == 1) {
+                throw new IllegalStateException("boom");
+            }
+            return shard;
+        }));
+        assertEquals("boom", e.getMessage());
+    }
+}
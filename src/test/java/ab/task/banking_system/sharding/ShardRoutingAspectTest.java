@@ -0,0 +1,90 @@
+package ab.task.banking_system.sharding;
+
+import ab.task.banking_system.config.BatchProperties;
+import ab.task.banking_system.model.User;
+import ab.task.banking_system.repository.BulkInsertRepository;
+import ab.task.banking_system.repository.UserRepository;
+import ab.task.banking_system.repository.UserStreamRepository;
+import ab.task.banking_system.service.AuditLog;
+import ab.task.banking_system.service.EmailFilter;
+import ab.task.banking_system.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRoutingAspectTest {
+
+    ShardRouter router = ShardRouterTest.routerWith(2);
+    UserRepository userRepository = mock(UserRepository.class);
+    EmailFilter emailFilter = mock(EmailFilter.class);
+    List<Integer> seenShards = new ArrayList<>();
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new UserService(userRepository,
+                mock(UserStreamRepository.class), emailFilter, mock(BulkInsertRepository.class),
+                new BatchProperties(1000, 500000, 100000), mock(AuditLog.class), router));
+        factory.addAspect(new ShardRoutingAspect(router));
+        userService = factory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+    }
+
+    @Test
+    void idKey_routesToShardOfId() {
+        when(userRepository.findById(anyLong())).thenAnswer(inv -> {
+            seenShards.add(ShardContext.get());
+            return Optional.of(new User());
+        });
+
+        userService.getById(5L);
+        userService.getById(ShardRouterTest.SHARD_1 + 5);
+
+        assertEquals(List.of(0, 1), seenShards);
+        assertNull(ShardContext.get());
+    }
+
+    @Test
+    void emailKey_routesToShardOfEmail() {
+        String email = "routed@example.com";
+        when(emailFilter.mightContain(email)).thenReturn(false);
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(inv -> {
+            seenShards.add(ShardContext.get());
+            User saved = inv.getArgument(0);
+            saved.setId(7L);
+            return saved;
+        });
+
+        userService.create("Routed", email);
+
+        assertEquals(List.of(router.shardOfEmail(email)), seenShards);
+    }
+
+    @Test
+    void nullKey_leavesShardUnset() {
+        when(userRepository.findById(null)).thenAnswer(inv -> {
+            seenShards.add(ShardContext.get());
+            return Optional.empty();
+        });
+
+        assertThrows(ResponseStatusException.class, () -> userService.getById(null));
+        assertEquals(Collections.singletonList(null), seenShards);
+    }
+}
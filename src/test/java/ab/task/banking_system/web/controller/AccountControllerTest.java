@@ -1,11 +1,28 @@
 package ab.task.banking_system.web.controller;
 
 import ab.task.banking_system.model.Account;
+import ab.task.banking_system.model.AccountBalance;
+import ab.task.banking_system.model.AccountSnapshot;
+import ab.task.banking_system.model.TransactionType;
+import ab.task.banking_system.model.TransferResult;
 import ab.task.banking_system.service.AccountService;
+import ab.task.banking_system.service.BalanceOperationResult;
+import ab.task.banking_system.service.BatchOperationService;
+import ab.task.banking_system.service.LedgerService;
+import ab.task.banking_system.service.StatementPage;
+import ab.task.banking_system.service.OperationStatus;
 import ab.task.banking_system.web.dto.AccountCreateRequest;
 import ab.task.banking_system.web.dto.AccountResponse;
 import ab.task.banking_system.web.dto.AmountRequest;
+import ab.task.banking_system.web.dto.BalanceResponse;
+import ab.task.banking_system.web.dto.BatchOperationResult;
+import ab.task.banking_system.web.dto.StatementResponse;
+import ab.task.banking_system.web.dto.TransactionResponse;
+import ab.task.banking_system.web.dto.TransferRequest;
+import ab.task.banking_system.web.dto.TransferResponse;
 import ab.task.banking_system.web.mapper.AccountMapper;
+import ab.task.banking_system.web.mapper.BatchOperationMapper;
+import ab.task.banking_system.web.mapper.LedgerMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,12 +34,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -41,6 +60,18 @@ class AccountControllerTest {
     @MockitoBean
     AccountMapper accountMapper;
 
+    @MockitoBean
+    BatchOperationService batchOperationService;
+
+    @MockitoBean
+    BatchOperationMapper batchOperationMapper;
+
+    @MockitoBean
+    LedgerService ledgerService;
+
+    @MockitoBean
+    LedgerMapper ledgerMapper;
+
     @Test
     void create_returns201_withBody() throws Exception {
         AccountCreateRequest req = new AccountCreateRequest(5L, "5f8d5v7f5d6c8d");
@@ -90,25 +121,118 @@ class AccountControllerTest {
     }
 
     @Test
-    void deposit_returns204() throws Exception {
+    void get_returns200_withAccount() throws Exception {
+        AccountSnapshot snapshot = new AccountSnapshot(10L, "ACC-10", new BigDecimal("150.00"), 5L, 3);
+        given(accountService.getById(10L)).willReturn(snapshot);
+        given(accountMapper.toResponse(snapshot)).willReturn(new AccountResponse(10L, "ACC-10", new BigDecimal("150.00"), 5L));
+
+        mockMvc.perform(get("/api/accounts/10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value("ACC-10"))
+                .andExpect(jsonPath("$.balance").value(150.00))
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    void get_ifNoneMatchSameVersion_returns304() throws Exception {
+        AccountSnapshot snapshot = new AccountSnapshot(10L, "ACC-10", new BigDecimal("150.00"), 5L, 3);
+        given(accountService.getById(10L)).willReturn(snapshot);
+        given(accountMapper.toResponse(snapshot)).willReturn(new AccountResponse(10L, "ACC-10", new BigDecimal("150.00"), 5L));
+
+        mockMvc.perform(get("/api/accounts/10").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void get_ifNoneMatchOldVersion_returns200() throws Exception {
+        AccountSnapshot snapshot = new AccountSnapshot(10L, "ACC-10", new BigDecimal("150.00"), 5L, 4);
+        given(accountService.getById(10L)).willReturn(snapshot);
+        given(accountMapper.toResponse(snapshot)).willReturn(new AccountResponse(10L, "ACC-10", new BigDecimal("150.00"), 5L));
+
+        mockMvc.perform(get("/api/accounts/10").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void get_notFound_returns404() throws Exception {
+        given(accountService.getById(99L)).willThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+
+        mockMvc.perform(get("/api/accounts/99"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deposit_returns200_withNewBalance() throws Exception {
+        AmountRequest amount = new AmountRequest(new BigDecimal("50.00"));
+        AccountBalance balance = new AccountBalance(10L, new BigDecimal("150.00"), 3);
+        given(accountService.deposit(10L, new BigDecimal("50.00"), null, null)).willReturn(balance);
+        given(accountMapper.toResponse(balance)).willReturn(new BalanceResponse(10L, new BigDecimal("150.00"), 3));
+
+        mockMvc.perform(post("/api/accounts/10/deposit")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(amount)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountId").value(10))
+                .andExpect(jsonPath("$.balance").value(150.00))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void withdraw_returns200_withNewBalance() throws Exception {
+        AmountRequest amount = new AmountRequest(new BigDecimal("20.00"));
+        AccountBalance balance = new AccountBalance(10L, new BigDecimal("80.00"), 4);
+        given(accountService.withdraw(10L, new BigDecimal("20.00"), null, null)).willReturn(balance);
+        given(accountMapper.toResponse(balance)).willReturn(new BalanceResponse(10L, new BigDecimal("80.00"), 4));
+
+        mockMvc.perform(post("/api/accounts/10/withdraw")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(amount)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(80.00))
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    void deposit_passesIdempotencyKey() throws Exception {
+        AmountRequest amount = new AmountRequest(new BigDecimal("50.00"));
+        AccountBalance balance = new AccountBalance(10L, new BigDecimal("150.00"), 3);
+        given(accountService.deposit(10L, new BigDecimal("50.00"), "key-1", null)).willReturn(balance);
+        given(accountMapper.toResponse(balance)).willReturn(new BalanceResponse(10L, new BigDecimal("150.00"), 3));
+
+        mockMvc.perform(post("/api/accounts/10/deposit")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(amount)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(150.00));
+    }
+
+    @Test
+    void deposit_ifMatch_passesExpectedVersion() throws Exception {
         AmountRequest amount = new AmountRequest(new BigDecimal("50.00"));
-        doNothing().when(accountService).deposit(10L, new BigDecimal("50.00"));
+        AccountBalance balance = new AccountBalance(10L, new BigDecimal("150.00"), 4);
+        given(accountService.deposit(10L, new BigDecimal("50.00"), null, 3L)).willReturn(balance);
+        given(accountMapper.toResponse(balance)).willReturn(new BalanceResponse(10L, new BigDecimal("150.00"), 4));
 
         mockMvc.perform(post("/api/accounts/10/deposit")
+                        .header("If-Match", "\"3\"")
                         .contentType(APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(amount)))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
     }
 
     @Test
-    void withdraw_returns204() throws Exception {
+    void withdraw_ifMatchWeakTag_returns412() throws Exception {
         AmountRequest amount = new AmountRequest(new BigDecimal("20.00"));
-        doNothing().when(accountService).withdraw(10L, new BigDecimal("20.00"));
 
         mockMvc.perform(post("/api/accounts/10/withdraw")
+                        .header("If-Match", "W/\"3\"")
                         .contentType(APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(amount)))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isPreconditionFailed());
     }
 
     @Test
@@ -117,7 +241,7 @@ class AccountControllerTest {
 
         doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"))
                 .when(accountService)
-                .deposit(eq(999L), eq(amount.amount()));
+                .deposit(eq(999L), eq(amount.amount()), isNull(), isNull());
 
         mockMvc.perform(post("/api/accounts/{id}/deposit", 999L)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -129,7 +253,7 @@ class AccountControllerTest {
     void deposit_validationError_returns400_whenBodyMissingAmount() throws Exception {
         doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be > 0"))
                 .when(accountService)
-                .deposit(eq(10L), isNull());
+                .deposit(eq(10L), isNull(), isNull(), isNull());
 
         String badJson = "{}";
 
@@ -145,11 +269,119 @@ class AccountControllerTest {
 
         doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be > 0"))
                 .when(accountService)
-                .withdraw(eq(10L), eq(new BigDecimal("-1.00")));
+                .withdraw(eq(10L), eq(new BigDecimal("-1.00")), isNull(), isNull());
 
         mockMvc.perform(post("/api/accounts/10/withdraw")
                         .contentType(APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(badAmount)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void transfer_returns200_withBothBalances() throws Exception {
+        TransferRequest req = new TransferRequest(10L, 11L, new BigDecimal("30.00"));
+        TransferResult result = new TransferResult(
+                new AccountBalance(10L, new BigDecimal("70.00"), 2),
+                new AccountBalance(11L, new BigDecimal("30.00"), 1));
+        given(accountService.transfer(10L, 11L, new BigDecimal("30.00"), null)).willReturn(result);
+        given(accountMapper.toResponse(result)).willReturn(new TransferResponse(
+                new BalanceResponse(10L, new BigDecimal("70.00"), 2),
+                new BalanceResponse(11L, new BigDecimal("30.00"), 1)));
+
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.from.balance").value(70.00))
+                .andExpect(jsonPath("$.to.accountId").value(11));
+    }
+
+    @Test
+    void transfer_insufficientFunds_returns409() throws Exception {
+        TransferRequest req = new TransferRequest(10L, 11L, new BigDecimal("1000.00"));
+        doThrow(new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient funds"))
+                .when(accountService)
+                .transfer(10L, 11L, new BigDecimal("1000.00"), null);
+
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void transfer_validationError_returns400_whenTargetMissing() throws Exception {
+        String badJson = """
+            {"fromAccountId": 10, "amount": 5.00}
+            """;
+
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(APPLICATION_JSON)
+                        .content(badJson))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batch_returns200_withPerItemResults() throws Exception {
+        String body = """
+            {"operations": [
+              {"accountId": 1, "type": "DEPOSIT", "amount": 10.00},
+              {"accountId": 2, "type": "WITHDRAW", "amount": 99.00}
+            ]}
+            """;
+
+        List<BalanceOperationResult> results = List.of(
+                new BalanceOperationResult(0, 1L, OperationStatus.APPLIED),
+                new BalanceOperationResult(1, 2L, OperationStatus.INSUFFICIENT_FUNDS));
+
+        given(batchOperationService.execute(anyList())).willReturn(results);
+        given(batchOperationMapper.toResults(results)).willReturn(List.of(
+                new BatchOperationResult(0, 1L, OperationStatus.APPLIED),
+                new BatchOperationResult(1, 2L, OperationStatus.INSUFFICIENT_FUNDS)));
+
+        mockMvc.perform(post("/api/accounts/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("INSUFFICIENT_FUNDS"));
+    }
+
+    @Test
+    void batch_validationError_returns400_whenEmpty() throws Exception {
+        mockMvc.perform(post("/api/accounts/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transactions_returns200_withNextCursor() throws Exception {
+        StatementPage page = new StatementPage(List.of(), "abc");
+        TransactionResponse tx = new TransactionResponse(100L, TransactionType.DEPOSIT, new BigDecimal("10.00"),
+                new BigDecimal("60.00"), null, Instant.parse("2026-10-01T10:00:00Z"));
+
+        given(ledgerService.statement(10L, "prev", 20)).willReturn(page);
+        given(ledgerMapper.toResponse(page)).willReturn(new StatementResponse(List.of(tx), "abc"));
+
+        mockMvc.perform(get("/api/accounts/10/transactions")
+                        .param("cursor", "prev")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(100))
+                .andExpect(jsonPath("$.items[0].balanceAfter").value(60.00))
+                .andExpect(jsonPath("$.nextCursor").value("abc"));
+    }
+
+    @Test
+    void transactions_defaultLimit_50() throws Exception {
+        StatementPage page = new StatementPage(List.of(), null);
+        given(ledgerService.statement(10L, null, 50)).willReturn(page);
+        given(ledgerMapper.toResponse(page)).willReturn(new StatementResponse(List.of(), null));
+
+        mockMvc.perform(get("/api/accounts/10/transactions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+    }
 }
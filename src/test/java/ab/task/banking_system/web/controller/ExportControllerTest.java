@@ -0,0 +1,78 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.config.StreamingProperties;
+import ab.task.banking_system.service.ExportService;
+import ab.task.banking_system.service.FileFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExportController.class)
+@EnableConfigurationProperties(StreamingProperties.class)
+class ExportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    ExportService exportService;
+
+    @Test
+    void exportAccounts_csvByDefault_streamsAttachment() throws Exception {
+        given(exportService.exportAccounts(any(), eq(FileFormat.CSV), eq(false))).willAnswer(inv -> {
+            inv.<OutputStream>getArgument(0).write("account_id,number\n1,ACC-1\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/export/accounts"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment; filename=\"accounts-")))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, endsWith(".csv\"")))
+                .andExpect(content().string("account_id,number\n1,ACC-1\n"));
+    }
+
+    @Test
+    void exportAccounts_ndjsonGzip() throws Exception {
+        given(exportService.exportAccounts(any(), eq(FileFormat.NDJSON), eq(true))).willReturn(0L);
+
+        MvcResult result = mockMvc.perform(get("/api/export/accounts").param("format", "NDJSON").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, endsWith(".ndjson.gz\"")));
+    }
+
+    @Test
+    void exportAccounts_unknownFormat_400() throws Exception {
+        mockMvc.perform(get("/api/export/accounts").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+}
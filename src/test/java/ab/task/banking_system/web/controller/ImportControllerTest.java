@@ -0,0 +1,104 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.repository.ImportRepository.RejectedRow;
+import ab.task.banking_system.service.FileFormat;
+import ab.task.banking_system.service.ImportReport;
+import ab.task.banking_system.service.ImportService;
+import ab.task.banking_system.web.dto.ImportResponse;
+import ab.task.banking_system.web.dto.RejectedRowResponse;
+import ab.task.banking_system.web.mapper.ImportMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImportController.class)
+class ImportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    ImportService importService;
+
+    @MockitoBean
+    ImportMapper importMapper;
+
+    @Test
+    void importUsers_csv_returnsReport() throws Exception {
+        ImportReport report = new ImportReport(2, 1, 1, List.of(new RejectedRow(3, "invalid email")));
+        given(importService.importUsers(any(), eq(FileFormat.CSV))).willReturn(report);
+        given(importMapper.toResponse(report))
+                .willReturn(new ImportResponse(2, 1, 1, List.of(new RejectedRowResponse(3, "invalid email"))));
+
+        mockMvc.perform(post("/api/import/users")
+                        .contentType("text/csv")
+                        .content("name,email\nAlice,a@example.com\nBob,bad\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejectedRows[0].line").value(3))
+                .andExpect(jsonPath("$.rejectedRows[0].error").value("invalid email"));
+    }
+
+    @Test
+    void importAccounts_gzipNdjson_isDecompressed() throws Exception {
+        String body = "{\"number\":\"ACC-1\",\"email\":\"a@example.com\"}\n";
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        ImportReport report = new ImportReport(1, 1, 0, List.of());
+        given(importService.importAccounts(any(), eq(FileFormat.NDJSON))).willAnswer(inv -> {
+            InputStream in = inv.getArgument(0);
+            if (!new String(in.readAllBytes(), StandardCharsets.UTF_8).equals(body)) {
+                throw new AssertionError("body was not decompressed");
+            }
+            return report;
+        });
+        given(importMapper.toResponse(report)).willReturn(new ImportResponse(1, 1, 0, List.of()));
+
+        mockMvc.perform(post("/api/import/accounts")
+                        .contentType("application/x-ndjson")
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(gzipped.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+
+    @Test
+    void importUsers_unsupportedContentType_415() throws Exception {
+        mockMvc.perform(post("/api/import/users")
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(importService);
+    }
+
+    @Test
+    void importUsers_unsupportedEncoding_415() throws Exception {
+        mockMvc.perform(post("/api/import/users")
+                        .contentType("text/csv")
+                        .header(HttpHeaders.CONTENT_ENCODING, "br")
+                        .content("name,email\n"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(importService);
+    }
+}
@@ -0,0 +1,68 @@
+package ab.task.banking_system.web.controller;
+
+import ab.task.banking_system.model.UserBalanceSummary;
+import ab.task.banking_system.service.ReportService;
+import ab.task.banking_system.service.UserBalanceSummaryPage;
+import ab.task.banking_system.web.dto.UserBalanceSummaryPageResponse;
+import ab.task.banking_system.web.dto.UserBalanceSummaryResponse;
+import ab.task.banking_system.web.mapper.ReportMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReportController.class)
+class ReportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    ReportService reportService;
+
+    @MockitoBean
+    ReportMapper reportMapper;
+
+    @Test
+    void usersWithAllBalancesAbove_returnsPage() throws Exception {
+        UserBalanceSummary summary = new UserBalanceSummary(5L, "Adilet", "adilet@example.com", 2,
+                new BigDecimal("25000.00"), new BigDecimal("12000.00"), new BigDecimal("13000.00"));
+        UserBalanceSummaryPage page = new UserBalanceSummaryPage(List.of(summary), null);
+        given(reportService.usersWithAllBalancesAbove(new BigDecimal("10000"), 4L, 50)).willReturn(page);
+        given(reportMapper.toResponse(page)).willReturn(new UserBalanceSummaryPageResponse(List.of(
+                new UserBalanceSummaryResponse(5L, "Adilet", "adilet@example.com", 2,
+                        new BigDecimal("25000.00"), new BigDecimal("12000.00"), new BigDecimal("13000.00"))), null));
+
+        mockMvc.perform(get("/api/reports/users/min-balance-above").param("threshold", "10000").param("after", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].userId").value(5))
+                .andExpect(jsonPath("$.items[0].minBalance").value(12000.00))
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    @Test
+    void usersWithAllBalancesAbove_missingThreshold_400() throws Exception {
+        mockMvc.perform(get("/api/reports/users/min-balance-above"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void totalBalance_returnsTotal() throws Exception {
+        given(reportService.totalBalance()).willReturn(new BigDecimal("2000.50"));
+
+        mockMvc.perform(get("/api/reports/total-balance"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2000.50));
+    }
+}
@@ -1,34 +1,49 @@
 package ab.task.banking_system.web.controller;
 
+import ab.task.banking_system.config.StreamingProperties;
+import ab.task.banking_system.model.Account;
 import ab.task.banking_system.model.User;
 import ab.task.banking_system.service.AccountService;
+import ab.task.banking_system.service.UserPage;
 import ab.task.banking_system.service.UserService;
+import ab.task.banking_system.web.dto.AccountBulkCreateRequest;
+import ab.task.banking_system.web.dto.AccountResponse;
+import ab.task.banking_system.web.dto.UserBulkCreateRequest;
 import ab.task.banking_system.web.dto.UserCreateRequest;
+import ab.task.banking_system.web.dto.UserPageResponse;
 import ab.task.banking_system.web.dto.UserResponse;
 import ab.task.banking_system.web.mapper.AccountMapper;
 import ab.task.banking_system.web.mapper.UserMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
 @WebMvcTest(UserController.class)
+@EnableConfigurationProperties(StreamingProperties.class)
 class UserControllerTest {
 
     @Autowired
@@ -116,23 +131,110 @@ class UserControllerTest {
     }
 
     @Test
-    void listUsers_returns200AndArray() throws Exception {
+    void listUsers_returns200AndPage() throws Exception {
         Instant now = Instant.now();
 
         User u1 = new User(); u1.setId(1L); u1.setName("A"); u1.setEmail("a@ex.com"); u1.setRegisteredAt(now);
         User u2 = new User(); u2.setId(2L); u2.setName("B"); u2.setEmail("b@ex.com"); u2.setRegisteredAt(now);
+        UserPage page = new UserPage(List.of(u1, u2), 2L);
 
         UserResponse r1 = new UserResponse(1L, "A", "a@ex.com", now);
         UserResponse r2 = new UserResponse(2L, "B", "b@ex.com", now);
 
-        when(userService.listAll()).thenReturn(List.of(u1, u2));
-        when(userMapper.toResponse(anyList())).thenReturn(List.of(r1, r2));
+        when(userService.listPage(null, 2)).thenReturn(page);
+        when(userMapper.toResponse(page)).thenReturn(new UserPageResponse(List.of(r1, r2), 2L));
 
-        mockMvc.perform(get("/api/users"))
+        mockMvc.perform(get("/api/users").param("limit", "2"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.nextAfter").value(2));
+    }
+
+    @Test
+    void streamUsers_writesOneJsonObjectPerLine() throws Exception {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        User u1 = new User(); u1.setId(3L);
+        User u2 = new User(); u2.setId(4L);
+        when(userMapper.toResponse(u1)).thenReturn(new UserResponse(3L, "A", "a@ex.com", now));
+        when(userMapper.toResponse(u2)).thenReturn(new UserResponse(4L, "B", "b@ex.com", now));
+        when(userService.streamAll(eq(2L), any())).thenAnswer(inv -> {
+            Consumer<User> consumer = inv.getArgument(1);
+            consumer.accept(u1);
+            consumer.accept(u2);
+            return 2L;
+        });
+
+        MvcResult started = mockMvc.perform(get("/api/users/stream").param("after", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(Duration.ofMinutes(30).toMillis(), started.getRequest().getAsyncContext().getTimeout());
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(3, objectMapper.readTree(lines[0]).get("id").asInt());
+        assertEquals(4, objectMapper.readTree(lines[1]).get("id").asInt());
+    }
+
+    @Test
+    void createAll_returns201() throws Exception {
+        Instant now = Instant.now();
+        UserBulkCreateRequest req = new UserBulkCreateRequest(List.of(
+                new UserCreateRequest("A", "a@example.com"), new UserCreateRequest("B", "b@example.com")));
+        List<User> entities = List.of(new User(), new User());
+        when(userMapper.toEntities(anyList())).thenReturn(entities);
+        when(userService.createAll(entities)).thenReturn(entities);
+        when(userMapper.toResponse(entities)).thenReturn(List.of(
+                new UserResponse(1L, "A", "a@example.com", now), new UserResponse(2L, "B", "b@example.com", now)));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
                 .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[1].id").value(2));
+                .andExpect(jsonPath("$[1].email").value("b@example.com"));
+    }
+
+    @Test
+    void createAll_invalidEmail_returns400() throws Exception {
+        UserBulkCreateRequest req = new UserBulkCreateRequest(List.of(new UserCreateRequest("A", "not-an-email")));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createAccounts_returns201() throws Exception {
+        List<Account> accounts = List.of(new Account(), new Account(), new Account());
+        when(accountService.createAll(7L, 3)).thenReturn(accounts);
+        when(accountMapper.toResponse(accounts)).thenReturn(List.of(
+                new AccountResponse(1L, "BS48000000001001", BigDecimal.ZERO, 7L),
+                new AccountResponse(2L, "BS21000000001002", BigDecimal.ZERO, 7L),
+                new AccountResponse(3L, "BS91000000001003", BigDecimal.ZERO, 7L)));
+
+        mockMvc.perform(post("/api/users/7/accounts")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AccountBulkCreateRequest(3))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].userId").value(7));
+    }
+
+    @Test
+    void createAccounts_zeroCount_returns400() throws Exception {
+        mockMvc.perform(post("/api/users/7/accounts")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"count\":0}"))
+                .andExpect(status().isBadRequest());
     }
 }
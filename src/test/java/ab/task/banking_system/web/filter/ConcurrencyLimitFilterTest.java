@@ -0,0 +1,104 @@
+package ab.task.banking_system.web.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 1, Duration.ofMillis(50), meterRegistry);
+
+    @Test
+    void freePermit_passesRequestThrough() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), response, (req, res) -> {});
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0.0, meterRegistry.get("banking.concurrency.active").gauge().value());
+    }
+
+    @Test
+    void noPermitWithinMaxWait_returns503() throws Exception {
+        CountDownLatch release = holdPermit(filter);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), response,
+                (req, res) -> fail("request must not reach the chain"));
+        release.countDown();
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("banking.concurrency.rejected").tag("reason", "timeout").counter().count());
+        assertEquals(0.0, meterRegistry.get("banking.concurrency.waiting").gauge().value());
+    }
+
+    @Test
+    void queueFull_returns503WithoutWaiting() throws Exception {
+        ConcurrencyLimitFilter noQueue = new ConcurrencyLimitFilter(1, 0, Duration.ofSeconds(30), meterRegistry);
+        CountDownLatch release = holdPermit(noQueue);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long start = System.nanoTime();
+        noQueue.doFilter(new MockHttpServletRequest("GET", "/api/users"), response,
+                (req, res) -> fail("request must not reach the chain"));
+        long elapsed = System.nanoTime() - start;
+        release.countDown();
+
+        assertEquals(503, response.getStatus());
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1.0, meterRegistry.get("banking.concurrency.rejected").tag("reason", "queue_full").counter().count());
+    }
+
+    @Test
+    void asyncRequest_holdsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/export/accounts");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(1.0, meterRegistry.get("banking.concurrency.active").gauge().value());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), second,
+                (req, res) -> fail("request must not reach the chain"));
+        assertEquals(503, second.getStatus());
+
+        request.getAsyncContext().complete();
+
+        assertEquals(0.0, meterRegistry.get("banking.concurrency.active").gauge().value());
+        MockHttpServletResponse third = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), third, (req, res) -> {});
+        assertEquals(200, third.getStatus());
+    }
+
+    // Занимает единственное место фильтра запросом в отдельном потоке, пока не отпустят защёлку.
+    private static CountDownLatch holdPermit(ConcurrencyLimitFilter filter) throws InterruptedException {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), new MockHttpServletResponse(),
+                        (req, res) -> {
+                            inside.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+}
@@ -0,0 +1,80 @@
+package ab.task.banking_system.web.filter;
+
+import ab.task.banking_system.replica.ReplicaSession;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    static final long NOW = 1_700_000_000_000L;
+
+    ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(2),
+            Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+    MockHttpServletRequest request(String cookieValue) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        if (cookieValue != null) {
+            request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, cookieValue));
+        }
+        return request;
+    }
+
+    boolean pinnedDuring(MockHttpServletRequest request) throws Exception {
+        boolean[] pinned = new boolean[1];
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> pinned[0] = ReplicaSession.pinned());
+        return pinned[0];
+    }
+
+    @Test
+    void noCookie_readsFromReplica() throws Exception {
+        assertFalse(pinnedDuring(request(null)));
+    }
+
+    @Test
+    void unexpiredCookie_pinsToPrimary() throws Exception {
+        assertTrue(pinnedDuring(request(Long.toString(NOW + 500))));
+    }
+
+    @Test
+    void expiredOrMalformedCookie_ignored() throws Exception {
+        assertFalse(pinnedDuring(request(Long.toString(NOW - 1))));
+        assertFalse(pinnedDuring(request("soon")));
+    }
+
+    @Test
+    void write_setsCookieAndPinsRestOfRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] pinnedAfterWrite = new boolean[1];
+
+        filter.doFilter(request(null), response, (req, res) -> {
+            ReplicaSession.written();
+            ReplicaSession.written();
+            pinnedAfterWrite[0] = ReplicaSession.pinned();
+        });
+
+        assertTrue(pinnedAfterWrite[0]);
+        Cookie[] cookies = response.getCookies();
+        assertEquals(1, cookies.length);
+        assertEquals(Long.toString(NOW + 2000), cookies[0].getValue());
+        assertEquals(3, cookies[0].getMaxAge());
+        assertFalse(ReplicaSession.pinned());
+    }
+
+    @Test
+    void readOnlyRequest_setsNoCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request(null), response, (req, res) -> {});
+
+        assertEquals(0, response.getCookies().length);
+    }
+}